@@ -19,9 +19,12 @@ dependencies {
     implementation("io.quarkus:quarkus-rest")
     implementation("io.quarkus:quarkus-rest-jackson")
     implementation("io.quarkus:quarkus-vertx")
+    implementation("io.vertx:vertx-mqtt")
     implementation("io.quarkus:quarkus-scheduler")
     implementation("io.quarkus:quarkus-config-yaml")
+    implementation("io.quarkus:quarkus-micrometer-registry-prometheus")
     implementation("com.nimbusds:nimbus-jose-jwt:9.37")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
 
     // W3CP
     implementation("w3cp:w3cp-dto:0.8.4")
@@ -53,12 +56,28 @@ tasks.withType<JavaCompile> {
     options.compilerArgs.add("-parameters")
 }
 
+// The Vector API metering kernel is compiled on its own, so only this source set needs the incubator module.
+// Its classes ship with main; at runtime the kernel is only used with --add-modules=jdk.incubator.vector.
+val vector by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().compileClasspath +
+        files(tasks.compileJava.flatMap { it.destinationDirectory })
+}
+tasks.named<JavaCompile>("compileVectorJava") {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+(sourceSets.main.get().output.classesDirs as ConfigurableFileCollection).from(vector.output.classesDirs)
+
 tasks.named("build") {
     dependsOn("test")
 }
 
 tasks.withType<Test> {
-    useJUnitPlatform()
+    // Benchmarks report this machine's timings rather than behaviour; run them with ./gradlew benchmark
+    useJUnitPlatform {
+        if (name == "benchmark") includeTags("benchmark") else excludeTags("benchmark")
+    }
+    // Exercise the Vector API kernel; PhaseKernelTest compares it with the scalar one
+    jvmArgs("--add-modules", "jdk.incubator.vector")
     systemProperty("java.util.logging.manager", "org.jboss.logmanager.LogManager")
 
     // Optional CLI override: -Dquarkus.log.level=INFO
@@ -80,4 +99,12 @@ tasks.withType<Test> {
             exceptionFormat = org.gradle.api.tasks.testing.logging.TestExceptionFormat.FULL
         }
     }
-}
\ No newline at end of file
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the tests tagged benchmark."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    shouldRunAfter("test")
+}
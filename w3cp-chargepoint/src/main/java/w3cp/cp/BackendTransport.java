@@ -0,0 +1,57 @@
+package w3cp.cp;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The process's own link to the backend, as selected by {@code w3cp.backend.transport}. Everything that injects
+ * {@link CPConnection} gets this link; see {@link BackendTransportProducer}.
+ */
+public interface BackendTransport extends CPConnection {
+
+  Uni<Void> connect();
+
+  /**
+   * Handler for frames arriving on the active link.
+   */
+  void setMessageHandler(Consumer<String> handler);
+
+  /**
+   * Called when the link drops without {@link #disconnect()} having been asked for.
+   */
+  void setConnectionLostHandler(Runnable handler);
+
+  /**
+   * @return payload bytes handed to the link so far, before any compression or framing
+   */
+  long bytesSent();
+
+  /**
+   * Handler for frames arriving on a warm standby link; replies must go through the given connection.
+   * Transports without standby links never call it.
+   */
+  default void setStandbyMessageHandler(BiConsumer<String, CPConnection> handler) {
+  }
+
+  /**
+   * Called after a verified standby has been promoted to the active link.
+   */
+  default void setFailoverHandler(Runnable handler) {
+  }
+
+  /**
+   * Asks for compressed frames from the next connect on, where the transport supports it.
+   */
+  default void setCompression(boolean compression) {
+  }
+
+  /**
+   * Does whatever part of the next {@link #connect()} can be done ahead of time, e.g. name resolution and
+   * TLS handshakes, ahead of a planned reconnect. Never fails.
+   */
+  default Uni<Void> prewarm() {
+    return Uni.createFrom().voidItem();
+  }
+}
@@ -0,0 +1,33 @@
+package w3cp.cp;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.mqtt.MqttCPConnection;
+import w3cp.cp.ws.WebSocketCPConnection;
+
+/**
+ * Picks the backend transport once at startup. The implementations are {@link jakarta.enterprise.inject.Typed}
+ * to their own class, so the produced bean is the only {@link CPConnection} and the unused transport is never
+ * instantiated.
+ */
+@Slf4j
+@ApplicationScoped
+public class BackendTransportProducer {
+
+  @Produces
+  @ApplicationScoped
+  BackendTransport transport(BackendConfig backendConfig, Instance<WebSocketCPConnection> webSocket,
+                             Instance<MqttCPConnection> mqtt) {
+    String transport = backendConfig.getTransport();
+    log.info("Using {} backend transport", transport);
+    return switch (transport) {
+      case "websocket" -> webSocket.get();
+      case "mqtt" -> mqtt.get();
+      default -> throw new W3CPChargepointException("Unknown backend transport: " + transport);
+    };
+  }
+}
@@ -1,14 +1,35 @@
 package w3cp.cp;
 
+import io.netty.buffer.ByteBuf;
 import io.smallrye.mutiny.Uni;
 
-import java.util.function.Consumer;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Where a chargepoint's frames go: the backend link itself, or a channel that shares it.
+ */
 public interface CPConnection {
-  Uni<Void> connect();
   Uni<Void> disconnect();
   Uni<Void> send(String message);
-  void setMessageHandler(Consumer<String> handler);
+
+  /**
+   * Sends a UTF-8 encoded message. The connection takes ownership of {@code frame} and releases it once written
+   * or dropped. The default decodes it and goes through {@link #send(String)}.
+   */
+  default Uni<Void> send(ByteBuf frame) {
+    String message;
+    try {
+      message = frame.toString(StandardCharsets.UTF_8);
+    } finally {
+      frame.release();
+    }
+    return send(message);
+  }
   boolean isConnected();
 
+  /**
+   * Called once the backend has verified the session on this connection.
+   */
+  default void onSessionVerified() {
+  }
 }
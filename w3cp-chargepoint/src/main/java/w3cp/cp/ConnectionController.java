@@ -4,35 +4,60 @@ import io.quarkus.scheduler.Scheduled;
 import io.smallrye.mutiny.Uni;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.gateway.GatewayMultiplexer;
+import w3cp.cp.logic.JitWarmup;
 import w3cp.cp.logic.W3CPMessageHandler;
-import w3cp.cp.ws.WebSocketCPConnection;
 
 @ApplicationScoped
 @Data
 @Slf4j
 public class ConnectionController {
 
-  private final CPConnection connection;
+  private final BackendTransport connection;
   private final W3CPMessageHandler w3CPMessageHandler;
+  private final JitWarmup warmup;
+  private final GatewayMultiplexer gateway;
 
   private boolean autoReconnect = true;
 
   @Inject
-  public ConnectionController(WebSocketCPConnection connection, W3CPMessageHandler w3CPMessageHandler) {
+  public ConnectionController(BackendTransport connection, W3CPMessageHandler w3CPMessageHandler,
+                              JitWarmup warmup, GatewayMultiplexer gateway) {
     this.connection = connection;
     this.w3CPMessageHandler = w3CPMessageHandler;
+    this.warmup = warmup;
+    this.gateway = gateway;
   }
 
+  /**
+   * The only place the transport's handlers are installed; they stay in place across reconnects.
+   */
   @PostConstruct
   void logStartup() {
+    connection.setMessageHandler(gateway.isEnabled() ? gateway::route : w3CPMessageHandler::handle);
+    connection.setStandbyMessageHandler(gateway.isEnabled() ? gateway::route : w3CPMessageHandler::handle);
+    connection.setFailoverHandler(w3CPMessageHandler::onFailover);
+    // Reconnect right away instead of waiting for the next scheduled check
+    connection.setConnectionLostHandler(() -> {
+      w3CPMessageHandler.onConnectionLost();
+      checkAndReconnect();
+    });
     log.info("ConnectionController initialized");
   }
 
   public Uni<Void> connect() {
-    return connection.connect();
+    return warmup.completion().chain(connection::connect);
+  }
+
+  /**
+   * Prepares the next connect ahead of a planned reconnect; see {@link BackendTransport#prewarm()}.
+   */
+  public Uni<Void> prewarm() {
+    return connection.prewarm();
   }
 
   public Uni<Void> disconnect() {
@@ -43,11 +68,14 @@ public class ConnectionController {
     return connection.isConnected();
   }
 
-  @Scheduled(every = "10s")
+  @Scheduled(every = "${w3cp.backend.reconnect-interval:10s}")
   void checkAndReconnect() {
+    if (!warmup.isComplete()) {
+      log.debug("JIT warm-up still running, postponing connect");
+      return;
+    }
     if (autoReconnect && !connection.isConnected()) {
       log.info("Detected CP is offline. Attempting reconnect...");
-      connection.setMessageHandler(w3CPMessageHandler::handle);
       connection.connect().subscribe().with(
           unused -> {
           },
@@ -56,5 +84,10 @@ public class ConnectionController {
     }
   }
 
+  void onWarmupCompleted(@Observes JitWarmup.Completed completed) {
+    // Connect right away instead of waiting for the next scheduled check
+    checkAndReconnect();
+  }
+
 }
 
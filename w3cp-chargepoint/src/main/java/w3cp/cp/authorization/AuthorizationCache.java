@@ -0,0 +1,195 @@
+package w3cp.cp.authorization;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.model.ChargePointStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local answer to "may this vehicle charge?" that never waits for the backend.
+ * <p>
+ * A Bloom filter answers most unknown vehicles without touching the map. Every grant the backend sent is kept,
+ * up to {@code max-entries}; a sync that would hold more is rejected as a whole rather than dropping grants the
+ * backend still stands by. Each grant is trusted until the earlier of its backend expiry and {@code ttl} after it
+ * was last synced. {@link AuthorizationSync} keeps it current and persists it, and the last persisted copy is
+ * loaded on start so decisions are available before the first sync. {@link VehicleAuthorization} asks it whenever
+ * an EVSE reports a vehicle.
+ */
+@Slf4j
+@ApplicationScoped
+public class AuthorizationCache {
+
+  public enum Decision {
+    authorized,     // known grant within its validity
+    expired,        // known grant past its backend expiry or local ttl
+    unknown         // no grant cached
+  }
+
+  /**
+   * Cached grant; {@code trustedUntil} already includes the local ttl.
+   */
+  record Entry(AuthorizationDelta.Grant grant, Instant trustedUntil) {
+  }
+
+  /**
+   * On-disk form.
+   */
+  record Snapshot(String cursor, List<Entry> entries) {
+  }
+
+  private final AuthorizationConfig config;
+  // Replaced as a whole on every change and never modified once published, so lookups take no lock
+  private volatile Map<String, Entry> entries = Map.of();
+  private volatile BloomFilter filter;
+  private volatile String cursor;
+
+  @Inject
+  public AuthorizationCache(AuthorizationConfig config) {
+    this.config = config;
+    this.filter = newFilter();
+    if (config.enabled()) {
+      load();
+    }
+  }
+
+  public Decision authorize(ChargePointStatus.VehicleIdentity vehicle) {
+    return vehicle == null || vehicle.getId() == null ? Decision.unknown : authorize(vehicle.getId());
+  }
+
+  public Decision authorize(String identityId) {
+    if (!filter.mightContain(identityId)) {
+      return Decision.unknown;
+    }
+    Entry entry = entries.get(identityId);
+    if (entry == null) {
+      return Decision.unknown;
+    }
+    return Instant.now().isBefore(entry.trustedUntil()) ? Decision.authorized : Decision.expired;
+  }
+
+  /**
+   * Position of the last applied delta, {@code null} before the first sync.
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Applies a sync response. A full response replaces the cache; revocations rebuild the filter so the removed
+   * ids go back to fast negative answers.
+   *
+   * @throws W3CPChargepointException if the cache would hold more than {@code max-entries} grants; it is left
+   *                                  as it was, cursor included
+   */
+  public synchronized void apply(AuthorizationDelta delta) {
+    Instant now = Instant.now();
+    List<AuthorizationDelta.Grant> granted = delta.granted() == null ? List.of() : delta.granted();
+    List<String> revoked = delta.revoked() == null ? List.of() : delta.revoked();
+
+    Map<String, Entry> next = delta.full() ? new HashMap<>() : new HashMap<>(entries);
+    for (AuthorizationDelta.Grant grant : granted) {
+      if (grant.id() != null) {
+        next.put(grant.id(), new Entry(grant, trustedUntil(grant, now)));
+      }
+    }
+    revoked.forEach(next::remove);
+    if (next.size() > config.maxEntries()) {
+      throw new W3CPChargepointException("%s authorization delta would leave %d grants, more than max-entries %d"
+          .formatted(delta.full() ? "Full" : "Incremental", next.size(), config.maxEntries()));
+    }
+
+    // Filter first, so a new grant is never hidden behind the old filter
+    if (delta.full() || !revoked.isEmpty()) {
+      filter = filterOf(next.keySet());
+    } else {
+      BloomFilter current = filter;
+      granted.stream().map(AuthorizationDelta.Grant::id).filter(id -> id != null).forEach(current::add);
+    }
+    entries = next;
+    cursor = delta.cursor();
+    log.debug("Applied {} authorization delta: {} granted, {} revoked, {} cached",
+        delta.full() ? "full" : "incremental", granted.size(), revoked.size(), size());
+  }
+
+  /**
+   * Writes the cache next to its target and renames it into place, so a crash leaves either the old or the
+   * new file. Blocking; call off the event loop.
+   */
+  public void persist() {
+    Snapshot snapshot;
+    synchronized (this) {
+      snapshot = new Snapshot(cursor, new ArrayList<>(entries.values()));
+    }
+    Path target = Path.of(config.cacheFile()).toAbsolutePath();
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(target.getParent());
+      W3CPJson.MAPPER.writeValue(temp.toFile(), snapshot);
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new W3CPChargepointException("Failed to persist authorization cache to " + target, e);
+    }
+  }
+
+  private void load() {
+    Path file = Path.of(config.cacheFile());
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    try {
+      Snapshot snapshot = W3CPJson.MAPPER.readValue(file.toFile(), Snapshot.class);
+      Instant now = Instant.now();
+      Map<String, Entry> loaded = new HashMap<>();
+      for (Entry entry : snapshot.entries()) {
+        if (now.isBefore(entry.trustedUntil())) {
+          loaded.put(entry.grant().id(), entry);
+        }
+      }
+      if (loaded.size() > config.maxEntries()) {
+        log.warn("Ignoring authorization cache {} with {} grants, more than max-entries {}, waiting for a full sync",
+            file, loaded.size(), config.maxEntries());
+        return;
+      }
+      synchronized (this) {
+        filter = filterOf(loaded.keySet());
+        entries = loaded;
+        cursor = snapshot.cursor();
+      }
+      log.info("✅ Loaded {} vehicle authorization(s) from {}", size(), file);
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable authorization cache {}, waiting for a full sync", file, e);
+    }
+  }
+
+  private BloomFilter filterOf(Set<String> ids) {
+    BloomFilter rebuilt = newFilter();
+    ids.forEach(rebuilt::add);
+    return rebuilt;
+  }
+
+  private BloomFilter newFilter() {
+    return new BloomFilter(config.maxEntries(), config.falsePositiveRate());
+  }
+
+  private Instant trustedUntil(AuthorizationDelta.Grant grant, Instant now) {
+    Instant local = now.plus(config.ttl());
+    return grant.expiresAt() != null && grant.expiresAt().isBefore(local) ? grant.expiresAt() : local;
+  }
+}
@@ -0,0 +1,33 @@
+package w3cp.cp.authorization;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "w3cp.authorization")
+public interface AuthorizationConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // sync grants and answer plug-ins from the local cache
+
+  @WithName("sync-url")
+  Optional<String> syncUrl();             // backend endpoint serving incremental grant deltas
+
+  @WithName("cache-file")
+  @WithDefault("authorization-cache.json")
+  String cacheFile();                     // survives restarts; written via atomic rename
+
+  @WithName("max-entries")
+  @WithDefault("100000")
+  int maxEntries();                       // a sync that would hold more grants is rejected
+
+  @WithDefault("24h")
+  Duration ttl();                         // how long a grant is trusted without being re-synced
+
+  @WithName("false-positive-rate")
+  @WithDefault("0.01")
+  double falsePositiveRate();             // Bloom filter target at max-entries
+}
@@ -0,0 +1,27 @@
+package w3cp.cp.authorization;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import w3cp.model.identity.IdentityType;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One sync response: grants and revocations since {@code since}, or the complete set if {@code full}.
+ *
+ * @param cursor  opaque position to pass as {@code since} on the next sync
+ * @param full    the grants replace everything cached so far
+ * @param granted identities allowed to charge
+ * @param revoked identity ids no longer allowed to charge
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AuthorizationDelta(String cursor, boolean full, List<Grant> granted, List<String> revoked) {
+
+  /**
+   * @param id        vehicle DID or public-key id, as in {@code VehicleIdentity.id}
+   * @param expiresAt end of the grant as issued by the backend, or {@code null} if open-ended
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public record Grant(String id, IdentityType type, Instant expiresAt) {
+  }
+}
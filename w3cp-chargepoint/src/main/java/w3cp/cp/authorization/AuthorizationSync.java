@@ -0,0 +1,127 @@
+package w3cp.cp.authorization;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.core.http.HttpClient;
+import io.vertx.mutiny.core.http.HttpClientRequest;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.W3CPJson;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pulls grant deltas from {@code sync-url} in the background and persists the cache after each change.
+ * <p>
+ * Requests are {@code GET <sync-url>?cpId=<cp-id>[&since=<cursor>]}; the response is an
+ * {@link AuthorizationDelta}. Without a cursor the backend is expected to answer with a full set.
+ */
+@Slf4j
+@ApplicationScoped
+public class AuthorizationSync {
+
+  private final AuthorizationConfig config;
+  private final AuthorizationCache cache;
+  private final BackendConfig backendConfig;
+  private final CpConfig cpConfig;
+  private final Vertx vertx;
+  private final AtomicBoolean syncing = new AtomicBoolean(false);
+  private HttpClient client;
+
+  @Inject
+  public AuthorizationSync(AuthorizationConfig config, AuthorizationCache cache, BackendConfig backendConfig,
+                           CpConfig cpConfig, Vertx vertx) {
+    this.config = config;
+    this.cache = cache;
+    this.backendConfig = backendConfig;
+    this.cpConfig = cpConfig;
+    this.vertx = vertx;
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    scheduledSync();
+  }
+
+  @Scheduled(every = "${w3cp.authorization.sync-interval:5m}")
+  void scheduledSync() {
+    if (!config.enabled() || config.syncUrl().isEmpty()) {
+      return;
+    }
+    if (!syncing.compareAndSet(false, true)) {
+      return;
+    }
+    sync()
+        .onTermination().invoke(() -> syncing.set(false))
+        .subscribe().with(
+            unused -> {
+            },
+            failure -> log.warn("Authorization sync failed, keeping {} cached grant(s): {}", cache.size(), failure.getMessage())
+        );
+  }
+
+  /**
+   * Fetches and applies one delta.
+   */
+  public Uni<Void> sync() {
+    String url = syncUri();
+    return client().request(new RequestOptions().setMethod(HttpMethod.GET).setAbsoluteURI(url))
+        .chain(HttpClientRequest::send)
+        .chain(response -> {
+          if (response.statusCode() != 200) {
+            return Uni.createFrom().failure(
+                new W3CPChargepointException("Authorization sync answered " + response.statusCode()));
+          }
+          return response.body();
+        })
+        .ifNoItem().after(backendConfig.getRequestTimeout()).fail()
+        .emitOn(Infrastructure.getDefaultWorkerPool())
+        .invoke(body -> {
+          try {
+            cache.apply(W3CPJson.MAPPER.readValue(body.getBytes(), AuthorizationDelta.class));
+          } catch (Exception e) {
+            throw new W3CPChargepointException("Invalid authorization delta", e);
+          }
+          cache.persist();
+        })
+        .replaceWithVoid();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (client != null) {
+      client.closeAndForget();
+    }
+  }
+
+  private synchronized HttpClient client() {
+    if (client == null) {
+      client = vertx.createHttpClient();
+    }
+    return client;
+  }
+
+  private String syncUri() {
+    String base = config.syncUrl().orElseThrow();
+    StringBuilder url = new StringBuilder(base)
+        .append(base.contains("?") ? '&' : '?')
+        .append("cpId=").append(URLEncoder.encode(cpConfig.cpId(), StandardCharsets.UTF_8));
+    String cursor = cache.getCursor();
+    if (cursor != null) {
+      url.append("&since=").append(URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+    }
+    return url.toString();
+  }
+}
@@ -0,0 +1,81 @@
+package w3cp.cp.authorization;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings. Adding is lock-free and may run concurrently with lookups; there is no
+ * removal, so revoked entries are dropped by rebuilding the filter.
+ */
+public final class BloomFilter {
+
+  private final AtomicLongArray words;
+  private final long bits;
+  private final int hashes;
+
+  /**
+   * @param expectedEntries   number of entries the filter is sized for
+   * @param falsePositiveRate target false positive rate at {@code expectedEntries}
+   */
+  public BloomFilter(int expectedEntries, double falsePositiveRate) {
+    int n = Math.max(1, expectedEntries);
+    double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+    long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    this.bits = Math.max(64, (m + 63) & ~63L);
+    this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    this.words = new AtomicLongArray(Math.toIntExact(bits >>> 6));
+  }
+
+  public void add(String value) {
+    long hash = hash64(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashes; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+        current = words.get(word);
+      }
+    }
+  }
+
+  /**
+   * @return {@code false} if {@code value} was certainly never added
+   */
+  public boolean mightContain(String value) {
+    long hash = hash64(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < hashes; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long bitCount() {
+    return bits;
+  }
+
+  public int hashCount() {
+    return hashes;
+  }
+
+  // FNV-1a over the UTF-16 chars followed by a murmur3 finalizer to spread the high bits
+  private static long hash64(String value) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
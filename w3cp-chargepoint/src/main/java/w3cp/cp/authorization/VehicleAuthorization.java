@@ -0,0 +1,81 @@
+package w3cp.cp.authorization;
+
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.logic.state.CPState;
+import w3cp.model.ChargePointStatus;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plug-in path of the {@link AuthorizationCache}: every time an EVSE reports a different
+ * {@link ChargePointStatus.VehicleIdentity} the cache decides whether it may charge, and the decision is fired as
+ * a {@link VehicleAuthorized} event for whatever drives the EVSEs. The decision is made on the EVSE's lane and
+ * never waits for the backend.
+ */
+@Slf4j
+@ApplicationScoped
+@Startup
+public class VehicleAuthorization {
+
+  /**
+   * Decision for the vehicle now reported by an EVSE.
+   */
+  public record VehicleAuthorized(String evseId, String vehicleId, AuthorizationCache.Decision decision) {
+  }
+
+  private final AuthorizationConfig config;
+  private final AuthorizationCache cache;
+  private final CPState cpState;
+  private final Event<VehicleAuthorized> authorized;
+  // Last decision per EVSE; an entry goes away when its vehicle does
+  private final Map<String, VehicleAuthorized> decisions = new ConcurrentHashMap<>();
+
+  @Inject
+  public VehicleAuthorization(AuthorizationConfig config, AuthorizationCache cache, CPState cpState,
+                              Event<VehicleAuthorized> authorized) {
+    this.config = config;
+    this.cache = cache;
+    this.cpState = cpState;
+    this.authorized = authorized;
+  }
+
+  @PostConstruct
+  public void init() {
+    if (!config.enabled()) {
+      return;
+    }
+    cpState.addEvseListener(this::onEvseChanged);
+  }
+
+  /**
+   * @return the decision for the vehicle at {@code evseId}, {@code null} if none is reported there
+   */
+  public VehicleAuthorized decision(String evseId) {
+    return decisions.get(evseId);
+  }
+
+  void onEvseChanged(ChargePointStatus.Evse evse) {
+    ChargePointStatus.VehicleIdentity vehicle = evse.getVehicleIdentity();
+    String vehicleId = vehicle == null ? null : vehicle.getId();
+    VehicleAuthorized previous = decisions.get(evse.getEvseId());
+    if (Objects.equals(vehicleId, previous == null ? null : previous.vehicleId())) {
+      return;
+    }
+    if (vehicleId == null) {
+      decisions.remove(evse.getEvseId());
+      return;
+    }
+
+    VehicleAuthorized decision = new VehicleAuthorized(evse.getEvseId(), vehicleId, cache.authorize(vehicle));
+    decisions.put(evse.getEvseId(), decision);
+    log.info("Vehicle {} at EVSE {}: {}", vehicleId, evse.getEvseId(), decision.decision());
+    authorized.fireAsync(decision);
+  }
+}
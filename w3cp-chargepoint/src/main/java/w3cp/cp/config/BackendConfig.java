@@ -6,16 +6,65 @@ import lombok.Data;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @ApplicationScoped
 @RegisterForReflection
 @Data
 public class BackendConfig {
 
+  // "websocket" or "mqtt"
+  @ConfigProperty(name = "w3cp.backend.transport", defaultValue = "websocket")
+  String transport;
+
   @ConfigProperty(name = "w3cp.backend.websocket.url")
   String websocketUrl;
 
+  // Additional endpoints, tried in health order when the primary is unreachable
+  @ConfigProperty(name = "w3cp.backend.websocket.failover-urls")
+  Optional<List<String>> failoverUrls;
+
+  @ConfigProperty(name = "w3cp.backend.websocket.connect-timeout", defaultValue = "5s")
+  Duration connectTimeout;
+
+  // WebSocket ping period for RTT measurement; a link missing 3 pongs is considered dead
+  @ConfigProperty(name = "w3cp.backend.websocket.ping-interval", defaultValue = "5s")
+  Duration pingInterval;
+
+  // Keep a second, already verified connection to switch over to without a new handshake
+  @ConfigProperty(name = "w3cp.backend.websocket.warm-standby", defaultValue = "false")
+  boolean warmStandby;
+
+  // How long a resolved backend address is reused before it is looked up again
+  @ConfigProperty(name = "w3cp.backend.websocket.dns-ttl", defaultValue = "60s")
+  Duration dnsTtl;
+
+  // PEM files of the CAs to trust instead of the JVM's, e.g. for a backend behind a private CA
+  @ConfigProperty(name = "w3cp.backend.websocket.trust-certs")
+  Optional<List<String>> trustCerts;
+
+  // Present the ticket of the last verified session on reconnect instead of redoing challenge and proof of work
+  @ConfigProperty(name = "w3cp.backend.resumption", defaultValue = "true")
+  boolean resumption;
+
+  // Default time to wait for the reply to a correlated request
+  @ConfigProperty(name = "w3cp.backend.request-timeout", defaultValue = "10s")
+  Duration requestTimeout;
+
   public URI uri() {
     return URI.create(websocketUrl);
   }
-}
\ No newline at end of file
+
+  public List<URI> uris() {
+    List<URI> uris = new ArrayList<>();
+    uris.add(uri());
+    failoverUrls.ifPresent(urls -> urls.stream()
+        .map(URI::create)
+        .filter(uri -> !uris.contains(uri))
+        .forEach(uris::add));
+    return uris;
+  }
+}
@@ -0,0 +1,39 @@
+package w3cp.cp.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.util.Map;
+
+@ConfigMapping(prefix = "w3cp.backend.verification")
+public interface BackendVerificationConfig {
+
+  @WithDefault("off")
+  Mode mode();                            // off, monitor (log + metrics only) or enforce (drop unverified)
+
+  Map<String, PinnedKey> keys();          // backend keys pinned by key id (kid)
+
+  @WithName("key-cache-size")
+  @WithDefault("64")
+  int keyCacheSize();                     // parsed PublicKeys kept in the LRU
+
+  @WithName("engines-per-key")
+  @WithDefault("4")
+  int enginesPerKey();                    // pooled verify engines per key id
+
+  @WithName("batch-size")
+  @WithDefault("32")
+  int batchSize();                        // frames verified per worker pass
+
+  enum Mode {
+    off, monitor, enforce
+  }
+
+  interface PinnedKey {
+    W3CPPublicKey.KeyType type();
+
+    String value();                       // X.509 SPKI (or RAW32 for ed25519), base64url
+  }
+}
@@ -1,6 +1,7 @@
 package w3cp.cp.config;
 
 import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
 import io.smallrye.config.WithName;
 
 import java.util.List;
@@ -16,6 +17,8 @@ public interface CpConfig {
 
   List<EvseConfig> evses();
 
+  StatusConfig status();
+
   interface EvseConfig {
     @WithName("evse-id")
     String evseId();
@@ -23,8 +26,22 @@ public interface CpConfig {
     FeederConfig feeder();
   }
 
+  interface StatusConfig {
+    @WithName("max-page-bytes")
+    @WithDefault("65536")
+    int maxPageBytes();                     // larger statuses are split into pages
+
+    @WithName("planned-writer")
+    @WithDefault("true")
+    boolean plannedWriter();                // precomputed status serializer; Jackson if the DTOs outgrow it
+
+    @WithName("fraction-digits")
+    @WithDefault("-1")
+    int fractionDigits();                   // decimals of meter, power, current, ...; -1 keeps every digit
+  }
+
   interface FeederConfig {
-    String type();                           // dummy or remote
+    String type();                           // dummy-static, dummy-metered or remote
 
     Optional<String> source();              // URL or null
 
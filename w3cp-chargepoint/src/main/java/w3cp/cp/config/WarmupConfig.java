@@ -0,0 +1,26 @@
+package w3cp.cp.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "w3cp.warmup")
+public interface WarmupConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // run the handshake paths before the first connect
+
+  @WithName("max-duration")
+  @WithDefault("5s")
+  Duration maxDuration();                 // hard bound on how long the first connect is held back
+
+  @WithName("stable-rounds")
+  @WithDefault("3")
+  int stableRounds();                     // rounds without new JIT compilation that count as warm
+
+  @WithName("pow-attempts")
+  @WithDefault("10000")
+  int powAttempts();                      // proof-of-work hashes per round; a difficulty-0 challenge stops at one
+}
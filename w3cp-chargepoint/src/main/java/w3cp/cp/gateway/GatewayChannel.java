@@ -0,0 +1,106 @@
+package w3cp.cp.gateway;
+
+import io.netty.buffer.ByteBuf;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.Json;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.error.W3CPChargepointException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A gateway member's view of the shared backend connection. Outgoing frames get a top-level {@code cpId}
+ * so the backend can tell the members apart; the link itself belongs to the primary chargepoint and is never
+ * opened or closed from here.
+ */
+@Slf4j
+public class GatewayChannel implements CPConnection {
+
+  private final String cpId;
+  // {"cpId":<id> without the comma, which an empty object must not get
+  private final String envelopePrefix;
+  private final byte[] envelopePrefixBytes;
+  private final CPConnection uplink;
+
+  public GatewayChannel(String cpId, CPConnection uplink) {
+    this.cpId = cpId;
+    this.envelopePrefix = "{\"cpId\":" + Json.encode(cpId);
+    this.envelopePrefixBytes = envelopePrefix.getBytes(StandardCharsets.UTF_8);
+    this.uplink = uplink;
+  }
+
+  /**
+   * Closing the shared link would take every member down, so a member only logs the request.
+   */
+  @Override
+  public Uni<Void> disconnect() {
+    log.warn("Ignoring disconnect requested for gateway member {}", cpId);
+    return Uni.createFrom().voidItem();
+  }
+
+  @Override
+  public Uni<Void> send(String message) {
+    if (message.isEmpty() || message.charAt(0) != '{') {
+      return Uni.createFrom().failure(new W3CPChargepointException("Not a W3CP message object for " + cpId));
+    }
+    String rest = message.substring(1);
+    return uplink.send(envelopePrefix + (isEmptyObject(rest) ? rest : "," + rest));
+  }
+
+  @Override
+  public Uni<Void> send(ByteBuf frame) {
+    int readable = frame.readableBytes();
+    if (readable == 0 || frame.getByte(frame.readerIndex()) != '{') {
+      frame.release();
+      return Uni.createFrom().failure(new W3CPChargepointException("Not a W3CP message object for " + cpId));
+    }
+    boolean empty = isEmptyObject(frame, frame.readerIndex() + 1, frame.writerIndex());
+    ByteBuf enveloped = frame.alloc().directBuffer(envelopePrefixBytes.length + readable);
+    try {
+      enveloped.writeBytes(envelopePrefixBytes);
+      if (!empty) {
+        enveloped.writeByte(',');
+      }
+      enveloped.writeBytes(frame, frame.readerIndex() + 1, readable - 1);
+    } finally {
+      frame.release();
+    }
+    return uplink.send(enveloped);
+  }
+
+  @Override
+  public boolean isConnected() {
+    return uplink.isConnected();
+  }
+
+  public String getCpId() {
+    return cpId;
+  }
+
+  /**
+   * Whether what follows the opening brace is just the closing one, so {@code cpId} must not be followed by a comma.
+   */
+  private static boolean isEmptyObject(String rest) {
+    for (int i = 0; i < rest.length(); i++) {
+      if (!isJsonWhitespace(rest.charAt(i))) {
+        return rest.charAt(i) == '}';
+      }
+    }
+    return false;
+  }
+
+  private static boolean isEmptyObject(ByteBuf frame, int from, int to) {
+    for (int i = from; i < to; i++) {
+      byte b = frame.getByte(i);
+      if (!isJsonWhitespace((char) b)) {
+        return b == '}';
+      }
+    }
+    return false;
+  }
+
+  private static boolean isJsonWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+}
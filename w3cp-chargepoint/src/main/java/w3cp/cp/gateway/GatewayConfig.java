@@ -0,0 +1,24 @@
+package w3cp.cp.gateway;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.identity.bare.IdentityConfig;
+
+import java.util.List;
+import java.util.Map;
+
+@ConfigMapping(prefix = "w3cp.gateway")
+public interface GatewayConfig {
+
+  @WithDefault("false")
+  boolean enabled();                            // speak for the chargepoints below over the backend connection
+
+  Map<String, MemberConfig> chargepoints();     // keyed by cp-id
+
+  interface MemberConfig {
+    IdentityConfig identity();                  // bare key of this chargepoint
+
+    List<CpConfig.EvseConfig> evses();
+  }
+}
@@ -0,0 +1,122 @@
+package w3cp.cp.gateway;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.logic.W3CPMessageHandler;
+import w3cp.cp.logic.handler.IdentityChallengeHandler;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gateway mode: one backend connection carries the traffic of many physical chargepoints.
+ * <p>
+ * Member frames carry a top-level {@code cpId} in both directions. Inbound frames are routed by it to the
+ * member's session; frames without one, or with the process's own cp-id, belong to the primary chargepoint.
+ * The backend starts a member handshake by sending {@code identityChallenge} with that member's cp-id, and
+ * each member is proven, verified and reported independently.
+ */
+@Slf4j
+@ApplicationScoped
+public class GatewayMultiplexer {
+
+  private final GatewayConfig config;
+  private final CpConfig cpConfig;
+  private final CPConnection connection;
+  private final W3CPMessageHandler messageHandler;
+  private final Map<String, GatewaySession> sessions;
+
+  @Inject
+  public GatewayMultiplexer(GatewayConfig config, CpConfig cpConfig, CPConnection connection,
+                            W3CPMessageHandler messageHandler, IdentityChallengeHandler identityChallengeHandler) {
+    this.config = config;
+    this.cpConfig = cpConfig;
+    this.connection = connection;
+    this.messageHandler = messageHandler;
+
+    Map<String, GatewaySession> members = new LinkedHashMap<>();
+    if (config.enabled()) {
+      config.chargepoints().forEach((cpId, member) -> {
+        if (cpId.equals(cpConfig.cpId())) {
+          log.warn("Gateway member {} has the primary cp-id, ignoring it", cpId);
+          return;
+        }
+        GatewaySession session = new GatewaySession(cpId, member, cpConfig, connection, identityChallengeHandler);
+        seed(session, member);
+        members.put(cpId, session);
+      });
+      log.info("✅ Gateway mode with {} member chargepoint(s): {}", members.size(), members.keySet());
+    }
+    this.sessions = Collections.unmodifiableMap(members);
+  }
+
+  public boolean isEnabled() {
+    return config.enabled();
+  }
+
+  public Map<String, GatewaySession> getSessions() {
+    return sessions;
+  }
+
+  /**
+   * Routes a frame from the active backend link.
+   */
+  public void route(String rawMessage) {
+    route(rawMessage, connection);
+  }
+
+  /**
+   * Routes a frame that arrived on {@code replyTo}. Members only handshake on the active link; the backend
+   * challenges them again after a failover.
+   */
+  public void route(String rawMessage, CPConnection replyTo) {
+    JsonObject json;
+    try {
+      json = new JsonObject(rawMessage);
+    } catch (Exception e) {
+      log.error("Failed to parse incoming message: {}", rawMessage, e);
+      return;
+    }
+
+    String cpId = json.getString("cpId");
+    if (cpId == null || cpId.equals(cpConfig.cpId())) {
+      if (replyTo == connection) {
+        messageHandler.handle(json, messageHandler.getPrimarySession());
+      } else {
+        messageHandler.handle(rawMessage, replyTo);
+      }
+      return;
+    }
+
+    GatewaySession session = sessions.get(cpId);
+    if (session == null) {
+      log.warn("Dropping {} message for unknown gateway member {}", json.getString("type"), cpId);
+    } else if (replyTo != connection) {
+      log.debug("Ignoring {} message for gateway member {} on standby link", json.getString("type"), cpId);
+    } else {
+      messageHandler.handle(json, session);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    sessions.values().forEach(GatewaySession::shutdown);
+  }
+
+  private static void seed(GatewaySession session, GatewayConfig.MemberConfig member) {
+    member.evses().stream()
+        .filter(cfg -> DummyStaticFeeder.FEEDER_TYPE.equals(cfg.feeder().type()))
+        .forEach(cfg -> session.getState().evseFullUpdate(cfg.evseId(), DummyStaticFeeder.generate(cfg.evseId()), false)
+            .subscribe().with(
+                success -> log.debug("Initialized EVSE {} of gateway member {}", cfg.evseId(), session.getCpId()),
+                failure -> log.error("❌ Failed to initialize EVSE {} of gateway member {}", cfg.evseId(), session.getCpId(), failure)
+            ));
+  }
+}
@@ -0,0 +1,105 @@
+package w3cp.cp.gateway;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.identity.bare.PlaintextIdentity;
+import w3cp.cp.logic.ChargepointSession;
+import w3cp.cp.logic.handler.IdentityChallengeHandler;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.StripedExecutor;
+import w3cp.model.W3CPMessage;
+import w3cp.model.identity.IdentityChallenge;
+import w3cp.model.identity.IdentityProof;
+import w3cp.model.identity.discovery.IdentityDiscovery;
+
+import java.util.List;
+
+/**
+ * One physical chargepoint behind the gateway: its own bare-key identity, {@link CPState} and handshake.
+ */
+@Slf4j
+@Getter
+public class GatewaySession implements ChargepointSession {
+
+  private final String cpId;
+  private final PlaintextIdentity identity;
+  private final GatewayChannel channel;
+  private final CPState state;
+  private final IdentityChallengeHandler identityChallengeHandler;
+
+  public GatewaySession(String cpId, GatewayConfig.MemberConfig member, CpConfig cpConfig, CPConnection uplink,
+                        IdentityChallengeHandler identityChallengeHandler) {
+    this.cpId = cpId;
+    this.identity = new PlaintextIdentity(member.identity());
+    this.channel = new GatewayChannel(cpId, uplink);
+    this.identityChallengeHandler = identityChallengeHandler;
+
+    CpConfig memberConfig = memberConfig(cpId, member, cpConfig);
+    int lanes = Math.max(1, Math.min(memberConfig.evses().size(), Runtime.getRuntime().availableProcessors()));
+    this.state = new CPState(channel, memberConfig, new StripedExecutor(lanes));
+  }
+
+  @Override
+  public CPConnection connection() {
+    return channel;
+  }
+
+  /**
+   * Solving and signing run on the worker pool so that members challenged together are proven in parallel.
+   */
+  @Override
+  public Uni<W3CPMessage<IdentityProof>> prove(IdentityChallenge challenge) {
+    return identityChallengeHandler.handle(challenge, cpId, identity)
+        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+  }
+
+  @Override
+  public Uni<String> report(IdentityDiscovery discovery) {
+    return identityChallengeHandler.handleSerialized(discovery, identity);
+  }
+
+  @Override
+  public void onVerified() {
+    state.markBackendConnectionVerified()
+        .chain(state::sendCurrentStatus)
+        .subscribe().with(
+            success -> log.info("✅ Sent initial CP status for gateway member {}", cpId),
+            error -> log.error("❌ Failed to send CP status for gateway member {}", cpId, error)
+        );
+  }
+
+  public void shutdown() {
+    state.shutdown();
+  }
+
+  /**
+   * The process-wide CP config with this member's id, identity type and EVSEs.
+   */
+  private static CpConfig memberConfig(String cpId, GatewayConfig.MemberConfig member, CpConfig cpConfig) {
+    return new CpConfig() {
+      @Override
+      public String cpId() {
+        return cpId;
+      }
+
+      @Override
+      public String identityType() {
+        return "bare-key";
+      }
+
+      @Override
+      public List<EvseConfig> evses() {
+        return member.evses();
+      }
+
+      @Override
+      public StatusConfig status() {
+        return cpConfig.status();
+      }
+    };
+  }
+}
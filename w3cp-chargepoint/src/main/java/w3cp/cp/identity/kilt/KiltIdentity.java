@@ -13,11 +13,14 @@ import w3cp.model.identity.W3CPPublicKey;
 import java.security.*;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
+import java.util.regex.Pattern;
 
 @Slf4j
 @ApplicationScoped
 public class KiltIdentity implements ChargepointIdentity {
 
+  private static final Pattern BASE64URL = Pattern.compile("^[A-Za-z0-9_-]+$");
+
   @Getter
   private final String did;           // canonical: did:kilt:light:00<base58>
   @Getter
@@ -94,17 +97,17 @@ public class KiltIdentity implements ChargepointIdentity {
   @Override
   public String signSha256(byte[] sha256Hash) {
     try {
-      // Debug the key conversion
-      PrivateKey jcaPrivateKey = W3CPKeyUtil.asPrivateKey(privateKey);
-      log.info("KILT private key algorithm: {}", jcaPrivateKey.getAlgorithm());
-      log.info("KILT private key format: {}", jcaPrivateKey.getFormat());
+      if (log.isDebugEnabled()) {
+        PrivateKey jcaPrivateKey = W3CPKeyUtil.asPrivateKey(privateKey);
+        log.debug("KILT private key algorithm: {}, format: {}", jcaPrivateKey.getAlgorithm(), jcaPrivateKey.getFormat());
+      }
 
       String signature = DigitalSignatureUtil.signHash(sha256Hash, privateKey);
-      log.info("KILT signature length: {}, content: {}", signature.length(), signature);
+      log.debug("KILT signature length: {}", signature.length());
 
       // Validate signature format
-      if (!signature.matches("^[A-Za-z0-9_-]+$")) {
-        log.error("KILT signature contains invalid Base64URL characters: {}", signature);
+      if (!BASE64URL.matcher(signature).matches()) {
+        log.error("KILT signature contains invalid Base64URL characters");
       }
       if (signature.length() < 64 || signature.length() > 1024) {
         log.error("KILT signature length {} is out of bounds (64-1024)", signature.length());
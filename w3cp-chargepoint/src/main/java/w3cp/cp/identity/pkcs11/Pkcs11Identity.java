@@ -0,0 +1,243 @@
+package w3cp.cp.identity.pkcs11;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.identity.ChargepointIdentity;
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.cp.util.W3CPKeyUtil;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identity whose private key never leaves a PKCS#11 token (HSM, TPM or smartcard), through the JDK's SunPKCS11
+ * provider.
+ * <p>
+ * The token is logged in once at startup, and {@code sessions} signing operations are initialised with the key
+ * handle up front and pooled. A signature borrows one, so the provider lookup and key resolution are not paid per
+ * call, and up to {@code sessions} signatures run on the token at the same time. The token still runs
+ * {@code C_SignInit} for every signature, as PKCS#11 ends an operation with {@code C_Sign}. An operation that
+ * fails is replaced rather than returned, since its token-side state is unknown.
+ * <p>
+ * Selected with {@code w3cp.cp.identity-type: pkcs11}; reported to the backend as a public-key identity.
+ */
+@Slf4j
+@ApplicationScoped
+public class Pkcs11Identity implements ChargepointIdentity {
+
+  private record Token(Provider provider, PrivateKey privateKey, PublicKey publicKey) {
+  }
+
+  // The only curve W3CP keys are reported on (ecP256)
+  private static final ECParameterSpec P256 = p256();
+
+  private final Provider provider;
+  private final PrivateKey privateKey;
+  private final String algorithm;
+  private final W3CPPublicKey publicKey;
+  private final BlockingQueue<Signature> signatures;
+  private final Duration acquireTimeout;
+
+  @Inject
+  public Pkcs11Identity(Pkcs11IdentityConfig config) {
+    this(open(config), config.sessions(), config.acquireTimeout());
+  }
+
+  /**
+   * Pools signing operations of {@code provider} over a key it holds; also usable with software providers.
+   */
+  public Pkcs11Identity(Provider provider, PrivateKey privateKey, PublicKey publicKey, int sessions,
+                        Duration acquireTimeout) {
+    this(new Token(provider, privateKey, publicKey), sessions, acquireTimeout);
+  }
+
+  private Pkcs11Identity(Token token, int sessions, Duration acquireTimeout) {
+    this.provider = token.provider();
+    this.privateKey = token.privateKey();
+    this.algorithm = signatureAlgorithm(privateKey);
+    this.publicKey = new W3CPPublicKey(keyType(token.publicKey()), W3CPPublicKey.KeyEncoding.base64url,
+        Base64.getUrlEncoder().withoutPadding().encodeToString(token.publicKey().getEncoded()));
+    this.acquireTimeout = acquireTimeout;
+
+    int size = Math.max(1, sessions);
+    this.signatures = new ArrayBlockingQueue<>(size);
+    for (int i = 0; i < size; i++) {
+      signatures.add(newSignature());
+    }
+
+    // ✅ Validate that the token key matches the key we report
+    try {
+      byte[] testHash = new byte[32];
+      if (!DigitalSignatureUtil.verifyHash(testHash, signSha256(testHash), publicKey)) {
+        throw new IllegalArgumentException("Token key does not match the configured public key.");
+      }
+    } catch (Exception e) {
+      throw new W3CPChargepointException("PKCS#11 key pair validation failed", e);
+    }
+    log.info("✅ PKCS#11 identity ready: {} key via {}, {} signing session(s)",
+        publicKey.type(), provider.getName(), size);
+  }
+
+  @Override
+  public String signSha256(byte[] sha256Hash) {
+    Signature signature = acquire();
+    boolean healthy = false;
+    try {
+      // The provider re-runs C_SignInit with the pooled key handle before this update
+      signature.update(sha256Hash);
+      String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+      healthy = true;
+      return encoded;
+    } catch (SignatureException e) {
+      throw new W3CPChargepointException("PKCS#11 signing failed", e);
+    } finally {
+      release(signature, healthy);
+    }
+  }
+
+  @Override
+  public W3CPPublicKey getPublicKey() {
+    return publicKey;
+  }
+
+  /**
+   * @return signing operations currently not in use
+   */
+  public int idleSessions() {
+    return signatures.size();
+  }
+
+  private Signature acquire() {
+    try {
+      Signature signature = signatures.poll(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+      if (signature == null) {
+        throw new W3CPChargepointException("No PKCS#11 signing session free within " + acquireTimeout);
+      }
+      return signature;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new W3CPChargepointException("Interrupted waiting for a PKCS#11 signing session", e);
+    }
+  }
+
+  private void release(Signature signature, boolean healthy) {
+    if (healthy) {
+      signatures.offer(signature);
+      return;
+    }
+    try {
+      signatures.offer(newSignature());
+    } catch (W3CPChargepointException e) {
+      log.error("❌ Could not replace a failed PKCS#11 signing session, {} left", signatures.size(), e);
+    }
+  }
+
+  private Signature newSignature() {
+    try {
+      Signature signature = Signature.getInstance(algorithm, provider);
+      signature.initSign(privateKey);
+      return signature;
+    } catch (GeneralSecurityException e) {
+      throw new W3CPChargepointException("Failed to initialise " + algorithm + " signing on " + provider.getName(), e);
+    }
+  }
+
+  private static Token open(Pkcs11IdentityConfig config) {
+    Provider base = Security.getProvider("SunPKCS11");
+    if (base == null) {
+      throw new W3CPChargepointException("SunPKCS11 provider not available in this JVM");
+    }
+    Provider provider = base.configure("--name=w3cp\nlibrary=\"" + config.library() + "\"\nslotListIndex="
+        + config.slotListIndex() + "\n");
+    try {
+      // Logs the token in once; every session SunPKCS11 opens on it shares the login
+      KeyStore token = KeyStore.getInstance("PKCS11", provider);
+      token.load(null, config.pin().map(String::toCharArray).orElse(null));
+
+      Key key = token.getKey(config.keyAlias(), null);
+      if (!(key instanceof PrivateKey privateKey)) {
+        throw new W3CPChargepointException("No private key '" + config.keyAlias() + "' on the PKCS#11 token");
+      }
+      PublicKey publicKey;
+      if (config.publicKey().isPresent()) {
+        publicKey = W3CPKeyUtil.asPublicKey(new W3CPPublicKey(keyType(privateKey),
+            W3CPPublicKey.KeyEncoding.base64url, config.publicKey().get()));
+      } else {
+        Certificate certificate = token.getCertificate(config.keyAlias());
+        if (certificate == null) {
+          throw new W3CPChargepointException("No certificate '" + config.keyAlias()
+              + "' on the PKCS#11 token; set w3cp.identity.pkcs11.public-key");
+        }
+        publicKey = certificate.getPublicKey();
+      }
+      return new Token(provider, privateKey, publicKey);
+    } catch (W3CPChargepointException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new W3CPChargepointException("Failed to open PKCS#11 token via " + config.library(), e);
+    }
+  }
+
+  // Token keys are usually not extractable, so they are told apart by algorithm name, not by interface
+  private static String signatureAlgorithm(Key key) {
+    return switch (key.getAlgorithm()) {
+      case "EC" -> "SHA256withECDSA";
+      case "Ed25519", "EdDSA" -> "Ed25519";
+      default -> throw new W3CPChargepointException("Unsupported PKCS#11 key type: " + key.getAlgorithm());
+    };
+  }
+
+  /**
+   * A token's private key may not expose its curve; the public key always does, and the constructor checks that.
+   */
+  private static W3CPPublicKey.KeyType keyType(Key key) {
+    return switch (key.getAlgorithm()) {
+      case "EC" -> {
+        if (key instanceof ECKey ec && ec.getParams() != null && !isP256(ec.getParams())) {
+          throw new W3CPChargepointException("Unsupported PKCS#11 EC key on a "
+              + ec.getParams().getCurve().getField().getFieldSize() + "-bit curve, only P-256 is supported");
+        }
+        yield W3CPPublicKey.KeyType.ecP256;
+      }
+      case "Ed25519", "EdDSA" -> W3CPPublicKey.KeyType.ed25519;
+      default -> throw new W3CPChargepointException("Unsupported PKCS#11 key type: " + key.getAlgorithm());
+    };
+  }
+
+  private static boolean isP256(ECParameterSpec params) {
+    return P256.getCurve().equals(params.getCurve())
+        && P256.getGenerator().equals(params.getGenerator())
+        && P256.getOrder().equals(params.getOrder())
+        && P256.getCofactor() == params.getCofactor();
+  }
+
+  private static ECParameterSpec p256() {
+    try {
+      AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+      parameters.init(new ECGenParameterSpec("secp256r1"));
+      return parameters.getParameterSpec(ECParameterSpec.class);
+    } catch (GeneralSecurityException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package w3cp.cp.identity.pkcs11;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "w3cp.identity.pkcs11")
+public interface Pkcs11IdentityConfig {
+
+  @WithDefault("/usr/lib/softhsm/libsofthsm2.so")
+  String library();                       // PKCS#11 module of the HSM, TPM or smartcard
+
+  @WithName("slot-list-index")
+  @WithDefault("0")
+  int slotListIndex();
+
+  Optional<String> pin();                 // user PIN; prefer ${ENV_VAR} over a literal
+
+  @WithName("key-alias")
+  @WithDefault("w3cp")
+  String keyAlias();                      // label of the private key and its certificate on the token
+
+  @WithName("public-key")
+  Optional<String> publicKey();           // base64url SPKI, for keys stored without a certificate
+
+  @WithDefault("4")
+  int sessions();                         // signing operations kept initialised, i.e. concurrent signatures
+
+  @WithName("acquire-timeout")
+  @WithDefault("5s")
+  Duration acquireTimeout();              // longest wait for a free signing operation
+}
@@ -0,0 +1,36 @@
+package w3cp.cp.ledger;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "w3cp.ledger")
+public interface LedgerConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // record transaction starts, stops and meter ticks
+
+  @WithDefault("ledger")
+  String dir();                           // segment files live here
+
+  @WithName("segment-bytes")
+  @WithDefault("16777216")
+  int segmentBytes();                     // a segment is sealed and a new one started beyond this size
+
+  @WithName("flush-interval")
+  @WithDefault("200ms")
+  Duration flushInterval();               // appends are buffered at most this long
+
+  @WithDefault("false")
+  boolean fsync();                        // force every flush to disk, not only sealed segments
+
+  @WithName("checkpoint-every")
+  @WithDefault("10000")
+  int checkpointEvery();                  // records between signed checkpoints
+
+  @WithName("compaction-interval")
+  @WithDefault("1h")
+  Duration compactionInterval();          // how often meter ticks of closed sessions are dropped
+}
@@ -0,0 +1,658 @@
+package w3cp.cp.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.identity.ChargepointIdentity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, hash-chained log of {@link LedgerRecord}s in numbered segment files.
+ * <p>
+ * Appends are encoded and hashed under one lock and staged in a buffer that {@link #flush()} writes out
+ * sequentially, so an append costs one SHA-256 over ~100 bytes and a copy. A segment that would grow past
+ * {@code segmentBytes} is forced to disk and sealed; the next one starts with the next sequence number. Every
+ * record carries a CRC32C; on open a record failing it ends the last segment, which is truncated there (a torn
+ * write), while a failure in a sealed segment is corruption and fails the open.
+ * <p>
+ * {@link #compact()} rewrites sealed segments without the meter ticks of sessions that have stopped; ticks a
+ * checkpoint signed are kept. Before a segment is replaced, a {@code compaction} record appended to the chain
+ * names every dropped range with the hash before it and the hash of its last record. Kept records keep their
+ * original hashes, and {@link #verify()} accepts a gap in the chain only where such records bridge it exactly.
+ */
+@Slf4j
+public final class LedgerLog implements Closeable {
+
+  private static final int SEGMENT_MAGIC = 0x57334c47;
+  private static final short SEGMENT_VERSION = 1;
+  // Marks rewritten segments for whoever looks at the files; verification relies on compaction records only
+  private static final short FLAG_COMPACTED = 1;
+  static final int SEGMENT_HEADER_BYTES = 16;
+  private static final int RECORD_HEADER_BYTES = 8;
+  private static final int MAX_RECORD_BYTES = 16 * 1024;
+  private static final int STAGING_BYTES = 64 * 1024;
+
+  private final Path dir;
+  private final int segmentBytes;
+  private final boolean fsync;
+  private final List<Segment> segments = new ArrayList<>();
+  // Positions of each session's records, (segment index << 32) | offset, in log order
+  private final Map<String, Positions> sessionIndex = new HashMap<>();
+  private final Set<String> closedSessions = new HashSet<>();
+  // Records signed by a checkpoint, never dropped by compaction
+  private final Set<Long> checkpointed = new HashSet<>();
+  private final ByteBuffer staging = ByteBuffer.allocateDirect(STAGING_BYTES);
+  private final ByteBuffer body = ByteBuffer.allocate(MAX_RECORD_BYTES);
+  private final MessageDigest digest = LedgerRecord.sha256();
+  private final CRC32C crc = new CRC32C();
+  private final Object compactionLock = new Object();
+  private FileChannel active;
+  private long activeSize;
+  private long nextSeq;
+  private byte[] tip = LedgerRecord.GENESIS;
+
+  private static final class Segment {
+    private final Path path;
+    private final long firstSeq;
+    private FileChannel reader;
+
+    private Segment(Path path, long firstSeq) {
+      this.path = path;
+      this.firstSeq = firstSeq;
+    }
+  }
+
+  /**
+   * Outcome of {@link #verify()}.
+   *
+   * @param brokenSeq first record whose hash or chain link does not hold, -1 if none
+   */
+  public record Verification(long records, long checkpoints, long brokenSeq) {
+
+    public boolean valid() {
+      return brokenSeq < 0;
+    }
+  }
+
+  private LedgerLog(Path dir, int segmentBytes, boolean fsync) {
+    this.dir = dir;
+    this.segmentBytes = segmentBytes;
+    this.fsync = fsync;
+  }
+
+  /**
+   * Opens the log in {@code dir}, creating it if needed, and rebuilds the session index from the segments.
+   */
+  public static LedgerLog open(Path dir, int segmentBytes, boolean fsync) throws IOException {
+    LedgerLog log = new LedgerLog(dir, segmentBytes, fsync);
+    log.load();
+    return log;
+  }
+
+  public synchronized long nextSeq() {
+    return nextSeq;
+  }
+
+  /**
+   * @return hash of the last record, all zero for an empty log
+   */
+  public synchronized byte[] tip() {
+    return tip.clone();
+  }
+
+  public long append(LedgerRecord.Type type, String evseId, String sessionId, double meterKwh) throws IOException {
+    return append(type, evseId, sessionId, meterKwh, new byte[0]);
+  }
+
+  /**
+   * Signs the current tip with {@code identity} and appends the checkpoint. Signing runs outside the log lock,
+   * so records appended meanwhile come before the checkpoint but after what it covers.
+   *
+   * @return sequence number of the checkpoint, -1 if the log is empty
+   */
+  public long checkpoint(ChargepointIdentity identity) throws IOException {
+    long signedSeq;
+    byte[] signedHash;
+    synchronized (this) {
+      if (nextSeq == 0) {
+        return -1;
+      }
+      signedSeq = nextSeq - 1;
+      signedHash = tip.clone();
+    }
+    String signature = identity.signSha256(signedHash);
+    byte[] payload = new LedgerRecord.Checkpoint(signedSeq, signedHash, signature).encode();
+    synchronized (this) {
+      checkpointed.add(signedSeq);
+      return append(LedgerRecord.Type.checkpoint, null, null, Double.NaN, payload);
+    }
+  }
+
+  private synchronized long append(LedgerRecord.Type type, String evseId, String sessionId, double meterKwh,
+                                   byte[] payload) throws IOException {
+    byte[] evse = LedgerRecord.utf8(evseId);
+    byte[] session = LedgerRecord.utf8(sessionId);
+    int bodyBytes = LedgerRecord.bodyBytes(evse, session, payload);
+    if (bodyBytes > MAX_RECORD_BYTES) {
+      throw new IOException("Ledger record of " + bodyBytes + " bytes exceeds " + MAX_RECORD_BYTES);
+    }
+    int recordBytes = RECORD_HEADER_BYTES + bodyBytes + LedgerRecord.HASH_BYTES;
+    if (activeSize + recordBytes > segmentBytes && activeSize > SEGMENT_HEADER_BYTES) {
+      roll();
+    }
+
+    long seq = nextSeq;
+    body.clear();
+    LedgerRecord.encodeBody(body, seq, System.currentTimeMillis(), type, evse, session, meterKwh, payload, tip);
+    digest.update(body.array(), 0, bodyBytes);
+    byte[] hash = digest.digest();
+    crc.reset();
+    crc.update(body.array(), 0, bodyBytes);
+    crc.update(hash);
+
+    if (staging.remaining() < recordBytes) {
+      writeStaged();
+    }
+    long offset = activeSize;
+    staging.putInt(bodyBytes + LedgerRecord.HASH_BYTES)
+        .putInt((int) crc.getValue())
+        .put(body.array(), 0, bodyBytes)
+        .put(hash);
+    activeSize += recordBytes;
+
+    if (sessionId != null) {
+      sessionIndex.computeIfAbsent(sessionId, id -> new Positions()).add(position(segments.size() - 1, offset));
+      if (type == LedgerRecord.Type.stop) {
+        closedSessions.add(sessionId);
+      }
+    }
+    tip = hash;
+    nextSeq = seq + 1;
+    return seq;
+  }
+
+  /**
+   * Writes staged records to the active segment, and forces them to disk if the log was opened with fsync.
+   */
+  public synchronized void flush() throws IOException {
+    writeStaged();
+    if (fsync) {
+      active.force(false);
+    }
+  }
+
+  public synchronized boolean contains(String sessionId) {
+    return sessionIndex.containsKey(sessionId);
+  }
+
+  /**
+   * @return the records of one session in log order; ticks dropped by compaction are gone
+   */
+  public synchronized List<LedgerRecord> session(String sessionId) throws IOException {
+    Positions positions = sessionIndex.get(sessionId);
+    if (positions == null) {
+      return List.of();
+    }
+    writeStaged();
+    List<LedgerRecord> records = new ArrayList<>(positions.size);
+    int mappedIndex = -1;
+    MappedByteBuffer map = null;
+    for (int i = 0; i < positions.size; i++) {
+      long position = positions.values[i];
+      int segmentIndex = (int) (position >>> 32);
+      if (segmentIndex != mappedIndex) {
+        Segment segment = segments.get(segmentIndex);
+        if (segment.reader == null) {
+          segment.reader = FileChannel.open(segment.path, StandardOpenOption.READ);
+        }
+        map = segment.reader.map(FileChannel.MapMode.READ_ONLY, 0, segment.reader.size());
+        mappedIndex = segmentIndex;
+      }
+      int offset = (int) position;
+      records.add(LedgerRecord.decode(map.slice(offset + RECORD_HEADER_BYTES, map.getInt(offset))));
+    }
+    return records;
+  }
+
+  /**
+   * Calls {@code consumer} with every record in log order.
+   */
+  public void scan(Consumer<LedgerRecord> consumer) throws IOException {
+    List<Segment> snapshot;
+    synchronized (this) {
+      writeStaged();
+      snapshot = List.copyOf(segments);
+    }
+    for (Segment segment : snapshot) {
+      scanSegment(segment.path, (record, offset) -> consumer.accept(record));
+    }
+  }
+
+  /**
+   * Recomputes every hash and chain link. A gap in the sequence numbers must be bridged exactly by the ranges of
+   * compaction records, and a checkpoint must name the hash its covered record actually has; whether its
+   * signature is valid is for the holder of the public key to check.
+   */
+  public Verification verify() throws IOException {
+    long[] counts = new long[2];
+    long[] broken = {-1};
+    LedgerRecord[] previous = new LedgerRecord[1];
+    // Seq before and after each gap, with the hash the record after it links to
+    List<LedgerRecord> afterGaps = new ArrayList<>();
+    List<Long> beforeGaps = new ArrayList<>();
+    List<byte[]> gapStarts = new ArrayList<>();
+    Map<Long, LedgerRecord.DroppedRange> dropped = new HashMap<>();
+    Map<Long, byte[]> hashes = new HashMap<>();
+    List<LedgerRecord.Checkpoint> checkpoints = new ArrayList<>();
+    List<Segment> snapshot;
+    synchronized (this) {
+      writeStaged();
+      snapshot = List.copyOf(segments);
+    }
+
+    for (Segment segment : snapshot) {
+      scanSegment(segment.path, (record, offset) -> {
+        counts[0]++;
+        LedgerRecord prev = previous[0];
+        long prevSeq = prev == null ? -1 : prev.seq();
+        byte[] prevHash = prev == null ? LedgerRecord.GENESIS : prev.hash();
+        if (!record.intact() || record.seq() <= prevSeq) {
+          broken[0] = earliest(broken[0], record.seq());
+        } else if (record.seq() == prevSeq + 1) {
+          if (!Arrays.equals(record.prevHash(), prevHash)) {
+            broken[0] = earliest(broken[0], record.seq());
+          }
+        } else {
+          beforeGaps.add(prevSeq);
+          gapStarts.add(prevHash);
+          afterGaps.add(record);
+        }
+        if (record.type() == LedgerRecord.Type.checkpoint) {
+          counts[1]++;
+          checkpoints.add(record.checkpoint());
+        } else if (record.type() == LedgerRecord.Type.compaction) {
+          record.droppedRanges().forEach(range -> dropped.put(range.firstSeq(), range));
+        }
+        hashes.put(record.seq(), record.hash());
+        previous[0] = record;
+      });
+    }
+
+    for (int i = 0; i < afterGaps.size(); i++) {
+      LedgerRecord after = afterGaps.get(i);
+      if (!bridged(beforeGaps.get(i), gapStarts.get(i), after, dropped)) {
+        broken[0] = earliest(broken[0], after.seq());
+      }
+    }
+    for (LedgerRecord.Checkpoint checkpoint : checkpoints) {
+      byte[] covered = hashes.get(checkpoint.signedSeq());
+      if (covered == null || !Arrays.equals(covered, checkpoint.signedHash())) {
+        broken[0] = earliest(broken[0], checkpoint.signedSeq());
+      }
+    }
+    return new Verification(counts[0], counts[1], broken[0]);
+  }
+
+  // Whether dropped ranges lead without a break from the record before a gap to the one after it
+  private static boolean bridged(long beforeSeq, byte[] beforeHash, LedgerRecord after,
+                                 Map<Long, LedgerRecord.DroppedRange> dropped) {
+    long next = beforeSeq + 1;
+    byte[] link = beforeHash;
+    while (next < after.seq()) {
+      LedgerRecord.DroppedRange range = dropped.get(next);
+      if (range == null || range.lastSeq() < next || range.lastSeq() >= after.seq()
+          || !Arrays.equals(range.prevHash(), link)) {
+        return false;
+      }
+      link = range.lastHash();
+      next = range.lastSeq() + 1;
+    }
+    return Arrays.equals(after.prevHash(), link);
+  }
+
+  private static long earliest(long broken, long seq) {
+    return broken < 0 ? seq : Math.min(broken, seq);
+  }
+
+  /**
+   * Rewrites sealed segments without the meter ticks of stopped sessions.
+   *
+   * @return number of records dropped
+   */
+  public long compact() throws IOException {
+    synchronized (compactionLock) {
+      Set<String> closed;
+      Set<Long> signed;
+      List<Segment> sealed;
+      synchronized (this) {
+        closed = Set.copyOf(closedSessions);
+        signed = Set.copyOf(checkpointed);
+        sealed = List.copyOf(segments.subList(0, segments.size() - 1));
+      }
+
+      long dropped = 0;
+      for (int index = 0; index < sealed.size(); index++) {
+        dropped += compact(index, sealed.get(index), closed, signed);
+      }
+      return dropped;
+    }
+  }
+
+  private long compact(int index, Segment segment, Set<String> closed, Set<Long> signed) throws IOException {
+    Path temp = segment.path.resolveSibling(segment.path.getFileName() + ".tmp");
+    long[] kept = {0};
+    long[] dropped = {0};
+    List<LedgerRecord.DroppedRange> ranges = new ArrayList<>();
+    LedgerRecord[] run = new LedgerRecord[2];   // first and last record of the range being dropped
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeSegmentHeader(out, segment.firstSeq, true);
+      scanRaw(segment.path, (record, raw) -> {
+        if (record.type() == LedgerRecord.Type.meter && closed.contains(record.sessionId())
+            && !signed.contains(record.seq())) {
+          dropped[0]++;
+          if (run[0] == null) {
+            run[0] = record;
+          }
+          run[1] = record;
+          return;
+        }
+        endRange(run, ranges);
+        kept[0]++;
+        try {
+          writeFully(out, raw);
+        } catch (IOException e) {
+          throw new LedgerIOException(e);
+        }
+      });
+      endRange(run, ranges);
+      if (dropped[0] > 0) {
+        out.force(true);
+      }
+    } catch (LedgerIOException e) {
+      Files.deleteIfExists(temp);
+      throw e.getCause();
+    }
+    if (dropped[0] == 0) {
+      Files.deleteIfExists(temp);
+      return 0;
+    }
+
+    // The ranges are on disk before the records go, so the chain never has a gap nothing accounts for
+    int perRecord = (MAX_RECORD_BYTES - LedgerRecord.bodyBytes(null, null, new byte[0]))
+        / LedgerRecord.DroppedRange.BYTES;
+    for (int from = 0; from < ranges.size(); from += perRecord) {
+      List<LedgerRecord.DroppedRange> chunk = ranges.subList(from, Math.min(ranges.size(), from + perRecord));
+      append(LedgerRecord.Type.compaction, null, null, Double.NaN, LedgerRecord.DroppedRange.encode(chunk));
+    }
+    synchronized (this) {
+      writeStaged();
+      active.force(false);
+      Files.move(temp, segment.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      if (segment.reader != null) {
+        segment.reader.close();
+        segment.reader = null;
+      }
+      for (Positions positions : sessionIndex.values()) {
+        positions.removeSegment(index);
+      }
+      Set<String> touched = new HashSet<>();
+      scanSegment(segment.path, (record, offset) -> {
+        if (record.sessionId() != null) {
+          sessionIndex.computeIfAbsent(record.sessionId(), id -> new Positions()).add(position(index, offset));
+          touched.add(record.sessionId());
+        }
+      });
+      touched.forEach(id -> sessionIndex.get(id).sort());
+      sessionIndex.values().removeIf(positions -> positions.size == 0);
+    }
+    log.info("Compacted ledger segment {}: kept {} record(s), dropped {} meter tick(s)", segment.path.getFileName(),
+        kept[0], dropped[0]);
+    return dropped[0];
+  }
+
+  private static void endRange(LedgerRecord[] run, List<LedgerRecord.DroppedRange> ranges) {
+    if (run[0] != null) {
+      ranges.add(new LedgerRecord.DroppedRange(run[0].seq(), run[1].seq(), run[0].prevHash(), run[1].hash()));
+      run[0] = null;
+      run[1] = null;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writeStaged();
+    active.force(false);
+    active.close();
+    for (Segment segment : segments) {
+      if (segment.reader != null) {
+        segment.reader.close();
+      }
+    }
+  }
+
+  private void load() throws IOException {
+    Files.createDirectories(dir);
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.log")) {
+      stream.forEach(files::add);
+    }
+    files.sort(null);   // zero-padded first sequence numbers sort by name
+
+    for (int index = 0; index < files.size(); index++) {
+      Path path = files.get(index);
+      boolean last = index == files.size() - 1;
+      int segmentIndex = index;
+      Segment segment = readSegmentHeader(path);
+      segments.add(segment);
+      long end = scan(path, (record, offset) -> {
+        if (record.sessionId() != null) {
+          sessionIndex.computeIfAbsent(record.sessionId(), id -> new Positions()).add(position(segmentIndex, offset));
+          if (record.type() == LedgerRecord.Type.stop) {
+            closedSessions.add(record.sessionId());
+          }
+        }
+        if (record.type() == LedgerRecord.Type.checkpoint) {
+          checkpointed.add(record.checkpoint().signedSeq());
+        }
+        nextSeq = record.seq() + 1;
+        tip = record.hash();
+      }, null, last);
+      if (last) {
+        active = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        if (end < active.size()) {
+          log.warn("Ledger segment {} ends in a torn record, truncating {} byte(s)", path.getFileName(),
+              active.size() - end);
+          active.truncate(end);
+        }
+        active.position(end);
+        activeSize = end;
+      }
+    }
+
+    if (active == null) {
+      startSegment();
+    }
+    log.info("✅ Ledger opened with {} segment(s), next record {}", segments.size(), nextSeq);
+  }
+
+  // Seals the active segment and starts the next one
+  private void roll() throws IOException {
+    writeStaged();
+    active.force(false);
+    active.close();
+    startSegment();
+  }
+
+  private void startSegment() throws IOException {
+    Path path = dir.resolve(String.format("segment-%020d.log", nextSeq));
+    active = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+    writeSegmentHeader(active, nextSeq, false);
+    activeSize = SEGMENT_HEADER_BYTES;
+    segments.add(new Segment(path, nextSeq));
+  }
+
+  private void writeStaged() throws IOException {
+    if (staging.position() == 0) {
+      return;
+    }
+    staging.flip();
+    writeFully(active, staging);
+    staging.clear();
+  }
+
+  private static void writeSegmentHeader(FileChannel channel, long firstSeq, boolean compacted) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES)
+        .putInt(SEGMENT_MAGIC)
+        .putShort(SEGMENT_VERSION)
+        .putShort(compacted ? FLAG_COMPACTED : 0)
+        .putLong(firstSeq)
+        .flip();
+    writeFully(channel, header);
+  }
+
+  private static Segment readSegmentHeader(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // keep reading
+      }
+      header.flip();
+      if (header.remaining() < SEGMENT_HEADER_BYTES || header.getInt() != SEGMENT_MAGIC) {
+        throw new IOException(path + " is not a ledger segment");
+      }
+      short version = header.getShort();
+      if (version != SEGMENT_VERSION) {
+        throw new IOException("Ledger segment " + path + " has unsupported version " + version);
+      }
+      header.getShort();   // flags
+      return new Segment(path, header.getLong());
+    }
+  }
+
+  @FunctionalInterface
+  private interface RecordVisitor<T> {
+    void visit(LedgerRecord record, T where);
+  }
+
+  private void scanSegment(Path path, RecordVisitor<Long> visitor) throws IOException {
+    scan(path, visitor, null, false);
+  }
+
+  private void scanRaw(Path path, RecordVisitor<ByteBuffer> visitor) throws IOException {
+    scan(path, null, visitor, false);
+  }
+
+  /**
+   * Reads a segment record by record, handing each to {@code byOffset} with its offset or to {@code byRaw} with
+   * its bytes as stored.
+   *
+   * @param tolerateTornTail stop at the first bad record instead of failing, for the segment being written
+   * @return offset after the last good record
+   */
+  private long scan(Path path, RecordVisitor<Long> byOffset, RecordVisitor<ByteBuffer> byRaw,
+                    boolean tolerateTornTail) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      CRC32C check = new CRC32C();
+      int offset = SEGMENT_HEADER_BYTES;
+      while (offset < size) {
+        String problem = null;
+        int length = size - offset >= RECORD_HEADER_BYTES ? map.getInt(offset) : -1;
+        if (length <= LedgerRecord.HASH_BYTES || length > MAX_RECORD_BYTES + LedgerRecord.HASH_BYTES
+            || offset + RECORD_HEADER_BYTES + length > size) {
+          problem = "bad length";
+        } else {
+          check.reset();
+          check.update(map.slice(offset + RECORD_HEADER_BYTES, length));
+          if ((int) check.getValue() != map.getInt(offset + 4)) {
+            problem = "CRC mismatch";
+          }
+        }
+        if (problem != null) {
+          if (tolerateTornTail) {
+            return offset;
+          }
+          throw new IOException("Ledger segment " + path + " is corrupt at offset " + offset + ": " + problem);
+        }
+
+        LedgerRecord record = LedgerRecord.decode(map.slice(offset + RECORD_HEADER_BYTES, length));
+        if (byRaw != null) {
+          byRaw.visit(record, map.slice(offset, RECORD_HEADER_BYTES + length));
+        } else {
+          byOffset.visit(record, (long) offset);
+        }
+        offset += RECORD_HEADER_BYTES + length;
+      }
+      return offset;
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static long position(int segmentIndex, long offset) {
+    return ((long) segmentIndex << 32) | offset;
+  }
+
+  // Carries an IOException out of a visitor lambda
+  private static final class LedgerIOException extends RuntimeException {
+    private LedgerIOException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+
+  // Growable long array; sessions with per-second ticks collect many positions
+  private static final class Positions {
+    private long[] values = new long[8];
+    private int size;
+
+    void add(long position) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = position;
+    }
+
+    void removeSegment(int segmentIndex) {
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        if ((int) (values[i] >>> 32) != segmentIndex) {
+          values[kept++] = values[i];
+        }
+      }
+      size = kept;
+    }
+
+    void sort() {
+      Arrays.sort(values, 0, size);
+    }
+  }
+}
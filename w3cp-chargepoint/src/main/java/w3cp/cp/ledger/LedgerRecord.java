@@ -0,0 +1,190 @@
+package w3cp.cp.ledger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One ledger entry. {@code hash} is SHA-256 over the encoded body, which includes {@code prevHash}, so every
+ * record commits to the whole history before it.
+ * <p>
+ * On disk: {@code int length, int crc32c, body, hash}, where length counts body and hash and the CRC covers both.
+ * The body is {@code long seq, long timestamp millis, byte type, evseId, sessionId, double meterKwh, payload,
+ * prevHash}, strings and payload prefixed with their length.
+ *
+ * @param meterKwh meter reading for starts, ticks and stops, {@code NaN} for checkpoints and compactions
+ * @param payload  checkpoint or compaction data, empty for all other types
+ */
+public record LedgerRecord(long seq, Instant timestamp, Type type, String evseId, String sessionId, double meterKwh,
+                           byte[] payload, byte[] prevHash, byte[] hash) {
+
+  public static final int HASH_BYTES = 32;
+  static final byte[] GENESIS = new byte[HASH_BYTES];
+
+  public enum Type {
+    start, meter, stop, checkpoint, compaction;
+
+    private static final Type[] VALUES = values();
+
+    static Type of(int ordinal) {
+      if (ordinal < 0 || ordinal >= VALUES.length) {
+        throw new IllegalArgumentException("Unknown ledger record type " + ordinal);
+      }
+      return VALUES[ordinal];
+    }
+  }
+
+  /**
+   * Signed statement that the chain up to {@code signedSeq} ends in {@code signedHash}.
+   *
+   * @param signature {@link w3cp.cp.identity.ChargepointIdentity#signSha256} over {@code signedHash}
+   */
+  public record Checkpoint(long signedSeq, byte[] signedHash, String signature) {
+
+    byte[] encode() {
+      byte[] sig = signature.getBytes(StandardCharsets.UTF_8);
+      return ByteBuffer.allocate(8 + HASH_BYTES + sig.length).putLong(signedSeq).put(signedHash).put(sig).array();
+    }
+
+    static Checkpoint decode(byte[] payload) {
+      ByteBuffer buffer = ByteBuffer.wrap(payload);
+      long seq = buffer.getLong();
+      byte[] hash = new byte[HASH_BYTES];
+      buffer.get(hash);
+      return new Checkpoint(seq, hash, StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+  }
+
+  /**
+   * Consecutive records {@code firstSeq} to {@code lastSeq} that compaction removed. {@code prevHash} is the
+   * {@code prevHash} of the first of them and {@code lastHash} the hash of the last, so the chain still runs from
+   * the record before the range to the one after it.
+   */
+  public record DroppedRange(long firstSeq, long lastSeq, byte[] prevHash, byte[] lastHash) {
+
+    static final int BYTES = 8 + 8 + HASH_BYTES + HASH_BYTES;
+
+    static byte[] encode(List<DroppedRange> ranges) {
+      ByteBuffer buffer = ByteBuffer.allocate(ranges.size() * BYTES);
+      for (DroppedRange range : ranges) {
+        buffer.putLong(range.firstSeq).putLong(range.lastSeq).put(range.prevHash).put(range.lastHash);
+      }
+      return buffer.array();
+    }
+
+    static List<DroppedRange> decode(byte[] payload) {
+      ByteBuffer buffer = ByteBuffer.wrap(payload);
+      List<DroppedRange> ranges = new ArrayList<>(payload.length / BYTES);
+      while (buffer.remaining() >= BYTES) {
+        long first = buffer.getLong();
+        long last = buffer.getLong();
+        byte[] prevHash = new byte[HASH_BYTES];
+        buffer.get(prevHash);
+        byte[] lastHash = new byte[HASH_BYTES];
+        buffer.get(lastHash);
+        ranges.add(new DroppedRange(first, last, prevHash, lastHash));
+      }
+      return ranges;
+    }
+  }
+
+  public Checkpoint checkpoint() {
+    if (type != Type.checkpoint) {
+      throw new IllegalStateException("Record " + seq + " is a " + type + ", not a checkpoint");
+    }
+    return Checkpoint.decode(payload);
+  }
+
+  public List<DroppedRange> droppedRanges() {
+    if (type != Type.compaction) {
+      throw new IllegalStateException("Record " + seq + " is a " + type + ", not a compaction");
+    }
+    return DroppedRange.decode(payload);
+  }
+
+  /**
+   * @return whether {@code hash} matches the body
+   */
+  public boolean intact() {
+    byte[] evse = utf8(evseId);
+    byte[] session = utf8(sessionId);
+    ByteBuffer body = ByteBuffer.allocate(bodyBytes(evse, session, payload));
+    encodeBody(body, seq, timestamp.toEpochMilli(), type, evse, session, meterKwh, payload, prevHash);
+    return Arrays.equals(hash, sha256().digest(body.array()));
+  }
+
+  static int bodyBytes(byte[] evseId, byte[] sessionId, byte[] payload) {
+    return 8 + 8 + 1 + 2 + length(evseId) + 2 + length(sessionId) + 8 + 4 + payload.length + HASH_BYTES;
+  }
+
+  /**
+   * @param evseId    UTF-8, null if absent
+   * @param sessionId UTF-8, null if absent
+   */
+  static void encodeBody(ByteBuffer out, long seq, long timestampMillis, Type type, byte[] evseId, byte[] sessionId,
+                         double meterKwh, byte[] payload, byte[] prevHash) {
+    out.putLong(seq).putLong(timestampMillis).put((byte) type.ordinal());
+    putString(out, evseId);
+    putString(out, sessionId);
+    out.putDouble(meterKwh).putInt(payload.length).put(payload).put(prevHash);
+  }
+
+  /**
+   * Decodes a body and its trailing hash; {@code in} is positioned right after the CRC.
+   */
+  static LedgerRecord decode(ByteBuffer in) {
+    long seq = in.getLong();
+    Instant timestamp = Instant.ofEpochMilli(in.getLong());
+    Type type = Type.of(in.get());
+    String evseId = getString(in);
+    String sessionId = getString(in);
+    double meterKwh = in.getDouble();
+    byte[] payload = new byte[in.getInt()];
+    in.get(payload);
+    byte[] prevHash = new byte[HASH_BYTES];
+    in.get(prevHash);
+    byte[] hash = new byte[HASH_BYTES];
+    in.get(hash);
+    return new LedgerRecord(seq, timestamp, type, evseId, sessionId, meterKwh, payload, prevHash, hash);
+  }
+
+  static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  static byte[] utf8(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int length(byte[] value) {
+    return value == null ? 0 : value.length;
+  }
+
+  // Length -1 marks null
+  private static void putString(ByteBuffer out, byte[] value) {
+    if (value == null) {
+      out.putShort((short) -1);
+      return;
+    }
+    out.putShort((short) value.length).put(value);
+  }
+
+  private static String getString(ByteBuffer in) {
+    short length = in.getShort();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
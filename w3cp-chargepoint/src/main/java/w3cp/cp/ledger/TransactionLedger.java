@@ -0,0 +1,196 @@
+package w3cp.cp.ledger;
+
+import io.quarkus.runtime.Startup;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.handler.IdentityChallengeHandler;
+import w3cp.cp.logic.state.CPState;
+import w3cp.model.ChargePointStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feeds {@link CPState} transaction changes into a {@link LedgerLog}.
+ * <p>
+ * A new ongoing session is recorded as a start, every meter change during it as a tick, and the session ending
+ * or being replaced as a stop, each with the meter reading. Every {@code checkpoint-every} records the chain
+ * tip is signed with the primary {@link w3cp.cp.identity.ChargepointIdentity}, and once more on shutdown.
+ * <p>
+ * Changes are read on the EVSE's lane, while {@link CPState} holds its state lock, but recorded on one writer
+ * thread, so disk writes and forces never hold up a lane. The writer takes changes in the order they were seen,
+ * which keeps every EVSE's records in order.
+ */
+@Slf4j
+@ApplicationScoped
+@Startup
+public class TransactionLedger {
+
+  private record Tracked(String sessionId, boolean ongoing, double meterKwh) {
+  }
+
+  private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+  private final LedgerConfig config;
+  private final CPState cpState;
+  private final IdentityChallengeHandler identities;
+  private final Vertx vertx;
+  // Last recorded transaction per EVSE; only touched from the writer thread
+  private final Map<String, Tracked> tracked = new HashMap<>();
+  private final AtomicBoolean checkpointing = new AtomicBoolean();
+  private volatile LedgerLog ledger;
+  private ExecutorService writer;
+  private long timerId = -1;
+
+  @Inject
+  public TransactionLedger(LedgerConfig config, CPState cpState, IdentityChallengeHandler identities, Vertx vertx) {
+    this.config = config;
+    this.cpState = cpState;
+    this.identities = identities;
+    this.vertx = vertx;
+  }
+
+  @PostConstruct
+  void init() {
+    if (!config.enabled()) {
+      return;
+    }
+    try {
+      ledger = LedgerLog.open(Path.of(config.dir()), config.segmentBytes(), config.fsync());
+    } catch (IOException e) {
+      throw new W3CPChargepointException("Failed to open transaction ledger in " + config.dir(), e);
+    }
+    writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("w3cp-ledger-writer").daemon().factory());
+    cpState.addEvseListener(this::onEvseChanged);
+    timerId = vertx.setPeriodic(config.flushInterval().toMillis(),
+        id -> Infrastructure.getDefaultWorkerPool().execute(this::flush));
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (ledger == null) {
+      return;
+    }
+    vertx.cancelTimer(timerId);
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        log.warn("Ledger writer still busy after {}, closing anyway", DRAIN_TIMEOUT);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      ledger.checkpoint(identities.getPrimaryIdentity());
+      ledger.close();
+    } catch (IOException | RuntimeException e) {
+      log.error("❌ Failed to close the transaction ledger cleanly", e);
+    }
+  }
+
+  /**
+   * @return the recorded events of one session, empty if the ledger is disabled
+   */
+  public List<LedgerRecord> session(String sessionId) {
+    if (ledger == null) {
+      return List.of();
+    }
+    try {
+      return ledger.session(sessionId);
+    } catch (IOException e) {
+      throw new W3CPChargepointException("Failed to read session " + sessionId + " from the ledger", e);
+    }
+  }
+
+  @Scheduled(every = "${w3cp.ledger.compaction-interval:1h}")
+  void compact() {
+    if (ledger == null) {
+      return;
+    }
+    try {
+      ledger.compact();
+    } catch (IOException e) {
+      log.error("❌ Ledger compaction failed", e);
+    }
+  }
+
+  void onEvseChanged(ChargePointStatus.Evse evse) {
+    ChargePointStatus.LatestTransaction tx = evse.getLatestTransaction();
+    String sessionId = tx == null ? null : tx.getSessionId();
+    boolean ongoing = sessionId != null
+        && tx.getTransactionState() == ChargePointStatus.LatestTransaction.TransactionState.ongoing;
+    Double meter = evse.getMeter();
+    Tracked now = new Tracked(sessionId, ongoing, meter == null ? Double.NaN : meter);
+    String evseId = evse.getEvseId();
+    try {
+      writer.execute(() -> record(evseId, now));
+    } catch (RejectedExecutionException e) {
+      log.warn("Ledger is shutting down, not recording transaction change of {}", evseId);
+    }
+  }
+
+  private void record(String evseId, Tracked now) {
+    String sessionId = now.sessionId();
+    boolean ongoing = now.ongoing();
+    double meterKwh = now.meterKwh();
+    Tracked previous = tracked.get(evseId);
+    boolean sameSession = previous != null && Objects.equals(previous.sessionId(), sessionId);
+    try {
+      if (previous != null && previous.ongoing() && (!sameSession || !ongoing)) {
+        append(LedgerRecord.Type.stop, evseId, previous.sessionId(), sameSession ? meterKwh : previous.meterKwh());
+      }
+      if (ongoing && !(sameSession && previous.ongoing())) {
+        // A session restored after a restart continues rather than starting over
+        LedgerRecord.Type type = ledger.contains(sessionId) ? LedgerRecord.Type.meter : LedgerRecord.Type.start;
+        append(type, evseId, sessionId, meterKwh);
+      } else if (ongoing && Double.compare(previous.meterKwh(), meterKwh) != 0) {
+        append(LedgerRecord.Type.meter, evseId, sessionId, meterKwh);
+      }
+    } catch (IOException e) {
+      log.error("❌ Failed to record transaction change of {} in the ledger", evseId, e);
+    }
+    tracked.put(evseId, now);
+  }
+
+  private void append(LedgerRecord.Type type, String evseId, String sessionId, double meterKwh) throws IOException {
+    long seq = ledger.append(type, evseId, sessionId, meterKwh);
+    if (seq > 0 && seq % config.checkpointEvery() == 0 && checkpointing.compareAndSet(false, true)) {
+      Infrastructure.getDefaultWorkerPool().execute(this::checkpoint);
+    }
+  }
+
+  private void checkpoint() {
+    try {
+      ledger.checkpoint(identities.getPrimaryIdentity());
+    } catch (IOException | RuntimeException e) {
+      log.error("❌ Failed to sign a ledger checkpoint", e);
+    } finally {
+      checkpointing.set(false);
+    }
+  }
+
+  private void flush() {
+    try {
+      ledger.flush();
+    } catch (IOException e) {
+      log.error("❌ Failed to flush the transaction ledger", e);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package w3cp.cp.logic;
+
+import io.smallrye.mutiny.Uni;
+import w3cp.cp.CPConnection;
+import w3cp.model.W3CPMessage;
+import w3cp.model.identity.IdentityChallenge;
+import w3cp.model.identity.IdentityProof;
+import w3cp.model.identity.discovery.IdentityDiscovery;
+
+/**
+ * The chargepoint an inbound frame is addressed to and where its replies go.
+ * <p>
+ * The process's own chargepoint is the default; a warm standby link and gateway members bring their own.
+ */
+public interface ChargepointSession {
+
+  CPConnection connection();
+
+  Uni<W3CPMessage<IdentityProof>> prove(IdentityChallenge challenge);
+
+  /**
+   * @return the serialized identityReport message
+   */
+  Uni<String> report(IdentityDiscovery discovery);
+
+  /**
+   * The backend answered the proof with {@code connectionStatus: verified}.
+   */
+  void onVerified();
+}
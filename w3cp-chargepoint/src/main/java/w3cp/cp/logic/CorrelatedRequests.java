@@ -0,0 +1,133 @@
+package w3cp.cp.logic;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.model.W3CPMessageType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Request/response on top of the fire-and-forget {@link CPConnection}.
+ * <p>
+ * Follows the {@code IdentityDiscovery}/{@code IdentityReport} convention: the reply payload carries the
+ * {@code correlationId} of the request. Any number of requests may be outstanding; each one only holds an
+ * entry in a concurrent map until its reply arrives, it times out or the subscriber cancels.
+ */
+@Slf4j
+@ApplicationScoped
+public class CorrelatedRequests {
+
+  private final CPConnection connection;
+  private final Duration defaultTimeout;
+  private final Map<UUID, Pending<?>> pending = new ConcurrentHashMap<>();
+
+  @Inject
+  public CorrelatedRequests(CPConnection connection, BackendConfig backendConfig, MeterRegistry registry) {
+    this.connection = connection;
+    this.defaultTimeout = backendConfig.getRequestTimeout();
+    Gauge.builder("w3cp.requests.pending", pending, Map::size)
+        .description("Correlated requests awaiting a backend reply")
+        .register(registry);
+  }
+
+  public <T> Uni<T> request(UUID correlationId, String frame, W3CPMessageType responseType, Class<T> payloadType) {
+    return request(correlationId, frame, responseType, payloadType, defaultTimeout);
+  }
+
+  /**
+   * Sends {@code frame} on subscription and completes with the payload of the first {@code responseType}
+   * message carrying {@code correlationId}.
+   */
+  public <T> Uni<T> request(UUID correlationId, String frame, W3CPMessageType responseType, Class<T> payloadType,
+                            Duration timeout) {
+    Uni<T> reply = Uni.createFrom().emitter(emitter -> {
+      Pending<T> entry = new Pending<>(responseType, payloadType, emitter);
+      if (pending.putIfAbsent(correlationId, entry) != null) {
+        emitter.fail(new W3CPChargepointException("Request " + correlationId + " is already outstanding"));
+        return;
+      }
+      // Covers reply, timeout and cancellation alike
+      emitter.onTermination(() -> pending.remove(correlationId, entry));
+
+      connection.send(frame).subscribe().with(
+          sent -> log.debug("Sent request {}", correlationId),
+          emitter::fail
+      );
+    });
+
+    return reply.ifNoItem().after(timeout).failWith(() ->
+        new TimeoutException("No " + responseType + " for request " + correlationId + " within " + timeout));
+  }
+
+  /**
+   * Hands an inbound message to its waiting request, if any. Only a message of the type the request waits for is
+   * taken as its reply; one of another type that happens to carry the same {@code correlationId} is dispatched as
+   * usual and the request keeps waiting. W3CP has no error message type, so a request the backend cannot answer
+   * ends in its timeout.
+   *
+   * @return {@code true} if the message was a reply and must not be dispatched further
+   */
+  public boolean complete(W3CPMessageType type, JsonObject payload) {
+    if (pending.isEmpty()) {
+      return false;
+    }
+    String correlationId = payload.getString("correlationId");
+    if (correlationId == null) {
+      return false;
+    }
+
+    UUID id;
+    try {
+      id = UUID.fromString(correlationId);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    Pending<?> entry = pending.get(id);
+    if (entry == null || entry.responseType() != type || !pending.remove(id, entry)) {
+      return false;
+    }
+
+    entry.complete(payload);
+    return true;
+  }
+
+  /**
+   * Fails every outstanding request, e.g. because the link they were sent on is gone.
+   */
+  public void failAll(String reason) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    log.info("Failing {} outstanding request(s): {}", pending.size(), reason);
+    pending.keySet().forEach(id -> {
+      Pending<?> entry = pending.remove(id);
+      if (entry != null) {
+        entry.emitter.fail(new W3CPChargepointException(reason));
+      }
+    });
+  }
+
+  private record Pending<T>(W3CPMessageType responseType, Class<T> payloadType, UniEmitter<? super T> emitter) {
+
+    void complete(JsonObject payload) {
+      try {
+        emitter.complete(W3CPJson.MAPPER.convertValue(payload.getMap(), payloadType));
+      } catch (IllegalArgumentException e) {
+        emitter.fail(new W3CPChargepointException("Invalid " + responseType + " payload", e));
+      }
+    }
+  }
+}
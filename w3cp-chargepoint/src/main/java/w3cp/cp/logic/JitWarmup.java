@@ -0,0 +1,240 @@
+package w3cp.cp.logic;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.WarmupConfig;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.handler.IdentityChallengeHandler;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.model.ChargePointStatus;
+import w3cp.model.ConnectionStatus;
+import w3cp.model.W3CPMessage;
+import w3cp.model.W3CPMessageType;
+import w3cp.model.identity.IdentityChallenge;
+import w3cp.model.identity.IdentityProof;
+import w3cp.model.identity.discovery.IdentityDiscovery;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional warm-up that runs the handshake code paths on synthetic data before the first backend connect.
+ * <p>
+ * A round feeds synthetic {@code identityChallenge}, {@code identityDiscovery} and {@code connectionStatus} frames
+ * through {@link W3CPMessageHandler}, so parsing, dispatch, proof, signature and report run as for the backend,
+ * with the replies going to a sink. Backend challenges at difficulty 0 stop the proof of work at the first nonce,
+ * so the round also runs {@code pow-attempts} nonces through it. Finally a status is serialized. Rounds repeat
+ * until the JIT reports no new compilation for {@code stable-rounds} rounds or {@code max-duration} is up; the
+ * bound is checked between rounds. {@link w3cp.cp.ConnectionController} does not connect before it is complete.
+ */
+@Slf4j
+@ApplicationScoped
+public class JitWarmup {
+
+  // Replies are produced synchronously; this only bounds a round that went wrong
+  private static final Duration REPLY_TIMEOUT = Duration.ofSeconds(5);
+
+  private final WarmupConfig config;
+  private final IdentityChallengeHandler identityChallengeHandler;
+  private final W3CPMessageHandler messageHandler;
+  private final Event<Completed> completedEvent;
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+  private volatile Completed completed;
+
+  @Inject
+  public JitWarmup(WarmupConfig config, IdentityChallengeHandler identityChallengeHandler,
+                   W3CPMessageHandler messageHandler, Event<Completed> completedEvent) {
+    this.config = config;
+    this.identityChallengeHandler = identityChallengeHandler;
+    this.messageHandler = messageHandler;
+    this.completedEvent = completedEvent;
+    if (!config.enabled()) {
+      completion.complete(null);
+    }
+  }
+
+  /**
+   * Fired once a warm-up has run.
+   *
+   * @param timeBoundHit {@code max-duration} ended it before the JIT settled
+   */
+  public record Completed(int rounds, long coldRoundNanos, long warmRoundNanos, long elapsedNanos,
+                          boolean timeBoundHit) {
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (!config.enabled()) {
+      return;
+    }
+    Thread.ofPlatform().daemon().name("w3cp-jit-warmup").start(this::run);
+  }
+
+  public boolean isComplete() {
+    return completion.isDone();
+  }
+
+  public Uni<Void> completion() {
+    return Uni.createFrom().completionStage(completion);
+  }
+
+  /**
+   * @return how the warm-up went, or {@code null} while it runs or if it is disabled
+   */
+  public Completed completed() {
+    return completed;
+  }
+
+  private void run() {
+    long started = System.nanoTime();
+    long deadline = started + config.maxDuration().toNanos();
+    CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+    boolean canTrackJit = jit != null && jit.isCompilationTimeMonitoringSupported();
+
+    long[] roundNanos = new long[64];
+    int rounds = 0;
+    int stable = 0;
+    long lastJitMillis = canTrackJit ? jit.getTotalCompilationTime() : 0;
+
+    try {
+      while (System.nanoTime() < deadline && stable < config.stableRounds()) {
+        long start = System.nanoTime();
+        round();
+        long elapsed = System.nanoTime() - start;
+
+        if (rounds == roundNanos.length) {
+          roundNanos = Arrays.copyOf(roundNanos, rounds * 2);
+        }
+        roundNanos[rounds++] = elapsed;
+
+        if (canTrackJit) {
+          long jitMillis = jit.getTotalCompilationTime();
+          stable = jitMillis == lastJitMillis ? stable + 1 : 0;
+          lastJitMillis = jitMillis;
+        }
+      }
+    } catch (Exception e) {
+      log.warn("JIT warm-up aborted after {} round(s), connecting anyway", rounds, e);
+    }
+
+    long cold = rounds > 0 ? roundNanos[0] : 0;
+    long warm = rounds > 1 ? median(Arrays.copyOfRange(roundNanos, Math.max(1, rounds - 5), rounds)) : cold;
+    boolean timeBoundHit = stable < config.stableRounds();
+    if (rounds > 0) {
+      log.info("✅ JIT warm-up finished after {} round(s){}: handshake path {} ms cold, {} ms warm, ~{} ms saved on the first handshake",
+          rounds, timeBoundHit ? " (time bound hit)" : "",
+          String.format("%.1f", cold / 1e6), String.format("%.1f", warm / 1e6),
+          String.format("%.1f", (cold - warm) / 1e6));
+    }
+
+    completed = new Completed(rounds, cold, warm, System.nanoTime() - started, timeBoundHit);
+    completion.complete(null);
+    completedEvent.fire(completed);
+  }
+
+  /**
+   * One pass over the handshake: challenge, proof and its nonce loop, discovery and report, verified status, and a
+   * chargepoint status.
+   */
+  private void round() throws Exception {
+    WarmupSession session = new WarmupSession();
+    JsonObject challenge = new JsonObject().put("nonce", UUID.randomUUID().toString()).put("difficulty", 0);
+
+    messageHandler.handleUnsigned(frame(W3CPMessageType.identityChallenge, challenge), session);
+    session.awaitReply(W3CPMessageType.identityProof);
+    identityChallengeHandler.rehearseProofOfWork(
+        W3CPJson.MAPPER.convertValue(challenge.getMap(), IdentityChallenge.class), config.powAttempts());
+
+    messageHandler.handleUnsigned(frame(W3CPMessageType.identityDiscovery, new JsonObject()
+        .put("correlationId", UUID.randomUUID().toString())
+        .put("timestamp", Instant.now().toString())), session);
+    session.awaitReply(W3CPMessageType.identityReport);
+
+    messageHandler.handleUnsigned(frame(W3CPMessageType.connectionStatus, new JsonObject()
+        .put("status", ConnectionStatus.Status.verified.name())), session);
+    if (!session.verified) {
+      throw new W3CPChargepointException("Warm-up connectionStatus was not taken as verified");
+    }
+
+    ChargePointStatus status = new ChargePointStatus();
+    status.setEvses(List.of(DummyStaticFeeder.generate("WARMUP-1"), DummyStaticFeeder.generate("WARMUP-2")));
+    status.setTimestamp(Instant.now());
+    W3CPJson.MAPPER.writeValueAsString(new W3CPMessage<>(W3CPMessageType.chargepointStatus, status, null, null));
+  }
+
+  private static String frame(W3CPMessageType type, JsonObject payload) {
+    return new JsonObject().put("type", type.name()).put("payload", payload).encode();
+  }
+
+  private static long median(long[] values) {
+    Arrays.sort(values);
+    return values[values.length / 2];
+  }
+
+  /**
+   * Answers synthetic frames as this chargepoint and keeps the replies instead of sending them.
+   */
+  private final class WarmupSession implements ChargepointSession, CPConnection {
+
+    private final BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+    private volatile boolean verified;
+
+    @Override
+    public CPConnection connection() {
+      return this;
+    }
+
+    @Override
+    public Uni<W3CPMessage<IdentityProof>> prove(IdentityChallenge challenge) {
+      return identityChallengeHandler.handle(challenge);
+    }
+
+    @Override
+    public Uni<String> report(IdentityDiscovery discovery) {
+      return identityChallengeHandler.handleSerialized(discovery);
+    }
+
+    @Override
+    public void onVerified() {
+      verified = true;
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      replies.add(message);
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+
+    void awaitReply(W3CPMessageType type) throws InterruptedException {
+      String reply = replies.poll(REPLY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      if (reply == null || !type.name().equals(new JsonObject(reply).getString("type"))) {
+        throw new W3CPChargepointException("Warm-up got no " + type + " reply");
+      }
+    }
+  }
+}
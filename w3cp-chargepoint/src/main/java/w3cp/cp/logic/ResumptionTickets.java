@@ -0,0 +1,100 @@
+package w3cp.cp.logic;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.handler.IdentityChallengeHandler;
+import w3cp.cp.util.DigitalSignatureUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the short-lived resumption ticket the backend may hand out with {@code connectionStatus: verified}.
+ * <p>
+ * On the next connect the ticket is presented in the WebSocket handshake together with a timestamp and a
+ * signature over both by the primary identity, so a quick reconnect is verified without a new challenge and
+ * proof of work. The backend redeems a ticket once and sends a fresh one with its verified status; if it
+ * rejects the ticket it simply issues an {@code identityChallenge}, and the ticket is dropped here.
+ */
+@Slf4j
+@ApplicationScoped
+public class ResumptionTickets {
+
+  public static final String TICKET_HEADER = "X-W3CP-Resumption-Ticket";
+  public static final String TIMESTAMP_HEADER = "X-W3CP-Resumption-Timestamp";
+  public static final String PROOF_HEADER = "X-W3CP-Resumption-Proof";
+
+  private record Ticket(String value, long expiresAtNanos) {
+  }
+
+  private final BackendConfig backendConfig;
+  private final IdentityChallengeHandler identities;
+  private final AtomicReference<Ticket> ticket = new AtomicReference<>();
+
+  @Inject
+  public ResumptionTickets(BackendConfig backendConfig, IdentityChallengeHandler identities) {
+    this.backendConfig = backendConfig;
+    this.identities = identities;
+  }
+
+  /**
+   * Keeps {@code value} for {@code ttl}, replacing any earlier ticket.
+   */
+  public void store(String value, Duration ttl) {
+    if (!backendConfig.isResumption() || value == null || value.isEmpty() || ttl.isNegative() || ttl.isZero()) {
+      return;
+    }
+    ticket.set(new Ticket(value, System.nanoTime() + ttl.toNanos()));
+    log.debug("Stored resumption ticket, valid for {}", ttl);
+  }
+
+  public void clear() {
+    ticket.set(null);
+  }
+
+  public boolean isHeld() {
+    Ticket current = ticket.get();
+    return current != null && current.expiresAtNanos() - System.nanoTime() > 0;
+  }
+
+  /**
+   * Headers presenting the current ticket with a fresh proof of possession, or an empty map when there is no
+   * unexpired ticket. The ticket is kept until the backend answers, so it can be offered to the next endpoint
+   * if this connect fails.
+   */
+  public Map<String, String> handshakeHeaders() {
+    Ticket current = ticket.get();
+    if (current == null) {
+      return Map.of();
+    }
+    if (current.expiresAtNanos() - System.nanoTime() <= 0) {
+      ticket.compareAndSet(current, null);
+      return Map.of();
+    }
+    try {
+      String timestamp = Instant.now().toString();
+      String proof = identities.getPrimaryIdentity().signSha256(proofHash(current.value(), timestamp));
+      return Map.of(TICKET_HEADER, current.value(), TIMESTAMP_HEADER, timestamp, PROOF_HEADER, proof);
+    } catch (Exception e) {
+      log.warn("❌ Could not sign resumption proof, falling back to the full challenge", e);
+      return Map.of();
+    }
+  }
+
+  /**
+   * SHA-256 of {@code ticket + "\n" + timestamp}; the bytes the proof of possession signs.
+   */
+  public static byte[] proofHash(String ticket, String timestamp) {
+    try {
+      return DigitalSignatureUtil.computeSHA256Bytes((ticket + "\n" + timestamp).getBytes(StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      throw new W3CPChargepointException("Failed to hash resumption proof", e);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package w3cp.cp.logic;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -8,12 +9,18 @@ import lombok.extern.slf4j.Slf4j;
 import w3cp.cp.CPConnection;
 import w3cp.cp.logic.handler.IdentityChallengeHandler;
 import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.verification.BackendSignatureVerifier;
+import w3cp.cp.loop.EventLoopMonitor;
 import w3cp.cp.util.WebSocketConnectionUtil;
 import w3cp.model.ConnectionStatus;
+import w3cp.model.W3CPMessage;
 import w3cp.model.W3CPMessageType;
 import w3cp.model.identity.IdentityChallenge;
+import w3cp.model.identity.IdentityProof;
 import w3cp.model.identity.discovery.IdentityDiscovery;
 
+import java.time.Duration;
+
 
 @Slf4j
 @ApplicationScoped
@@ -25,47 +32,147 @@ public class W3CPMessageHandler {
   CPConnection connection;
   @Inject
   CPState cpState;
+  @Inject
+  BackendSignatureVerifier signatureVerifier;
+  @Inject
+  CorrelatedRequests correlatedRequests;
+  @Inject
+  ResumptionTickets resumptionTickets;
+  @Inject
+  EventLoopMonitor loop;
+
+  private final ChargepointSession primarySession = new ReplySession() {
+    @Override
+    public CPConnection connection() {
+      return connection;
+    }
+
+    @Override
+    public void onVerified() {
+      connection.onSessionVerified();
+      onBackendVerified();
+    }
+  };
+
+  /**
+   * The process's own chargepoint on the active connection.
+   */
+  public ChargepointSession getPrimarySession() {
+    return primarySession;
+  }
 
   public void handle(String rawMessage) {
+    handle(rawMessage, primarySession);
+  }
+
+  /**
+   * Handles a frame that arrived on {@code replyTo}, which is not necessarily the active connection
+   * (e.g. a warm standby going through its own identity exchange).
+   */
+  public void handle(String rawMessage, CPConnection replyTo) {
+    handle(rawMessage, replyTo == connection ? primarySession : new ReplySession() {
+      @Override
+      public CPConnection connection() {
+        return replyTo;
+      }
+
+      @Override
+      public void onVerified() {
+        replyTo.onSessionVerified();
+      }
+    });
+  }
+
+  public void handle(String rawMessage, ChargepointSession session) {
+    try {
+      handle(new JsonObject(rawMessage), session);
+    } catch (Exception e) {
+      log.error("Failed to handle incoming message: {}", rawMessage, e);
+    }
+  }
+
+  /**
+   * Handles an already parsed frame on behalf of {@code session}.
+   */
+  public void handle(JsonObject json, ChargepointSession session) {
+    handle(json, session, true);
+  }
+
+  /**
+   * Parses and dispatches a synthetic frame like one from the backend, but without the backend signature check,
+   * which it could never pass; for the JIT warm-up.
+   */
+  void handleUnsigned(String rawMessage, ChargepointSession session) {
+    handle(new JsonObject(rawMessage), session, false);
+  }
+
+  private void handle(JsonObject json, ChargepointSession session, boolean checkSignature) {
     try {
-      JsonObject json = new JsonObject(rawMessage);
       String typeString = json.getString("type");
       Object payloadObj = json.getValue("payload");
 
       if (typeString == null || payloadObj == null) {
-        log.warn("Invalid W3CP message: missing type or payload: {}", rawMessage);
+        log.warn("Invalid W3CP message: missing type or payload: {}", json);
         return;
       }
 
       W3CPMessageType type = W3CPMessageType.valueOf(typeString);
 
-      switch (type) {
-        case identityChallenge -> handleIdentityChallenge((JsonObject) payloadObj);
-        case identityDiscovery -> handleIdentityDiscovery((JsonObject) payloadObj);
-        case connectionStatus -> handleConnectionStatus((JsonObject) payloadObj);
-        default -> log.warn("Unhandled W3CP message type: {}", type);
+      if (!checkSignature || !signatureVerifier.isEnabled()) {
+        dispatch(type, (JsonObject) payloadObj, session);
+        return;
       }
 
+      signatureVerifier.verify(type, json).subscribe().with(
+          verified -> {
+            if (verified) {
+              dispatch(type, (JsonObject) payloadObj, session);
+            } else {
+              log.warn("Dropping {} message with unverified backend signature", type);
+            }
+          },
+          failure -> log.error("Failed to verify incoming {} message", type, failure)
+      );
+
     } catch (Exception e) {
-      log.error("Failed to handle incoming message: {}", rawMessage, e);
+      log.error("Failed to handle incoming message: {}", json, e);
     }
   }
 
-  private void handleIdentityChallenge(JsonObject payload) {
+  private void dispatch(W3CPMessageType type, JsonObject payload, ChargepointSession session) {
+    loop.run("handler.dispatch", type.name(), () -> {
+      if (session == primarySession && correlatedRequests.complete(type, payload)) {
+        return;
+      }
+      switch (type) {
+        case identityChallenge -> handleIdentityChallenge(payload, session);
+        case identityDiscovery -> handleIdentityDiscovery(payload, session);
+        case connectionStatus -> handleConnectionStatus(payload, session);
+        default -> log.warn("Unhandled W3CP message type: {}", type);
+      }
+    });
+  }
+
+  private void handleIdentityChallenge(JsonObject payload, ChargepointSession session) {
+    CPConnection replyTo = session.connection();
+    if (session == primarySession) {
+      // A challenge on the active link means any ticket we presented was not accepted
+      resumptionTickets.clear();
+    }
     try {
       // Deserialize from JsonObject map
       IdentityChallenge challenge = W3CPJson.MAPPER.convertValue(payload.getMap(), IdentityChallenge.class);
 
-      identityChallengeHandler.handle(challenge)
-          .onItem().transformToUni(response -> {
+      session.prove(challenge)
+          .onItem().transformToUni(response -> loop.call("handler.proof.reply", "identityChallenge", () -> {
             try {
               String responseJson = W3CPJson.MAPPER.writeValueAsString(response);
-              return connection.send(responseJson);
+              return replyTo.send(responseJson);
             } catch (JsonProcessingException e) {
               log.error("Failed to serialize IdentityProofMessage", e);
-              return connection.disconnect().replaceWithVoid();
+              return replyTo.disconnect().replaceWithVoid();
             }
-          })
+          }))
           .subscribe().with(
               success -> log.debug("IdentityProof sent successfully."),
               failure -> log.error("Failed to process IdentityChallenge.", failure)
@@ -73,26 +180,18 @@ public class W3CPMessageHandler {
 
     } catch (Exception e) {
       log.error("Invalid IdentityChallenge payload", e);
-      WebSocketConnectionUtil.disconnectSafely(connection).subscribe().with(
+      WebSocketConnectionUtil.disconnectSafely(replyTo).subscribe().with(
           unused -> log.warn("Disconnected due to invalid challenge.")
       );
     }
   }
 
-  private void handleIdentityDiscovery(JsonObject payload) {
+  private void handleIdentityDiscovery(JsonObject payload, ChargepointSession session) {
     try {
       IdentityDiscovery discovery = W3CPJson.MAPPER.convertValue(payload.getMap(), IdentityDiscovery.class);
 
-      identityChallengeHandler.handle(discovery)
-          .onItem().transformToUni(response -> {
-            try {
-              String responseJson = W3CPJson.MAPPER.writeValueAsString(response);
-              return connection.send(responseJson);
-            } catch (JsonProcessingException e) {
-              log.error("Failed to serialize IdentityReport", e);
-              return connection.disconnect().replaceWithVoid();
-            }
-          })
+      session.report(discovery)
+          .onItem().transformToUni(session.connection()::send)
           .subscribe().with(
               success -> log.debug("IdentityReport sent successfully."),
               failure -> log.error("Failed to process IdentityDiscovery.", failure)
@@ -103,18 +202,20 @@ public class W3CPMessageHandler {
     }
   }
 
-  private void handleConnectionStatus(JsonObject payload) {
+  private void handleConnectionStatus(JsonObject payload, ChargepointSession session) {
     try {
-      ConnectionStatus status = W3CPJson.MAPPER.convertValue(payload.getMap(), ConnectionStatus.class);
+      // Resumption fields are not part of the model
+      JsonObject fields = payload.copy();
+      String ticket = (String) fields.remove("resumptionTicket");
+      Object ttl = fields.remove("resumptionTtl");
+      ConnectionStatus status = W3CPJson.MAPPER.convertValue(fields.getMap(), ConnectionStatus.class);
       log.info("Received connectionStatus: {}", status);
 
       if (status.status() == ConnectionStatus.Status.verified) {
-        cpState.markBackendConnectionVerified()
-            .chain(() -> cpState.sendCurrentStatus())
-            .subscribe().with(
-                success -> log.info("✅ Sent initial CP status after verification"),
-                error -> log.error("❌ Failed to send CP status after verification", error)
-            );
+        if (ticket != null && ttl instanceof Number seconds && session == primarySession) {
+          resumptionTickets.store(ticket, Duration.ofSeconds(seconds.longValue()));
+        }
+        session.onVerified();
       } else {
         log.warn("Backend responded with non-verified connection status: {}", status.status());
         // No action needed; backend likely disconnects
@@ -125,5 +226,46 @@ public class W3CPMessageHandler {
     }
   }
 
+  /**
+   * A verified standby took over; replies to requests sent on the old link will never arrive.
+   */
+  public void onFailover() {
+    correlatedRequests.failAll("Backend link switched over");
+    onBackendVerified();
+  }
+
+  public void onConnectionLost() {
+    correlatedRequests.failAll("Backend connection lost");
+  }
+
+  /**
+   * Marks the active connection verified and pushes the current status. Also used when a pre-verified
+   * standby connection takes over.
+   */
+  public void onBackendVerified() {
+    cpState.markBackendConnectionVerified()
+        .chain(() -> cpState.sendCurrentStatus())
+        .subscribe().with(
+            success -> log.info("✅ Sent initial CP status after verification"),
+            error -> log.error("❌ Failed to send CP status after verification", error)
+        );
+  }
+
+  /**
+   * Session that answers with this process's own identity; only the reply channel and verification differ.
+   */
+  private abstract class ReplySession implements ChargepointSession {
+
+    @Override
+    public Uni<W3CPMessage<IdentityProof>> prove(IdentityChallenge challenge) {
+      return identityChallengeHandler.handle(challenge);
+    }
+
+    @Override
+    public Uni<String> report(IdentityDiscovery discovery) {
+      return identityChallengeHandler.handleSerialized(discovery);
+    }
+  }
+
 }
 
@@ -1,5 +1,6 @@
 package w3cp.cp.logic.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -9,8 +10,10 @@ import w3cp.cp.config.error.W3CPChargepointException;
 import w3cp.cp.identity.ChargepointIdentity;
 import w3cp.cp.identity.bare.PlaintextIdentity;
 import w3cp.cp.identity.kilt.KiltIdentity;
+import w3cp.cp.identity.pkcs11.Pkcs11Identity;
 import w3cp.cp.identity.polkadot.PolkadotIdentity;
-import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.util.JsonTemplate;
 import w3cp.model.W3CPMessage;
 import w3cp.model.W3CPMessageType;
 import w3cp.model.identity.IdentityChallenge;
@@ -20,11 +23,11 @@ import w3cp.model.identity.discovery.IdentityDiscovery;
 import w3cp.model.identity.IdentityType;
 import w3cp.model.identity.web3.Web3Identity;
 import w3cp.model.identity.key.PublicKeyIdentity;
-import java.util.List;
-import java.util.ArrayList;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 @ApplicationScoped
@@ -37,11 +40,25 @@ public class IdentityChallengeHandler {
   @Inject
   PolkadotIdentity polkadotIdentity;
   @Inject
+  Pkcs11Identity pkcs11Identity;
+  @Inject
   CpConfig cpConfig;
 
-  private ChargepointIdentity getPrimaryIdentity() {
+  // Sentinels for the report template; they never occur in a real report
+  private static final UUID CORRELATION_SENTINEL = UUID.fromString("5e171e1e-0000-4000-8000-00000000c0de");
+  private static final Instant TIMESTAMP_SENTINEL = Instant.ofEpochSecond(4102444800L, 987654321);
+
+  // Identity data is constant for the life of the process, so it is built once
+  private volatile Web3Identity web3Identity;
+  private volatile List<PublicKeyIdentity> reportedPublicKeys;
+  private volatile List<Web3Identity> reportedWeb3Identities;
+  private volatile JsonTemplate reportTemplate;
+  private volatile boolean reportTemplateUnavailable;
+
+  public ChargepointIdentity getPrimaryIdentity() {
     return switch (cpConfig.identityType()) {
       case "bare-key" -> bareKeyIdentity;
+      case "pkcs11" -> pkcs11Identity;
       case "kilt" -> kiltIdentity;
       case "polkadot" -> polkadotIdentity;
       default -> throw new IllegalArgumentException("Unknown identity type: " + cpConfig.identityType());
@@ -50,28 +67,10 @@ public class IdentityChallengeHandler {
 
   public Uni<W3CPMessage<IdentityProof>> handle(IdentityChallenge challenge) {
     return Uni.createFrom().item(() -> {
-      log.info("Using CP ID: {}", cpConfig.cpId());
-      int difficulty = challenge.difficulty();
-      long powNonce = 1;
-
-      Web3Identity web3Identity = getWeb3Identity();
-      IdentityType identityType = getIdentityType();
-      IdentityProof proof = new IdentityProof(cpConfig.cpId(), Instant.now(), challenge.nonce(), identityType, web3Identity, 1);
-      String hash;
-
-      do {
-        if (powNonce == 0) {
-          proof.setTimestamp(Instant.now());
-        }
-
-        proof.setPowNonce(powNonce++);
-        try {
-          hash = DigitalSignatureUtil.computeSHA256HashOnPayload(proof);
-        } catch (Exception e) {
-          throw new W3CPChargepointException("Failed to compute hash for identityProof.", e);
-        }
+      log.debug("Using CP ID: {}", cpConfig.cpId());
 
-      } while (!meetsDifficulty(hash.getBytes(StandardCharsets.UTF_8), difficulty));
+      IdentityProof proof = new IdentityProof(cpConfig.cpId(), Instant.now(), challenge.nonce(), getIdentityType(), getWeb3Identity(), 1);
+      String hash = ProofOfWork.solve(proof, challenge.difficulty());
 
       ChargepointIdentity primaryIdentity = getPrimaryIdentity();
       return new W3CPMessage<>(
@@ -82,71 +81,175 @@ public class IdentityChallengeHandler {
     });
   }
 
-  private boolean meetsDifficulty(byte[] hash, int difficulty) {
-    if (difficulty <= 0) return true;
-    int zeroBits = 0;
-    for (int i = hash.length - 1; i >= 0 && zeroBits < difficulty; i--) {
-      int b = hash[i] & 0xFF;
-      for (int j = 0; j < 8; j++) {
-        if ((b & 1) == 0) {
-          zeroBits++;
-          b >>= 1;
-        } else {
-          return false;
+  /**
+   * Proof for another chargepoint this process speaks for (gateway mode), signed with that chargepoint's bare key.
+   */
+  public Uni<W3CPMessage<IdentityProof>> handle(IdentityChallenge challenge, String cpId, ChargepointIdentity identity) {
+    return Uni.createFrom().item(() -> {
+      IdentityProof proof = new IdentityProof(cpId, Instant.now(), challenge.nonce(), IdentityType.publicKey, null, 1);
+      String hash = ProofOfWork.solve(proof, challenge.difficulty());
+      return new W3CPMessage<>(
+          W3CPMessageType.identityProof,
+          proof,
+          identity.signSha256(hash.getBytes(StandardCharsets.UTF_8)),
+          hash);
+    });
+  }
+
+  /**
+   * Serialized report for another chargepoint this process speaks for, listing only that chargepoint's key.
+   */
+  public Uni<String> handleSerialized(IdentityDiscovery discovery, ChargepointIdentity identity) {
+    return Uni.createFrom().item(() -> serialize(new W3CPMessage<>(
+        W3CPMessageType.identityReport,
+        new IdentityReport(
+            discovery.correlationId(),
+            Instant.now(),
+            List.of(new PublicKeyIdentity(identity.getPublicKey())),
+            List.of(),
+            List.of()),
+        null,
+        null)));
+  }
+
+  public Uni<W3CPMessage<IdentityReport>> handle(IdentityDiscovery discovery) {
+    return Uni.createFrom().item(() -> buildReportMessage(discovery.correlationId(), Instant.now()));
+  }
+
+  /**
+   * Runs {@code attempts} proof-of-work hashes for {@code challenge} as this chargepoint would, without producing a
+   * proof; for the JIT warm-up.
+   */
+  public void rehearseProofOfWork(IdentityChallenge challenge, int attempts) {
+    IdentityProof proof = new IdentityProof(cpConfig.cpId(), Instant.now(), challenge.nonce(), getIdentityType(),
+        getWeb3Identity(), 1);
+    ProofOfWork.rehearse(proof, attempts);
+  }
+
+  /**
+   * Same as {@link #handle(IdentityDiscovery)} but returns the serialized message, rendered from a
+   * pre-serialized template in which only {@code correlationId} and {@code timestamp} vary.
+   */
+  public Uni<String> handleSerialized(IdentityDiscovery discovery) {
+    return Uni.createFrom().item(() -> {
+      Instant now = Instant.now();
+      JsonTemplate template = getReportTemplate();
+      if (template == null || discovery.correlationId() == null) {
+        return serialize(buildReportMessage(discovery.correlationId(), now));
+      }
+      return template.render(discovery.correlationId().toString(), now.toString());
+    });
+  }
+
+  private W3CPMessage<IdentityReport> buildReportMessage(UUID correlationId, Instant timestamp) {
+    IdentityReport report = new IdentityReport(
+        correlationId,
+        timestamp,
+        getReportedPublicKeys(),
+        List.of(),  // empty X509 certificates
+        getReportedWeb3Identities()
+    );
+
+    return new W3CPMessage<>(
+        W3CPMessageType.identityReport,
+        report,
+        null,
+        null
+    );
+  }
+
+  private JsonTemplate getReportTemplate() {
+    if (reportTemplateUnavailable) {
+      return null;
+    }
+    JsonTemplate template = reportTemplate;
+    if (template == null) {
+      synchronized (this) {
+        template = reportTemplate;
+        if (template == null && !reportTemplateUnavailable) {
+          template = compileReportTemplate();
+          reportTemplate = template;
+          reportTemplateUnavailable = template == null;
         }
       }
     }
-    return zeroBits >= difficulty;
+    return template;
   }
 
-  public Uni<W3CPMessage<IdentityReport>> handle(IdentityDiscovery discovery) {
-    return Uni.createFrom().item(() -> {
-      // Create public key identities list
-      List<PublicKeyIdentity> publicKeys = new ArrayList<>();
-      publicKeys.add(new PublicKeyIdentity(bareKeyIdentity.getPublicKey()));
-      
-      // Create Web3 identities list
-      List<Web3Identity> web3Identities = new ArrayList<>();
-      web3Identities.add(new Web3Identity(
-          Web3Identity.Web3IdentityMethod.kilt,
-          kiltIdentity.getDid(),
-          kiltIdentity.getKid()
-      ));
-      web3Identities.add(new Web3Identity(
-          Web3Identity.Web3IdentityMethod.polkadot,
-          polkadotIdentity.getDid(),
-          polkadotIdentity.getKid()
-      ));
-      
-      // Create report
-      IdentityReport report = new IdentityReport(
-          discovery.correlationId(),
-          Instant.now(),
-          publicKeys,
-          new ArrayList<>(),  // empty X509 certificates
-          web3Identities
-      );
-      
-      return new W3CPMessage<>(
-          W3CPMessageType.identityReport,
-          report,
-          null,
-          null
+  private JsonTemplate compileReportTemplate() {
+    try {
+      byte[] sample = W3CPJson.MAPPER.writeValueAsBytes(buildReportMessage(CORRELATION_SENTINEL, TIMESTAMP_SENTINEL));
+      JsonTemplate template = JsonTemplate.compile(sample, CORRELATION_SENTINEL.toString(), TIMESTAMP_SENTINEL.toString());
+
+      // Self-check against the reflective path before trusting the template
+      UUID probeId = UUID.randomUUID();
+      Instant probeTime = Instant.now();
+      if (template == null
+          || !template.render(probeId.toString(), probeTime.toString()).equals(serialize(buildReportMessage(probeId, probeTime)))) {
+        log.warn("IdentityReport template does not match serialized report, using full serialization");
+        return null;
+      }
+      return template;
+    } catch (Exception e) {
+      log.warn("Failed to compile IdentityReport template, using full serialization", e);
+      return null;
+    }
+  }
+
+  private static String serialize(W3CPMessage<IdentityReport> message) {
+    try {
+      return W3CPJson.MAPPER.writeValueAsString(message);
+    } catch (JsonProcessingException e) {
+      throw new W3CPChargepointException("Failed to serialize IdentityReport", e);
+    }
+  }
+
+  private List<PublicKeyIdentity> getReportedPublicKeys() {
+    if (reportedPublicKeys == null) {
+      ChargepointIdentity keyIdentity = getIdentityType() == IdentityType.publicKey
+          ? getPrimaryIdentity()
+          : bareKeyIdentity;
+      reportedPublicKeys = List.of(new PublicKeyIdentity(keyIdentity.getPublicKey()));
+    }
+    return reportedPublicKeys;
+  }
+
+  private List<Web3Identity> getReportedWeb3Identities() {
+    if (reportedWeb3Identities == null) {
+      reportedWeb3Identities = List.of(
+          new Web3Identity(
+              Web3Identity.Web3IdentityMethod.kilt,
+              kiltIdentity.getDid(),
+              kiltIdentity.getKid()
+          ),
+          new Web3Identity(
+              Web3Identity.Web3IdentityMethod.polkadot,
+              polkadotIdentity.getDid(),
+              polkadotIdentity.getKid()
+          )
       );
-    });
+    }
+    return reportedWeb3Identities;
   }
 
   private IdentityType getIdentityType() {
     return switch (cpConfig.identityType()) {
-      case "bare-key" -> IdentityType.publicKey;
+      case "bare-key", "pkcs11" -> IdentityType.publicKey;
       case "kilt", "polkadot" -> IdentityType.web3;
       default -> throw new IllegalArgumentException("Unknown identity type: " + cpConfig.identityType());
     };
   }
 
   private Web3Identity getWeb3Identity() {
+    if (web3Identity == null && getIdentityType() == IdentityType.web3) {
+      web3Identity = createWeb3Identity();
+    }
+    return web3Identity;
+  }
+
+  private Web3Identity createWeb3Identity() {
     return switch (cpConfig.identityType()) {
-      case "bare-key" -> null;
+      case "bare-key", "pkcs11" -> null;
       case "kilt" -> new Web3Identity(
           Web3Identity.Web3IdentityMethod.kilt,
           kiltIdentity.getDid(),
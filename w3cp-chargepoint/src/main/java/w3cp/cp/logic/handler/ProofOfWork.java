@@ -0,0 +1,158 @@
+package w3cp.cp.logic.handler;
+
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.util.CanonicalJson;
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.cp.util.JsonTemplate;
+import w3cp.model.identity.IdentityProof;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Solves the identityChallenge proof of work.
+ * <p>
+ * Only {@code powNonce} changes between attempts, so the canonical proof is compiled into a template once
+ * per challenge. Everything before the nonce is hashed a single time and each attempt resumes from a clone
+ * of that SHA-256 midstate, hashing just the nonce digits and the constant tail.
+ * <p>
+ * The protocol's difficulty rule counts trailing zero bits of the base64url hash text, starting with its last
+ * character, and needs that whole byte to be zero before it looks further. No base64url character is zero, so
+ * no nonce meets a difficulty above 0; such a challenge is refused instead of searching the nonce space forever.
+ */
+@Slf4j
+final class ProofOfWork {
+
+  // Unique digits that cannot collide with any other field of a canonical proof
+  private static final long SENTINEL = 7391428561093745281L;
+  private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+  private ProofOfWork() {
+  }
+
+  /**
+   * Finds a nonce meeting {@code difficulty}, stores it on {@code proof} and returns the
+   * base64url SHA-256 hash of the canonical proof.
+   */
+  static String solve(IdentityProof proof, int difficulty) {
+    if (difficulty > 0) {
+      throw new W3CPChargepointException("identityChallenge difficulty " + difficulty
+          + " cannot be met: no base64url hash ends in a zero byte");
+    }
+    try {
+      String hash = solveFromMidstate(proof, difficulty);
+      if (hash != null && hash.equals(DigitalSignatureUtil.computeSHA256HashOnPayload(proof))) {
+        return hash;
+      }
+      log.warn("Proof template did not match canonical serialization, falling back to full hashing");
+    } catch (CloneNotSupportedException e) {
+      log.warn("SHA-256 engine cannot be cloned, falling back to full hashing");
+    } catch (Exception e) {
+      throw new W3CPChargepointException("Failed to compute hash for identityProof.", e);
+    }
+    return solveByReserializing(proof, difficulty);
+  }
+
+  /**
+   * Hashes {@code attempts} nonces through the same midstate loop as {@link #solve} without accepting any; the
+   * proof is left with an arbitrary nonce. Real challenges stop at the first nonce, so this is how the JIT warm-up
+   * gets the loop compiled.
+   */
+  static void rehearse(IdentityProof proof, int attempts) {
+    try {
+      search(proof, Integer.MAX_VALUE, attempts);
+    } catch (Exception e) {
+      throw new W3CPChargepointException("Proof of work rehearsal failed.", e);
+    }
+  }
+
+  private static String solveFromMidstate(IdentityProof proof, int difficulty) throws Exception {
+    return search(proof, difficulty, Long.MAX_VALUE - 1);
+  }
+
+  /**
+   * @return the hash of the first of nonces {@code 1..attempts} meeting {@code difficulty}, or {@code null} if none
+   * did or the proof does not compile into a template
+   */
+  private static String search(IdentityProof proof, int difficulty, long attempts) throws Exception {
+    proof.setPowNonce(SENTINEL);
+    JsonTemplate template = JsonTemplate.compile(CanonicalJson.toBytes(proof), Long.toString(SENTINEL));
+    if (template == null) {
+      return null;
+    }
+
+    MessageDigest midstate = MessageDigest.getInstance("SHA-256");
+    midstate.update(template.literal(0));
+    byte[] tail = template.literal(1);
+
+    byte[] digits = new byte[20];
+    byte[] hash = new byte[32];
+    byte[] encoded = new byte[43];
+
+    for (long powNonce = 1; powNonce <= attempts; powNonce++) {
+      MessageDigest attempt = (MessageDigest) midstate.clone();
+      int start = writeDigits(powNonce, digits);
+      attempt.update(digits, start, digits.length - start);
+      attempt.update(tail);
+      attempt.digest(hash, 0, hash.length);
+      B64.encode(hash, encoded);
+
+      if (meetsDifficulty(encoded, difficulty)) {
+        proof.setPowNonce(powNonce);
+        return new String(encoded, StandardCharsets.US_ASCII);
+      }
+    }
+    return null;
+  }
+
+  private static String solveByReserializing(IdentityProof proof, int difficulty) {
+    long powNonce = 1;
+    String hash;
+
+    do {
+      if (powNonce == 0) {
+        proof.setTimestamp(Instant.now());
+      }
+
+      proof.setPowNonce(powNonce++);
+      try {
+        hash = DigitalSignatureUtil.computeSHA256HashOnPayload(proof);
+      } catch (Exception e) {
+        throw new W3CPChargepointException("Failed to compute hash for identityProof.", e);
+      }
+
+    } while (!meetsDifficulty(hash.getBytes(StandardCharsets.UTF_8), difficulty));
+
+    return hash;
+  }
+
+  /** Writes the decimal digits of a positive value right-aligned into {@code buf}, returning the start offset. */
+  private static int writeDigits(long value, byte[] buf) {
+    int pos = buf.length;
+    do {
+      buf[--pos] = (byte) ('0' + (value % 10));
+      value /= 10;
+    } while (value != 0);
+    return pos;
+  }
+
+  static boolean meetsDifficulty(byte[] hash, int difficulty) {
+    if (difficulty <= 0) return true;
+    int zeroBits = 0;
+    for (int i = hash.length - 1; i >= 0 && zeroBits < difficulty; i--) {
+      int b = hash[i] & 0xFF;
+      for (int j = 0; j < 8; j++) {
+        if ((b & 1) == 0) {
+          zeroBits++;
+          b >>= 1;
+        } else {
+          return false;
+        }
+      }
+    }
+    return zeroBits >= difficulty;
+  }
+}
@@ -1,65 +1,172 @@
 package w3cp.cp.logic.state;
 
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.netty.buffer.ByteBuf;
 import io.smallrye.mutiny.Uni;
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import w3cp.cp.CPConnection;
 import w3cp.cp.config.CpConfig;
-import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.snapshot.SnapshotConfig;
+import w3cp.cp.snapshot.StateSnapshotFile;
+import w3cp.cp.util.FrameEncoder;
 import w3cp.cp.util.NetworkDetectorUtil;
+import w3cp.cp.util.PlannedJsonWriter;
 import w3cp.model.ChargePointStatus;
 import w3cp.model.W3CPMessage;
 import w3cp.model.W3CPMessageType;
+import w3cp.model.identity.IdentityType;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Current chargepoint status.
+ * <p>
+ * Changes to one EVSE run in order on that EVSE's lane of a {@link StripedExecutor}; different EVSEs update in
+ * parallel. EVSE changes share the read side of {@link #snapshotLock}, whole-status changes and serialization
+ * take the write side, so a sent status never mixes half-applied EVSE changes.
+ * <p>
+ * Statuses larger than {@code w3cp.cp.status.max-page-bytes} go out as several pages, see {@link StatusPaginator}.
+ * With {@code w3cp.snapshot.enabled} the EVSEs of the last {@link StateSnapshotFile} are restored on construction,
+ * before anything can connect.
+ */
 @Slf4j
 @ApplicationScoped
 public class CPState {
 
+  // Lane key for changes spanning the whole status
+  private static final String STATUS_LANE = "\u0000status";
+  // A status whose pages keep outgrowing their plan is given up on after this many new plans
+  private static final int MAX_REPLANS = 2;
+
   private final CPConnection connection;
   private final CpConfig cpConfig;
   private final AtomicReference<ChargePointStatus> currentStatus = new AtomicReference<>();
-  private final ExecutorService executor = Executors.newSingleThreadExecutor(); // 🔁 Single-threaded executor to serialize state changes
+  private final StripedExecutor executor;
+  private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+  private volatile Map<String, Integer> evseIndex = Map.of();
+  private volatile Serializers serializers;
+  private final AtomicLong statusSequence = new AtomicLong();
+  private final List<Consumer<ChargePointStatus.Evse>> evseListeners = new CopyOnWriteArrayList<>();
 
   @Inject
-  public CPState(CPConnection connection, CpConfig cpConfig) {
+  public CPState(CPConnection connection, CpConfig cpConfig, SnapshotConfig snapshotConfig) {
+    this(connection, cpConfig, new StripedExecutor(Runtime.getRuntime().availableProcessors() * 2));
+    if (snapshotConfig.enabled()) {
+      restoreFrom(Path.of(snapshotConfig.file()), snapshotConfig.maxAge());
+    }
+  }
+
+  public CPState(CPConnection connection, CpConfig cpConfig, StripedExecutor executor) {
     this.connection = connection;
     this.cpConfig = cpConfig;
+    this.executor = executor;
+    this.serializers = Serializers.create(cpConfig.status(), Set.of());
 
     // 🔁 Initialize status directly to ensure ready state
-    executor.submit(() -> {
-      ChargePointStatus status = new ChargePointStatus();
-      List<ChargePointStatus.Evse> evseList = new ArrayList<>();
-      for (CpConfig.EvseConfig evseConfig : cpConfig.evses()) {
-        ChargePointStatus.Evse evse = new ChargePointStatus.Evse();
-        evse.setEvseId(evseConfig.evseId());
-        evseList.add(evse);
+    ChargePointStatus status = new ChargePointStatus();
+    List<ChargePointStatus.Evse> evseList = new ArrayList<>();
+    for (CpConfig.EvseConfig evseConfig : cpConfig.evses()) {
+      ChargePointStatus.Evse evse = new ChargePointStatus.Evse();
+      evse.setEvseId(evseConfig.evseId());
+      evseList.add(evse);
+    }
+    status.setEvses(evseList);
+    status.setTimestamp(Instant.now());
+    install(status);
+    log.info("✅ Initialized CP state with {} EVSEs on {} lanes", evseList.size(), executor.stripes());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.close();
+  }
+
+  /**
+   * Registers a listener called after every change to an EVSE, on that EVSE's lane and under the snapshot read
+   * lock. Listeners must be quick and must not keep a reference to the EVSE.
+   */
+  public void addEvseListener(Consumer<ChargePointStatus.Evse> listener) {
+    evseListeners.add(listener);
+  }
+
+  /**
+   * Leaves the given EVSE properties out of every status sent from now on; a status already being paged out
+   * finishes as it started.
+   */
+  public void setOmittedEvseFields(Set<String> fields) {
+    Set<String> omitted = Set.copyOf(fields);
+    executor.execute(STATUS_LANE, () -> {
+      if (!omitted.equals(serializers.omitted())) {
+        serializers = Serializers.create(cpConfig.status(), omitted);
+        log.info("Status EVSE blocks left out: {}", omitted.isEmpty() ? "none" : omitted);
       }
-      status.setEvses(evseList);
-      status.setTimestamp(Instant.now());
-      currentStatus.set(status);
-      log.info("✅ Initialized CP state with {} EVSEs", evseList.size());
     });
   }
 
+  /**
+   * Runs {@code reader} on the current status while no change is applied, e.g. to serialize a consistent copy.
+   * The status must not escape the reader.
+   */
+  public <T> T readConsistent(Function<ChargePointStatus, T> reader) {
+    return withLock(snapshotLock.writeLock(), () -> reader.apply(currentStatus.get()));
+  }
+
+  /**
+   * Takes over the EVSEs of {@code snapshot} that are still configured, matched by id. EVSEs new in the config
+   * stay empty; connection fields are not restored since they describe a link that no longer exists.
+   *
+   * @return number of restored EVSEs
+   */
+  public int restore(ChargePointStatus snapshot) {
+    if (snapshot == null || snapshot.getEvses() == null) {
+      return 0;
+    }
+    List<ChargePointStatus.Evse> restored = new ArrayList<>();
+    withLock(snapshotLock.writeLock(), () -> {
+      ChargePointStatus current = currentStatus.get();
+      for (ChargePointStatus.Evse evse : snapshot.getEvses()) {
+        Integer index = evse == null ? null : evseIndex.get(evse.getEvseId());
+        if (index != null) {
+          current.getEvses().set(index, evse);
+          restored.add(evse);
+        }
+      }
+      restored.forEach(this::notifyEvseListeners);
+    });
+    return restored.size();
+  }
+
   public ChargePointStatus getCurrentStatus() {
     return currentStatus.get();
   }
 
   public void updateStatus(ChargePointStatus status, boolean sendNow) {
-    // 🔁 Submit status update to executor
-    executor.submit(() -> {
-      currentStatus.set(status);
+    // 🔁 Submit status update to the status lane
+    executor.execute(STATUS_LANE, () -> {
+      withLock(snapshotLock.writeLock(), () -> install(status));
       if (sendNow) {
-        sendStatus(status)
+        sendStatus()
             .subscribe().with(
                 unused -> log.debug("Status sent"),
                 error -> log.error("Failed to send status", error)
@@ -69,25 +176,29 @@ public class CPState {
   }
 
   public Uni<Void> sendCurrentStatus() {
-    ChargePointStatus status = currentStatus.get();
-    return status == null ? Uni.createFrom().voidItem() : sendStatus(status);
+    return onStatusLane(this::sendStatus);
   }
 
   public Uni<Void> markBackendConnectionVerified() {
     return Uni.createFrom().emitter(emitter -> {
-      // 🔁 Submit backend verification logic to executor
-      executor.submit(() -> {
-        currentStatus.updateAndGet(current -> {
-          if (current == null) {
-            log.warn("CP status is null in markBackendConnectionVerified. Skipping update.");
-            return null;
-          }
+      // 🔁 Submit backend verification logic to the status lane
+      executor.execute(STATUS_LANE, () -> {
+        try {
+          withLock(snapshotLock.writeLock(), () -> {
+            ChargePointStatus current = currentStatus.get();
+            if (current == null) {
+              log.warn("CP status is null in markBackendConnectionVerified. Skipping update.");
+              return;
+            }
 
-          current.setOnlineSince(Instant.now());
-          current.setTimestamp(Instant.now());
-          current.setConnectionType(NetworkDetectorUtil.detectConnectionType());
-          return current;
-        });
+            current.setOnlineSince(Instant.now());
+            current.setTimestamp(Instant.now());
+            current.setConnectionType(NetworkDetectorUtil.detectConnectionType());
+          });
+        } catch (RuntimeException e) {
+          emitter.fail(e);
+          return;
+        }
 
         emitter.complete(null);
       });
@@ -96,25 +207,27 @@ public class CPState {
 
   public Uni<Void> updateEvse(String evseId, Consumer<ChargePointStatus.Evse> patch, boolean sendNow) {
     return Uni.createFrom().emitter(emitter -> {
-      // 🔁 Submit EVSE update logic to executor
-      executor.submit(() -> {
-        boolean updated = currentStatus.updateAndGet(current -> {
-          if (current == null || current.getEvses() == null) return current;
-
-          ChargePointStatus.Evse evse = current.getEvses().stream()
-              .filter(e -> evseId.equals(e.getEvseId()))
-              .findFirst()
-              .orElse(null);
-
-          if (evse == null) {
-            log.warn("EVSE with id {} not found in current status, ignoring update", evseId);
-            return current;
-          }
+      // 🔁 Submit EVSE update logic to the EVSE's lane
+      executor.execute(evseId, () -> {
+        boolean updated;
+        try {
+          updated = withLock(snapshotLock.readLock(), () -> {
+            ChargePointStatus current = currentStatus.get();
+            ChargePointStatus.Evse evse = findEvse(current, evseId);
+            if (evse == null) {
+              log.warn("EVSE with id {} not found in current status, ignoring update", evseId);
+              return current != null;
+            }
 
-          patch.accept(evse);
-          current.setTimestamp(Instant.now());
-          return current;
-        }) != null;
+            patch.accept(evse);
+            touch(current);
+            notifyEvseListeners(evse);
+            return true;
+          });
+        } catch (RuntimeException e) {
+          emitter.fail(e);
+          return;
+        }
 
         if (updated && sendNow) {
           sendCurrentStatus()
@@ -128,23 +241,30 @@ public class CPState {
 
   public Uni<Void> evseFullUpdate(String evseId, ChargePointStatus.Evse newEvse, boolean sendNow) {
     return Uni.createFrom().emitter(emitter -> {
-      // 🔁 Submit EVSE full replacement logic to executor
-      executor.submit(() -> {
-        boolean updated = currentStatus.updateAndGet(current -> {
-          if (current == null || current.getEvses() == null) return current;
-
-          List<ChargePointStatus.Evse> evses = current.getEvses();
-          for (int i = 0; i < evses.size(); i++) {
-            if (evseId.equals(evses.get(i).getEvseId())) {
-              evses.set(i, newEvse);
-              current.setTimestamp(Instant.now());
-              return current;
+      // 🔁 Submit EVSE full replacement logic to the EVSE's lane
+      executor.execute(evseId, () -> {
+        boolean updated;
+        try {
+          updated = withLock(snapshotLock.readLock(), () -> {
+            ChargePointStatus current = currentStatus.get();
+            Integer index = evseIndex.get(evseId);
+            if (current == null || current.getEvses() == null) return false;
+
+            if (index == null) {
+              log.warn("EVSE with id {} not found, cannot replace", evseId);
+              return true;
             }
-          }
 
-          log.warn("EVSE with id {} not found, cannot replace", evseId);
-          return current;
-        }) != null;
+            // Only this lane writes this slot; the list itself never changes shape outside the write lock
+            current.getEvses().set(index, newEvse);
+            touch(current);
+            notifyEvseListeners(newEvse);
+            return true;
+          });
+        } catch (RuntimeException e) {
+          emitter.fail(e);
+          return;
+        }
 
         if (updated && sendNow) {
           sendCurrentStatus()
@@ -156,20 +276,284 @@ public class CPState {
     });
   }
 
-  private Uni<Void> sendStatus(ChargePointStatus status) {
-    status.setTimestamp(Instant.now());
+  private void restoreFrom(Path file, Duration maxAge) {
+    long start = System.nanoTime();
+    try {
+      Optional<StateSnapshotFile.Snapshot> snapshot = StateSnapshotFile.read(file);
+      if (snapshot.isEmpty()) {
+        return;
+      }
+      Instant takenAt = snapshot.get().takenAt();
+      if (takenAt.plus(maxAge).isBefore(Instant.now())) {
+        log.info("Ignoring state snapshot {} from {}, older than {}", file, takenAt, maxAge);
+        return;
+      }
+      int restored = restore(snapshot.get().status());
+      log.info("✅ Restored {} EVSE(s) from the {} snapshot in {} ms", restored, takenAt,
+          String.format("%.1f", (System.nanoTime() - start) / 1e6));
+    } catch (IOException | RuntimeException e) {
+      log.warn("Ignoring unreadable state snapshot {}, starting with empty EVSEs", file, e);
+    }
+  }
+
+  private ChargePointStatus.Evse findEvse(ChargePointStatus current, String evseId) {
+    if (current == null || current.getEvses() == null) return null;
+    Integer index = evseIndex.get(evseId);
+    return index == null ? null : current.getEvses().get(index);
+  }
+
+  private void notifyEvseListeners(ChargePointStatus.Evse evse) {
+    for (Consumer<ChargePointStatus.Evse> listener : evseListeners) {
+      try {
+        listener.accept(evse);
+      } catch (RuntimeException e) {
+        log.error("EVSE listener failed for {}", evse.getEvseId(), e);
+      }
+    }
+  }
+
+  /**
+   * Installs a new status and rebuilds the EVSE index. Caller holds the write lock (or is the constructor).
+   */
+  private void install(ChargePointStatus status) {
+    Map<String, Integer> index = new HashMap<>();
+    if (status != null && status.getEvses() != null) {
+      List<ChargePointStatus.Evse> evses = status.getEvses();
+      for (int i = 0; i < evses.size(); i++) {
+        index.putIfAbsent(evses.get(i).getEvseId(), i);
+      }
+    }
+    currentStatus.set(status);
+    evseIndex = index;
+  }
+
+  // EVSE lanes share the read lock, so the common timestamp needs its own guard
+  private static void touch(ChargePointStatus current) {
+    synchronized (current) {
+      current.setTimestamp(Instant.now());
+    }
+  }
 
-    W3CPMessage<ChargePointStatus> message = new W3CPMessage<>(
-        W3CPMessageType.chargepointStatus,
-        status,
-        null, null
-    );
+  private Uni<Void> sendStatus() {
+    return sendCycle(0);
+  }
 
+  /**
+   * Plans a status cycle and sends it. Runs on the status lane.
+   *
+   * @param replans how often pages already had to be planned again for this status
+   */
+  private Uni<Void> sendCycle(int replans) {
+    Serializers serializers = this.serializers;
+    Cycle cycle;
     try {
-      String json = W3CPJson.MAPPER.writeValueAsString(message);
-      return connection.send(json);
+      cycle = withLock(snapshotLock.writeLock(), () -> {
+        ChargePointStatus status = currentStatus.get();
+        if (status == null) return null;
+        status.setTimestamp(Instant.now());
+
+        try {
+          List<StatusPaginator.Page> pages = serializers.paginator().plan(status);
+          ByteBuf single = pages.size() == 1 ? serializers.encode(new W3CPMessage<>(
+              W3CPMessageType.chargepointStatus,
+              status,
+              null, null
+          )) : null;
+          return new Cycle(status.getEvses(), serializers.paginator(), pages, single, replans);
+        } catch (Exception e) {
+          throw new IllegalStateException("Failed to serialize CP status", e);
+        }
+      });
     } catch (Exception e) {
       return Uni.createFrom().failure(e);
     }
+
+    if (cycle == null) return Uni.createFrom().voidItem();
+    if (cycle.single() != null) return connection.send(cycle.single());
+
+    long sequence = statusSequence.incrementAndGet();
+    log.debug("Sending status {} in {} pages", sequence, cycle.pages().size());
+    return sendPage(cycle, sequence, 0);
+  }
+
+  /**
+   * Serializes and sends one page at a time, so only a single page is ever held in memory. Each page is a
+   * consistent snapshot of its own EVSEs and is rendered on the status lane, whichever thread completed the send
+   * of the page before.
+   * <p>
+   * EVSEs may have grown since the cycle was planned. A page that no longer fits is not sent; the status is
+   * planned again under a new sequence instead, and the backend drops the incomplete one.
+   */
+  private Uni<Void> sendPage(Cycle cycle, long sequence, int index) {
+    if (index >= cycle.pages().size()) return Uni.createFrom().voidItem();
+
+    StatusPaginator.Page page = cycle.pages().get(index);
+    ByteBuf frame;
+    try {
+      frame = withLock(snapshotLock.writeLock(), () -> {
+        ChargePointStatus current = currentStatus.get();
+        if (current == null || current.getEvses() != cycle.evses()) return null;
+        try {
+          return cycle.paginator().render(current, page, sequence, index, cycle.pages().size());
+        } catch (Exception e) {
+          throw new IllegalStateException("Failed to serialize CP status page", e);
+        }
+      });
+    } catch (Exception e) {
+      return Uni.createFrom().failure(e);
+    }
+
+    if (frame == null) {
+      log.debug("EVSE list replaced during status {}, dropping its remaining pages", sequence);
+      return Uni.createFrom().voidItem();
+    }
+    if (!cycle.paginator().fits(frame, page)) {
+      int bytes = frame.readableBytes();
+      frame.release();
+      if (cycle.replans() >= MAX_REPLANS) {
+        return Uni.createFrom().failure(new IllegalStateException(
+            "Status page %d of %d grew to %d bytes while being sent %d times".formatted(
+                index, cycle.pages().size(), bytes, cycle.replans() + 1)));
+      }
+      log.debug("Page {} of status {} grew to {} bytes, planning the status again", index, sequence, bytes);
+      return sendCycle(cycle.replans() + 1);
+    }
+    return connection.send(frame).chain(() -> onStatusLane(() -> sendPage(cycle, sequence, index + 1)));
+  }
+
+  /**
+   * Runs {@code step} on the status lane and completes with the {@link Uni} it returns.
+   */
+  private Uni<Void> onStatusLane(Supplier<Uni<Void>> step) {
+    return Uni.createFrom().emitter(emitter -> executor.execute(STATUS_LANE,
+        () -> Uni.createFrom().deferred(step).subscribe().with(emitter::complete, emitter::fail)));
+  }
+
+  /**
+   * @param replans how often this status was planned again because a page outgrew its limit
+   */
+  private record Cycle(List<ChargePointStatus.Evse> evses, StatusPaginator paginator, List<StatusPaginator.Page> pages,
+                       ByteBuf single, int replans) {
+  }
+
+  /**
+   * @param planned {@code null} when statuses go through Jackson
+   */
+  private record Serializers(Set<String> omitted, FrameEncoder single, PlannedJsonWriter planned,
+                             StatusPaginator paginator) {
+
+    static Serializers create(CpConfig.StatusConfig config, Set<String> omitted) {
+      ObjectWriter jackson = EvseFieldFilter.MAPPER.writer(EvseFieldFilter.omitting(omitted));
+      PlannedJsonWriter planned = config.plannedWriter()
+          ? plannedWriter(jackson, config.fractionDigits(), omitted)
+          : null;
+      return new Serializers(omitted, new FrameEncoder(jackson), planned,
+          new StatusPaginator(config.maxPageBytes(), omitted, planned));
+    }
+
+    ByteBuf encode(W3CPMessage<ChargePointStatus> message) throws IOException {
+      return planned == null ? single.encode(message) : single.encodeWith(out -> planned.write(out, message));
+    }
+
+    /**
+     * The planned writer, if it writes a sample status exactly as Jackson does apart from number precision. The
+     * DTOs come from a separate artifact; a version with properties the plans cannot express falls back here.
+     */
+    private static PlannedJsonWriter plannedWriter(ObjectWriter jackson, int fractionDigits, Set<String> omitted) {
+      PlannedJsonWriter planned = new PlannedJsonWriter(jackson, fractionDigits,
+          Map.of(ChargePointStatus.Evse.class, omitted));
+      ChargePointStatus sample = new ChargePointStatus();
+      sample.setEvses(List.of(sampleEvse()));
+      sample.setTimestamp(Instant.now());
+      sample.setOnlineSince(Instant.now());
+      sample.setConnectionType(ChargePointStatus.ConnectionType.ethernet);
+      W3CPMessage<ChargePointStatus> message = new W3CPMessage<>(W3CPMessageType.chargepointStatus, sample, null, null);
+      try {
+        for (Class<?> type : List.of(W3CPMessage.class, ChargePointStatus.class, ChargePointStatus.Evse.class,
+            ChargePointStatus.LatestTransaction.class)) {
+          String reason = planned.unplannedReason(type);
+          if (reason != null) {
+            log.warn("Status DTO {} cannot be planned ({}), serializing statuses with Jackson",
+                type.getSimpleName(), reason);
+            return null;
+          }
+        }
+        if (!planned.matchesJackson(message)) {
+          log.warn("Planned status writer differs from Jackson on a sample status, serializing statuses with Jackson");
+          return null;
+        }
+        return planned;
+      } catch (IOException | RuntimeException e) {
+        log.warn("Planned status writer failed on a sample status, serializing statuses with Jackson", e);
+        return null;
+      }
+    }
+
+    /**
+     * Every nested object set and decimals with more digits than any precision keeps, so the check walks each
+     * planned type and number path.
+     */
+    private static ChargePointStatus.Evse sampleEvse() {
+      ChargePointStatus.Evse evse = new ChargePointStatus.Evse();
+      evse.setEvseId("SAMPLE-1");
+      evse.setStatus(ChargePointStatus.ConnectorStatus.charging);
+      evse.setPluggedIn(true);
+      evse.setPluggedConnector("Type2");
+      evse.setLocked(true);
+      evse.setConnectors(List.of("Type2"));
+      evse.setMeter(1234.5678901);
+      evse.setVoltage(229.87654);
+      evse.setCurrent(List.of(15.98765, 16.01234, 0.1));
+      evse.setPower(11023.456789);
+
+      ChargePointStatus.LatestTransaction tx = new ChargePointStatus.LatestTransaction();
+      tx.setSessionId("tx-sample");
+      tx.setStartedAt(Instant.now());
+      tx.setMeterStart(1200.0123456);
+      tx.setEnergyDelivered(34.5555555);
+      tx.setTransactionState(ChargePointStatus.LatestTransaction.TransactionState.ongoing);
+      evse.setLatestTransaction(tx);
+
+      ChargePointStatus.TemperatureValue temperature = new ChargePointStatus.TemperatureValue();
+      temperature.setValue(35.55555);
+      temperature.setUnit(ChargePointStatus.TemperatureUnit.celsius);
+      ChargePointStatus.ThermalInfo thermals = new ChargePointStatus.ThermalInfo();
+      thermals.setConnector(temperature);
+      thermals.setCable(temperature);
+      evse.setThermalInfo(thermals);
+
+      ChargePointStatus.VehicleIdentity vehicle = new ChargePointStatus.VehicleIdentity();
+      vehicle.setType(IdentityType.web3);
+      vehicle.setId("did:example:sample");
+      evse.setVehicleIdentity(vehicle);
+
+      ChargePointStatus.VehicleState state = new ChargePointStatus.VehicleState();
+      state.setVehicleId("VIN-SAMPLE");
+      state.setVehicleBrand("Sample");
+      state.setVehicleSoc(80);
+      state.setVehicleSocTarget(90);
+      state.setCurrentCapacityWh(40000);
+      state.setTotalCapacityWh(50000);
+      state.setEvProtocol(ChargePointStatus.EvProtocol.ISO15118);
+      state.setCarBatteryState("80:40000:50000:tx-sample");
+      evse.setVehicleState(state);
+      return evse;
+    }
+  }
+
+  private static <T> T withLock(Lock lock, Supplier<T> action) {
+    lock.lock();
+    try {
+      return action.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void withLock(Lock lock, Runnable action) {
+    withLock(lock, () -> {
+      action.run();
+      return null;
+    });
   }
 }
@@ -0,0 +1,36 @@
+package w3cp.cp.logic.state;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.model.ChargePointStatus;
+
+import java.util.Set;
+
+/**
+ * Status serialization that can leave optional EVSE properties out. With nothing omitted the output is the same
+ * as {@link W3CPJson#MAPPER}'s.
+ */
+final class EvseFieldFilter {
+
+  private static final String FILTER_ID = "evseFields";
+
+  @JsonFilter(FILTER_ID)
+  private abstract static class FilteredEvseMixin {
+  }
+
+  static final ObjectMapper MAPPER = W3CPJson.MAPPER.copy()
+      .addMixIn(ChargePointStatus.Evse.class, FilteredEvseMixin.class);
+
+  private EvseFieldFilter() {
+  }
+
+  static FilterProvider omitting(Set<String> fields) {
+    return new SimpleFilterProvider().addFilter(FILTER_ID, fields.isEmpty()
+        ? SimpleBeanPropertyFilter.serializeAll()
+        : SimpleBeanPropertyFilter.serializeAllExcept(fields));
+  }
+}
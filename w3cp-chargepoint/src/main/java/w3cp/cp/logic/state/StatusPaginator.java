@@ -0,0 +1,166 @@
+package w3cp.cp.logic.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.annotation.JsonAppend;
+import com.fasterxml.jackson.core.io.SerializedString;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.util.FrameEncoder;
+import w3cp.cp.util.PlannedJsonWriter;
+import w3cp.model.ChargePointStatus;
+import w3cp.model.W3CPMessage;
+import w3cp.model.W3CPMessageType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits a {@code chargepointStatus} into frames of at most {@code maxPageBytes}.
+ * <p>
+ * A counting pass sizes every EVSE without keeping its bytes; EVSEs are then packed greedily into pages. Each
+ * page is a regular status message carrying a slice of the EVSEs plus {@code statusSequence}, {@code page} and
+ * {@code pageCount} next to {@code type}, so the backend can reassemble a cycle. A status that fits into one
+ * frame is serialized exactly as before, without markers. EVSE properties in {@code omittedEvseFields} are left
+ * out of both the sizing and the pages. With a {@link PlannedJsonWriter} both passes go through it instead of
+ * Jackson, so pages are sized as they are written.
+ */
+@Slf4j
+final class StatusPaginator {
+
+  // Room for the three markers at their widest
+  private static final int MARKER_BYTES = 96;
+  private static final SerializedString[] MARKERS = {
+      new SerializedString("statusSequence"), new SerializedString("page"), new SerializedString("pageCount")
+  };
+
+  @JsonAppend(attrs = {
+      @JsonAppend.Attr("statusSequence"),
+      @JsonAppend.Attr("page"),
+      @JsonAppend.Attr("pageCount")
+  })
+  private abstract static class PagedMessageMixin {
+  }
+
+  record Page(int from, int to) {
+  }
+
+  private final int maxPageBytes;
+  private final ObjectWriter sizeWriter;
+  private final ObjectWriter pageWriter;
+  private final FrameEncoder pageEncoder;
+  private final PlannedJsonWriter planned;
+
+  /**
+   * @param planned writer for sizing and pages, or {@code null} for Jackson
+   */
+  StatusPaginator(int maxPageBytes, Set<String> omittedEvseFields, PlannedJsonWriter planned) {
+    this.maxPageBytes = maxPageBytes;
+    this.planned = planned;
+    this.sizeWriter = EvseFieldFilter.MAPPER.writer(EvseFieldFilter.omitting(omittedEvseFields));
+    ObjectMapper pagedMapper = EvseFieldFilter.MAPPER.copy().addMixIn(W3CPMessage.class, PagedMessageMixin.class);
+    this.pageWriter = pagedMapper.writerFor(W3CPMessage.class).with(EvseFieldFilter.omitting(omittedEvseFields));
+    this.pageEncoder = new FrameEncoder(pageWriter);
+  }
+
+  /**
+   * Plans page boundaries over {@code status.getEvses()}. A single page means no pagination is needed.
+   */
+  List<Page> plan(ChargePointStatus status) throws IOException {
+    List<ChargePointStatus.Evse> evses = status.getEvses();
+    if (evses == null || evses.size() <= 1) {
+      return List.of(new Page(0, evses == null ? 0 : evses.size()));
+    }
+
+    CountingOutputStream counter = new CountingOutputStream();
+    size(counter, message(slice(status, List.of())));
+    long envelope = counter.reset() + MARKER_BYTES;
+
+    List<Page> pages = new ArrayList<>();
+    long total = envelope;
+    int from = 0;
+    for (int i = 0; i < evses.size(); i++) {
+      size(counter, evses.get(i));
+      long size = counter.reset() + 1;   // separating comma
+
+      if (size + envelope > maxPageBytes) {
+        log.warn("EVSE {} alone needs {} bytes, above the {} byte page limit", evses.get(i).getEvseId(), size, maxPageBytes);
+      }
+      if (i > from && total + size > maxPageBytes) {
+        pages.add(new Page(from, i));
+        from = i;
+        total = envelope;
+      }
+      total += size;
+    }
+    pages.add(new Page(from, evses.size()));
+    return pages;
+  }
+
+  /**
+   * Serializes one page of {@code status} into a pooled buffer owned by the caller.
+   */
+  ByteBuf render(ChargePointStatus status, Page page, long sequence, int index, int pageCount) throws IOException {
+    ChargePointStatus slice = slice(status, status.getEvses().subList(page.from(), page.to()));
+    if (planned != null) {
+      long[] markers = {sequence, index, pageCount};
+      return pageEncoder.encodeWith(out -> planned.write(out, message(slice), MARKERS, markers));
+    }
+    return pageEncoder.encode(pageWriter
+        .withAttribute("statusSequence", sequence)
+        .withAttribute("page", index)
+        .withAttribute("pageCount", pageCount), message(slice));
+  }
+
+  /**
+   * Whether a rendered page keeps to the limit. A page of a single EVSE is sent however large it is, as
+   * {@link #plan} cannot split it further.
+   */
+  boolean fits(ByteBuf frame, Page page) {
+    return frame.readableBytes() <= maxPageBytes || page.to() - page.from() <= 1;
+  }
+
+  private void size(CountingOutputStream counter, Object value) throws IOException {
+    if (planned != null) {
+      planned.write(counter, value);
+    } else {
+      sizeWriter.writeValue(counter, value);
+    }
+  }
+
+  private static ChargePointStatus slice(ChargePointStatus status, List<ChargePointStatus.Evse> evses) {
+    ChargePointStatus slice = new ChargePointStatus();
+    slice.setTimestamp(status.getTimestamp());
+    slice.setOnlineSince(status.getOnlineSince());
+    slice.setConnectionType(status.getConnectionType());
+    slice.setEvses(evses);
+    return slice;
+  }
+
+  private static W3CPMessage<ChargePointStatus> message(ChargePointStatus status) {
+    return new W3CPMessage<>(W3CPMessageType.chargepointStatus, status, null, null);
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+
+    long reset() {
+      long c = count;
+      count = 0;
+      return c;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package w3cp.cp.logic.state;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks strictly in submission order per key, while different keys run in parallel.
+ * <p>
+ * Keys are hashed onto a fixed number of lanes. A lane is a queue drained by at most one task at a time on the
+ * backing executor (virtual threads by default), so tasks sharing a lane never overlap. A drain hands the thread
+ * back after a bounded number of tasks to keep busy lanes from starving the others.
+ */
+@Slf4j
+public class StripedExecutor implements AutoCloseable {
+
+  private static final int MAX_TASKS_PER_TURN = 64;
+
+  private final Lane[] lanes;
+  private final ExecutorService backing;
+
+  public StripedExecutor(int stripes) {
+    this(stripes, Executors.newVirtualThreadPerTaskExecutor());
+  }
+
+  public StripedExecutor(int stripes, ExecutorService backing) {
+    this.lanes = new Lane[Math.max(1, stripes)];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new Lane();
+    }
+    this.backing = backing;
+  }
+
+  public void execute(Object key, Runnable task) {
+    lanes[laneOf(key)].submit(task);
+  }
+
+  public int stripes() {
+    return lanes.length;
+  }
+
+  int laneOf(Object key) {
+    int h = key.hashCode();
+    return Math.floorMod(h ^ (h >>> 16), lanes.length);
+  }
+
+  @Override
+  public void close() {
+    backing.shutdown();
+    try {
+      if (!backing.awaitTermination(5, TimeUnit.SECONDS)) {
+        log.warn("State executor did not drain within 5s, forcing shutdown");
+        backing.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      backing.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private final class Lane implements Runnable {
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    void submit(Runnable task) {
+      tasks.add(task);
+      schedule();
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          backing.execute(this);
+        } catch (RejectedExecutionException e) {
+          scheduled.set(false);
+          log.warn("State executor is shut down; dropping {} queued task(s)", tasks.size());
+          tasks.clear();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (int i = 0; i < MAX_TASKS_PER_TURN; i++) {
+          Runnable task = tasks.poll();
+          if (task == null) {
+            break;
+          }
+          try {
+            task.run();
+          } catch (Throwable e) {
+            log.error("State task failed", e);
+          }
+        }
+      } finally {
+        scheduled.set(false);
+        // A submitter may have lost the race against the flag above
+        if (!tasks.isEmpty()) {
+          schedule();
+        }
+      }
+    }
+  }
+}
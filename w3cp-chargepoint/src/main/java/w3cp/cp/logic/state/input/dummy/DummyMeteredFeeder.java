@@ -0,0 +1,131 @@
+package w3cp.cp.logic.state.input.dummy;
+
+import io.quarkus.runtime.Startup;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.ObservesAsync;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.input.metering.PhaseMeter;
+import w3cp.cp.logic.state.input.metering.PhaseSamples;
+import w3cp.cp.site.SitePowerManager;
+import w3cp.model.ChargePointStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Like {@link DummyStaticFeeder}, but power, meter and energy are derived from synthetic per-phase voltage and
+ * current readings through {@link PhaseMeter} instead of being fixed. With load management on, the simulated
+ * EVSEs draw no more than the limits {@link SitePowerManager} publishes for them.
+ */
+@Slf4j
+@ApplicationScoped
+@Startup
+public class DummyMeteredFeeder {
+
+  public static final String FEEDER_TYPE = "dummy-metered";
+
+  private static final double UNRESTRICTED_CURRENT_A = 16;
+
+  @Inject
+  CPState cpState;
+
+  @Inject
+  CpConfig cpConfig;
+
+  private final Map<String, Double> limitsW = new ConcurrentHashMap<>();
+  private List<String> evseIds = List.of();
+  private PhaseMeter meter;
+  private double[] meterStartKwh;
+
+  @PostConstruct
+  void init() {
+    evseIds = cpConfig.evses().stream()
+        .filter(cfg -> FEEDER_TYPE.equals(cfg.feeder().type()))
+        .map(CpConfig.EvseConfig::evseId)
+        .toList();
+    if (evseIds.isEmpty()) {
+      return;
+    }
+
+    meter = new PhaseMeter(evseIds.size());
+    meterStartKwh = new double[evseIds.size()];
+    for (int slot = 0; slot < evseIds.size(); slot++) {
+      String evseId = evseIds.get(slot);
+      ChargePointStatus.Evse evse = DummyStaticFeeder.generate(evseId);
+      meterStartKwh[slot] = evse.getMeter();
+      cpState.evseFullUpdate(evseId, evse, false)
+          .subscribe().with(
+              success -> log.info("✅ DummyMeteredFeeder initialized EVSE: {}", evseId),
+              failure -> log.error("❌ Failed to initialize EVSE: {}", evseId, failure)
+          );
+    }
+    log.info("Metering {} EVSE(s) with {}", evseIds.size(), meter.kernel().getClass().getSimpleName());
+  }
+
+  @Scheduled(every = "1s")
+  synchronized void sample() {
+    if (meter == null) {
+      return;
+    }
+    PhaseSamples samples = meter.samples();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int slot = 0; slot < samples.size(); slot++) {
+      double scale = currentScale(evseIds.get(slot));
+      samples.set(slot,
+          230 + random.nextGaussian() * 2, 230 + random.nextGaussian() * 2, 230 + random.nextGaussian() * 2,
+          scale * (16 + random.nextGaussian() * 0.4), scale * (16 + random.nextGaussian() * 0.4),
+          scale * (15 + random.nextGaussian() * 0.4));
+    }
+    meter.process(System.nanoTime());
+
+    for (int slot = 0; slot < samples.size(); slot++) {
+      publish(slot, samples);
+    }
+  }
+
+  void onLimitsChanged(@ObservesAsync SitePowerManager.LimitsChanged event) {
+    event.limitsW().forEach((evseId, limit) -> {
+      // 0: not taking part in load management, so not held back either
+      if (limit > 0) {
+        limitsW.put(evseId, limit);
+      } else {
+        limitsW.remove(evseId);
+      }
+    });
+  }
+
+  // Share of the unrestricted ~16 A per phase the EVSE may draw under its limit
+  private double currentScale(String evseId) {
+    Double limit = limitsW.get(evseId);
+    return limit == null ? 1 : Math.min(1, limit / (3 * 230 * UNRESTRICTED_CURRENT_A));
+  }
+
+  private void publish(int slot, PhaseSamples samples) {
+    double power = meter.powerW(slot);
+    double energyKwh = meter.energyWh(slot) / 1000;
+    double meterKwh = meterStartKwh[slot] + energyKwh;
+    double voltage = (samples.voltageL1[slot] + samples.voltageL2[slot] + samples.voltageL3[slot]) / 3;
+    List<Double> current = List.of(samples.currentL1[slot], samples.currentL2[slot], samples.currentL3[slot]);
+
+    cpState.updateEvse(evseIds.get(slot), evse -> {
+      evse.setPower(power);
+      evse.setVoltage(voltage);
+      evse.setCurrent(current);
+      evse.setMeter(meterKwh);
+      if (evse.getLatestTransaction() != null) {
+        evse.getLatestTransaction().setEnergyDelivered(meterKwh - evse.getLatestTransaction().getMeterStart());
+      }
+    }, false).subscribe().with(
+        success -> {
+        },
+        failure -> log.error("❌ Failed to update metered EVSE: {}", evseIds.get(slot), failure)
+    );
+  }
+}
@@ -0,0 +1,36 @@
+package w3cp.cp.logic.state.input.metering;
+
+/**
+ * Per-EVSE phase arithmetic over a {@link PhaseSamples} batch.
+ */
+public interface PhaseKernel {
+
+  /**
+   * {@code power[i] = Σ V·I} over the three phases (W); {@code imbalance[i]} is the largest deviation of a
+   * phase current from the mean, relative to the mean, and 0 when no current flows.
+   */
+  void powerAndImbalance(PhaseSamples samples, double[] power, double[] imbalance);
+
+  /**
+   * Trapezoidal step: adds the energy between {@code previousPower} and {@code power} over {@code hours} to
+   * {@code energyWh}, then stores {@code power} as the new previous value.
+   */
+  void integrate(double[] previousPower, double[] power, double hours, double[] energyWh, int size);
+
+  /**
+   * The scalar kernel, unless the JVM was started with {@code --add-modules=jdk.incubator.vector}: then the
+   * Vector API kernel. It lives in the {@code vector} source set, so it is looked up by name.
+   */
+  static PhaseKernel best() {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      try {
+        return (PhaseKernel) Class.forName(PhaseKernel.class.getPackageName() + ".VectorPhaseKernel")
+            .getDeclaredConstructor()
+            .newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // fall through to scalar
+      }
+    }
+    return new ScalarPhaseKernel();
+  }
+}
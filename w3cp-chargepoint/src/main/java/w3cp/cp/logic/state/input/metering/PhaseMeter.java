@@ -0,0 +1,73 @@
+package w3cp.cp.logic.state.input.metering;
+
+/**
+ * Metering state for a fixed set of EVSEs: fill {@link #samples()}, call {@link #process(long)}, then read
+ * power, accumulated energy and phase imbalance per slot.
+ * <p>
+ * Energy is integrated with the trapezoidal rule between consecutive {@code process} calls; the first call only
+ * establishes the starting power. Not thread-safe; one feeder owns a meter.
+ */
+public final class PhaseMeter {
+
+  private final PhaseKernel kernel;
+  private final PhaseSamples samples;
+  private final double[] power;
+  private final double[] previousPower;
+  private final double[] imbalance;
+  private final double[] energyWh;
+  private long lastSampleNanos;
+  private boolean started;
+
+  public PhaseMeter(int size) {
+    this(size, PhaseKernel.best());
+  }
+
+  public PhaseMeter(int size, PhaseKernel kernel) {
+    this.kernel = kernel;
+    this.samples = new PhaseSamples(size);
+    this.power = new double[size];
+    this.previousPower = new double[size];
+    this.imbalance = new double[size];
+    this.energyWh = new double[size];
+  }
+
+  public PhaseSamples samples() {
+    return samples;
+  }
+
+  /**
+   * Derives power and imbalance from the current samples and integrates energy since the previous call.
+   *
+   * @param sampleNanos monotonic time the samples were taken, e.g. {@link System#nanoTime()}
+   */
+  public void process(long sampleNanos) {
+    kernel.powerAndImbalance(samples, power, imbalance);
+    if (!started) {
+      System.arraycopy(power, 0, previousPower, 0, power.length);
+      started = true;
+    } else if (sampleNanos > lastSampleNanos) {
+      kernel.integrate(previousPower, power, (sampleNanos - lastSampleNanos) / 3.6e12, energyWh, power.length);
+    }
+    lastSampleNanos = sampleNanos;
+  }
+
+  public int size() {
+    return samples.size();
+  }
+
+  public double powerW(int slot) {
+    return power[slot];
+  }
+
+  public double energyWh(int slot) {
+    return energyWh[slot];
+  }
+
+  public double imbalance(int slot) {
+    return imbalance[slot];
+  }
+
+  public PhaseKernel kernel() {
+    return kernel;
+  }
+}
@@ -0,0 +1,39 @@
+package w3cp.cp.logic.state.input.metering;
+
+/**
+ * One reading per EVSE of three-phase RMS voltage (V) and current (A), stored column-wise in primitive arrays
+ * so the kernels can stream over them without boxing. Slot {@code i} belongs to the same EVSE in every array.
+ */
+public final class PhaseSamples {
+
+  public final double[] voltageL1;
+  public final double[] voltageL2;
+  public final double[] voltageL3;
+  public final double[] currentL1;
+  public final double[] currentL2;
+  public final double[] currentL3;
+  private final int size;
+
+  public PhaseSamples(int size) {
+    this.size = size;
+    this.voltageL1 = new double[size];
+    this.voltageL2 = new double[size];
+    this.voltageL3 = new double[size];
+    this.currentL1 = new double[size];
+    this.currentL2 = new double[size];
+    this.currentL3 = new double[size];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void set(int slot, double v1, double v2, double v3, double i1, double i2, double i3) {
+    voltageL1[slot] = v1;
+    voltageL2[slot] = v2;
+    voltageL3[slot] = v3;
+    currentL1[slot] = i1;
+    currentL2[slot] = i2;
+    currentL3[slot] = i3;
+  }
+}
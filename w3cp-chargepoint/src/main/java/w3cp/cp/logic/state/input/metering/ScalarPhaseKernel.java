@@ -0,0 +1,38 @@
+package w3cp.cp.logic.state.input.metering;
+
+/**
+ * Plain loop implementation; also handles the tail that does not fill a full vector.
+ */
+public final class ScalarPhaseKernel implements PhaseKernel {
+
+  @Override
+  public void powerAndImbalance(PhaseSamples samples, double[] power, double[] imbalance) {
+    powerAndImbalance(samples, power, imbalance, 0, samples.size());
+  }
+
+  @Override
+  public void integrate(double[] previousPower, double[] power, double hours, double[] energyWh, int size) {
+    integrate(previousPower, power, hours, energyWh, 0, size);
+  }
+
+  static void powerAndImbalance(PhaseSamples s, double[] power, double[] imbalance, int from, int to) {
+    for (int i = from; i < to; i++) {
+      double i1 = s.currentL1[i];
+      double i2 = s.currentL2[i];
+      double i3 = s.currentL3[i];
+      power[i] = s.voltageL1[i] * i1 + s.voltageL2[i] * i2 + s.voltageL3[i] * i3;
+
+      double mean = (i1 + i2 + i3) * (1.0 / 3);
+      double deviation = Math.max(Math.abs(i1 - mean), Math.max(Math.abs(i2 - mean), Math.abs(i3 - mean)));
+      imbalance[i] = mean > 0 ? deviation / mean : 0;
+    }
+  }
+
+  static void integrate(double[] previousPower, double[] power, double hours, double[] energyWh, int from, int to) {
+    double halfStep = hours * 0.5;
+    for (int i = from; i < to; i++) {
+      energyWh[i] += (previousPower[i] + power[i]) * halfStep;
+      previousPower[i] = power[i];
+    }
+  }
+}
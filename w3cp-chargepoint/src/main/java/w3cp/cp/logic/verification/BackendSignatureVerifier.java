@@ -0,0 +1,210 @@
+package w3cp.cp.logic.verification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.BackendVerificationConfig;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.util.CanonicalJson;
+import w3cp.model.ConnectionStatus;
+import w3cp.model.W3CPMessageType;
+import w3cp.model.identity.IdentityChallenge;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SignatureException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Verifies backend signatures on inbound {@code connectionStatus} and {@code identityChallenge} frames.
+ * <p>
+ * The backend signs like the chargepoint does: {@code payloadSha256Hash} is the base64url SHA-256 of the
+ * canonical payload and {@code payloadSignature} covers the bytes of that hash string. The signing key is
+ * selected by an optional top-level {@code kid}; without one every pinned key is tried.
+ * <p>
+ * Frames are queued and verified in batches on the worker pool, never on the event loop. While verification
+ * is enabled all inbound frames pass through the queue, so their order is preserved.
+ */
+@Slf4j
+@ApplicationScoped
+public class BackendSignatureVerifier {
+
+  private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+  private final BackendVerificationConfig config;
+  private final PublicKeyCache keyCache;
+  private final Executor executor = Infrastructure.getDefaultWorkerPool();
+  private final Queue<Job> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean draining = new AtomicBoolean(false);
+
+  private final Timer validTimer;
+  private final Timer invalidTimer;
+  private final DistributionSummary batchSizes;
+  private final MeterRegistry registry;
+
+  @Inject
+  public BackendSignatureVerifier(BackendVerificationConfig config, MeterRegistry registry) {
+    this.config = config;
+    this.registry = registry;
+
+    Map<String, W3CPPublicKey> pinned = new HashMap<>();
+    config.keys().forEach((kid, key) ->
+        pinned.put(kid, new W3CPPublicKey(key.type(), W3CPPublicKey.KeyEncoding.base64url, key.value())));
+    this.keyCache = new PublicKeyCache(pinned, config.keyCacheSize(), config.enginesPerKey());
+
+    this.validTimer = verificationTimer("valid");
+    this.invalidTimer = verificationTimer("invalid");
+    this.batchSizes = DistributionSummary.builder("w3cp.verification.batch.size")
+        .description("Inbound frames verified per worker pass")
+        .register(registry);
+    FunctionCounter.builder("w3cp.verification.key.cache", keyCache, PublicKeyCache::hits)
+        .tag("result", "hit").register(registry);
+    FunctionCounter.builder("w3cp.verification.key.cache", keyCache, PublicKeyCache::misses)
+        .tag("result", "miss").register(registry);
+
+    if (isEnabled()) {
+      log.info("Backend signature verification in {} mode with {} pinned key(s)", config.mode(), pinned.size());
+      if (pinned.isEmpty()) {
+        log.warn("No backend keys pinned under w3cp.backend.verification.keys; every signed frame will fail");
+      }
+    }
+  }
+
+  public boolean isEnabled() {
+    return config.mode() != BackendVerificationConfig.Mode.off;
+  }
+
+  /**
+   * Queues an inbound frame for verification.
+   *
+   * @return {@code true} if the frame may be dispatched. Unsigned message types always pass, and so does
+   * everything when verification is off; in monitor mode failures are only logged and counted.
+   */
+  public Uni<Boolean> verify(W3CPMessageType type, JsonObject message) {
+    return Uni.createFrom().emitter(emitter -> {
+      pending.add(new Job(type, message, emitter));
+      scheduleDrain();
+    });
+  }
+
+  private void scheduleDrain() {
+    if (draining.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    int batch = 0;
+    try {
+      Job job;
+      while (batch < config.batchSize() && (job = pending.poll()) != null) {
+        batch++;
+        job.emitter().complete(accept(job.type(), job.message()));
+      }
+    } finally {
+      if (batch > 0) {
+        batchSizes.record(batch);
+      }
+      draining.set(false);
+      if (!pending.isEmpty()) {
+        scheduleDrain();
+      }
+    }
+  }
+
+  private boolean accept(W3CPMessageType type, JsonObject message) {
+    if (!isEnabled()) {
+      return true;
+    }
+    if (type != W3CPMessageType.connectionStatus && type != W3CPMessageType.identityChallenge) {
+      return true;
+    }
+
+    long start = System.nanoTime();
+    String failure;
+    try {
+      failure = check(type, message);
+    } catch (Exception e) {
+      log.debug("Signature check of {} threw", type, e);
+      failure = "error";
+    }
+    (failure == null ? validTimer : invalidTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    if (failure == null) {
+      return true;
+    }
+    Counter.builder("w3cp.verification.failures").tag("type", type.name()).tag("reason", failure)
+        .register(registry).increment();
+    log.warn("Inbound {} failed backend signature verification ({})", type, failure);
+    return config.mode() == BackendVerificationConfig.Mode.monitor;
+  }
+
+  /**
+   * @return {@code null} when the frame is authentic, otherwise a short failure reason
+   */
+  private String check(W3CPMessageType type, JsonObject message) throws Exception {
+    String signature = message.getString("payloadSignature");
+    JsonObject payload = message.getJsonObject("payload");
+    if (signature == null || payload == null) {
+      return "unsigned";
+    }
+
+    Class<?> payloadType = type == W3CPMessageType.connectionStatus ? ConnectionStatus.class : IdentityChallenge.class;
+    Object dto = W3CPJson.MAPPER.convertValue(payload.getMap(), payloadType);
+    String hash = B64.encodeToString(CanonicalJson.sha256(dto));
+
+    String claimedHash = message.getString("payloadSha256Hash");
+    if (claimedHash != null && !claimedHash.equals(hash)) {
+      return "hash-mismatch";
+    }
+
+    byte[] signedData = hash.getBytes(StandardCharsets.US_ASCII);
+    byte[] signatureBytes = Base64.getUrlDecoder().decode(signature);
+
+    String kid = message.getString("kid");
+    if (kid != null) {
+      if (!keyCache.contains(kid)) {
+        return "unknown-key";
+      }
+      return keyCache.verify(kid, signedData, signatureBytes) ? null : "bad-signature";
+    }
+
+    for (String candidate : keyCache.keyIds()) {
+      try {
+        if (keyCache.verify(candidate, signedData, signatureBytes)) {
+          return null;
+        }
+      } catch (SignatureException e) {
+        // Malformed for this key's algorithm; try the next one
+      }
+    }
+    return "bad-signature";
+  }
+
+  private Timer verificationTimer(String result) {
+    return Timer.builder("w3cp.verification.duration")
+        .description("Time to verify one backend-signed inbound frame")
+        .tag("result", result)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+
+  private record Job(W3CPMessageType type, JsonObject message, UniEmitter<? super Boolean> emitter) {
+  }
+}
@@ -0,0 +1,114 @@
+package w3cp.cp.logic.verification;
+
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.cp.util.W3CPKeyUtil;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU of parsed backend {@link PublicKey}s, each with a small pool of {@link Signature}
+ * engines already initialized for verification.
+ * <p>
+ * A verify engine is reusable once {@link Signature#verify(byte[])} returns, so a frame only pays for
+ * {@code update + verify}; key decoding and {@code Signature.getInstance/initVerify} happen once per key id
+ * (again only after eviction).
+ */
+class PublicKeyCache {
+
+  private final Map<String, W3CPPublicKey> sources;
+  private final int enginesPerKey;
+  private final Map<String, Entry> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  PublicKeyCache(Map<String, W3CPPublicKey> sources, int capacity, int enginesPerKey) {
+    this.sources = Map.copyOf(sources);
+    this.enginesPerKey = Math.max(1, enginesPerKey);
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > Math.max(1, capacity);
+      }
+    };
+  }
+
+  Iterable<String> keyIds() {
+    return sources.keySet();
+  }
+
+  boolean contains(String keyId) {
+    return sources.containsKey(keyId);
+  }
+
+  /**
+   * Verifies {@code signature} over {@code data} with the key pinned as {@code keyId}.
+   */
+  boolean verify(String keyId, byte[] data, byte[] signature) throws Exception {
+    Entry entry = entry(keyId);
+    Signature engine = entry.engines.poll();
+    if (engine == null) {
+      engine = entry.newEngine();
+    }
+
+    // If update/verify throws, the engine state is undefined and it is simply not returned to the pool
+    engine.update(data);
+    boolean valid = engine.verify(signature);
+    entry.engines.offer(engine);
+    return valid;
+  }
+
+  long hits() {
+    return hits.get();
+  }
+
+  long misses() {
+    return misses.get();
+  }
+
+  private Entry entry(String keyId) throws Exception {
+    synchronized (entries) {
+      Entry entry = entries.get(keyId);
+      if (entry != null) {
+        hits.incrementAndGet();
+        return entry;
+      }
+    }
+
+    W3CPPublicKey source = sources.get(keyId);
+    if (source == null) {
+      throw new IllegalArgumentException("Unknown backend key id: " + keyId);
+    }
+    misses.incrementAndGet();
+    Entry parsed = new Entry(W3CPKeyUtil.asPublicKey(source), enginesPerKey);
+
+    synchronized (entries) {
+      Entry raced = entries.putIfAbsent(keyId, parsed);
+      return raced != null ? raced : parsed;
+    }
+  }
+
+  private static final class Entry {
+    private final PublicKey key;
+    private final String algorithm;
+    private final ArrayBlockingQueue<Signature> engines;
+
+    Entry(PublicKey key, int poolSize) {
+      this.key = key;
+      this.algorithm = DigitalSignatureUtil.signatureAlgorithm(key);
+      this.engines = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    Signature newEngine() throws Exception {
+      Signature engine = Signature.getInstance(algorithm);
+      engine.initVerify(key);
+      return engine;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package w3cp.cp.loop;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "w3cp.event-loop")
+public interface EventLoopConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // measure event-loop lag and time backend handlers
+
+  @WithName("probe-interval")
+  @WithDefault("100ms")
+  Duration probeInterval();               // how often each event loop is probed and running handlers are checked
+
+  @WithName("slow-task-threshold")
+  @WithDefault("50ms")
+  Duration slowTaskThreshold();           // handlers holding an event loop longer get their stack captured
+
+  @WithName("slow-tasks-kept")
+  @WithDefault("32")
+  int slowTasksKept();                    // most recent slow handlers kept for /event-loop/slow-tasks
+
+  @WithDefault("false")
+  boolean histograms();                   // publish percentile buckets per loop and per handler, not just max/mean
+}
@@ -0,0 +1,316 @@
+package w3cp.cp.loop;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import io.quarkus.runtime.Startup;
+import io.vertx.core.Context;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Continuous event-loop lag measurement and timing of the handlers that run backend traffic.
+ * <p>
+ * A watchdog thread posts a no-op to every Vert.x event loop each {@code probe-interval}; the time until it runs
+ * is the loop's lag ({@code w3cp.eventloop.lag}). A probe is only posted once the previous one ran, so a stuck
+ * loop shows up in {@code w3cp.eventloop.lag.current} while it is stuck, not only afterwards.
+ * <p>
+ * Handlers wrapped in {@link #run} or {@link #call} are timed per call site and message type
+ * ({@code w3cp.eventloop.task}, tagged with the thread kind). On each pass the watchdog captures the stack of any
+ * handler that has held its event loop beyond {@code slow-task-threshold}, so work such as proof of work or
+ * signing that ends up on the loop is reported with the line it is stuck in, well before Vert.x's blocked-thread
+ * warning. Slow handlers are counted ({@code w3cp.eventloop.slow.tasks}) and the latest are kept for
+ * {@link EventLoopMonitorResource}.
+ */
+@Slf4j
+@ApplicationScoped
+@Startup
+public class EventLoopMonitor {
+
+  public static final String NO_TYPE = "none";
+
+  private static final int STACK_DEPTH = 40;
+
+  /**
+   * A handler that held an event loop for {@code millis}; {@code stack} is empty if it finished before the
+   * watchdog saw it.
+   */
+  public record SlowTask(Instant finishedAt, String site, String type, String thread, long millis, List<String> stack) {
+  }
+
+  private record Key(String site, String type, boolean eventLoop) {
+  }
+
+  private static final class InFlight {
+    final Thread thread;
+    final String site;
+    final String type;
+    final long startNanos;
+    volatile StackTraceElement[] stack;
+    // A nested handler already reported this time as slow
+    volatile boolean reported;
+
+    InFlight(Thread thread, String site, String type, long startNanos) {
+      this.thread = thread;
+      this.site = site;
+      this.type = type;
+      this.startNanos = startNanos;
+    }
+  }
+
+  private static final class Probe implements Runnable {
+    final EventExecutor loop;
+    final Timer lag;
+    volatile boolean outstanding;
+    volatile long postedAt;
+    volatile long lastLagNanos;
+
+    Probe(EventExecutor loop, Timer lag) {
+      this.loop = loop;
+      this.lag = lag;
+    }
+
+    void post(long now) {
+      if (outstanding) {
+        return;
+      }
+      postedAt = now;
+      outstanding = true;
+      try {
+        loop.execute(this);
+      } catch (RejectedExecutionException e) {
+        // Loop shut down
+      }
+    }
+
+    @Override
+    public void run() {
+      long nanos = System.nanoTime() - postedAt;
+      lastLagNanos = nanos;
+      lag.record(nanos, TimeUnit.NANOSECONDS);
+      outstanding = false;
+    }
+
+    double currentMillis() {
+      long nanos = outstanding ? Math.max(lastLagNanos, System.nanoTime() - postedAt) : lastLagNanos;
+      return nanos / 1e6;
+    }
+  }
+
+  private final EventLoopConfig config;
+  private final Vertx vertx;
+  private final MeterRegistry registry;
+  private final boolean enabled;
+  private final long thresholdNanos;
+  private final List<Probe> probes = new ArrayList<>();
+  // Innermost timed handler per event-loop thread
+  private final Map<Thread, InFlight> running = new ConcurrentHashMap<>();
+  private final Map<Key, Timer> timers = new ConcurrentHashMap<>();
+  private final Map<Key, Counter> slowCounters = new ConcurrentHashMap<>();
+  private final Deque<SlowTask> recent = new ArrayDeque<>();
+  private Thread watchdog;
+
+  @Inject
+  public EventLoopMonitor(EventLoopConfig config, Vertx vertx, MeterRegistry registry) {
+    this.config = config;
+    this.vertx = vertx;
+    this.registry = registry;
+    this.enabled = config.enabled();
+    this.thresholdNanos = config.slowTaskThreshold().toNanos();
+  }
+
+  @PostConstruct
+  public synchronized void start() {
+    if (!enabled || watchdog != null) {
+      return;
+    }
+    int index = 0;
+    for (EventExecutor loop : vertx.getDelegate().nettyEventLoopGroup()) {
+      String tag = String.valueOf(index++);
+      Probe probe = new Probe(loop, Timer.builder("w3cp.eventloop.lag")
+          .description("Delay between posting a task to an event loop and it running")
+          .tag("loop", tag)
+          .publishPercentileHistogram(config.histograms())
+          .register(registry));
+      Gauge.builder("w3cp.eventloop.lag.current", probe, Probe::currentMillis)
+          .description("Lag of the latest probe, or age of the one still waiting")
+          .tag("loop", tag)
+          .baseUnit("milliseconds")
+          .register(registry);
+      probes.add(probe);
+    }
+    watchdog = Thread.ofPlatform().daemon().name("w3cp-event-loop-watchdog").start(this::watch);
+    log.info("✅ Watching {} event loops, slow handler threshold {}", probes.size(), config.slowTaskThreshold());
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (watchdog != null) {
+      watchdog.interrupt();
+      watchdog = null;
+    }
+  }
+
+  public void run(String site, String type, Runnable task) {
+    call(site, type, () -> {
+      task.run();
+      return null;
+    });
+  }
+
+  /**
+   * Runs {@code task} in the caller's thread, timed as {@code site} handling a message of {@code type}
+   * ({@code null} or {@link #NO_TYPE} if unknown).
+   */
+  public <T> T call(String site, String type, Supplier<T> task) {
+    if (!enabled) {
+      return task.get();
+    }
+    String messageType = type != null ? type : NO_TYPE;
+    boolean eventLoop = Context.isOnEventLoopThread();
+    Thread thread = Thread.currentThread();
+    long start = System.nanoTime();
+    InFlight current = null;
+    InFlight outer = null;
+    if (eventLoop) {
+      current = new InFlight(thread, site, messageType, start);
+      outer = running.put(thread, current);
+    }
+    try {
+      return task.get();
+    } finally {
+      long nanos = System.nanoTime() - start;
+      if (eventLoop) {
+        if (outer != null) {
+          running.put(thread, outer);
+        } else {
+          running.remove(thread);
+        }
+      }
+      Key key = new Key(site, messageType, eventLoop);
+      timers.computeIfAbsent(key, this::taskTimer).record(nanos, TimeUnit.NANOSECONDS);
+      if (eventLoop && nanos >= thresholdNanos && !current.reported) {
+        finishedSlow(key, current, nanos);
+        if (outer != null) {
+          outer.reported = true;
+          outer.stack = current.stack != null ? current.stack : new StackTraceElement[0];
+        }
+      }
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * The most recent slow handlers, oldest first.
+   */
+  public List<SlowTask> recentSlowTasks() {
+    synchronized (recent) {
+      return List.copyOf(recent);
+    }
+  }
+
+  /**
+   * Highest current lag over all event loops.
+   */
+  public double maxLagMillis() {
+    double max = 0;
+    for (Probe probe : probes) {
+      max = Math.max(max, probe.currentMillis());
+    }
+    return max;
+  }
+
+  private void watch() {
+    long interval = config.probeInterval().toNanos();
+    while (true) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(interval);
+      } catch (InterruptedException e) {
+        return;
+      }
+      long now = System.nanoTime();
+      for (Probe probe : probes) {
+        probe.post(now);
+      }
+      for (InFlight task : running.values()) {
+        if (task.stack == null && now - task.startNanos >= thresholdNanos) {
+          capture(task, now);
+        }
+      }
+    }
+  }
+
+  private void capture(InFlight task, long now) {
+    StackTraceElement[] stack = task.thread.getStackTrace();
+    if (running.get(task.thread) != task) {
+      // Finished while the stack was taken; it would show whatever the loop does next
+      return;
+    }
+    task.stack = stack;
+    log.warn("❌ {} [{}] has held event loop {} for {} ms{}", task.site, task.type, task.thread.getName(),
+        TimeUnit.NANOSECONDS.toMillis(now - task.startNanos), format(stack));
+  }
+
+  private void finishedSlow(Key key, InFlight task, long nanos) {
+    slowCounters.computeIfAbsent(key, k -> Counter.builder("w3cp.eventloop.slow.tasks")
+        .description("Handlers that held an event loop beyond the slow-task threshold")
+        .tag("site", k.site())
+        .tag("type", k.type())
+        .register(registry)).increment();
+
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    StackTraceElement[] stack = task.stack;
+    if (stack == null) {
+      log.warn("❌ {} [{}] held event loop {} for {} ms", key.site(), key.type(), task.thread.getName(), millis);
+    } else {
+      log.warn("❌ {} [{}] released event loop {} after {} ms", key.site(), key.type(), task.thread.getName(), millis);
+    }
+    List<String> frames = stack == null ? List.of()
+        : Arrays.stream(stack).limit(STACK_DEPTH).map(StackTraceElement::toString).toList();
+    synchronized (recent) {
+      recent.addLast(new SlowTask(Instant.now(), key.site(), key.type(), task.thread.getName(), millis, frames));
+      while (recent.size() > Math.max(config.slowTasksKept(), 0)) {
+        recent.removeFirst();
+      }
+    }
+  }
+
+  private Timer taskTimer(Key key) {
+    return Timer.builder("w3cp.eventloop.task")
+        .description("Time a backend handler ran, by call site and message type")
+        .tag("site", key.site())
+        .tag("type", key.type())
+        .tag("thread", key.eventLoop() ? "event-loop" : "worker")
+        .publishPercentileHistogram(config.histograms())
+        .register(registry);
+  }
+
+  private static String format(StackTraceElement[] stack) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < Math.min(stack.length, STACK_DEPTH); i++) {
+      text.append("\n\tat ").append(stack[i]);
+    }
+    return text.toString();
+  }
+}
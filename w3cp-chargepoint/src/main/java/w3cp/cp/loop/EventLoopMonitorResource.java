@@ -0,0 +1,34 @@
+package w3cp.cp.loop;
+
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import w3cp.cp.util.LocalOnly;
+
+import java.util.List;
+
+/**
+ * The latest slow handlers with their stacks. Only served to local clients while the monitor is on.
+ */
+@Path("/event-loop")
+public class EventLoopMonitorResource {
+
+  @Inject
+  EventLoopMonitor monitor;
+
+  @GET
+  @Path("/slow-tasks")
+  @Produces(MediaType.APPLICATION_JSON)
+  public List<EventLoopMonitor.SlowTask> slowTasks(@Context HttpServerRequest request) {
+    LocalOnly.require(request);
+    if (!monitor.isEnabled()) {
+      throw new NotFoundException("Event loop monitor is disabled");
+    }
+    return monitor.recentSlowTasks();
+  }
+}
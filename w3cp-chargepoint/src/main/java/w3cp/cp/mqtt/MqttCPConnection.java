@@ -0,0 +1,404 @@
+package w3cp.cp.mqtt;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.mqtt.MqttClient;
+import io.vertx.mqtt.MqttClientOptions;
+import io.vertx.mqtt.messages.MqttConnAckMessage;
+import io.vertx.mqtt.messages.MqttPublishMessage;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.BackendTransport;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.trace.FrameTrace;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * MQTT link to the backend, for sites behind a broker or on links where a long-lived WebSocket costs too much.
+ * <p>
+ * Outgoing frames are published to {@code <prefix>/<cp-id>/up/<type>}, with the type taken from the frame's
+ * {@code "type"} field. Frames for the chargepoint arrive on {@code <prefix>/<cp-id>/down/#}. On connect the link
+ * publishes a retained {@code online} to {@code .../up/presence}, which tells the backend bridge to start the
+ * identity exchange; the broker publishes the {@code offline} will if the link drops. With QoS 1 and a persistent
+ * session the broker keeps the subscription, and the frames sent to the chargepoint while it was away.
+ * <p>
+ * With a {@code batch-window} frames are collected and published together on {@code .../up/batch},
+ * newline-separated, and batches are accepted on {@code .../down/batch} the same way; compact JSON never contains
+ * a raw newline. At most {@code max-inflight} QoS 1 publishes wait for their PUBACK, later ones queue in order.
+ */
+@Slf4j
+@ApplicationScoped
+@Typed(MqttCPConnection.class)
+public class MqttCPConnection implements BackendTransport {
+
+  static final String BATCH = "batch";
+  static final String PRESENCE = "presence";
+  static final String UNTYPED = "message";
+
+  private record Publish(String topic, Buffer payload, MqttQoS qos, boolean retain) {
+  }
+
+  private final MqttConfig config;
+  private final Vertx vertx;
+  private final FrameTrace trace;
+  private final String clientId;
+  private final String upTopic;
+  private final String downFilter;
+  private final String downBatchTopic;
+  private final MqttQoS qos;
+  private final AtomicReference<MqttClient> clientRef = new AtomicReference<>();
+  private final AtomicBoolean connecting = new AtomicBoolean();
+  private final AtomicLong bytesSent = new AtomicLong();
+  // Guarded by this: frames waiting for the batch window, and publishes waiting for an in-flight slot
+  private final List<String> batch = new ArrayList<>();
+  private final Queue<Publish> outbox = new ArrayDeque<>();
+  private int batchBytes;
+  private long batchTimerId = -1;
+  private int inflight;
+  private volatile boolean closing;
+  private Consumer<String> messageHandler;
+  private Runnable connectionLostHandler;
+
+  @Inject
+  public MqttCPConnection(MqttConfig config, CpConfig cpConfig, Vertx vertx, FrameTrace trace) {
+    if (config.qos() < 0 || config.qos() > 1) {
+      throw new W3CPChargepointException("w3cp.backend.mqtt.qos must be 0 or 1, not " + config.qos());
+    }
+    this.config = config;
+    this.vertx = vertx;
+    this.trace = trace;
+    this.clientId = config.clientId().orElse(cpConfig.cpId());
+    String base = config.topicPrefix() + "/" + cpConfig.cpId() + "/";
+    this.upTopic = base + "up/";
+    this.downFilter = base + "down/#";
+    this.downBatchTopic = base + "down/" + BATCH;
+    this.qos = MqttQoS.valueOf(config.qos());
+  }
+
+  @Override
+  public Uni<Void> connect() {
+    if (isConnected() || !connecting.compareAndSet(false, true)) {
+      return Uni.createFrom().voidItem();
+    }
+    closing = false;
+    MqttClient client = MqttClient.create(vertx.getDelegate(), options());
+    client.publishHandler(this::onPublish);
+    client.publishCompletionHandler(messageId -> onAcknowledged());
+    client.closeHandler(v -> onClosed(client));
+
+    log.info("Connecting to MQTT broker {}:{} as {}", config.host(), config.port(), clientId);
+    return Uni.createFrom().deferred(() -> connectOrClose(client))
+        .onItem().transformToUni(ack -> {
+          clientRef.set(client);
+          log.info("MQTT connected to {}:{} ({} session)", config.host(), config.port(),
+              ack.isSessionPresent() ? "resumed" : "new");
+          return await(client.subscribe(downFilter, qos.value()));
+        })
+        .invoke(() -> enqueue(new Publish(upTopic + PRESENCE, Buffer.buffer("online"), MqttQoS.AT_LEAST_ONCE, true)))
+        .replaceWithVoid()
+        .onFailure().invoke(e -> {
+          log.error("Error connecting to MQTT broker", e);
+          clientRef.compareAndSet(client, null);
+          if (client.isConnected()) {
+            client.disconnect();
+          }
+        })
+        .onTermination().invoke(() -> connecting.set(false));
+  }
+
+  /**
+   * Connects within {@code connect-timeout}. A CONNACK that arrives once the attempt timed out or was cancelled
+   * still opens a session at the broker, which is disconnected right away instead of being left open unused.
+   */
+  private Uni<MqttConnAckMessage> connectOrClose(MqttClient client) {
+    Future<MqttConnAckMessage> handshake = client.connect(config.port(), config.host());
+    Runnable closeLate = () -> handshake.onSuccess(late -> {
+      log.debug("Closing MQTT session to {}:{} accepted after the attempt was given up", config.host(),
+          config.port());
+      client.disconnect();
+    });
+    return Uni.createFrom().completionStage(handshake.toCompletionStage())
+        .ifNoItem().after(config.connectTimeout()).fail()
+        .onFailure().invoke(closeLate)
+        .onCancellation().invoke(closeLate);
+  }
+
+  private MqttClientOptions options() {
+    MqttClientOptions options = new MqttClientOptions()
+        .setClientId(clientId)
+        .setCleanSession(config.cleanSession())
+        .setKeepAliveInterval((int) config.keepAlive().toSeconds())
+        .setMaxInflightQueue(Math.max(1, config.maxInflight()))
+        .setWillFlag(true)
+        .setWillTopic(upTopic + PRESENCE)
+        .setWillMessageBytes(Buffer.buffer("offline"))
+        .setWillQoS(MqttQoS.AT_LEAST_ONCE.value())
+        .setWillRetain(true);
+    options.setSsl(config.ssl());
+    config.username().ifPresent(options::setUsername);
+    config.password().ifPresent(options::setPassword);
+    return options;
+  }
+
+  private void onPublish(MqttPublishMessage message) {
+    String payload = message.payload().toString(StandardCharsets.UTF_8);
+    if (!message.topicName().equals(downBatchTopic)) {
+      deliver(payload);
+      return;
+    }
+    for (String frame : payload.split("\n")) {
+      if (!frame.isEmpty()) {
+        deliver(frame);
+      }
+    }
+  }
+
+  private void deliver(String frame) {
+    trace.record(FrameTrace.Direction.in, false, frame);
+    if (trace.logFrames()) {
+      log.info("Received message: {}", frame);
+    }
+    if (messageHandler != null) {
+      messageHandler.accept(frame);
+    } else {
+      log.warn("No handler set; dropping message.");
+    }
+  }
+
+  private void onClosed(MqttClient client) {
+    if (!clientRef.compareAndSet(client, null)) {
+      return;
+    }
+    int dropped;
+    synchronized (this) {
+      dropped = batch.size() + outbox.size();
+      cancelBatchTimer();
+      batch.clear();
+      batchBytes = 0;
+      outbox.clear();
+      inflight = 0;
+    }
+    log.info("MQTT connection closed");
+    if (dropped > 0) {
+      log.warn("MQTT not connected — dropped {} unsent message(s)", dropped);
+    }
+    if (closing) {
+      return;
+    }
+    trace.dumpOnError("MQTT connection to " + config.host() + " lost");
+    if (connectionLostHandler != null) {
+      connectionLostHandler.run();
+    }
+  }
+
+  @Override
+  public Uni<Void> disconnect() {
+    MqttClient client = clientRef.get();
+    if (client == null || !client.isConnected()) {
+      return Uni.createFrom().voidItem();
+    }
+    closing = true;
+    synchronized (this) {
+      flushBatch();
+    }
+    // The will is only published on an unclean drop
+    return await(client.publish(upTopic + PRESENCE, Buffer.buffer("offline"), MqttQoS.AT_MOST_ONCE, false, true))
+        .chain(() -> await(client.disconnect()))
+        .replaceWithVoid();
+  }
+
+  @Override
+  public Uni<Void> send(String message) {
+    if (!isConnected()) {
+      log.warn("MQTT not connected — dropping message: {}", message);
+      return Uni.createFrom().voidItem();
+    }
+    trace.record(FrameTrace.Direction.out, false, message);
+    if (config.batchWindow().isZero()) {
+      Buffer payload = Buffer.buffer(message);
+      bytesSent.addAndGet(payload.length());
+      enqueue(new Publish(upTopic + typeOf(message), payload, qos, false));
+    } else {
+      addToBatch(message);
+    }
+    return Uni.createFrom().voidItem();
+  }
+
+  /**
+   * Publishes the bytes as they are; batching needs the text and goes through {@link #send(String)}.
+   */
+  @Override
+  public Uni<Void> send(ByteBuf frame) {
+    if (!config.batchWindow().isZero() || !isConnected()) {
+      return BackendTransport.super.send(frame);
+    }
+    try {
+      trace.record(FrameTrace.Direction.out, false, frame);
+      byte[] bytes = ByteBufUtil.getBytes(frame);
+      bytesSent.addAndGet(bytes.length);
+      enqueue(new Publish(upTopic + typeOf(bytes), Buffer.buffer(bytes), qos, false));
+    } finally {
+      frame.release();
+    }
+    return Uni.createFrom().voidItem();
+  }
+
+  private synchronized void addToBatch(String message) {
+    int bytes = ByteBufUtil.utf8Bytes(message);
+    batch.add(message);
+    batchBytes += bytes + 1;
+    bytesSent.addAndGet(bytes);
+    if (batchBytes >= config.batchMaxBytes()) {
+      flushBatch();
+    } else if (batchTimerId < 0) {
+      batchTimerId = vertx.setTimer(config.batchWindow().toMillis(), this::onBatchWindowElapsed);
+    }
+  }
+
+  private synchronized void onBatchWindowElapsed(long timerId) {
+    if (timerId == batchTimerId) {
+      batchTimerId = -1;
+      flushBatch();
+    }
+  }
+
+  // Caller holds the lock
+  private void flushBatch() {
+    cancelBatchTimer();
+    if (batch.isEmpty()) {
+      return;
+    }
+    if (batch.size() == 1) {
+      String message = batch.getFirst();
+      enqueue(new Publish(upTopic + typeOf(message), Buffer.buffer(message), qos, false));
+    } else {
+      enqueue(new Publish(upTopic + BATCH, Buffer.buffer(String.join("\n", batch)), qos, false));
+    }
+    batch.clear();
+    batchBytes = 0;
+  }
+
+  // Caller holds the lock
+  private void cancelBatchTimer() {
+    if (batchTimerId >= 0) {
+      vertx.cancelTimer(batchTimerId);
+      batchTimerId = -1;
+    }
+  }
+
+  private synchronized void enqueue(Publish publish) {
+    outbox.add(publish);
+    drain();
+  }
+
+  // Caller holds the lock
+  private void drain() {
+    MqttClient client = clientRef.get();
+    if (client == null) {
+      return;
+    }
+    while (!outbox.isEmpty() && inflight < config.maxInflight()) {
+      Publish next = outbox.poll();
+      boolean acknowledged = next.qos() == MqttQoS.AT_LEAST_ONCE;
+      if (acknowledged) {
+        inflight++;
+      }
+      client.publish(next.topic(), next.payload(), next.qos(), false, next.retain())
+          .onFailure(e -> {
+            log.error("Failed to publish to {}", next.topic(), e);
+            if (acknowledged) {
+              onAcknowledged();
+            }
+          });
+    }
+  }
+
+  private synchronized void onAcknowledged() {
+    if (inflight > 0) {
+      inflight--;
+    }
+    drain();
+  }
+
+  /**
+   * @return the top-level {@code "type"} of a JSON frame, or {@link #UNTYPED}. Frames from {@link W3CPJson#MAPPER}
+   * have their properties sorted, so the type usually follows the whole payload; the other members are skipped
+   * token by token rather than built.
+   */
+  static String typeOf(String frame) {
+    try (JsonParser parser = W3CPJson.MAPPER.getFactory().createParser(frame)) {
+      return typeOf(parser);
+    } catch (IOException e) {
+      return UNTYPED;
+    }
+  }
+
+  static String typeOf(byte[] frame) {
+    try (JsonParser parser = W3CPJson.MAPPER.getFactory().createParser(frame)) {
+      return typeOf(parser);
+    } catch (IOException e) {
+      return UNTYPED;
+    }
+  }
+
+  private static String typeOf(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return UNTYPED;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if ("type".equals(field)) {
+        return value == JsonToken.VALUE_STRING ? parser.getText() : UNTYPED;
+      }
+      parser.skipChildren();
+    }
+    return UNTYPED;
+  }
+
+  private static <T> Uni<T> await(Future<T> future) {
+    return Uni.createFrom().completionStage(future.toCompletionStage());
+  }
+
+  @Override
+  public long bytesSent() {
+    return bytesSent.get();
+  }
+
+  @Override
+  public void setMessageHandler(Consumer<String> handler) {
+    this.messageHandler = handler;
+  }
+
+  @Override
+  public void setConnectionLostHandler(Runnable handler) {
+    this.connectionLostHandler = handler;
+  }
+
+  @Override
+  public boolean isConnected() {
+    MqttClient client = clientRef.get();
+    return client != null && client.isConnected();
+  }
+}
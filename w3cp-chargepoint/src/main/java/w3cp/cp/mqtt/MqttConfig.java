@@ -0,0 +1,59 @@
+package w3cp.cp.mqtt;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "w3cp.backend.mqtt")
+public interface MqttConfig {
+
+  @WithDefault("localhost")
+  String host();
+
+  @WithDefault("1883")
+  int port();
+
+  @WithDefault("false")
+  boolean ssl();
+
+  @WithName("client-id")
+  Optional<String> clientId();            // defaults to the cp-id
+
+  Optional<String> username();
+
+  Optional<String> password();
+
+  @WithName("topic-prefix")
+  @WithDefault("w3cp")
+  String topicPrefix();                   // frames go to <prefix>/<cp-id>/up/<type>, come from <prefix>/<cp-id>/down/#
+
+  @WithDefault("1")
+  int qos();                              // 0 or 1
+
+  @WithName("clean-session")
+  @WithDefault("false")
+  boolean cleanSession();                 // false keeps subscriptions and queued frames at the broker across reconnects
+
+  @WithName("keep-alive")
+  @WithDefault("30s")
+  Duration keepAlive();
+
+  @WithName("connect-timeout")
+  @WithDefault("5s")
+  Duration connectTimeout();
+
+  @WithName("max-inflight")
+  @WithDefault("64")
+  int maxInflight();                      // unacknowledged QoS 1 publishes before sends queue locally
+
+  @WithName("batch-window")
+  @WithDefault("0ms")
+  Duration batchWindow();                 // collect frames this long into one publish; 0 sends each right away
+
+  @WithName("batch-max-bytes")
+  @WithDefault("16384")
+  int batchMaxBytes();                    // a batch is published early once it reaches this size
+}
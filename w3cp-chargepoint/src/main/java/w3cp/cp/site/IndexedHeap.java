@@ -0,0 +1,110 @@
+package w3cp.cp.site;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Binary heap of slot numbers ordered by a key looked up per slot, with a position index so any slot can be
+ * removed in O(log n). Keys must not change while a slot is in the heap; remove, change, re-add instead.
+ */
+final class IndexedHeap {
+
+  private final IntToDoubleFunction key;
+  private final boolean maxHeap;
+  private int[] heap = new int[16];
+  private int[] position = new int[16];
+  private int size;
+
+  IndexedHeap(IntToDoubleFunction key, boolean maxHeap) {
+    this.key = key;
+    this.maxHeap = maxHeap;
+    Arrays.fill(position, -1);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the top slot, or -1 if empty
+   */
+  int peek() {
+    return size == 0 ? -1 : heap[0];
+  }
+
+  boolean contains(int slot) {
+    return slot < position.length && position[slot] >= 0;
+  }
+
+  void add(int slot) {
+    if (slot >= position.length) {
+      int old = position.length;
+      position = Arrays.copyOf(position, Math.max(slot + 1, old * 2));
+      Arrays.fill(position, old, position.length, -1);
+    }
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    heap[size] = slot;
+    position[slot] = size;
+    siftUp(size++);
+  }
+
+  void remove(int slot) {
+    if (!contains(slot)) {
+      return;
+    }
+    int index = position[slot];
+    position[slot] = -1;
+    int last = heap[--size];
+    if (index == size) {
+      return;
+    }
+    heap[index] = last;
+    position[last] = index;
+    siftDown(index);
+    siftUp(position[last]);
+  }
+
+  private void siftUp(int index) {
+    int slot = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!before(slot, heap[parent])) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(slot, index);
+  }
+
+  private void siftDown(int index) {
+    int slot = heap[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < size && before(heap[right], heap[child])) {
+        child = right;
+      }
+      if (!before(heap[child], slot)) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(slot, index);
+  }
+
+  private boolean before(int a, int b) {
+    double ka = key.applyAsDouble(a);
+    double kb = key.applyAsDouble(b);
+    return maxHeap ? ka > kb : ka < kb;
+  }
+
+  private void place(int slot, int index) {
+    heap[index] = slot;
+    position[slot] = index;
+  }
+}
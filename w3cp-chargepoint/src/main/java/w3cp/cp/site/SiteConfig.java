@@ -0,0 +1,37 @@
+package w3cp.cp.site;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "w3cp.site")
+public interface SiteConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // cap the summed power of all charging EVSEs
+
+  @WithName("power-limit")
+  @WithDefault("44000")
+  double powerLimitW();                   // site limit in W
+
+  @WithName("evse-min-power")
+  @WithDefault("4140")
+  double evseMinPowerW();                 // 6 A on three phases; less would stop the EV
+
+  @WithName("evse-max-power")
+  @WithDefault("22080")
+  double evseMaxPowerW();                 // 32 A on three phases
+
+  @WithName("demand-headroom")
+  @WithDefault("0.1")
+  double demandHeadroom();                // cap an EVSE at its measured power plus this share, 0 to disable
+
+  @WithName("publish-interval")
+  @WithDefault("100ms")
+  Duration publishInterval();             // upper bound until a changed limit comes out
+
+  @WithDefault("50")
+  double hysteresis();                    // limit changes below this many W are not published
+}
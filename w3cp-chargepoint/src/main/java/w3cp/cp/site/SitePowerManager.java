@@ -0,0 +1,130 @@
+package w3cp.cp.site;
+
+import io.quarkus.runtime.Startup;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.input.dummy.DummyMeteredFeeder;
+import w3cp.model.ChargePointStatus;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Load management: keeps a {@link WaterFillingAllocator} in step with {@link CPState} EVSE changes and
+ * publishes the resulting per-EVSE limits.
+ * <p>
+ * A charging EVSE takes part with the configured min and max, its max lowered to its measured power plus
+ * {@code demand-headroom} so capacity an EV does not draw goes to the others. Allocations update with every EVSE
+ * change; every {@code publish-interval} the limits that moved by at least {@code hysteresis} are fired as a
+ * {@link LimitsChanged} event, which bounds the latency from a change to its new limits. Whatever drives the
+ * EVSEs observes it; here that is {@link DummyMeteredFeeder}, which holds its simulated EVSEs to their limits.
+ */
+@Slf4j
+@ApplicationScoped
+@Startup
+public class SitePowerManager {
+
+  /**
+   * Limits in W of the EVSEs whose allocation changed; 0 means the EVSE takes no part.
+   */
+  public record LimitsChanged(Map<String, Double> limitsW, double siteLimitW, boolean overloaded) {
+  }
+
+  private final SiteConfig config;
+  private final CPState cpState;
+  private final Vertx vertx;
+  private final Event<LimitsChanged> limitsChanged;
+  private final WaterFillingAllocator allocator;
+  private double[] published = new double[0];
+  private long timerId = -1;
+
+  @Inject
+  public SitePowerManager(SiteConfig config, CPState cpState, Vertx vertx, Event<LimitsChanged> limitsChanged) {
+    this.config = config;
+    this.cpState = cpState;
+    this.vertx = vertx;
+    this.limitsChanged = limitsChanged;
+    this.allocator = new WaterFillingAllocator(config.powerLimitW());
+  }
+
+  @PostConstruct
+  public void init() {
+    if (!config.enabled()) {
+      return;
+    }
+    cpState.addEvseListener(this::onEvseChanged);
+    timerId = vertx.setPeriodic(config.publishInterval().toMillis(), id -> publish());
+    log.info("✅ Site power limit {} W, EVSE range {}-{} W", config.powerLimitW(), config.evseMinPowerW(), config.evseMaxPowerW());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (timerId >= 0) {
+      vertx.cancelTimer(timerId);
+    }
+  }
+
+  public void setSiteLimit(double siteLimitW) {
+    synchronized (allocator) {
+      allocator.setSiteLimit(siteLimitW);
+    }
+  }
+
+  /**
+   * @return the EVSE's current share in W, which may not be published yet
+   */
+  public double limitOf(String evseId) {
+    synchronized (allocator) {
+      return allocator.allocation(evseId);
+    }
+  }
+
+  void onEvseChanged(ChargePointStatus.Evse evse) {
+    boolean charging = evse.getStatus() == ChargePointStatus.ConnectorStatus.charging;
+    double min = config.evseMinPowerW();
+    double max = config.evseMaxPowerW();
+    Double power = evse.getPower();
+    if (charging && power != null && power > 0 && config.demandHeadroom() > 0) {
+      max = Math.min(max, Math.max(min, power * (1 + config.demandHeadroom())));
+    }
+    synchronized (allocator) {
+      allocator.update(evse.getEvseId(), charging, min, max);
+    }
+  }
+
+  void publish() {
+    Map<String, Double> changed = new HashMap<>();
+    double siteLimit;
+    boolean overloaded;
+    synchronized (allocator) {
+      int slots = allocator.slotCount();
+      if (published.length < slots) {
+        published = Arrays.copyOf(published, slots);
+      }
+      for (int slot = 0; slot < slots; slot++) {
+        double limit = allocator.allocation(slot);
+        if (Math.abs(limit - published[slot]) >= config.hysteresis() || (limit == 0) != (published[slot] == 0)) {
+          published[slot] = limit;
+          changed.put(allocator.evseId(slot), limit);
+        }
+      }
+      siteLimit = allocator.getSiteLimit();
+      overloaded = allocator.isOverloaded();
+    }
+    if (changed.isEmpty()) {
+      return;
+    }
+    if (overloaded) {
+      log.warn("Site limit {} W is below the EVSE minimums, every charging EVSE gets its minimum", siteLimit);
+    }
+    log.debug("Publishing {} changed EVSE limit(s)", changed.size());
+    limitsChanged.fireAsync(new LimitsChanged(changed, siteLimit, overloaded));
+  }
+}
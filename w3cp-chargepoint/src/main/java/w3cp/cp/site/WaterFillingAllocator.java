@@ -0,0 +1,224 @@
+package w3cp.cp.site;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Max-min fair split of a site power limit over active EVSEs, each bounded by its own min and max.
+ * <p>
+ * Every active EVSE is either pinned at its min, pinned at its max, or free at the common water level
+ * {@code (limit - Σ pinned) / free}. The three groups are kept in indexed heaps ordered by the bound that would
+ * move an EVSE to a neighbouring group, so a change only moves the EVSEs whose bound the level crosses:
+ * O(log n) per move instead of a full recomputation. If even the mins exceed the limit every EVSE gets its min
+ * and the allocator reports an overload.
+ * <p>
+ * Not thread-safe.
+ */
+public final class WaterFillingAllocator {
+
+  private static final byte IDLE = 0;
+  private static final byte AT_MIN = 1;
+  private static final byte FREE = 2;
+  private static final byte AT_MAX = 3;
+
+  // Incremental sums drift; recompute them exactly this often
+  private static final int RESUM_EVERY = 1 << 16;
+
+  private final Map<String, Integer> slots = new HashMap<>();
+  private String[] ids = new String[16];
+  private double[] min = new double[16];
+  private double[] max = new double[16];
+  private byte[] group = new byte[16];
+
+  private final IndexedHeap pinnedAtMin = new IndexedHeap(slot -> min[slot], false);
+  private final IndexedHeap pinnedAtMax = new IndexedHeap(slot -> max[slot], true);
+  private final IndexedHeap freeByMax = new IndexedHeap(slot -> max[slot], false);
+  private final IndexedHeap freeByMin = new IndexedHeap(slot -> min[slot], true);
+
+  private double sumAtMin;
+  private double sumAtMax;
+  private double siteLimit;
+  private double level;
+  private boolean overloaded;
+  private int updatesSinceResum;
+
+  public WaterFillingAllocator(double siteLimitW) {
+    this.siteLimit = siteLimitW;
+  }
+
+  public void setSiteLimit(double siteLimitW) {
+    this.siteLimit = siteLimitW;
+    rebalance();
+  }
+
+  public double getSiteLimit() {
+    return siteLimit;
+  }
+
+  /**
+   * Sets an EVSE's bounds, or takes it out of the allocation when {@code active} is false.
+   */
+  public void update(String evseId, boolean active, double minW, double maxW) {
+    int slot = slotOf(evseId);
+    detach(slot);
+    if (active) {
+      min[slot] = minW;
+      max[slot] = Math.max(minW, maxW);
+      toFree(slot);
+    }
+    if (++updatesSinceResum >= RESUM_EVERY) {
+      resum();
+    }
+    rebalance();
+  }
+
+  public void remove(String evseId) {
+    update(evseId, false, 0, 0);
+  }
+
+  /**
+   * @return the EVSE's share in W, 0 if it is unknown or inactive
+   */
+  public double allocation(String evseId) {
+    Integer slot = slots.get(evseId);
+    return slot == null ? 0 : allocation(slot);
+  }
+
+  double allocation(int slot) {
+    return switch (group[slot]) {
+      case AT_MIN -> min[slot];
+      case AT_MAX -> max[slot];
+      case FREE -> level;
+      default -> 0;
+    };
+  }
+
+  /**
+   * Sum of all allocations; equals the site limit unless every EVSE is pinned.
+   */
+  public double allocated() {
+    return sumAtMin + sumAtMax + freeByMax.size() * level;
+  }
+
+  public boolean isOverloaded() {
+    return overloaded;
+  }
+
+  public int activeCount() {
+    return pinnedAtMin.size() + pinnedAtMax.size() + freeByMax.size();
+  }
+
+  /**
+   * Number of slots ever assigned; slot numbers run from 0 to this value.
+   */
+  int slotCount() {
+    return slots.size();
+  }
+
+  String evseId(int slot) {
+    return ids[slot];
+  }
+
+  private void rebalance() {
+    // Each move fixes one EVSE on the wrong side of the level; the bound is a safety net only
+    int guard = 4 * activeCount() + 4;
+    for (int moves = 0; moves < guard; moves++) {
+      int free = freeByMax.size();
+      int slot;
+      if (free == 0) {
+        double pinned = sumAtMin + sumAtMax;
+        if (pinned < siteLimit && (slot = pinnedAtMin.peek()) >= 0) {
+          detach(slot);
+          toFree(slot);
+          continue;
+        }
+        if (pinned > siteLimit && (slot = pinnedAtMax.peek()) >= 0) {
+          detach(slot);
+          toFree(slot);
+          continue;
+        }
+        break;
+      }
+
+      level = (siteLimit - sumAtMin - sumAtMax) / free;
+      if ((slot = pinnedAtMin.peek()) >= 0 && min[slot] < level) {
+        detach(slot);
+        toFree(slot);
+      } else if ((slot = pinnedAtMax.peek()) >= 0 && max[slot] > level) {
+        detach(slot);
+        toFree(slot);
+      } else if ((slot = freeByMax.peek()) >= 0 && max[slot] <= level) {
+        detach(slot);
+        group[slot] = AT_MAX;
+        pinnedAtMax.add(slot);
+        sumAtMax += max[slot];
+      } else if ((slot = freeByMin.peek()) >= 0 && min[slot] >= level) {
+        detach(slot);
+        group[slot] = AT_MIN;
+        pinnedAtMin.add(slot);
+        sumAtMin += min[slot];
+      } else {
+        break;
+      }
+    }
+    overloaded = freeByMax.size() == 0 && pinnedAtMax.size() == 0 && sumAtMin > siteLimit;
+  }
+
+  private void toFree(int slot) {
+    group[slot] = FREE;
+    freeByMax.add(slot);
+    freeByMin.add(slot);
+  }
+
+  private void detach(int slot) {
+    switch (group[slot]) {
+      case AT_MIN -> {
+        pinnedAtMin.remove(slot);
+        sumAtMin -= min[slot];
+      }
+      case AT_MAX -> {
+        pinnedAtMax.remove(slot);
+        sumAtMax -= max[slot];
+      }
+      case FREE -> {
+        freeByMax.remove(slot);
+        freeByMin.remove(slot);
+      }
+      default -> {
+      }
+    }
+    group[slot] = IDLE;
+  }
+
+  private void resum() {
+    sumAtMin = 0;
+    sumAtMax = 0;
+    for (int slot = 0; slot < slots.size(); slot++) {
+      if (group[slot] == AT_MIN) {
+        sumAtMin += min[slot];
+      } else if (group[slot] == AT_MAX) {
+        sumAtMax += max[slot];
+      }
+    }
+    updatesSinceResum = 0;
+  }
+
+  private int slotOf(String evseId) {
+    Integer slot = slots.get(evseId);
+    if (slot != null) {
+      return slot;
+    }
+    int next = slots.size();
+    if (next == ids.length) {
+      int capacity = next * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      min = Arrays.copyOf(min, capacity);
+      max = Arrays.copyOf(max, capacity);
+      group = Arrays.copyOf(group, capacity);
+    }
+    ids[next] = evseId;
+    slots.put(evseId, next);
+    return next;
+  }
+}
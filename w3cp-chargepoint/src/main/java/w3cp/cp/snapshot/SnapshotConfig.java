@@ -0,0 +1,24 @@
+package w3cp.cp.snapshot;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "w3cp.snapshot")
+public interface SnapshotConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // restore EVSE state from the last snapshot at boot
+
+  @WithDefault("cp-state.snapshot")
+  String file();
+
+  @WithDefault("30s")
+  Duration interval();                    // how often the state is written, besides on shutdown
+
+  @WithName("max-age")
+  @WithDefault("24h")
+  Duration maxAge();                      // older snapshots are ignored at boot
+}
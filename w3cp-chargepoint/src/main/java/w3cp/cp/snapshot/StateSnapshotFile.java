@@ -0,0 +1,128 @@
+package w3cp.cp.snapshot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import w3cp.model.ChargePointStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a {@link ChargePointStatus}: a fixed header followed by the status as CBOR.
+ * <pre>
+ *   0  int   magic "W3CS"
+ *   4  short format version
+ *   6  short reserved
+ *   8  long  taken at, epoch millis
+ *  16  int   payload length
+ *  20  int   CRC32 of the payload
+ *  24  ...   CBOR payload
+ * </pre>
+ * Writes go through a mapping of a temporary file that is forced to disk and then renamed over the target, so a
+ * crash leaves either the previous or the new snapshot. Reads map the file and decode straight from the mapping.
+ */
+public final class StateSnapshotFile {
+
+  private static final int MAGIC = 0x57334353;
+  private static final short VERSION = 1;
+  static final int HEADER_BYTES = 24;
+
+  private static final ObjectMapper CBOR = CBORMapper.builder()
+      .addModule(new JavaTimeModule())
+      .serializationInclusion(JsonInclude.Include.NON_NULL)
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+      .build();
+
+  /**
+   * A decoded snapshot.
+   */
+  public record Snapshot(Instant takenAt, ChargePointStatus status) {
+  }
+
+  private StateSnapshotFile() {
+  }
+
+  /**
+   * Encodes {@code status}; cheap enough to run under the state lock, the file is written afterwards.
+   */
+  public static byte[] encode(ChargePointStatus status) throws IOException {
+    return CBOR.writeValueAsBytes(status);
+  }
+
+  public static void write(Path target, Instant takenAt, byte[] payload) throws IOException {
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    Path parent = target.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + payload.length);
+      map.putInt(MAGIC)
+          .putShort(VERSION)
+          .putShort((short) 0)
+          .putLong(takenAt.toEpochMilli())
+          .putInt(payload.length)
+          .putInt((int) crc.getValue())
+          .put(payload);
+      map.force();
+    }
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * @return the snapshot, or empty if there is none
+   * @throws IOException if the file exists but is truncated, corrupt or of an unknown version
+   */
+  public static Optional<Snapshot> read(Path file) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return Optional.empty();
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES) {
+        throw new IOException("Snapshot " + file + " is truncated");
+      }
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (map.getInt() != MAGIC) {
+        throw new IOException(file + " is not a state snapshot");
+      }
+      short version = map.getShort();
+      if (version != VERSION) {
+        throw new IOException("Snapshot " + file + " has unsupported version " + version);
+      }
+      map.getShort();
+      Instant takenAt = Instant.ofEpochMilli(map.getLong());
+      int length = map.getInt();
+      int checksum = map.getInt();
+      if (length < 0 || length > size - HEADER_BYTES) {
+        throw new IOException("Snapshot " + file + " is truncated");
+      }
+
+      ByteBuffer payload = map.slice(HEADER_BYTES, length);
+      CRC32 crc = new CRC32();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        throw new IOException("Snapshot " + file + " fails its checksum");
+      }
+      ChargePointStatus status = CBOR.readValue(new ByteBufferBackedInputStream(payload), ChargePointStatus.class);
+      return Optional.of(new Snapshot(takenAt, status));
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package w3cp.cp.snapshot;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.state.CPState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Writes {@link CPState} to a {@link StateSnapshotFile} every {@code w3cp.snapshot.interval} and on shutdown.
+ * The status is encoded under the state lock, the file is written after it is released. {@link CPState} reads
+ * the snapshot back when it is created.
+ */
+@Slf4j
+@ApplicationScoped
+public class StateSnapshotter {
+
+  private final SnapshotConfig config;
+  private final CPState cpState;
+
+  @Inject
+  public StateSnapshotter(SnapshotConfig config, CPState cpState) {
+    this.config = config;
+    this.cpState = cpState;
+  }
+
+  @Scheduled(every = "${w3cp.snapshot.interval:30s}")
+  void periodic() {
+    if (!config.enabled()) {
+      return;
+    }
+    try {
+      snapshot();
+    } catch (W3CPChargepointException e) {
+      log.warn("Periodic state snapshot failed", e);
+    }
+  }
+
+  void onStop(@Observes ShutdownEvent event) {
+    if (!config.enabled()) {
+      return;
+    }
+    try {
+      snapshot();
+      log.info("✅ State snapshot written to {}", config.file());
+    } catch (W3CPChargepointException e) {
+      log.error("❌ State snapshot on shutdown failed, the next start begins with empty EVSEs", e);
+    }
+  }
+
+  /**
+   * Blocking; call off the event loop.
+   */
+  public synchronized void snapshot() {
+    Path target = Path.of(config.file());
+    try {
+      Instant takenAt = Instant.now();
+      byte[] payload = cpState.readConsistent(status -> {
+        try {
+          return StateSnapshotFile.encode(status);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      StateSnapshotFile.write(target, takenAt, payload);
+      log.debug("State snapshot of {} bytes written to {}", payload.length, target);
+    } catch (IOException | UncheckedIOException e) {
+      throw new W3CPChargepointException("Failed to write state snapshot to " + target, e);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package w3cp.cp.telemetry;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "w3cp.telemetry")
+public interface TelemetryConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // adapt status reporting to the detected uplink
+
+  Map<String, ProfileConfig> profiles();  // overrides keyed by uplink: ethernet, wifi, lte, unknown
+
+  /**
+   * Unset values keep the built-in profile of the uplink, see {@link TelemetryProfile#defaults}.
+   */
+  interface ProfileConfig {
+
+    Optional<Duration> interval();        // period for coalesced meter and power changes
+
+    @WithName("meter-deadband")
+    Optional<Double> meterDeadbandKwh();  // meter moves below this many kWh are held back
+
+    @WithName("power-deadband")
+    Optional<Double> powerDeadbandW();    // power moves below this many W are held back
+
+    @WithName("thermal-info")
+    Optional<Boolean> thermalInfo();      // include the thermalInfo block
+
+    @WithName("vehicle-state")
+    Optional<Boolean> vehicleState();     // include the vehicleState block
+
+    Optional<Boolean> compression();      // offer permessage-deflate on the next connect
+
+    @WithName("byte-budget")
+    Optional<Integer> byteBudget();       // bytes per minute before the interval backs off, 0 = unlimited
+  }
+}
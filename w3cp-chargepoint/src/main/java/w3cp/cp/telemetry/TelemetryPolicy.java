@@ -0,0 +1,194 @@
+package w3cp.cp.telemetry;
+
+import io.quarkus.runtime.Startup;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.BackendTransport;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.util.NetworkDetectorUtil;
+import w3cp.model.ChargePointStatus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides when {@link CPState} is reported and what goes into a status, based on the uplink.
+ * <p>
+ * The uplink type recorded when the backend verifies the connection selects a {@link TelemetryProfile}.
+ * Control-relevant EVSE changes are sent right away; meter and power changes outside the deadbands are
+ * coalesced into one status per {@code interval}, smaller ones wait until they add up. When the bytes written
+ * per minute exceed the profile's {@code byte-budget} the interval doubles, up to {@link #MAX_BACKOFF} times,
+ * and halves again once traffic stays below half the budget.
+ */
+@Slf4j
+@ApplicationScoped
+@Startup
+public class TelemetryPolicy {
+
+  static final int MAX_BACKOFF = 8;
+
+  private final TelemetryConfig config;
+  private final CPState cpState;
+  private final BackendTransport connection;
+  private final Vertx vertx;
+  // Latest reading per EVSE, and what the last sent status carried
+  private final Map<String, TelemetryProfile.Reading> latest = new ConcurrentHashMap<>();
+  private final Map<String, TelemetryProfile.Reading> reported = new ConcurrentHashMap<>();
+  private final AtomicBoolean dirty = new AtomicBoolean();
+  private final AtomicBoolean sending = new AtomicBoolean();
+  private final AtomicBoolean resend = new AtomicBoolean();
+  private volatile ChargePointStatus.ConnectionType uplink;
+  private volatile TelemetryProfile profile;
+  private int backoff = 1;
+  private long lastBytes;
+  private long lastTickNanos;
+  private long timerId = -1;
+  private boolean stopped;
+
+  @Inject
+  public TelemetryPolicy(TelemetryConfig config, CPState cpState, BackendTransport connection, Vertx vertx) {
+    this.config = config;
+    this.cpState = cpState;
+    this.connection = connection;
+    this.vertx = vertx;
+  }
+
+  @PostConstruct
+  public void init() {
+    if (!config.enabled()) {
+      return;
+    }
+    // Compression is negotiated on connect, so pick a profile before the first one
+    apply(NetworkDetectorUtil.detectConnectionType());
+    cpState.addEvseListener(this::onEvseChanged);
+    lastTickNanos = System.nanoTime();
+    schedule();
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    stopped = true;
+    if (timerId >= 0) {
+      vertx.cancelTimer(timerId);
+    }
+  }
+
+  public TelemetryProfile profile() {
+    return profile;
+  }
+
+  /**
+   * @return factor by which the profile interval is currently stretched
+   */
+  public synchronized int backoff() {
+    return backoff;
+  }
+
+  void onEvseChanged(ChargePointStatus.Evse evse) {
+    TelemetryProfile.Reading now = TelemetryProfile.Reading.of(evse);
+    latest.put(evse.getEvseId(), now);
+    switch (profile.classify(reported.get(evse.getEvseId()), now)) {
+      case immediate -> send();
+      case periodic -> dirty.set(true);
+      case none -> {
+      }
+    }
+  }
+
+  private void apply(ChargePointStatus.ConnectionType type) {
+    TelemetryProfile next = TelemetryProfile.defaults(type).with(config.profiles().get(type.name()));
+    uplink = type;
+    profile = next;
+    cpState.setOmittedEvseFields(next.omittedEvseFields());
+    connection.setCompression(next.compression());
+    log.info("✅ Telemetry profile for {} uplink: every {}s, deadbands {} kWh / {} W, compression {}",
+        type, next.interval().toSeconds(), next.meterDeadbandKwh(), next.powerDeadbandW(),
+        next.compression() ? "on" : "off");
+  }
+
+  private synchronized void schedule() {
+    if (stopped) {
+      return;
+    }
+    long delay = Math.max(1, profile.interval().toMillis() * backoff);
+    timerId = vertx.setTimer(delay, id -> tick());
+  }
+
+  private void tick() {
+    ChargePointStatus status = cpState.getCurrentStatus();
+    ChargePointStatus.ConnectionType detected = status == null ? null : status.getConnectionType();
+    if (detected != null && detected != uplink) {
+      apply(detected);
+    }
+
+    synchronized (this) {
+      if (stopped) {
+        return;
+      }
+      adaptToThroughput();
+    }
+
+    if (dirty.getAndSet(false)) {
+      send();
+    }
+    schedule();
+  }
+
+  private void adaptToThroughput() {
+    long now = System.nanoTime();
+    long bytes = connection.bytesSent();
+    double perMinute = (bytes - lastBytes) * 60e9 / Math.max(1, now - lastTickNanos);
+    lastBytes = bytes;
+    lastTickNanos = now;
+
+    int budget = profile.byteBudget();
+    if (budget <= 0) {
+      backoff = 1;
+    } else if (perMinute > budget && backoff < MAX_BACKOFF) {
+      backoff *= 2;
+      log.info("Status traffic {} B/min above the {} B/min budget, reporting every {}s",
+          Math.round(perMinute), budget, profile.interval().toSeconds() * backoff);
+    } else if (perMinute < budget / 2.0 && backoff > 1) {
+      backoff /= 2;
+    }
+  }
+
+  /**
+   * Sends the current status, or once more after the one in flight if a send is already running.
+   */
+  private void send() {
+    if (!connection.isConnected()) {
+      dirty.set(true); // goes out with the first periodic status after the reconnect
+      return;
+    }
+    if (!sending.compareAndSet(false, true)) {
+      resend.set(true);
+      return;
+    }
+    // Readings only count as reported once the status carrying them went out
+    Map<String, TelemetryProfile.Reading> snapshot = Map.copyOf(latest);
+    cpState.sendCurrentStatus()
+        .subscribe().with(
+            unused -> {
+              reported.putAll(snapshot);
+              sent();
+            },
+            error -> {
+              log.warn("Failed to send status", error);
+              dirty.set(true);
+              sent();
+            });
+  }
+
+  private void sent() {
+    sending.set(false);
+    if (resend.getAndSet(false)) {
+      send();
+    }
+  }
+}
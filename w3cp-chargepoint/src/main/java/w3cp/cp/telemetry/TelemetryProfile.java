@@ -0,0 +1,124 @@
+package w3cp.cp.telemetry;
+
+import w3cp.model.ChargePointStatus;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * How much status traffic an uplink gets.
+ *
+ * @param interval         period at which held-back meter and power changes go out
+ * @param meterDeadbandKwh meter changes smaller than this are not worth a status on their own
+ * @param powerDeadbandW   power changes smaller than this are not worth a status on their own
+ * @param thermalInfo      whether statuses carry {@code thermalInfo}
+ * @param vehicleState     whether statuses carry {@code vehicleState}
+ * @param compression      whether permessage-deflate is offered to the backend
+ * @param byteBudget       bytes per minute above which the interval backs off, 0 for no limit
+ */
+public record TelemetryProfile(Duration interval, double meterDeadbandKwh, double powerDeadbandW,
+                               boolean thermalInfo, boolean vehicleState, boolean compression, int byteBudget) {
+
+  /**
+   * What a change to an EVSE asks for.
+   */
+  public enum Urgency {
+    /** Below the deadbands, nothing to report */
+    none,
+    /** Goes out with the next periodic status */
+    periodic,
+    /** Control-relevant, goes out right away */
+    immediate
+  }
+
+  /**
+   * The parts of an EVSE the policy compares against what was last reported.
+   */
+  public record Reading(ChargePointStatus.ConnectorStatus status, String pluggedConnector, String sessionId,
+                        ChargePointStatus.LatestTransaction.TransactionState transactionState, String vehicleId,
+                        Double meterKwh, Double powerW) {
+
+    public static Reading of(ChargePointStatus.Evse evse) {
+      ChargePointStatus.LatestTransaction tx = evse.getLatestTransaction();
+      ChargePointStatus.VehicleIdentity vehicle = evse.getVehicleIdentity();
+      Double meter = evse.getMeter();
+      return new Reading(evse.getStatus(), evse.getPluggedConnector(),
+          tx == null ? null : tx.getSessionId(), tx == null ? null : tx.getTransactionState(),
+          vehicle == null ? null : vehicle.getId(), meter, evse.getPower());
+    }
+  }
+
+  /**
+   * Built-in profile of an uplink. LTE is usually metered, so it reports once a minute in coarse steps, leaves
+   * out the informational blocks and compresses. Unknown uplinks keep the full ethernet reporting; a site on an
+   * undetected metered link configures the {@code unknown} profile.
+   */
+  public static TelemetryProfile defaults(ChargePointStatus.ConnectionType uplink) {
+    return switch (uplink == null ? ChargePointStatus.ConnectionType.unknown : uplink) {
+      case ethernet, unknown -> new TelemetryProfile(Duration.ofSeconds(5), 0.01, 50, true, true, false, 0);
+      case wifi -> new TelemetryProfile(Duration.ofSeconds(10), 0.05, 200, true, true, false, 0);
+      case lte -> new TelemetryProfile(Duration.ofSeconds(60), 0.2, 1000, false, false, true, 16_384);
+    };
+  }
+
+  public TelemetryProfile with(TelemetryConfig.ProfileConfig overrides) {
+    if (overrides == null) {
+      return this;
+    }
+    return new TelemetryProfile(
+        overrides.interval().orElse(interval),
+        overrides.meterDeadbandKwh().orElse(meterDeadbandKwh),
+        overrides.powerDeadbandW().orElse(powerDeadbandW),
+        overrides.thermalInfo().orElse(thermalInfo),
+        overrides.vehicleState().orElse(vehicleState),
+        overrides.compression().orElse(compression),
+        overrides.byteBudget().orElse(byteBudget));
+  }
+
+  /**
+   * EVSE properties this profile leaves out of statuses.
+   */
+  public Set<String> omittedEvseFields() {
+    Set<String> omitted = new HashSet<>();
+    if (!thermalInfo) {
+      omitted.add("thermalInfo");
+    }
+    if (!vehicleState) {
+      omitted.add("vehicleState");
+    }
+    return omitted;
+  }
+
+  /**
+   * Compares an EVSE with what was last reported for it. Changes of status, plug, transaction or vehicle are
+   * control-relevant; meter and power only count once they leave the deadband around the reported value.
+   *
+   * @param reported last reported reading, null if the EVSE has not been reported yet
+   */
+  public Urgency classify(Reading reported, Reading now) {
+    if (reported == null) {
+      return Urgency.periodic;
+    }
+    if (reported.status() != now.status()
+        || reported.transactionState() != now.transactionState()
+        || !Objects.equals(reported.pluggedConnector(), now.pluggedConnector())
+        || !Objects.equals(reported.sessionId(), now.sessionId())
+        || !Objects.equals(reported.vehicleId(), now.vehicleId())) {
+      return Urgency.immediate;
+    }
+    if (beyond(reported.meterKwh(), now.meterKwh(), meterDeadbandKwh)
+        || beyond(reported.powerW(), now.powerW(), powerDeadbandW)) {
+      return Urgency.periodic;
+    }
+    return Urgency.none;
+  }
+
+  private static boolean beyond(Double reported, Double now, double deadband) {
+    if (reported == null || now == null) {
+      return !Objects.equals(reported, now);
+    }
+    return Math.abs(now - reported) >= deadband;
+  }
+}
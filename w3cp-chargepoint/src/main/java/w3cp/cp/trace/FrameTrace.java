@@ -0,0 +1,273 @@
+package w3cp.cp.trace;
+
+import io.netty.buffer.ByteBuf;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flight recorder for backend frames: a preallocated ring of fixed-size slots holding timestamp, direction,
+ * length and the leading {@code slot-bytes} of every inbound and outbound frame.
+ * <p>
+ * Recording allocates nothing and takes no lock: a writer claims the next sequence number and fills the slot
+ * between two version stores (a seqlock). Readers copy a slot and keep it only if its version was even and
+ * unchanged, so a dump never shows a half-written frame. Frame text is stored one byte per char, which is
+ * exact for the ASCII JSON of the protocol.
+ * <p>
+ * Full frames go to the {@link TrafficRecorder} as well when it is recording.
+ */
+@Slf4j
+@ApplicationScoped
+public class FrameTrace {
+
+  public enum Direction {
+    in,
+    out
+  }
+
+  /**
+   * A recorded frame; {@code head} holds at most {@code slot-bytes} chars of a frame {@code length} chars long.
+   */
+  public record Frame(long sequence, Instant timestamp, Direction direction, boolean standby, int length, String head) {
+  }
+
+  private static final byte STANDBY = 1 << 1;
+  private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+  private final TraceConfig config;
+  private final TrafficRecorder recorder;
+  private final boolean enabled;
+  private final int mask;
+  private final int slotBytes;
+  private final AtomicLong sequence = new AtomicLong();
+  private final LongAdder dropped = new LongAdder();
+  private final AtomicLongArray versions;
+  private final long[] timestamps;
+  private final int[] lengths;
+  private final byte[] flags;
+  private final byte[] data;
+  private final Instant wallBase = Instant.now();
+  private final long nanoBase = System.nanoTime();
+  private final long dumpIntervalNanos;
+  private final AtomicLong lastDump;
+
+  public FrameTrace(TraceConfig config) {
+    this(config, null);
+  }
+
+  @Inject
+  public FrameTrace(TraceConfig config, TrafficRecorder recorder) {
+    this.config = config;
+    this.recorder = recorder != null && recorder.isRecording() ? recorder : null;
+    this.enabled = config.enabled();
+    int slots = enabled ? Integer.highestOneBit(Math.max(1, config.slots() - 1)) << 1 : 1;
+    this.mask = slots - 1;
+    this.slotBytes = enabled ? Math.max(0, config.slotBytes()) : 0;
+    this.versions = new AtomicLongArray(slots);
+    this.timestamps = new long[slots];
+    this.lengths = new int[slots];
+    this.flags = new byte[slots];
+    this.data = new byte[slots * slotBytes];
+    this.dumpIntervalNanos = Math.max(0, config.dumpInterval().toNanos());
+    this.lastDump = new AtomicLong(System.nanoTime() - dumpIntervalNanos);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Whether received frames should also be logged at INFO.
+   */
+  public boolean logFrames() {
+    return config.logFrames();
+  }
+
+  /**
+   * Frames skipped because a stalled writer still held their slot a full ring later.
+   */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  public void record(Direction direction, boolean standby, String frame) {
+    if (recorder != null) {
+      recorder.record(direction, standby, frame);
+    }
+    if (!enabled) {
+      return;
+    }
+    long seq = sequence.getAndIncrement();
+    int slot = claim(seq);
+    if (slot < 0) {
+      return;
+    }
+
+    int length = frame.length();
+    int captured = Math.min(length, slotBytes);
+    int base = slot * slotBytes;
+    for (int i = 0; i < captured; i++) {
+      data[base + i] = (byte) frame.charAt(i);
+    }
+    publish(seq, slot, direction, standby, length);
+  }
+
+  /**
+   * Records a UTF-8 encoded frame without touching its reader index; {@code length} is then in bytes.
+   */
+  public void record(Direction direction, boolean standby, ByteBuf frame) {
+    if (recorder != null) {
+      recorder.record(direction, standby, frame);
+    }
+    if (!enabled) {
+      return;
+    }
+    long seq = sequence.getAndIncrement();
+    int slot = claim(seq);
+    if (slot < 0) {
+      return;
+    }
+
+    int length = frame.readableBytes();
+    frame.getBytes(frame.readerIndex(), data, slot * slotBytes, Math.min(length, slotBytes));
+    publish(seq, slot, direction, standby, length);
+  }
+
+  /**
+   * @return the slot now owned by {@code seq}, or -1 if it is busy or already newer, which only happens when
+   * the ring wrapped around a stalled writer; the frame is skipped then
+   */
+  private int claim(long seq) {
+    int slot = (int) seq & mask;
+    long current = versions.get(slot);
+    if ((current & 1) != 0 || current > 2 * seq || !versions.compareAndSet(slot, current, 2 * seq + 1)) {
+      dropped.increment();
+      return -1;
+    }
+    VarHandle.storeStoreFence();
+    return slot;
+  }
+
+  private void publish(long seq, int slot, Direction direction, boolean standby, int length) {
+    timestamps[slot] = System.nanoTime();
+    lengths[slot] = length;
+    flags[slot] = (byte) (direction.ordinal() | (standby ? STANDBY : 0));
+    versions.setRelease(slot, 2 * seq + 2);
+  }
+
+  /**
+   * Copies the frames still in the ring, oldest first. Frames being written or overwritten during the copy are
+   * left out.
+   */
+  public List<Frame> snapshot() {
+    long end = sequence.get();
+    long start = Math.max(0, end - (mask + 1));
+    List<Frame> frames = new ArrayList<>((int) (end - start));
+    byte[] head = new byte[slotBytes];
+
+    for (long seq = start; seq < end; seq++) {
+      int slot = (int) seq & mask;
+      long version = versions.getAcquire(slot);
+      if (version != 2 * seq + 2) {
+        continue;
+      }
+      long timestamp = timestamps[slot];
+      int length = lengths[slot];
+      byte flag = flags[slot];
+      int captured = Math.min(length, slotBytes);
+      System.arraycopy(data, slot * slotBytes, head, 0, captured);
+
+      VarHandle.loadLoadFence();
+      if (versions.get(slot) != version) {
+        continue;
+      }
+      frames.add(new Frame(seq, wallBase.plusNanos(timestamp - nanoBase),
+          Direction.values()[flag & 1], (flag & STANDBY) != 0, length,
+          new String(head, 0, captured, StandardCharsets.ISO_8859_1)));
+    }
+    return frames;
+  }
+
+  /**
+   * Writes the ring to a new file in {@code dump-dir}. Blocking.
+   *
+   * @return the file written
+   */
+  public Path dump(String reason) {
+    List<Frame> frames = snapshot();
+    Path file = Path.of(config.dumpDir()).resolve("frames-" + FILE_TIME.format(Instant.now()) + ".log");
+    try {
+      Files.createDirectories(file.getParent());
+      try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        out.write("# " + reason + ", " + frames.size() + " frame(s)\n");
+        for (Frame frame : frames) {
+          out.write(frame.timestamp() + "\t#" + frame.sequence() + "\t" + frame.direction()
+              + "\t" + (frame.standby() ? "standby" : "active")
+              + "\t" + frame.head().length() + "/" + frame.length()
+              + "\t" + frame.head().replace("\r", "\\r").replace("\n", "\\n") + "\n");
+        }
+      }
+    } catch (IOException e) {
+      throw new W3CPChargepointException("Failed to write frame trace to " + file, e);
+    }
+    log.info("Wrote {} traced frame(s) to {} ({})", frames.size(), file, reason);
+    return file;
+  }
+
+  /**
+   * Minimum time between two dumps, requested or on error.
+   */
+  public Duration dumpInterval() {
+    return config.dumpInterval();
+  }
+
+  /**
+   * Dumps like {@link #dump}, unless another dump was written within {@code dump-interval}. Blocking.
+   *
+   * @return the file written, or empty if the dump was skipped
+   */
+  public Optional<Path> requestDump(String reason) {
+    return claimDump() ? Optional.of(dump(reason)) : Optional.empty();
+  }
+
+  /**
+   * Dumps on a worker thread if {@code dump-on-error} is set and no dump was written within {@code dump-interval}.
+   */
+  public void dumpOnError(String reason) {
+    if (!enabled || !config.dumpOnError() || !claimDump()) {
+      return;
+    }
+    Infrastructure.getDefaultWorkerPool().execute(() -> {
+      try {
+        dump(reason);
+      } catch (RuntimeException e) {
+        log.warn("Frame trace dump failed", e);
+      }
+    });
+  }
+
+  private boolean claimDump() {
+    long now = System.nanoTime();
+    long last = lastDump.get();
+    return now - last >= dumpIntervalNanos && lastDump.compareAndSet(last, now);
+  }
+}
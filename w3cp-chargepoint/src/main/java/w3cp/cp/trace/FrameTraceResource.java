@@ -0,0 +1,40 @@
+package w3cp.cp.trace;
+
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import w3cp.cp.util.LocalOnly;
+
+import java.util.Map;
+
+/**
+ * Writes the frame trace on request. Only served to local clients while tracing is on, and no more often than
+ * {@code dump-interval}.
+ */
+@Path("/trace")
+public class FrameTraceResource {
+
+  @Inject
+  FrameTrace trace;
+
+  @POST
+  @Path("/dump")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Map<String, String> dump(@Context HttpServerRequest request) {
+    LocalOnly.require(request);
+    if (!trace.isEnabled()) {
+      throw new NotFoundException("Frame trace is disabled");
+    }
+    return trace.requestDump("requested via REST")
+        .map(file -> Map.of("file", file.toAbsolutePath().toString()))
+        .orElseThrow(() -> new WebApplicationException("A trace was dumped less than "
+            + trace.dumpInterval() + " ago", Response.Status.TOO_MANY_REQUESTS));
+  }
+}
@@ -0,0 +1,45 @@
+package w3cp.cp.trace;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "w3cp.trace")
+public interface TraceConfig {
+
+  @WithDefault("false")
+  boolean enabled();                      // record every backend frame in the in-memory ring
+
+  @WithDefault("4096")
+  int slots();                            // frames kept, rounded up to a power of two
+
+  @WithName("slot-bytes")
+  @WithDefault("512")
+  int slotBytes();                        // leading bytes kept of each frame
+
+  @WithName("dump-dir")
+  @WithDefault("traces")
+  String dumpDir();
+
+  @WithName("dump-on-error")
+  @WithDefault("false")
+  boolean dumpOnError();                  // dump when the backend link drops unexpectedly
+
+  @WithName("dump-interval")
+  @WithDefault("1m")
+  Duration dumpInterval();                // minimum time between two dumps, requested or on error
+
+  @WithName("log-frames")
+  @WithDefault("false")
+  boolean logFrames();                    // additionally log every received frame at INFO
+
+  @WithName("record-dir")
+  Optional<String> recordDir();           // also write every full frame to a capture file here, for TrafficReplay
+
+  @WithName("record-queue")
+  @WithDefault("65536")
+  int recordQueue();                      // frames waiting for the capture writer before new ones are dropped
+}
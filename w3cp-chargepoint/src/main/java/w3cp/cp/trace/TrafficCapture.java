@@ -0,0 +1,156 @@
+package w3cp.cp.trace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recorded backend conversation: every full frame in both directions with its nanosecond offset.
+ * <p>
+ * File layout: {@code int magic "W3TR", short version, short reserved, long start epoch seconds, int start
+ * nanos}, then per frame {@code varint delta nanos to the previous frame, byte flags, varint length, UTF-8
+ * bytes}. Flags bit 0 is the direction, bit 1 marks a standby link, as in {@link FrameTrace}. A file cut short
+ * by a crash reads up to its last complete frame.
+ *
+ * @param startedAt wall clock time of offset zero
+ */
+public record TrafficCapture(Instant startedAt, List<Frame> frames) {
+
+  static final int MAGIC = 0x57335452; // "W3TR"
+  static final short VERSION = 1;
+  private static final int STANDBY = 1 << 1;
+
+  /**
+   * @param offsetNanos time since the capture started
+   * @param data        frame text, UTF-8
+   */
+  public record Frame(long offsetNanos, FrameTrace.Direction direction, boolean standby, byte[] data) {
+
+    public String text() {
+      return new String(data, StandardCharsets.UTF_8);
+    }
+  }
+
+  public static TrafficCapture read(Path file) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+      return read(in);
+    }
+  }
+
+  public static TrafficCapture read(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(stream);
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a traffic capture");
+    }
+    short version = in.readShort();
+    if (version != VERSION) {
+      throw new IOException("Unsupported traffic capture version " + version);
+    }
+    in.readShort();
+    Instant startedAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+
+    List<Frame> frames = new ArrayList<>();
+    long offset = 0;
+    while (true) {
+      try {
+        long delta = readVarint(in, true);
+        if (delta < 0) {
+          break;
+        }
+        int flags = in.readUnsignedByte();
+        byte[] data = new byte[(int) readVarint(in, false)];
+        in.readFully(data);
+        offset += delta;
+        frames.add(new Frame(offset, FrameTrace.Direction.values()[flags & 1], (flags & STANDBY) != 0, data));
+      } catch (EOFException e) {
+        // Torn last frame
+        break;
+      }
+    }
+    return new TrafficCapture(startedAt, frames);
+  }
+
+  /**
+   * Appends frames to a capture. Not thread-safe; {@link TrafficRecorder} feeds it from a single thread.
+   */
+  public static class Writer implements Closeable {
+
+    private final DataOutputStream out;
+    private long lastNanos;
+
+    /**
+     * @param baseNanos {@link System#nanoTime()} at {@code startedAt}
+     */
+    public Writer(OutputStream stream, Instant startedAt, long baseNanos) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+      this.lastNanos = baseNanos;
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeShort(0);
+      out.writeLong(startedAt.getEpochSecond());
+      out.writeInt(startedAt.getNano());
+    }
+
+    /**
+     * @param nanoTime {@link System#nanoTime()} when the frame was seen; never earlier than the previous frame
+     */
+    public void write(long nanoTime, FrameTrace.Direction direction, boolean standby, byte[] data) throws IOException {
+      long at = Math.max(nanoTime, lastNanos);
+      writeVarint(at - lastNanos);
+      lastNanos = at;
+      out.writeByte(direction.ordinal() | (standby ? STANDBY : 0));
+      writeVarint(data.length);
+      out.write(data);
+    }
+
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+    private void writeVarint(long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+        out.writeByte((int) (value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte((int) value);
+    }
+  }
+
+  /**
+   * @return the value, or -1 on a clean end of stream before the first byte if {@code atFrameStart}
+   */
+  private static long readVarint(DataInputStream in, boolean atFrameStart) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        if (atFrameStart && shift == 0) {
+          return -1;
+        }
+        throw new EOFException();
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in traffic capture");
+  }
+}
@@ -0,0 +1,149 @@
+package w3cp.cp.trace;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes every full backend frame to a {@link TrafficCapture} file in {@code record-dir}, one file per process
+ * start, for {@link TrafficReplay}.
+ * <p>
+ * Callers only copy the frame and offer it to a bounded queue; a single daemon thread encodes and writes. When
+ * the writer falls behind by {@code record-queue} frames new ones are dropped and counted rather than blocking
+ * the event loop. Off unless {@code record-dir} is set.
+ */
+@Slf4j
+@ApplicationScoped
+public class TrafficRecorder {
+
+  private record Pending(long nanoTime, FrameTrace.Direction direction, boolean standby, byte[] data) {
+  }
+
+  private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+  private static final int DRAIN_BATCH = 256;
+
+  private final BlockingQueue<Pending> queue;
+  private final LongAdder dropped = new LongAdder();
+  private final Path file;
+  private final Thread writer;
+  private volatile boolean stopped;
+
+  @Inject
+  public TrafficRecorder(TraceConfig config) {
+    if (config.recordDir().isEmpty()) {
+      this.queue = null;
+      this.file = null;
+      this.writer = null;
+      return;
+    }
+    Instant startedAt = Instant.now();
+    long baseNanos = System.nanoTime();
+    this.file = Path.of(config.recordDir().get()).resolve("capture-" + FILE_TIME.format(startedAt) + ".w3tr");
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, config.recordQueue()));
+
+    TrafficCapture.Writer out;
+    try {
+      Files.createDirectories(file.getParent());
+      out = new TrafficCapture.Writer(Files.newOutputStream(file), startedAt, baseNanos);
+    } catch (IOException e) {
+      throw new W3CPChargepointException("Failed to create traffic capture " + file, e);
+    }
+    this.writer = Thread.ofPlatform().name("w3cp-traffic-recorder").daemon().start(() -> drain(out));
+    log.info("✅ Recording backend traffic to {}", file);
+  }
+
+  public boolean isRecording() {
+    return writer != null;
+  }
+
+  /**
+   * @return the capture being written, null if not recording
+   */
+  public Path file() {
+    return file;
+  }
+
+  /**
+   * Frames not recorded because the writer was too far behind.
+   */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  public void record(FrameTrace.Direction direction, boolean standby, String frame) {
+    enqueue(direction, standby, frame.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Copies a UTF-8 encoded frame without touching its reader index.
+   */
+  public void record(FrameTrace.Direction direction, boolean standby, ByteBuf frame) {
+    enqueue(direction, standby, ByteBufUtil.getBytes(frame, frame.readerIndex(), frame.readableBytes()));
+  }
+
+  private void enqueue(FrameTrace.Direction direction, boolean standby, byte[] data) {
+    if (queue == null || stopped || !queue.offer(new Pending(System.nanoTime(), direction, standby, data))) {
+      dropped.increment();
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (writer == null) {
+      return;
+    }
+    stopped = true;
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (dropped() > 0) {
+      log.warn("Traffic capture {} is missing {} frame(s) the writer could not keep up with", file, dropped());
+    }
+  }
+
+  private void drain(TrafficCapture.Writer out) {
+    List<Pending> batch = new ArrayList<>(DRAIN_BATCH);
+    try (out) {
+      while (!stopped || !queue.isEmpty()) {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, DRAIN_BATCH - 1);
+        for (Pending frame : batch) {
+          out.write(frame.nanoTime(), frame.direction(), frame.standby(), frame.data());
+        }
+        batch.clear();
+        if (queue.isEmpty()) {
+          out.flush();
+        }
+      }
+    } catch (IOException e) {
+      log.error("❌ Traffic capture {} failed, recording stopped", file, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    stopped = true;
+  }
+}
@@ -0,0 +1,217 @@
+package w3cp.cp.trace;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.CPConnection;
+import w3cp.cp.logic.W3CPMessageHandler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds the inbound frames of a {@link TrafficCapture} through {@link W3CPMessageHandler}, one at a time, against
+ * a stub connection per frame, and reports handler throughput and latency per message type.
+ * <p>
+ * For types the handler answers ({@code identityChallenge}, {@code identityDiscovery}) a frame's latency runs
+ * until the reply reaches the stub, otherwise until {@code handle} returns. Frames are fed back to back, or at
+ * their recorded spacing to reproduce bursts. Replies are signed with the real identities, so this is a
+ * development tool and not exposed over REST.
+ */
+@Slf4j
+@ApplicationScoped
+public class TrafficReplay {
+
+  public enum Pace {
+    asFastAsPossible,
+    originalTiming
+  }
+
+  /**
+   * @param perSecond frames of this type the handler can take per second, from the summed latencies
+   * @param failures  frames whose expected reply did not arrive within the timeout
+   */
+  public record TypeStats(String type, int count, int failures, double perSecond,
+                          long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+  }
+
+  /**
+   * @param elapsed wall time of the whole replay, including pacing
+   */
+  public record Report(int frames, Duration elapsed, Map<String, TypeStats> byType) {
+
+    public String format() {
+      StringBuilder out = new StringBuilder()
+          .append("Replayed ").append(frames).append(" frame(s) in ").append(ms(elapsed.toNanos())).append("ms");
+      for (TypeStats stats : byType.values()) {
+        out.append(String.format("%n  %s: %d frame(s), %d failed, %.0f msg/s, p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+            stats.type(), stats.count(), stats.failures(), stats.perSecond(),
+            ms(stats.p50Nanos()), ms(stats.p90Nanos()), ms(stats.p99Nanos()), ms(stats.maxNanos())));
+      }
+      return out.toString();
+    }
+
+    private static double ms(long nanos) {
+      return nanos / 1e6;
+    }
+  }
+
+  private static final Set<String> REPLIED = Set.of("identityChallenge", "identityDiscovery");
+  private static final Duration REPLY_TIMEOUT = Duration.ofSeconds(10);
+
+  private final W3CPMessageHandler handler;
+
+  @Inject
+  public TrafficReplay(W3CPMessageHandler handler) {
+    this.handler = handler;
+  }
+
+  /**
+   * Blocking; must not be called from an event loop thread.
+   */
+  public Report replay(Path file, Pace pace) throws IOException {
+    return replay(TrafficCapture.read(file), pace);
+  }
+
+  /**
+   * Blocking; must not be called from an event loop thread.
+   */
+  public Report replay(TrafficCapture capture, Pace pace) {
+    if (Context.isOnEventLoopThread()) {
+      throw new IllegalStateException("Traffic replay blocks and cannot run on the event loop");
+    }
+    Map<String, Samples> byType = new TreeMap<>();
+    int frames = 0;
+    long firstOffset = -1;
+    long start = System.nanoTime();
+
+    for (TrafficCapture.Frame frame : capture.frames()) {
+      if (frame.direction() != FrameTrace.Direction.in) {
+        continue;
+      }
+      if (firstOffset < 0) {
+        firstOffset = frame.offsetNanos();
+      }
+      if (pace == Pace.originalTiming) {
+        waitUntil(start + frame.offsetNanos() - firstOffset);
+      }
+
+      String text = frame.text();
+      String type = typeOf(text);
+      ReplayConnection stub = new ReplayConnection();
+      long sent = System.nanoTime();
+      handler.handle(text, stub);
+      boolean answered = !REPLIED.contains(type) || stub.awaitReply();
+      long latency = System.nanoTime() - sent;
+
+      byType.computeIfAbsent(type, Samples::new).add(latency, answered);
+      frames++;
+    }
+
+    Map<String, TypeStats> stats = new TreeMap<>();
+    byType.forEach((type, samples) -> stats.put(type, samples.stats()));
+    Report report = new Report(frames, Duration.ofNanos(System.nanoTime() - start), stats);
+    log.info(report.format());
+    return report;
+  }
+
+  private static String typeOf(String text) {
+    try {
+      return new JsonObject(text).getString("type", "untyped");
+    } catch (RuntimeException e) {
+      return "invalid";
+    }
+  }
+
+  private static void waitUntil(long deadline) {
+    for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  private static class Samples {
+
+    private final String type;
+    private long[] nanos = new long[64];
+    private int count;
+    private int failures;
+
+    Samples(String type) {
+      this.type = type;
+    }
+
+    void add(long latency, boolean answered) {
+      if (count == nanos.length) {
+        nanos = Arrays.copyOf(nanos, count * 2);
+      }
+      nanos[count++] = latency;
+      if (!answered) {
+        failures++;
+      }
+    }
+
+    TypeStats stats() {
+      long[] sorted = Arrays.copyOf(nanos, count);
+      Arrays.sort(sorted);
+      long total = Arrays.stream(sorted).sum();
+      return new TypeStats(type, count, failures, total == 0 ? 0 : count / (total / 1e9),
+          percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted[count - 1]);
+    }
+
+    private static long percentile(long[] sorted, int p) {
+      int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+  }
+
+  /**
+   * Stands in for the backend link of one replayed frame and captures the handler's reply.
+   */
+  private static class ReplayConnection implements CPConnection {
+
+    private final CompletableFuture<String> reply = new CompletableFuture<>();
+
+    boolean awaitReply() {
+      try {
+        reply.get(REPLY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        return true;
+      } catch (ExecutionException | TimeoutException e) {
+        return false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    @Override
+    public Uni<Void> disconnect() {
+      // The handler drops the link on a frame it cannot answer
+      reply.completeExceptionally(new IllegalStateException("Disconnected by the handler"));
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      reply.complete(message);
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package w3cp.cp.util;
+
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Canonical JSON encoding used for W3CP payload hashes and signatures.
+ * <p>
+ * Keys are ordered alphabetically (bean properties and map entries alike, by UTF-16 code unit as in RFC 8785),
+ * timestamps are written as ISO-8601 strings and numbers use Jackson's shortest round-trip formatting.
+ * The output is produced by a UTF-8 generator that streams straight into a {@link MessageDigest} or a
+ * per-thread reusable buffer, so no intermediate {@code String} of the payload is ever built.
+ * <p>
+ * The byte output is identical to the former {@code writeValueAsString(...).getBytes(UTF_8)} path,
+ * which is what the backend verifies against.
+ */
+public final class CanonicalJson {
+
+  private static final ObjectMapper canonicalMapper = new ObjectMapper();
+  private static final ObjectWriter canonicalWriter;
+
+  private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(CanonicalJson::newSha256);
+  private static final ThreadLocal<ByteSink> buffers = ThreadLocal.withInitial(() -> new ByteSink(1024));
+
+  static {
+    canonicalMapper.registerModule(new JavaTimeModule()); // Support for java.time.Instant, etc.
+    canonicalMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); // Use ISO-8601 format
+
+    canonicalMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    canonicalMapper.setConfig(
+        canonicalMapper.getSerializationConfig()
+            .with(PropertyNamingStrategies.LOWER_CAMEL_CASE)
+            .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+    );
+
+    // The UTF-8 generator escapes surrogate pairs by default, String#getBytes keeps them as 4-byte sequences
+    canonicalWriter = canonicalMapper.writer().with(JsonWriteFeature.COMBINE_UNICODE_SURROGATES_IN_UTF8);
+  }
+
+  private CanonicalJson() {
+  }
+
+  /**
+   * Streams the canonical form of {@code payload} into {@code out}. The stream is not closed.
+   */
+  public static void writeTo(Object payload, OutputStream out) throws IOException {
+    canonicalWriter.writeValue(new NonClosingOutputStream(out), payload);
+  }
+
+  /**
+   * Computes the SHA-256 digest of the canonical form of {@code payload} without materializing it.
+   */
+  public static byte[] sha256(Object payload) throws IOException {
+    MessageDigest digest = sha256.get();
+    digest.reset();
+    canonicalWriter.writeValue(new DigestSink(digest), payload);
+    return digest.digest();
+  }
+
+  /**
+   * Encodes {@code payload} into the calling thread's reusable buffer.
+   * <p>
+   * The returned sink is only valid until the next {@code encode} call on the same thread;
+   * use {@link #toBytes(Object)} when the bytes must outlive that.
+   */
+  public static ByteSink encode(Object payload) throws IOException {
+    ByteSink sink = buffers.get();
+    sink.reset();
+    canonicalWriter.writeValue(sink, payload);
+    return sink;
+  }
+
+  public static byte[] toBytes(Object payload) throws IOException {
+    return encode(payload).toByteArray();
+  }
+
+  /**
+   * Returns a SHA-256 engine owned by the calling thread, already reset.
+   */
+  public static MessageDigest threadLocalSha256() {
+    MessageDigest digest = sha256.get();
+    digest.reset();
+    return digest;
+  }
+
+  private static MessageDigest newSha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /* ---------- sinks ---------- */
+
+  /**
+   * Growable byte buffer that is reset instead of reallocated between uses.
+   */
+  public static final class ByteSink extends OutputStream {
+    private byte[] buf;
+    private int count;
+
+    ByteSink(int initialCapacity) {
+      this.buf = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(count + 1);
+      buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureCapacity(count + len);
+      System.arraycopy(b, off, buf, count, len);
+      count += len;
+    }
+
+    public void reset() {
+      count = 0;
+    }
+
+    /** Backing array; only the first {@link #size()} bytes are valid. */
+    public byte[] array() {
+      return buf;
+    }
+
+    public int size() {
+      return count;
+    }
+
+    public byte[] toByteArray() {
+      return Arrays.copyOf(buf, count);
+    }
+
+    @Override
+    public String toString() {
+      return new String(buf, 0, count, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int min) {
+      if (min > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(min, buf.length << 1));
+      }
+    }
+  }
+
+  private static final class DigestSink extends OutputStream {
+    private final MessageDigest digest;
+
+    DigestSink(MessageDigest digest) {
+      this.digest = digest;
+    }
+
+    @Override
+    public void write(int b) {
+      digest.update((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      digest.update(b, off, len);
+    }
+  }
+
+  private static final class NonClosingOutputStream extends OutputStream {
+    private final OutputStream out;
+
+    NonClosingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+  }
+}
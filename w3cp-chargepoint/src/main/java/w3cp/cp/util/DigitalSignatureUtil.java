@@ -1,42 +1,20 @@
 package w3cp.cp.util;
 
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import w3cp.cp.identity.ChargepointIdentity;
 import w3cp.model.identity.W3CPPrivateKey;
 import w3cp.model.identity.W3CPPublicKey;
 
-import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
-import java.util.Arrays;
 import java.util.Base64;
 
 @Slf4j
 public class DigitalSignatureUtil {
 
-  private static final ObjectMapper canonicalMapper = new ObjectMapper();
-
-  static {
-    canonicalMapper.registerModule(new JavaTimeModule()); // Support for java.time.Instant, etc.
-    canonicalMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); // Use ISO-8601 format
-
-    canonicalMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
-
-    canonicalMapper.setConfig(
-        canonicalMapper.getSerializationConfig()
-            .with(PropertyNamingStrategies.LOWER_CAMEL_CASE)
-            .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
-    );
-  }
-
   public static String sign(Object payload, W3CPPrivateKey privateKey) throws Exception {
     byte[] hash = computeSHA256BytesOnPayload(payload);
     return signHash(hash, W3CPKeyUtil.asPrivateKey(privateKey));
@@ -56,13 +34,14 @@ public class DigitalSignatureUtil {
   }
 
   public static String computeSHA256HashOnPayload(Object payload) throws Exception {
-    byte[] canonicalJson = canonicalizeJson(payload);
-    return computeSHA256HashOnBytes(canonicalJson);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(computeSHA256BytesOnPayload(payload));
   }
 
   public static byte[] computeSHA256BytesOnPayload(Object payload) throws Exception {
-    byte[] canonicalJson = canonicalizeJson(payload);
-    return computeSHA256Bytes(canonicalJson);
+    if (log.isDebugEnabled()) {
+      log.debug("Canonical JSON: {}", CanonicalJson.encode(payload));
+    }
+    return CanonicalJson.sha256(payload);
   }
 
   public static String computeSHA256HashOnBytes(byte[] data) throws Exception {
@@ -71,8 +50,7 @@ public class DigitalSignatureUtil {
   }
 
   public static byte[] computeSHA256Bytes(byte[] data) throws Exception {
-    MessageDigest digest = MessageDigest.getInstance("SHA-256");
-    return digest.digest(data);
+    return CanonicalJson.threadLocalSha256().digest(data);
   }
 
   /**
@@ -98,14 +76,7 @@ public class DigitalSignatureUtil {
     return signature.verify(Base64.getUrlDecoder().decode(base64Signature));
   }
 
-  private static byte[] canonicalizeJson(Object payload) throws Exception {
-    String json = canonicalMapper.writeValueAsString(payload);
-    log.debug("Canonical JSON: " + json);
-    log.debug("Bytes: " + Arrays.toString(json.getBytes(StandardCharsets.UTF_8)));
-    return json.getBytes(StandardCharsets.UTF_8);
-  }
-
-  private static String signatureAlgorithm(Key key) {
+  public static String signatureAlgorithm(Key key) {
     if (key instanceof RSAPrivateKey || key instanceof RSAPublicKey) return "SHA256withRSA";
     if (key instanceof ECPrivateKey || key instanceof ECPublicKey) return "SHA256withECDSA";
     if ("Ed25519".equals(key.getAlgorithm()) || "EdDSA".equals(key.getAlgorithm())) return "Ed25519";
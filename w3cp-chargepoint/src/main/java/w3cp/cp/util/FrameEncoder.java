@@ -0,0 +1,66 @@
+package w3cp.cp.util;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serializes outbound messages as UTF-8 JSON straight into pooled direct buffers, without an intermediate
+ * {@code String} or {@code byte[]}. The buffer starts at the size of the previous frame, so a steady stream of
+ * similar messages rarely grows one.
+ * <p>
+ * The caller owns the returned buffer and hands it to {@link w3cp.cp.CPConnection#send(ByteBuf)}, or releases it.
+ */
+public final class FrameEncoder {
+
+  private static final int MIN_CAPACITY = 256;
+
+  private final ObjectWriter writer;
+  private final ByteBufAllocator allocator;
+  private volatile int sizeHint = MIN_CAPACITY;
+
+  public FrameEncoder(ObjectWriter writer) {
+    this(writer, PooledByteBufAllocator.DEFAULT);
+  }
+
+  public FrameEncoder(ObjectWriter writer, ByteBufAllocator allocator) {
+    this.writer = writer;
+    this.allocator = allocator;
+  }
+
+  public ByteBuf encode(Object value) throws IOException {
+    return encode(writer, value);
+  }
+
+  /**
+   * Same as {@link #encode(Object)} with a differently configured writer, e.g. one carrying attributes.
+   */
+  public ByteBuf encode(ObjectWriter configured, Object value) throws IOException {
+    return encodeWith(out -> configured.writeValue(out, value));
+  }
+
+  /**
+   * Same as {@link #encode(Object)} for output that does not come from an {@link ObjectWriter}.
+   */
+  public ByteBuf encodeWith(Body body) throws IOException {
+    ByteBuf buffer = allocator.directBuffer(sizeHint);
+    try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+      body.writeTo(out);
+    } catch (IOException | RuntimeException e) {
+      buffer.release();
+      throw e;
+    }
+    sizeHint = Math.max(MIN_CAPACITY, buffer.readableBytes() + (buffer.readableBytes() >>> 3));
+    return buffer;
+  }
+
+  @FunctionalInterface
+  public interface Body {
+    void writeTo(OutputStream out) throws IOException;
+  }
+}
@@ -0,0 +1,120 @@
+package w3cp.cp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pre-serialized JSON document with a fixed set of variable slots.
+ * <p>
+ * A template is compiled from a fully serialized sample in which every variable field holds a unique
+ * sentinel value. The bytes around the sentinels become constant literals, so producing a new document
+ * only means concatenating the literals with the current slot values.
+ * Slot values are inserted verbatim: they must already be valid JSON for their position and must not
+ * need escaping (UUIDs, ISO-8601 instants and numbers are fine).
+ */
+public final class JsonTemplate {
+
+  private final byte[][] literals;
+  private final String[] textLiterals;
+  private final int[] slotOrder;
+  private final int literalLength;
+
+  private JsonTemplate(byte[][] literals, int[] slotOrder) {
+    this.literals = literals;
+    this.slotOrder = slotOrder;
+    this.textLiterals = new String[literals.length];
+    int length = 0;
+    for (int i = 0; i < literals.length; i++) {
+      textLiterals[i] = new String(literals[i], StandardCharsets.UTF_8);
+      length += textLiterals[i].length();
+    }
+    this.literalLength = length;
+  }
+
+  /**
+   * Splits {@code json} around the given sentinels.
+   *
+   * @return the template, or {@code null} if any sentinel is missing or occurs more than once
+   */
+  public static JsonTemplate compile(byte[] json, String... sentinels) {
+    byte[][] needles = new byte[sentinels.length][];
+    int[] positions = new int[sentinels.length];
+    for (int s = 0; s < sentinels.length; s++) {
+      needles[s] = sentinels[s].getBytes(StandardCharsets.UTF_8);
+      positions[s] = indexOf(json, needles[s], 0);
+      if (positions[s] < 0 || indexOf(json, needles[s], positions[s] + 1) >= 0) {
+        return null;
+      }
+    }
+
+    // Order slots by their position in the document
+    Integer[] order = new Integer[sentinels.length];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Integer.compare(positions[a], positions[b]));
+
+    byte[][] literals = new byte[sentinels.length + 1][];
+    int[] slotOrder = new int[sentinels.length];
+    int from = 0;
+    for (int i = 0; i < order.length; i++) {
+      int slot = order[i];
+      if (positions[slot] < from) {
+        return null; // overlapping sentinels
+      }
+      literals[i] = Arrays.copyOfRange(json, from, positions[slot]);
+      slotOrder[i] = slot;
+      from = positions[slot] + needles[slot].length;
+    }
+    literals[sentinels.length] = Arrays.copyOfRange(json, from, json.length);
+    return new JsonTemplate(literals, slotOrder);
+  }
+
+  public int slotCount() {
+    return slotOrder.length;
+  }
+
+  /**
+   * Literal bytes preceding the {@code index}-th slot in document order; {@code index == slotCount()}
+   * returns the trailing literal.
+   */
+  public byte[] literal(int index) {
+    return literals[index];
+  }
+
+  /**
+   * Renders the document as a String; {@code values} are indexed like the sentinels passed to {@link #compile}.
+   */
+  public String render(String... values) {
+    int length = literalLength;
+    for (String value : values) length += value.length();
+
+    StringBuilder out = new StringBuilder(length);
+    for (int i = 0; i < slotOrder.length; i++) {
+      out.append(textLiterals[i]).append(values[slotOrder[i]]);
+    }
+    return out.append(textLiterals[slotOrder.length]).toString();
+  }
+
+  /**
+   * Streams the document as UTF-8; {@code values} are indexed like the sentinels passed to {@link #compile}.
+   */
+  public void writeTo(OutputStream out, byte[]... values) throws IOException {
+    for (int i = 0; i < slotOrder.length; i++) {
+      out.write(literals[i]);
+      out.write(values[slotOrder[i]]);
+    }
+    out.write(literals[slotOrder.length]);
+  }
+
+  private static int indexOf(byte[] haystack, byte[] needle, int from) {
+    outer:
+    for (int i = from; i <= haystack.length - needle.length; i++) {
+      for (int j = 0; j < needle.length; j++) {
+        if (haystack[i + j] != needle[j]) continue outer;
+      }
+      return i;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,40 @@
+package w3cp.cp.util;
+
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.net.SocketAddress;
+import jakarta.ws.rs.ForbiddenException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Guard for diagnostic REST endpoints that must only answer on the charge point itself, e.g. to a service
+ * technician's shell or a local agent. The check is on the connection's peer, so a reverse proxy in front of the
+ * application has to keep these paths to itself.
+ */
+public final class LocalOnly {
+
+  private LocalOnly() {
+  }
+
+  /**
+   * @throws ForbiddenException unless {@code request} came in over the loopback interface
+   */
+  public static void require(HttpServerRequest request) {
+    if (!isLoopback(request.remoteAddress())) {
+      throw new ForbiddenException("Only available on the charge point itself");
+    }
+  }
+
+  static boolean isLoopback(SocketAddress address) {
+    if (address == null || !address.isInetSocket() || address.hostAddress() == null) {
+      return false;
+    }
+    try {
+      // A literal address is parsed, not looked up
+      return InetAddress.getByName(address.hostAddress()).isLoopbackAddress();
+    } catch (UnknownHostException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,383 @@
+package w3cp.cp.util;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import w3cp.cp.config.error.W3CPChargepointException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Writes DTOs of {@code w3cp.model} as JSON without going through Jackson's serializers on every call.
+ * <p>
+ * For each class a plan is built once from Jackson's own introspection with {@code jackson}'s configuration:
+ * properties in the order Jackson writes them, names pre-encoded, getters bound through {@link LambdaMetafactory}
+ * and a writer chosen per declared type. Doubles and floats get at most {@code fractionDigits} decimals without
+ * trailing zeros, so the numbers are stable and short; {@code -1} keeps Jackson's shortest round-trip form.
+ * <p>
+ * Plans cover what the DTOs use: strings, numbers, booleans, enums, instants, collections and nested DTOs, with
+ * {@code NON_NULL}/{@code NON_EMPTY} inclusion. A class with anything else (custom serializers, formats, type
+ * info, any-getters, filters other than the omitted properties, ...) gets no plan and its values are written by
+ * {@code jackson}; {@link #matchesJackson(Object)} checks a sample against the Jackson output byte by byte.
+ */
+public final class PlannedJsonWriter {
+
+  private static final String PLANNED_PACKAGE = "w3cp.model";
+  // Largest scaled magnitude that is still an exact long after rounding
+  private static final double MAX_EXACT = 9.0e15;
+
+  private final ObjectWriter jackson;
+  private final SerializationConfig config;
+  private final JsonFactory factory;
+  private final int fractionDigits;
+  private final long scale;
+  private final Map<Class<?>, Set<String>> omitted;
+  private final Map<Class<?>, Object> plans = new ConcurrentHashMap<>();   // Plan, or why there is none
+
+  /**
+   * @param jackson        writer whose configuration is followed and which writes whatever has no plan
+   * @param fractionDigits decimals of doubles and floats, 0 to 15, or -1 for Jackson's shortest form
+   * @param omitted        properties left out per class, as a Jackson property filter would
+   */
+  public PlannedJsonWriter(ObjectWriter jackson, int fractionDigits, Map<Class<?>, Set<String>> omitted) {
+    if (fractionDigits < -1 || fractionDigits > 15) {
+      throw new W3CPChargepointException("Fraction digits must be between -1 and 15, was " + fractionDigits);
+    }
+    this.jackson = jackson.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.config = jackson.getConfig();
+    this.factory = jackson.getFactory();
+    this.fractionDigits = fractionDigits;
+    this.scale = fractionDigits < 0 ? 1 : (long) Math.pow(10, fractionDigits);
+    this.omitted = Map.copyOf(omitted);
+  }
+
+  public void write(OutputStream out, Object value) throws IOException {
+    try (JsonGenerator gen = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      writeValue(gen, value, new Scratch());
+    }
+  }
+
+  /**
+   * Writes {@code value} with numeric properties appended to its top-level object after its own, where
+   * {@code @JsonAppend} would put them. {@code value}'s class must have a plan.
+   */
+  public void write(OutputStream out, Object value, SerializedString[] appendedNames, long[] appendedValues)
+      throws IOException {
+    if (!(plan(value.getClass()) instanceof Plan plan)) {
+      throw new W3CPChargepointException("No plan for " + value.getClass().getName() + ": "
+          + unplannedReason(value.getClass()));
+    }
+    try (JsonGenerator gen = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      gen.writeStartObject();
+      plan.writeFields(gen, value, new Scratch());
+      for (int i = 0; i < appendedNames.length; i++) {
+        gen.writeFieldName(appendedNames[i]);
+        gen.writeNumber(appendedValues[i]);
+      }
+      gen.writeEndObject();
+    }
+  }
+
+  /**
+   * @return why {@code type} is written by Jackson, or {@code null} if it has a plan
+   */
+  public String unplannedReason(Class<?> type) {
+    return plan(type) instanceof String reason ? reason : null;
+  }
+
+  /**
+   * Whether {@code sample} comes out exactly as {@code jackson} writes it when numbers keep Jackson's form, i.e.
+   * whether the plans for everything reachable from the sample are complete.
+   */
+  public boolean matchesJackson(Object sample) throws IOException {
+    PlannedJsonWriter shortest = fractionDigits < 0 ? this : new PlannedJsonWriter(jackson, -1, omitted);
+    ByteArrayOutputStream planned = new ByteArrayOutputStream();
+    shortest.write(planned, sample);
+    return Arrays.equals(planned.toByteArray(), jackson.writeValueAsBytes(sample));
+  }
+
+  private void writeValue(JsonGenerator gen, Object value, Scratch scratch) throws IOException {
+    if (value == null) {
+      gen.writeNull();
+    } else if (plan(value.getClass()) instanceof Plan plan) {
+      gen.writeStartObject();
+      plan.writeFields(gen, value, scratch);
+      gen.writeEndObject();
+    } else {
+      jackson.writeValue(gen, value);
+    }
+  }
+
+  private Object plan(Class<?> type) {
+    Object plan = plans.get(type);
+    return plan != null ? plan : plans.computeIfAbsent(type, this::createPlan);
+  }
+
+  private Object createPlan(Class<?> type) {
+    if (!type.getPackageName().startsWith(PLANNED_PACKAGE) || type.isEnum()
+        || !Modifier.isPublic(type.getModifiers())) {
+      return "not a " + PLANNED_PACKAGE + " bean";
+    }
+    JavaType javaType = config.constructType(type);
+    BeanDescription description = config.introspect(javaType);
+    AnnotationIntrospector annotations = config.getAnnotationIntrospector();
+    AnnotatedClass classInfo = description.getClassInfo();
+
+    if (description.findJsonValueAccessor() != null) return "@JsonValue";
+    if (description.findAnyGetter() != null) return "@JsonAnyGetter";
+    if (classInfo.hasAnnotation(JsonTypeInfo.class)) return "@JsonTypeInfo";
+    if (annotations.findSerializer(classInfo) != null) return "custom serializer";
+    if (annotations.findFilterId(classInfo) != null && !omitted.containsKey(type)) return "property filter";
+
+    Set<String> skipped = omitted.getOrDefault(type, Set.of());
+    Set<String> ignored = config.getDefaultPropertyIgnorals(type, classInfo).findIgnoredForSerialization();
+    JsonInclude.Value classInclusion = JsonInclude.Value.merge(config.getDefaultPropertyInclusion(),
+        JsonInclude.Value.merge(description.findPropertyInclusion(JsonInclude.Value.empty()),
+            config.getDefaultPropertyInclusion(type, JsonInclude.Value.empty())));
+
+    List<Property> properties = new ArrayList<>();
+    for (BeanPropertyDefinition definition : description.findProperties()) {
+      AnnotatedMember accessor = definition.getAccessor();
+      if (accessor == null || skipped.contains(definition.getName()) || ignored.contains(definition.getName())) {
+        continue;
+      }
+      String name = definition.getName();
+      if (!(accessor.getMember() instanceof Method method)) return name + ": field access";
+      if (annotations.findSerializer(accessor) != null) return name + ": custom serializer";
+      if (accessor.hasAnnotation(JsonFormat.class) || accessor.hasAnnotation(JsonRawValue.class)
+          || accessor.hasAnnotation(JsonUnwrapped.class) || accessor.hasAnnotation(JsonTypeInfo.class)) {
+        return name + ": unsupported annotation";
+      }
+
+      JsonInclude.Include inclusion = config.getDefaultInclusion(type, accessor.getRawType(), classInclusion)
+          .withOverrides(definition.findInclusion()).getValueInclusion();
+      if (inclusion == JsonInclude.Include.USE_DEFAULTS) {
+        inclusion = JsonInclude.Include.ALWAYS;
+      } else if (inclusion == JsonInclude.Include.NON_ABSENT) {
+        inclusion = JsonInclude.Include.NON_NULL;
+      } else if (inclusion != JsonInclude.Include.ALWAYS && inclusion != JsonInclude.Include.NON_NULL
+          && inclusion != JsonInclude.Include.NON_EMPTY) {
+        return name + ": inclusion " + inclusion;
+      }
+
+      ValueWriter writer = writerFor(accessor.getType());
+      if (writer == null) return name + ": unsupported type " + accessor.getType();
+      Function<Object, Object> getter = getter(method);
+      if (getter == null) return name + ": getter not accessible";
+      properties.add(new Property(new SerializedString(name), getter, writer, inclusion));
+    }
+    return new Plan(properties.toArray(Property[]::new));
+  }
+
+  /**
+   * @return how values of the declared {@code type} are written, or {@code null} if that is not supported
+   */
+  private ValueWriter writerFor(JavaType type) {
+    Class<?> raw = type.getRawClass();
+    if (raw == String.class) {
+      return (gen, value, scratch) -> gen.writeString((String) value);
+    }
+    if (raw == Boolean.class || raw == boolean.class) {
+      return (gen, value, scratch) -> gen.writeBoolean((Boolean) value);
+    }
+    if (raw == Integer.class || raw == int.class || raw == Long.class || raw == long.class
+        || raw == Short.class || raw == short.class || raw == Byte.class || raw == byte.class) {
+      return (gen, value, scratch) -> gen.writeNumber(((Number) value).longValue());
+    }
+    if (raw == Double.class || raw == double.class) {
+      return (gen, value, scratch) -> writeDecimal(gen, (Double) value, scratch);
+    }
+    if (raw == Float.class || raw == float.class) {
+      return (gen, value, scratch) -> {
+        if (fractionDigits < 0) {
+          gen.writeNumber((Float) value);
+        } else {
+          writeDecimal(gen, (Float) value, scratch);
+        }
+      };
+    }
+    if (raw == BigDecimal.class) {
+      return (gen, value, scratch) -> gen.writeNumber((BigDecimal) value);
+    }
+    if (raw == BigInteger.class) {
+      return (gen, value, scratch) -> gen.writeNumber((BigInteger) value);
+    }
+    if (raw.isEnum()) {
+      return enumWriter(raw);
+    }
+    if (raw == Instant.class) {
+      if (config.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+        return null;
+      }
+      // ISO_INSTANT, as the JavaTimeModule writes it
+      return (gen, value, scratch) -> gen.writeString(value.toString());
+    }
+    if (Collection.class.isAssignableFrom(raw)) {
+      ValueWriter element = type.getContentType() == null ? null : writerFor(type.getContentType());
+      if (element == null) {
+        return null;
+      }
+      return (gen, value, scratch) -> {
+        gen.writeStartArray();
+        for (Object item : (Collection<?>) value) {
+          if (item == null) {
+            gen.writeNull();
+          } else {
+            element.write(gen, item, scratch);
+          }
+        }
+        gen.writeEndArray();
+      };
+    }
+    if (Map.class.isAssignableFrom(raw) || raw.isArray() || raw.isPrimitive()) {
+      return null;
+    }
+    // Nested DTO or a generic payload: planned by its runtime class, anything else goes to Jackson
+    return this::writeValue;
+  }
+
+  private ValueWriter enumWriter(Class<?> type) {
+    Object[] constants = type.getEnumConstants();
+    String[] rendered = new String[constants.length];
+    try {
+      for (int i = 0; i < constants.length; i++) {
+        rendered[i] = jackson.writeValueAsString(constants[i]);
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return (gen, value, scratch) -> gen.writeRawValue(rendered[((Enum<?>) value).ordinal()]);
+  }
+
+  private void writeDecimal(JsonGenerator gen, double value, Scratch scratch) throws IOException {
+    double scaled = value * scale;
+    if (fractionDigits < 0 || Double.isNaN(value) || Double.isInfinite(value) || Math.abs(scaled) >= MAX_EXACT) {
+      gen.writeNumber(value);
+      return;
+    }
+    long rounded = Math.round(scaled);
+    char[] chars = scratch.chars;
+    int length = 0;
+    if (rounded < 0) {
+      chars[length++] = '-';
+      rounded = -rounded;
+    }
+    length = appendDigits(chars, length, rounded / scale, 1);
+    long fraction = rounded % scale;
+    if (fraction != 0) {
+      int digits = fractionDigits;
+      while (fraction % 10 == 0) {
+        fraction /= 10;
+        digits--;
+      }
+      chars[length++] = '.';
+      length = appendDigits(chars, length, fraction, digits);
+    }
+    gen.writeRawValue(chars, 0, length);
+  }
+
+  // Writes value with at least minDigits digits, zero-padded on the left
+  private static int appendDigits(char[] chars, int offset, long value, int minDigits) {
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    digits = Math.max(digits, minDigits);
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    return offset + digits;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> getter(Method method) {
+    if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())
+        || method.getParameterCount() != 0) {
+      return null;
+    }
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      Class<?> returned = MethodType.methodType(method.getReturnType()).wrap().returnType();
+      CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+          MethodType.methodType(Object.class, Object.class), lookup.unreflect(method),
+          MethodType.methodType(returned, method.getDeclaringClass()));
+      return (Function<Object, Object>) site.getTarget().invokeExact();
+    } catch (Throwable e) {
+      return null;
+    }
+  }
+
+  @FunctionalInterface
+  private interface ValueWriter {
+    void write(JsonGenerator gen, Object value, Scratch scratch) throws IOException;
+  }
+
+  private record Property(SerializedString name, Function<Object, Object> getter, ValueWriter writer,
+                          JsonInclude.Include inclusion) {
+  }
+
+  private record Plan(Property[] properties) {
+
+    void writeFields(JsonGenerator gen, Object bean, Scratch scratch) throws IOException {
+      for (Property property : properties) {
+        Object value = property.getter().apply(bean);
+        if (value == null) {
+          if (property.inclusion() == JsonInclude.Include.ALWAYS) {
+            gen.writeFieldName(property.name());
+            gen.writeNull();
+          }
+          continue;
+        }
+        if (property.inclusion() == JsonInclude.Include.NON_EMPTY && isEmpty(value)) {
+          continue;
+        }
+        gen.writeFieldName(property.name());
+        property.writer().write(gen, value, scratch);
+      }
+    }
+
+    private static boolean isEmpty(Object value) {
+      return value instanceof String s && s.isEmpty() || value instanceof Collection<?> c && c.isEmpty();
+    }
+  }
+
+  // Per-write buffer for formatting numbers
+  private static final class Scratch {
+    private final char[] chars = new char[40];
+  }
+}
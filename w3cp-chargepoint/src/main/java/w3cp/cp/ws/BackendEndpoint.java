@@ -0,0 +1,138 @@
+package w3cp.cp.ws;
+
+import java.net.URI;
+
+/**
+ * Health of a single backend endpoint.
+ * <p>
+ * Latencies are exponentially weighted moving averages; failures decay with a one minute time constant,
+ * so an endpoint that recovered becomes preferable again after a while. Lower scores are better; an endpoint
+ * that has never connected scores infinite, so it is only preferred over another one it ties with by
+ * {@link #order()}.
+ */
+public class BackendEndpoint {
+
+  /**
+   * Where the time of one connect went. {@code connectNanos} covers the TCP connect and, for {@code wss}, the
+   * TLS handshake; {@code upgradeNanos} the HTTP upgrade up to the open WebSocket.
+   *
+   * @param dnsCached the address came from the {@link DnsCache} without a lookup
+   */
+  public record ConnectPhases(long dnsNanos, boolean dnsCached, long connectNanos, long upgradeNanos, boolean tls) {
+  }
+
+  private static final double ALPHA = 0.3;
+  private static final double FAILURE_DECAY_NANOS = 60_000_000_000d;
+  private static final double FAILURE_PENALTY_MS = 5_000;
+
+  private final URI uri;
+  private final int order;
+
+  private double connectMs = Double.NaN;
+  private double handshakeMs = Double.NaN;
+  private double rttMs = Double.NaN;
+  private double dnsMs = Double.NaN;
+  private double transportMs = Double.NaN;
+  private double upgradeMs = Double.NaN;
+  private ConnectPhases lastPhases;
+  private double failures;
+  private long lastFailureNanos;
+
+  public BackendEndpoint(URI uri, int order) {
+    this.uri = uri;
+    this.order = order;
+  }
+
+  public URI uri() {
+    return uri;
+  }
+
+  /**
+   * Position in the configured endpoint list.
+   */
+  public int order() {
+    return order;
+  }
+
+  public synchronized void recordConnect(long nanos) {
+    connectMs = ewma(connectMs, nanos / 1e6);
+  }
+
+  public synchronized void recordPhases(ConnectPhases phases) {
+    dnsMs = ewma(dnsMs, phases.dnsNanos() / 1e6);
+    transportMs = ewma(transportMs, phases.connectNanos() / 1e6);
+    upgradeMs = ewma(upgradeMs, phases.upgradeNanos() / 1e6);
+    lastPhases = phases;
+  }
+
+  public synchronized void recordHandshake(long nanos) {
+    handshakeMs = ewma(handshakeMs, nanos / 1e6);
+  }
+
+  public synchronized void recordRtt(long nanos) {
+    rttMs = ewma(rttMs, nanos / 1e6);
+  }
+
+  public synchronized void recordFailure() {
+    long now = System.nanoTime();
+    failures = decayedFailures(now) + 1;
+    lastFailureNanos = now;
+  }
+
+  /**
+   * Combined cost in milliseconds, or {@link Double#POSITIVE_INFINITY} before the first successful connect.
+   * Handshake and RTT not yet measured count as one more connect time each, never as free.
+   */
+  public synchronized double score() {
+    if (Double.isNaN(connectMs)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return connectMs + orElse(handshakeMs, connectMs) + 2 * orElse(rttMs, connectMs)
+        + FAILURE_PENALTY_MS * decayedFailures(System.nanoTime());
+  }
+
+  public synchronized double rttMs() {
+    return rttMs;
+  }
+
+  public synchronized double dnsMs() {
+    return dnsMs;
+  }
+
+  /**
+   * TCP connect plus TLS handshake.
+   */
+  public synchronized double transportMs() {
+    return transportMs;
+  }
+
+  public synchronized double upgradeMs() {
+    return upgradeMs;
+  }
+
+  /**
+   * @return the phases of the latest successful connect, or {@code null} before the first one
+   */
+  public synchronized ConnectPhases lastPhases() {
+    return lastPhases;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "%s[score=%.1f connect=%.1fms handshake=%.1fms rtt=%.1fms failures=%.2f]"
+        .formatted(uri, score(), connectMs, handshakeMs, rttMs, decayedFailures(System.nanoTime()));
+  }
+
+  private double decayedFailures(long now) {
+    if (failures == 0) return 0;
+    return failures * Math.exp(-(now - lastFailureNanos) / FAILURE_DECAY_NANOS);
+  }
+
+  private static double ewma(double current, double sample) {
+    return Double.isNaN(current) ? sample : current + ALPHA * (sample - current);
+  }
+
+  private static double orElse(double metric, double estimate) {
+    return Double.isNaN(metric) ? estimate : metric;
+  }
+}
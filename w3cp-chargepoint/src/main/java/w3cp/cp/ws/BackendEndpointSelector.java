@@ -0,0 +1,69 @@
+package w3cp.cp.ws;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.BackendConfig;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Ranks the configured backend endpoints by their current health score.
+ */
+@Slf4j
+@ApplicationScoped
+public class BackendEndpointSelector {
+
+  private final List<BackendEndpoint> endpoints = new ArrayList<>();
+
+  @Inject
+  public BackendEndpointSelector(BackendConfig backendConfig, MeterRegistry registry) {
+    List<URI> uris = backendConfig.uris();
+    for (int i = 0; i < uris.size(); i++) {
+      BackendEndpoint endpoint = new BackendEndpoint(uris.get(i), i);
+      endpoints.add(endpoint);
+      Gauge.builder("w3cp.backend.endpoint.score", endpoint, BackendEndpoint::score)
+          .description("Backend endpoint health score, lower is better")
+          .tag("uri", endpoint.uri().toString())
+          .register(registry);
+      phaseGauge(registry, endpoint, "dns", BackendEndpoint::dnsMs);
+      phaseGauge(registry, endpoint, "transport", BackendEndpoint::transportMs);
+      phaseGauge(registry, endpoint, "upgrade", BackendEndpoint::upgradeMs);
+    }
+    log.info("Configured {} backend endpoint(s): {}", endpoints.size(), uris);
+  }
+
+  private static void phaseGauge(MeterRegistry registry, BackendEndpoint endpoint, String phase,
+                                 ToDoubleFunction<BackendEndpoint> value) {
+    Gauge.builder("w3cp.backend.endpoint.connect.phase", endpoint, value)
+        .description("Average time of one connect phase in ms; transport is TCP connect plus TLS handshake")
+        .tag("uri", endpoint.uri().toString())
+        .tag("phase", phase)
+        .register(registry);
+  }
+
+  /**
+   * All endpoints, best first; equal scores, such as endpoints not measured yet, in configured order.
+   */
+  public List<BackendEndpoint> ranked() {
+    List<BackendEndpoint> ranked = new ArrayList<>(endpoints);
+    ranked.sort(Comparator.comparingDouble(BackendEndpoint::score).thenComparingInt(BackendEndpoint::order));
+    return ranked;
+  }
+
+  /**
+   * Best endpoint other than {@code excluded}, or {@code excluded} itself if it is the only one.
+   */
+  public BackendEndpoint bestExcept(BackendEndpoint excluded) {
+    return ranked().stream()
+        .filter(endpoint -> endpoint != excluded)
+        .findFirst()
+        .orElse(excluded);
+  }
+}
@@ -0,0 +1,87 @@
+package w3cp.cp.ws;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.config.error.W3CPChargepointException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend host names resolved at most once per TTL.
+ * <p>
+ * Lookups run the JVM resolver, which reads the hosts file and the system's name servers, on a worker thread and
+ * continue on the caller's context, so the event loop never blocks on one. A cached address is returned without
+ * leaving the caller's thread. When a refresh fails the expired address is used rather than failing the connect,
+ * since on a flaky uplink the resolver is often the first thing to time out while the backend itself is still
+ * where it was.
+ */
+@Slf4j
+public class DnsCache {
+
+  /**
+   * @param cached {@code true} if no lookup was needed
+   */
+  public record Resolution(InetAddress address, boolean cached, long nanos) {
+  }
+
+  private record Entry(InetAddress address, long expiresAtNanos) {
+  }
+
+  private final Vertx vertx;
+  private final Duration ttl;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  public DnsCache(Vertx vertx, Duration ttl) {
+    this.vertx = vertx;
+    this.ttl = ttl;
+  }
+
+  public Uni<Resolution> resolve(String host) {
+    long start = System.nanoTime();
+    Entry entry = entries.get(host);
+    if (entry != null && entry.expiresAtNanos() - start > 0) {
+      return Uni.createFrom().item(new Resolution(entry.address(), true, System.nanoTime() - start));
+    }
+    return lookup(host)
+        .map(address -> new Resolution(address, false, System.nanoTime() - start))
+        .onFailure().recoverWithUni(e -> {
+          if (entry == null) {
+            return Uni.createFrom().failure(e);
+          }
+          log.warn("Resolving {} failed ({}), using expired address {}", host, e.getMessage(), entry.address());
+          return Uni.createFrom().item(new Resolution(entry.address(), true, System.nanoTime() - start));
+        });
+  }
+
+  /**
+   * Resolves {@code host} again even if its entry is still valid.
+   */
+  public Uni<Resolution> refresh(String host) {
+    long start = System.nanoTime();
+    return lookup(host).map(address -> new Resolution(address, false, System.nanoTime() - start));
+  }
+
+  /**
+   * Drops the entry, e.g. after the address refused a connection.
+   */
+  public void invalidate(String host) {
+    entries.remove(host);
+  }
+
+  private Uni<InetAddress> lookup(String host) {
+    // Unordered, so one slow name does not hold up the others
+    return vertx.executeBlocking(Uni.createFrom().item(() -> {
+          try {
+            return InetAddress.getByName(host);
+          } catch (UnknownHostException e) {
+            throw new W3CPChargepointException("Cannot resolve " + host, e);
+          }
+        }), false)
+        .invoke(address -> entries.put(host, new Entry(address, System.nanoTime() + ttl.toNanos())));
+  }
+}
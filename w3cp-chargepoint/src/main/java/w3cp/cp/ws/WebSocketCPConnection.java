@@ -1,46 +1,141 @@
 package w3cp.cp.ws;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.http.WebSocketConnectOptions;
+import io.vertx.core.http.WebSocketFrame;
 import io.vertx.core.http.WebsocketVersion;
+import io.vertx.core.net.PemTrustOptions;
+import io.vertx.core.net.SocketAddress;
 import io.vertx.mutiny.core.MultiMap;
 import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.core.http.HttpClient;
+import io.vertx.mutiny.core.http.HttpClientRequest;
 import io.vertx.mutiny.core.http.WebSocket;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.BackendTransport;
 import w3cp.cp.CPConnection;
 import w3cp.cp.config.BackendConfig;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.ResumptionTickets;
+import w3cp.cp.loop.EventLoopMonitor;
+import w3cp.cp.trace.FrameTrace;
 
 import java.net.URI;
-import java.util.Collections;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+/**
+ * WebSocket link to the backend.
+ * <p>
+ * Endpoints are tried best-first by {@link BackendEndpointSelector}, each bounded by the connect timeout, so a
+ * failover takes at most {@code endpoints * connect-timeout}. A ping keeps RTT measurements current and closes
+ * links that stop answering. With {@code warm-standby} a second link is opened and taken through the identity
+ * exchange in the background; when the active link drops the standby is promoted without a new handshake.
+ * <p>
+ * Connects share one HTTP client and go to addresses from a {@link DnsCache}, so a reconnect resumes the TLS
+ * session and skips the lookup; each connect is broken down into DNS, transport (TCP and TLS) and upgrade time
+ * on its {@link BackendEndpoint}.
+ */
 @ApplicationScoped
+@Typed(WebSocketCPConnection.class)
 @Slf4j
-public class WebSocketCPConnection implements CPConnection {
+public class WebSocketCPConnection implements BackendTransport {
+
+  private static final int MISSED_PONGS_BEFORE_CLOSE = 3;
 
   private final Vertx vertx;
-  private final URI backendUri;
-  private final AtomicReference<WebSocket> webSocketRef = new AtomicReference<>();
-  private final Queue<String> sendQueue = new ConcurrentLinkedQueue<>();
+  private final BackendConfig backendConfig;
+  private final BackendEndpointSelector endpoints;
+  private final FrameTrace trace;
+  private final ResumptionTickets resumptionTickets;
+  private final EventLoopMonitor loop;
+  private final DnsCache dns;
+  // When each connection finished TCP (and TLS), until the WebSocket on it claims it; keyed by socket pair
+  private final Map<String, Long> transportConnected = new ConcurrentHashMap<>();
+  private final AtomicReference<Link> activeRef = new AtomicReference<>();
+  private final AtomicReference<Link> standbyRef = new AtomicReference<>();
+  private final AtomicBoolean connecting = new AtomicBoolean(false);
+  private final AtomicBoolean standbyOpening = new AtomicBoolean(false);
+  // String or pooled UTF-8 ByteBuf, written in order
+  private final Queue<Object> sendQueue = new ConcurrentLinkedQueue<>();
   private final AtomicBoolean isDraining = new AtomicBoolean(false);
+  private final AtomicLong bytesSent = new AtomicLong();
+  private volatile boolean compression;
+  private volatile HttpClient plainClient;
+  private volatile HttpClient deflateClient;
   private Consumer<String> messageHandler;
+  private BiConsumer<String, CPConnection> standbyMessageHandler;
+  private Runnable failoverHandler;
+  private Runnable connectionLostHandler;
+  private long pingTimerId = -1;
 
   @Inject
-  public WebSocketCPConnection(BackendConfig backendConfig, Vertx vertx) {
-    this.backendUri = backendConfig.uri();   // e.g. wss://w3cp.web3-energy.com/w3cp
+  public WebSocketCPConnection(BackendConfig backendConfig, Vertx vertx, BackendEndpointSelector endpoints,
+                               FrameTrace trace, ResumptionTickets resumptionTickets, EventLoopMonitor loop) {
+    this.backendConfig = backendConfig;
     this.vertx = vertx;
+    this.endpoints = endpoints;
+    this.trace = trace;
+    this.resumptionTickets = resumptionTickets;
+    this.loop = loop;
+    this.dns = new DnsCache(vertx, backendConfig.getDnsTtl());
   }
 
   @Override
   public Uni<Void> connect() {
-    // Mutiny client
-    HttpClient client = vertx.createHttpClient();
+    if (promoteStandby()) {
+      return Uni.createFrom().voidItem();
+    }
+    if (!connecting.compareAndSet(false, true)) {
+      return Uni.createFrom().voidItem(); // Already connecting
+    }
+    return connectToFirstAvailable(endpoints.ranked(), 0)
+        .onFailure().invoke(e -> log.error("Error connecting to backend WebSocket", e))
+        .onTermination().invoke(() -> connecting.set(false));
+  }
+
+  private Uni<Void> connectToFirstAvailable(List<BackendEndpoint> candidates, int index) {
+    if (index >= candidates.size()) {
+      return Uni.createFrom().failure(new W3CPChargepointException("No backend endpoint reachable"));
+    }
+    BackendEndpoint endpoint = candidates.get(index);
+    return open(endpoint, true)
+        .onItem().invoke(this::activate)
+        .replaceWithVoid()
+        .onFailure().recoverWithUni(e -> {
+          if (index + 1 < candidates.size()) {
+            log.warn("Backend {} unavailable ({}), trying next endpoint", endpoint.uri(), e.getMessage());
+          }
+          return connectToFirstAvailable(candidates, index + 1);
+        });
+  }
+
+  /**
+   * @param resume present the resumption ticket, if any; only for the active link, a standby proves itself
+   */
+  private Uni<Link> open(BackendEndpoint endpoint, boolean resume) {
+    URI backendUri = endpoint.uri();   // e.g. wss://w3cp.web3-energy.com/w3cp
 
     // Prepare headers (including Origin, to satisfy Quarkus CORS)
     MultiMap headers = MultiMap.newInstance(io.vertx.core.MultiMap.caseInsensitiveMultiMap());
@@ -65,52 +160,360 @@ public class WebSocketCPConnection implements CPConnection {
 
     String originValue = origin.toString();
     headers.add("Origin", originValue);
+    if (resume && backendConfig.isResumption()) {
+      resumptionTickets.handshakeHeaders().forEach(headers::add);
+    }
 
     log.info("Connecting to backend {} with Origin={}", backendUri, originValue);
 
-    return client.webSocketAbs(
-            backendUri.toString(),
-            headers,
-            WebsocketVersion.V13,
-            Collections.emptyList()
-        )
-        .onItem().invoke(ws -> {
-          webSocketRef.set(ws);
-          log.info("WebSocket connected to {}", backendUri);
-
-          ws.textMessageHandler(msg -> {
-            log.info("Received message: {}", msg);
-            if (messageHandler != null) {
-              messageHandler.accept(msg);
-            } else {
-              log.warn("No handler set; dropping message.");
-            }
-          });
-
-          ws.getDelegate().closeHandler(v -> {
-            webSocketRef.set(null);
-            log.info("WebSocket closed");
-          });
+    long start = System.nanoTime();
+    return dns.resolve(backendUri.getHost())
+        .chain(resolution -> {
+          WebSocketConnectOptions options = new WebSocketConnectOptions()
+              .setHost(backendUri.getHost())
+              .setPort(port(backendUri))
+              .setSsl(isTls(backendUri))
+              .setURI(requestUri(backendUri))
+              .setHeaders(headers.getDelegate())
+              .setVersion(WebsocketVersion.V13);
+          // Connect to the cached address; Host header and SNI still carry the name
+          options.setServer(SocketAddress.inetSocketAddress(port(backendUri), resolution.address().getHostAddress()));
+
+          long connectStart = System.nanoTime();
+          return connectWebSocket(options)
+              .onItem().transform(ws -> {
+                long now = System.nanoTime();
+                Long connected = transportConnected.remove(
+                    socketPair(ws.getDelegate().localAddress(), ws.getDelegate().remoteAddress()));
+                endpoint.recordConnect(now - start);
+                endpoint.recordPhases(phases(resolution, connectStart, connected, now, isTls(backendUri)));
+                Link link = new Link(ws, endpoint, start, trace);
+                ws.textMessageHandler(msg -> loop.run("ws.message", null, () -> onMessage(link, msg)));
+                ws.getDelegate().pongHandler(pong -> loop.run("ws.pong", null, () -> onPong(link, pong)));
+                ws.getDelegate().closeHandler(v -> loop.run("ws.close", null, () -> onClosed(link)));
+                return link;
+              })
+              .onFailure().invoke(e -> dns.invalidate(backendUri.getHost()));
         })
-        .onFailure().invoke(e -> log.error("Error connecting to backend WebSocket", e))
-        .replaceWithVoid();
+        .ifNoItem().after(backendConfig.getConnectTimeout()).fail()
+        .onFailure().invoke(e -> endpoint.recordFailure());
+  }
+
+  /**
+   * Connects without giving up the socket on cancellation: when the connect timeout cancels the wait, a WebSocket
+   * that still opens afterwards is closed instead of being left to the backend.
+   */
+  private Uni<WebSocket> connectWebSocket(WebSocketConnectOptions options) {
+    Future<io.vertx.core.http.WebSocket> connecting = client().getDelegate().webSocket(options);
+    return Uni.createFrom().completionStage(connecting.toCompletionStage())
+        .onCancellation().invoke(() -> connecting.onSuccess(late -> {
+          log.debug("Closing WebSocket to {} that opened after the connect timeout", options.getHost());
+          late.close();
+        }))
+        .map(WebSocket::newInstance);
+  }
+
+  /**
+   * One shared client per compression setting, so its TLS context and with it the session cache survive
+   * reconnects: a returning {@code wss} connect resumes the session instead of a full handshake.
+   */
+  private HttpClient client() {
+    boolean deflate = compression;
+    HttpClient client = deflate ? deflateClient : plainClient;
+    if (client != null) {
+      return client;
+    }
+    synchronized (this) {
+      client = deflate ? deflateClient : plainClient;
+      if (client == null) {
+        client = HttpClient.newInstance(vertx.getDelegate().httpClientBuilder()
+            .with(clientOptions(deflate))
+            .withConnectHandler(this::onTransportConnected)
+            .build());
+        if (deflate) {
+          deflateClient = client;
+        } else {
+          plainClient = client;
+        }
+      }
+      return client;
+    }
+  }
+
+  private HttpClientOptions clientOptions(boolean deflate) {
+    HttpClientOptions options = new HttpClientOptions().setTryUsePerMessageWebSocketCompression(deflate);
+    backendConfig.getTrustCerts().ifPresent(certs -> {
+      PemTrustOptions trust = new PemTrustOptions();
+      certs.forEach(trust::addCertPath);
+      options.setTrustOptions(trust);
+    });
+    return options;
+  }
+
+  /**
+   * TCP connected and, for {@code wss}, TLS negotiated; the upgrade request goes out next. Recorded under the
+   * connection's own socket pair, which the WebSocket opened on it reports as well, so concurrent connects to the
+   * same address cannot take each other's time. Prewarm and failed upgrades never claim theirs, so it goes with the
+   * connection.
+   */
+  private void onTransportConnected(HttpConnection connection) {
+    String key = socketPair(connection.localAddress(), connection.remoteAddress());
+    transportConnected.put(key, System.nanoTime());
+    connection.closeHandler(v -> transportConnected.remove(key));
+  }
+
+  private static String socketPair(SocketAddress local, SocketAddress remote) {
+    return local.hostAddress() + ":" + local.port() + ">" + remote.hostAddress() + ":" + remote.port();
+  }
+
+  /**
+   * @param connectedNanos when the transport was up, or {@code null} if the connect callback was not seen; the
+   *                       upgrade then cannot be told apart and is counted as transport
+   */
+  private static BackendEndpoint.ConnectPhases phases(DnsCache.Resolution resolution, long startNanos,
+                                                      Long connectedNanos, long openNanos, boolean tls) {
+    long connected = connectedNanos == null ? openNanos : connectedNanos;
+    return new BackendEndpoint.ConnectPhases(resolution.nanos(), resolution.cached(), connected - startNanos,
+        openNanos - connected, tls);
+  }
+
+  /**
+   * Resolves every endpoint again and, for {@code wss}, completes a TLS handshake with a {@code HEAD} request on
+   * the shared client, so the next connect neither waits for the resolver nor pays a full TLS handshake.
+   */
+  @Override
+  public Uni<Void> prewarm() {
+    List<Uni<Void>> warmups = endpoints.ranked().stream().map(this::prewarm).toList();
+    return Uni.join().all(warmups).andCollectFailures().replaceWithVoid();
+  }
+
+  private Uni<Void> prewarm(BackendEndpoint endpoint) {
+    URI backendUri = endpoint.uri();
+    Uni<Void> warmed = dns.refresh(backendUri.getHost())
+        .chain(resolution -> {
+          if (!isTls(backendUri)) {
+            return Uni.createFrom().voidItem();
+          }
+          RequestOptions options = new RequestOptions()
+              .setMethod(HttpMethod.HEAD)
+              .setHost(backendUri.getHost())
+              .setPort(port(backendUri))
+              .setSsl(true)
+              .setURI(requestUri(backendUri))
+              .putHeader("Connection", "close");
+          options.setServer(SocketAddress.inetSocketAddress(port(backendUri), resolution.address().getHostAddress()));
+          // Reset a request still open when the timeout gives up on it, so its connection does not linger
+          Future<io.vertx.core.http.HttpClientRequest> requesting = client().getDelegate().request(options);
+          return Uni.createFrom().completionStage(requesting.toCompletionStage())
+              .map(HttpClientRequest::newInstance)
+              .chain(HttpClientRequest::send)
+              .onCancellation().invoke(() -> requesting.onSuccess(late -> late.reset()))
+              .replaceWithVoid();
+        });
+    return warmed
+        .ifNoItem().after(backendConfig.getConnectTimeout()).fail()
+        .onItem().invoke(() -> log.debug("Prewarmed {}", backendUri))
+        .onFailure().recoverWithItem(e -> {
+          log.debug("Prewarming {} failed: {}", backendUri, e.getMessage());
+          return null;
+        });
+  }
+
+  private static boolean isTls(URI uri) {
+    return "wss".equalsIgnoreCase(uri.getScheme());
+  }
+
+  private static int port(URI uri) {
+    if (uri.getPort() != -1) {
+      return uri.getPort();
+    }
+    return isTls(uri) ? 443 : 80;
+  }
+
+  private static String requestUri(URI uri) {
+    String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+    return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+  }
+
+  private void activate(Link link) {
+    activeRef.set(link);
+    log.info("WebSocket connected to {}", link.endpoint.uri());
+    startPing();
+  }
+
+  /**
+   * Swaps a verified standby in as the active link.
+   *
+   * @return {@code true} if a standby was promoted
+   */
+  private boolean promoteStandby() {
+    Link standby = standbyRef.getAndSet(null);
+    if (standby == null) {
+      return false;
+    }
+    if (!standby.verified || standby.ws.isClosed()) {
+      standby.ws.close().subscribe().with(unused -> {
+      }, failure -> log.debug("Failed to close unready standby", failure));
+      return false;
+    }
+
+    activate(standby);
+    log.info("🔁 Failed over to warm standby {}", standby.endpoint);
+    if (failoverHandler != null) {
+      failoverHandler.run();
+    }
+    return true;
+  }
+
+  private void onMessage(Link link, String msg) {
+    trace.record(FrameTrace.Direction.in, link != activeRef.get(), msg);
+    if (activeRef.get() == link) {
+      if (trace.logFrames()) {
+        log.info("Received message: {}", msg);
+      }
+      if (messageHandler != null) {
+        messageHandler.accept(msg);
+      } else {
+        log.warn("No handler set; dropping message.");
+      }
+    } else if (standbyRef.get() == link && standbyMessageHandler != null) {
+      log.debug("Received standby message from {}: {}", link.endpoint.uri(), msg);
+      standbyMessageHandler.accept(msg, link.channel);
+    } else {
+      log.debug("Dropping message from inactive link {}", link.endpoint.uri());
+    }
+  }
+
+  private void onClosed(Link link) {
+    if (standbyRef.compareAndSet(link, null)) {
+      log.info("Warm standby to {} closed", link.endpoint.uri());
+      return;
+    }
+    if (!activeRef.compareAndSet(link, null)) {
+      return;
+    }
+
+    log.info("WebSocket closed");
+    if (link.closing) {
+      return;
+    }
+    link.endpoint.recordFailure();
+    trace.dumpOnError("connection to " + link.endpoint.uri() + " lost");
+    if (!promoteStandby() && connectionLostHandler != null) {
+      connectionLostHandler.run();
+    }
+  }
+
+  private void startPing() {
+    if (pingTimerId != -1) {
+      return;
+    }
+    pingTimerId = vertx.setPeriodic(backendConfig.getPingInterval().toMillis(),
+        id -> loop.run("ws.ping", null, this::onPingTick));
+  }
+
+  private void onPingTick() {
+    ping(activeRef.get());
+    ping(standbyRef.get());
+    maintainStandby();
+  }
+
+  private void ping(Link link) {
+    if (link == null || link.ws.isClosed()) {
+      return;
+    }
+    long now = System.nanoTime();
+    long timeout = backendConfig.getPingInterval().toNanos() * MISSED_PONGS_BEFORE_CLOSE;
+    if (now - link.lastPongNanos > timeout) {
+      log.warn("No pong from {} for {} pings, closing link", link.endpoint.uri(), MISSED_PONGS_BEFORE_CLOSE);
+      link.ws.close().subscribe().with(unused -> {
+      }, failure -> log.debug("Failed to close dead link", failure));
+      return;
+    }
+    link.ws.getDelegate().writePing(Buffer.buffer(8).appendLong(now));
+  }
+
+  private void onPong(Link link, Buffer pong) {
+    long now = System.nanoTime();
+    link.lastPongNanos = now;
+    if (pong.length() >= Long.BYTES) {
+      link.endpoint.recordRtt(now - pong.getLong(0));
+    }
+  }
+
+  private void maintainStandby() {
+    Link active = activeRef.get();
+    if (!backendConfig.isWarmStandby() || active == null || !active.verified || standbyRef.get() != null) {
+      return;
+    }
+    if (!standbyOpening.compareAndSet(false, true)) {
+      return;
+    }
+
+    BackendEndpoint endpoint = endpoints.bestExcept(active.endpoint);
+    open(endpoint, false)
+        .onTermination().invoke(() -> standbyOpening.set(false))
+        .subscribe().with(
+            link -> {
+              standbyRef.set(link);
+              log.info("Warm standby connecting to {}", endpoint.uri());
+            },
+            failure -> log.warn("Warm standby to {} failed: {}", endpoint.uri(), failure.getMessage())
+        );
+  }
+
+  @Override
+  public void onSessionVerified() {
+    Link active = activeRef.get();
+    if (active != null) {
+      active.markVerified();
+    }
   }
 
   @Override
   public Uni<Void> disconnect() {
-    WebSocket ws = webSocketRef.getAndSet(null);
-    if (ws != null && !ws.isClosed()) {
-      return ws.close().replaceWithVoid();
+    Link standby = standbyRef.getAndSet(null);
+    if (standby != null && !standby.ws.isClosed()) {
+      standby.ws.close().subscribe().with(unused -> {
+      }, failure -> log.debug("Failed to close standby", failure));
+    }
+
+    Link active = activeRef.getAndSet(null);
+    if (active != null && !active.ws.isClosed()) {
+      active.closing = true;
+      return active.ws.close().replaceWithVoid();
     }
     return Uni.createFrom().voidItem();
   }
 
+  @PreDestroy
+  void shutdown() {
+    if (pingTimerId != -1) {
+      vertx.cancelTimer(pingTimerId);
+    }
+    for (HttpClient client : new HttpClient[]{plainClient, deflateClient}) {
+      if (client != null) {
+        client.close().subscribe().with(unused -> {
+        }, failure -> log.debug("Failed to close HTTP client", failure));
+      }
+    }
+  }
+
   @Override
   public Uni<Void> send(String message) {
     sendQueue.add(message);
     return drainQueue();
   }
 
+  /**
+   * Writes the buffer as a text frame as is, without decoding it; it is released once written or dropped.
+   */
+  @Override
+  public Uni<Void> send(ByteBuf frame) {
+    sendQueue.add(frame);
+    return drainQueue();
+  }
+
   private Uni<Void> drainQueue() {
     if (!isDraining.compareAndSet(false, true)) {
       return Uni.createFrom().voidItem(); // Already draining
@@ -119,33 +522,156 @@ public class WebSocketCPConnection implements CPConnection {
   }
 
   private Uni<Void> processNext() {
-    String next = sendQueue.poll();
+    Object next = sendQueue.poll();
     if (next == null) {
       isDraining.set(false);
       return Uni.createFrom().voidItem();
     }
 
-    WebSocket ws = webSocketRef.get();
-    if (ws == null || ws.isClosed()) {
-      log.warn("WebSocket not connected — dropping message: {}", next);
+    Link active = activeRef.get();
+    if (active == null || active.ws.isClosed()) {
+      if (next instanceof ByteBuf frame) {
+        log.warn("WebSocket not connected — dropping {} byte message", frame.readableBytes());
+        frame.release();
+      } else {
+        log.warn("WebSocket not connected — dropping message: {}", next);
+      }
       isDraining.set(false);
       return Uni.createFrom().voidItem();
     }
 
-    return ws.writeTextMessage(next)
-        .replaceWithVoid()
+    Uni<Void> write;
+    if (next instanceof ByteBuf frame) {
+      trace.record(FrameTrace.Direction.out, false, frame);
+      bytesSent.addAndGet(frame.readableBytes());
+      write = writeTextFrame(active.ws, frame);
+    } else {
+      String message = (String) next;
+      trace.record(FrameTrace.Direction.out, false, message);
+      bytesSent.addAndGet(ByteBufUtil.utf8Bytes(message));
+      write = active.ws.writeTextMessage(message);
+    }
+    return write
         .onFailure().invoke(e -> log.error("Failed to send message", e))
         .onTermination().call(this::processNext);
   }
 
+  /**
+   * Writes UTF-8 bytes as one text message without going through a {@code String}: an empty, non-final text frame
+   * opens the message and the bytes follow as its final continuation frame. {@link Buffer#buffer(ByteBuf)} only
+   * wraps the bytes, so they stay ours and are released exactly once, when the write has completed or failed.
+   */
+  private static Uni<Void> writeTextFrame(WebSocket ws, ByteBuf frame) {
+    io.vertx.core.http.WebSocket delegate = ws.getDelegate();
+    Future<Void> written = delegate.writeFrame(WebSocketFrame.textFrame("", false))
+        .compose(v -> delegate.writeFrame(WebSocketFrame.continuationFrame(Buffer.buffer(frame), true)));
+    written.onComplete(result -> frame.release());
+    return Uni.createFrom().completionStage(written.toCompletionStage());
+  }
+
+  /**
+   * Strings count as their UTF-8 encoding, like the bytes that go on the wire.
+   */
+  @Override
+  public long bytesSent() {
+    return bytesSent.get();
+  }
+
+  /**
+   * Offers permessage-deflate from the next connect on; an open link keeps what it negotiated.
+   */
+  @Override
+  public void setCompression(boolean compression) {
+    this.compression = compression;
+  }
+
   @Override
   public void setMessageHandler(Consumer<String> handler) {
     this.messageHandler = handler;
   }
 
+  @Override
+  public void setStandbyMessageHandler(BiConsumer<String, CPConnection> handler) {
+    this.standbyMessageHandler = handler;
+  }
+
+  @Override
+  public void setFailoverHandler(Runnable handler) {
+    this.failoverHandler = handler;
+  }
+
+  /**
+   * Only called when no standby could take over.
+   */
+  @Override
+  public void setConnectionLostHandler(Runnable handler) {
+    this.connectionLostHandler = handler;
+  }
+
   @Override
   public boolean isConnected() {
-    WebSocket ws = webSocketRef.get();
-    return ws != null && !ws.isClosed();
+    Link active = activeRef.get();
+    return active != null && !active.ws.isClosed();
+  }
+
+  public boolean isStandbyReady() {
+    Link standby = standbyRef.get();
+    return standby != null && standby.verified && !standby.ws.isClosed();
+  }
+
+  private static final class Link {
+    private final WebSocket ws;
+    private final BackendEndpoint endpoint;
+    private final long openedNanos;
+    private final FrameTrace trace;
+    private final CPConnection channel = new StandbyChannel(this);
+    private volatile long lastPongNanos;
+    private volatile boolean verified;
+    private volatile boolean closing;
+
+    Link(WebSocket ws, BackendEndpoint endpoint, long openedNanos, FrameTrace trace) {
+      this.ws = ws;
+      this.endpoint = endpoint;
+      this.openedNanos = openedNanos;
+      this.trace = trace;
+      this.lastPongNanos = System.nanoTime();
+    }
+
+    void markVerified() {
+      if (!verified) {
+        verified = true;
+        endpoint.recordHandshake(System.nanoTime() - openedNanos);
+        log.debug("Session verified on {} after {}", endpoint.uri(),
+            Duration.ofNanos(System.nanoTime() - openedNanos));
+      }
+    }
+  }
+
+  /**
+   * Reply channel for the identity exchange running on a standby link.
+   */
+  private record StandbyChannel(Link link) implements CPConnection {
+
+    @Override
+    public Uni<Void> disconnect() {
+      return link.ws.close().replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      link.trace.record(FrameTrace.Direction.out, true, message);
+      return link.ws.writeTextMessage(message).replaceWithVoid();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return !link.ws.isClosed();
+    }
+
+    @Override
+    public void onSessionVerified() {
+      link.markVerified();
+      log.info("Warm standby to {} verified", link.endpoint.uri());
+    }
   }
 }
@@ -0,0 +1,181 @@
+package w3cp.authorization;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+import w3cp.cp.authorization.AuthorizationCache;
+import w3cp.cp.authorization.AuthorizationConfig;
+import w3cp.cp.authorization.AuthorizationDelta;
+import w3cp.cp.authorization.BloomFilter;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.model.identity.IdentityType;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthorizationCacheTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testIncrementalSyncAndRevocation() {
+    AuthorizationCache cache = new AuthorizationCache(config(100, Duration.ofHours(1)));
+
+    cache.apply(new AuthorizationDelta("c1", true, List.of(grant("did:example:a", null), grant("did:example:b", null)), List.of()));
+    cache.apply(new AuthorizationDelta("c2", false, List.of(grant("did:example:c", null)), List.of("did:example:a")));
+
+    assertEquals(AuthorizationCache.Decision.unknown, cache.authorize("did:example:a"));
+    assertEquals(AuthorizationCache.Decision.authorized, cache.authorize("did:example:b"));
+    assertEquals(AuthorizationCache.Decision.authorized, cache.authorize("did:example:c"));
+    assertEquals(AuthorizationCache.Decision.unknown, cache.authorize("did:example:never"));
+    assertEquals("c2", cache.getCursor());
+  }
+
+  @Test
+  public void testBackendExpiryAndLocalTtl() {
+    AuthorizationCache cache = new AuthorizationCache(config(100, Duration.ofHours(1)));
+    cache.apply(new AuthorizationDelta("c1", true, List.of(grant("did:example:old", Instant.now().minusSeconds(1))), List.of()));
+    assertEquals(AuthorizationCache.Decision.expired, cache.authorize("did:example:old"));
+
+    AuthorizationCache stale = new AuthorizationCache(config(100, Duration.ZERO));
+    stale.apply(new AuthorizationDelta("c1", true, List.of(grant("did:example:x", null)), List.of()));
+    assertEquals(AuthorizationCache.Decision.expired, stale.authorize("did:example:x"));
+  }
+
+  @Test
+  public void testSyncBeyondCapacityIsRejectedWithoutDroppingGrants() {
+    AuthorizationCache cache = new AuthorizationCache(config(2, Duration.ofHours(1)));
+    cache.apply(new AuthorizationDelta("c1", true, List.of(grant("a", null), grant("b", null)), List.of()));
+
+    assertThrows(W3CPChargepointException.class,
+        () -> cache.apply(new AuthorizationDelta("c2", false, List.of(grant("c", null)), List.of())));
+    assertThrows(W3CPChargepointException.class,
+        () -> cache.apply(new AuthorizationDelta("c3", true, grants("full-", 3), List.of())));
+
+    assertEquals(2, cache.size());
+    assertEquals("c1", cache.getCursor());
+    assertEquals(AuthorizationCache.Decision.authorized, cache.authorize("a"));
+    assertEquals(AuthorizationCache.Decision.authorized, cache.authorize("b"));
+    assertEquals(AuthorizationCache.Decision.unknown, cache.authorize("c"));
+
+    // Room made by a revocation in the same delta is taken into account
+    cache.apply(new AuthorizationDelta("c4", false, List.of(grant("c", null)), List.of("a")));
+    assertEquals(AuthorizationCache.Decision.authorized, cache.authorize("c"));
+    assertEquals(AuthorizationCache.Decision.unknown, cache.authorize("a"));
+  }
+
+  @Test
+  public void testPersistedCacheSurvivesRestart() {
+    AuthorizationConfig config = config(100, Duration.ofHours(1));
+    AuthorizationCache cache = new AuthorizationCache(config);
+    cache.apply(new AuthorizationDelta("c7", true, List.of(grant("did:example:persisted", null)), List.of()));
+    cache.persist();
+
+    AuthorizationCache restarted = new AuthorizationCache(config);
+    assertEquals(AuthorizationCache.Decision.authorized, restarted.authorize("did:example:persisted"));
+    assertEquals("c7", restarted.getCursor());
+  }
+
+  @Test
+  public void testBloomFilterFalsePositiveRate() {
+    BloomFilter filter = new BloomFilter(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      filter.add("did:example:member-" + i);
+    }
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(filter.mightContain("did:example:member-" + i));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100_000; i++) {
+      if (filter.mightContain("did:example:stranger-" + i)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 2_000, "false positive rate too high: " + falsePositives / 1000.0 + "%");
+  }
+
+  @Test
+  public void testDecisionsAtCapacity() {
+    int capacity = 50_000;
+    AuthorizationCache cache = new AuthorizationCache(config(capacity, Duration.ofHours(1)));
+    cache.apply(new AuthorizationDelta("c1", true, grants("did:example:", capacity), List.of()));
+
+    for (int i = 0; i < capacity; i++) {
+      assertEquals(AuthorizationCache.Decision.authorized, cache.authorize("did:example:" + i));
+      assertEquals(AuthorizationCache.Decision.unknown, cache.authorize("did:example:stranger-" + i));
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testDecisionLatency(TestReporter reporter) {
+    int capacity = 50_000;
+    AuthorizationCache cache = new AuthorizationCache(config(capacity, Duration.ofHours(1)));
+    cache.apply(new AuthorizationDelta("c1", true, grants("did:example:", capacity), List.of()));
+
+    int lookups = 200_000;
+    for (int i = 0; i < lookups; i++) {
+      cache.authorize("did:example:" + (i % (capacity * 2)));   // warm-up, half unknown
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < lookups; i++) {
+      cache.authorize("did:example:" + (i % (capacity * 2)));
+    }
+    reporter.publishEntry("decision µs", "%.3f".formatted((System.nanoTime() - start) / 1e3 / lookups));
+  }
+
+  private static List<AuthorizationDelta.Grant> grants(String prefix, int count) {
+    List<AuthorizationDelta.Grant> granted = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      granted.add(grant(prefix + i, null));
+    }
+    return granted;
+  }
+
+  private static AuthorizationDelta.Grant grant(String id, Instant expiresAt) {
+    return new AuthorizationDelta.Grant(id, IdentityType.web3, expiresAt);
+  }
+
+  private AuthorizationConfig config(int maxEntries, Duration ttl) {
+    Path file = dir.resolve("authorization-cache.json");
+    return new AuthorizationConfig() {
+      @Override
+      public boolean enabled() {
+        return true;
+      }
+
+      @Override
+      public Optional<String> syncUrl() {
+        return Optional.empty();
+      }
+
+      @Override
+      public String cacheFile() {
+        return file.toString();
+      }
+
+      @Override
+      public int maxEntries() {
+        return maxEntries;
+      }
+
+      @Override
+      public Duration ttl() {
+        return ttl;
+      }
+
+      @Override
+      public double falsePositiveRate() {
+        return 0.01;
+      }
+    };
+  }
+}
@@ -0,0 +1,200 @@
+package w3cp.authorization;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import w3cp.cp.CPConnection;
+import w3cp.cp.authorization.AuthorizationCache;
+import w3cp.cp.authorization.AuthorizationConfig;
+import w3cp.cp.authorization.AuthorizationDelta;
+import w3cp.cp.authorization.VehicleAuthorization;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.StripedExecutor;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.model.ChargePointStatus;
+import w3cp.model.identity.IdentityType;
+import w3cp.state.TestCpConfig;
+
+import java.lang.annotation.Annotation;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link VehicleAuthorization} fed by {@link CPState} EVSE changes, with the fired events recorded.
+ */
+public class VehicleAuthorizationTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @TempDir
+  Path dir;
+
+  private final List<VehicleAuthorization.VehicleAuthorized> fired = new CopyOnWriteArrayList<>();
+  private StripedExecutor executor;
+  private CPState state;
+  private AuthorizationCache cache;
+  private VehicleAuthorization authorization;
+
+  @BeforeEach
+  void start() {
+    AuthorizationConfig config = new TestAuthorizationConfig(dir.resolve("authorization-cache.json"));
+    executor = new StripedExecutor(2);
+    state = new CPState(new NoopConnection(), TestCpConfig.of(2, 65_536), executor);
+    cache = new AuthorizationCache(config);
+    authorization = new VehicleAuthorization(config, cache, state, new RecordingEvent());
+    authorization.init();
+  }
+
+  @AfterEach
+  void stop() {
+    executor.close();
+  }
+
+  @Test
+  public void testPluggedInVehicleIsDecidedFromTheCache() {
+    cache.apply(new AuthorizationDelta("c1", true,
+        List.of(new AuthorizationDelta.Grant("did:example:granted", IdentityType.web3, null)), List.of()));
+
+    plugIn(0, "did:example:granted");
+    plugIn(1, "did:example:stranger");
+
+    assertEquals(AuthorizationCache.Decision.authorized,
+        authorization.decision(TestCpConfig.evseId(0)).decision());
+    assertEquals(AuthorizationCache.Decision.unknown,
+        authorization.decision(TestCpConfig.evseId(1)).decision());
+    assertEquals(2, fired.size());
+  }
+
+  @Test
+  public void testSameVehicleIsDecidedOnce() {
+    plugIn(0, "did:example:a");
+    plugIn(0, "did:example:a");
+    unplug(0);
+    plugIn(0, "did:example:a");
+
+    assertEquals(2, fired.size());
+    assertEquals("did:example:a", fired.getLast().vehicleId());
+  }
+
+  @Test
+  public void testUnpluggedEvseHasNoDecision() {
+    plugIn(0, "did:example:a");
+    unplug(0);
+
+    assertNull(authorization.decision(TestCpConfig.evseId(0)));
+  }
+
+  private void plugIn(int evse, String vehicleId) {
+    String id = TestCpConfig.evseId(evse);
+    ChargePointStatus.Evse status = DummyStaticFeeder.generate(id);
+    status.getVehicleIdentity().setId(vehicleId);
+    state.evseFullUpdate(id, status, false).await().atMost(TIMEOUT);
+  }
+
+  private void unplug(int evse) {
+    String id = TestCpConfig.evseId(evse);
+    ChargePointStatus.Evse status = DummyStaticFeeder.generate(id);
+    status.setVehicleIdentity(null);
+    state.evseFullUpdate(id, status, false).await().atMost(TIMEOUT);
+  }
+
+  private final class RecordingEvent implements Event<VehicleAuthorization.VehicleAuthorized> {
+
+    @Override
+    public void fire(VehicleAuthorization.VehicleAuthorized event) {
+      fired.add(event);
+    }
+
+    @Override
+    public <U extends VehicleAuthorization.VehicleAuthorized> CompletionStage<U> fireAsync(U event) {
+      fire(event);
+      return CompletableFuture.completedFuture(event);
+    }
+
+    @Override
+    public <U extends VehicleAuthorization.VehicleAuthorized> CompletionStage<U> fireAsync(U event,
+                                                                                          NotificationOptions options) {
+      return fireAsync(event);
+    }
+
+    @Override
+    public Event<VehicleAuthorization.VehicleAuthorized> select(Annotation... qualifiers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <U extends VehicleAuthorization.VehicleAuthorized> Event<U> select(Class<U> subtype,
+                                                                             Annotation... qualifiers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <U extends VehicleAuthorization.VehicleAuthorized> Event<U> select(TypeLiteral<U> subtype,
+                                                                             Annotation... qualifiers) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private record TestAuthorizationConfig(Path file) implements AuthorizationConfig {
+
+    @Override
+    public boolean enabled() {
+      return true;
+    }
+
+    @Override
+    public Optional<String> syncUrl() {
+      return Optional.empty();
+    }
+
+    @Override
+    public String cacheFile() {
+      return file.toString();
+    }
+
+    @Override
+    public int maxEntries() {
+      return 100;
+    }
+
+    @Override
+    public Duration ttl() {
+      return Duration.ofHours(1);
+    }
+
+    @Override
+    public double falsePositiveRate() {
+      return 0.01;
+    }
+  }
+
+  private static class NoopConnection implements CPConnection {
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
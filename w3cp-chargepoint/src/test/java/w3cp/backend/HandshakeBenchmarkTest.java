@@ -0,0 +1,227 @@
+package w3cp.backend;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import w3cp.benchmark.Latencies;
+import w3cp.cp.ConnectionController;
+import w3cp.cp.logic.ResumptionTickets;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.ws.BackendEndpoint;
+import w3cp.cp.ws.BackendEndpointSelector;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end against {@link W3CPBackendStandIn}: connect → challenge → proof → verified → first status latency,
+ * the same for a reconnect resumed with a ticket, the connect phases, a pre-encoded frame arriving as one message,
+ * and sustained status throughput on one verified session. The timed runs are tagged {@code benchmark}; with the
+ * event-loop monitor on they also report its lag and the slowest handlers.
+ */
+@QuarkusTest
+public class HandshakeBenchmarkTest {
+
+  private static final int HANDSHAKES = 30;
+  private static final int STATUSES = 2_000;
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @Inject
+  ConnectionController controller;
+  @Inject
+  CPState cpState;
+  @Inject
+  StandInStats stats;
+  @Inject
+  StandInTickets standInTickets;
+  @Inject
+  ResumptionTickets resumptionTickets;
+  @Inject
+  BackendEndpointSelector endpoints;
+  @Inject
+  MeterRegistry registry;
+
+  @BeforeEach
+  void takeOverConnection() {
+    controller.setAutoReconnect(false);
+    controller.disconnect().await().atMost(TIMEOUT);
+  }
+
+  @AfterEach
+  void releaseConnection() {
+    controller.disconnect().await().atMost(TIMEOUT);
+    controller.setAutoReconnect(true);
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testHandshakeLatency(TestReporter reporter) throws Exception {
+    int verifiedBefore = stats.proofsVerified();
+    long[] latencies = new long[HANDSHAKES];
+
+    for (int i = 0; i < HANDSHAKES; i++) {
+      latencies[i] = fullHandshake();
+      controller.disconnect().await().atMost(TIMEOUT);
+    }
+
+    assertEquals(HANDSHAKES, stats.proofsVerified() - verifiedBefore);
+    assertEquals(0, stats.proofsRejected());
+
+    reporter.publishEntry("handshake to first status", Latencies.summary(latencies));
+    reportEventLoop(reporter, "handshakes");
+  }
+
+  @Test
+  public void testReconnectResumesWithTicket() throws Exception {
+    fullHandshake();
+    controller.disconnect().await().atMost(TIMEOUT);
+    assertTrue(resumptionTickets.isHeld(), "the verified session should have left a ticket");
+
+    int verifiedBefore = stats.proofsVerified();
+    int resumedBefore = stats.sessionsResumed();
+    handshake();
+
+    assertEquals(resumedBefore + 1, stats.sessionsResumed());
+    assertEquals(verifiedBefore, stats.proofsVerified(), "a resumed session should not need a proof");
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testResumedReconnectLatency(TestReporter reporter) throws Exception {
+    long[] full = new long[HANDSHAKES];
+    for (int i = 0; i < HANDSHAKES; i++) {
+      full[i] = fullHandshake();
+      controller.disconnect().await().atMost(TIMEOUT);
+    }
+
+    int verifiedBefore = stats.proofsVerified();
+    int resumedBefore = stats.sessionsResumed();
+    long[] resumed = new long[HANDSHAKES];
+    for (int i = 0; i < HANDSHAKES; i++) {
+      assertTrue(resumptionTickets.isHeld(), "the last verified session should have left a ticket");
+      resumed[i] = handshake();
+      controller.disconnect().await().atMost(TIMEOUT);
+    }
+
+    assertEquals(HANDSHAKES, stats.sessionsResumed() - resumedBefore);
+    assertEquals(verifiedBefore, stats.proofsVerified(), "a resumed session should not need a proof");
+
+    reporter.publishEntry("full reconnect to first status", Latencies.summary(full));
+    reporter.publishEntry("resumed reconnect to first status", Latencies.summary(resumed));
+  }
+
+  @Test
+  public void testRejectedTicketFallsBackToChallenge() throws Exception {
+    handshake();
+    controller.disconnect().await().atMost(TIMEOUT);
+    assertTrue(resumptionTickets.isHeld());
+
+    standInTickets.invalidateAll();
+    int rejectedBefore = stats.resumptionsRejected();
+    int verifiedBefore = stats.proofsVerified();
+    handshake();
+
+    assertEquals(rejectedBefore + 1, stats.resumptionsRejected());
+    assertEquals(verifiedBefore + 1, stats.proofsVerified(), "a rejected ticket should lead to the full challenge");
+    assertTrue(resumptionTickets.isHeld(), "the full handshake should have issued a new ticket");
+  }
+
+  @Test
+  public void testByteBufFrameArrivesWholeAtStandIn() throws Exception {
+    handshake();
+    // Multi-byte text, so a message cut short or counted in chars would not match
+    String message = new JsonObject()
+        .put("type", "chargepointStatus")
+        .put("payload", new JsonObject().put("evses", new JsonArray()).put("note", "Ladesäule ⚡ ".repeat(3_000)))
+        .encode();
+    CompletableFuture<String> seen = stats.expectMessage(message);
+    long bytesBefore = controller.getConnection().bytesSent();
+    ByteBuf frame = PooledByteBufAllocator.DEFAULT.directBuffer();
+    frame.writeCharSequence(message, StandardCharsets.UTF_8);
+
+    controller.getConnection().send(frame).await().atMost(TIMEOUT);
+
+    assertEquals(message, seen.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+    assertTrue(controller.getConnection().bytesSent() - bytesBefore >= message.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  @Test
+  public void testConnectPhases() throws Exception {
+    controller.prewarm().await().atMost(TIMEOUT);
+    fullHandshake();
+
+    BackendEndpoint endpoint = endpoints.ranked().get(0);
+    BackendEndpoint.ConnectPhases phases = endpoint.lastPhases();
+    assertNotNull(phases);
+    assertTrue(phases.dnsCached(), "a prewarmed connect should not wait for the resolver");
+    assertFalse(phases.tls());
+    assertTrue(phases.connectNanos() > 0);
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testSustainedStatusThroughput(TestReporter reporter) throws Exception {
+    handshake();
+    long base = stats.statusesReceived();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < STATUSES; i++) {
+      cpState.sendCurrentStatus().subscribe().with(unused -> {
+      }, failure -> fail(failure));
+    }
+    assertTrue(stats.awaitStatuses(base + STATUSES, Duration.ofSeconds(60)), "not all statuses arrived");
+    long elapsed = System.nanoTime() - start;
+
+    reporter.publishEntry("sustained chargepointStatus throughput", "%.0f msg/s (%d messages in %.1fms)"
+        .formatted(STATUSES / (elapsed / 1e9), STATUSES, elapsed / 1e6));
+    reportEventLoop(reporter, "sustained statuses");
+  }
+
+  /**
+   * Connects and waits for the stand-in to see the first status of the new session.
+   *
+   * @return nanoseconds from connect to first status
+   */
+  private long fullHandshake() throws Exception {
+    resumptionTickets.clear();
+    return handshake();
+  }
+
+  private long handshake() throws Exception {
+    CompletableFuture<Long> firstStatus = stats.expectFirstStatus();
+    long start = System.nanoTime();
+    controller.connect().await().atMost(TIMEOUT);
+    return firstStatus.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS) - start;
+  }
+
+  /**
+   * Reports event-loop lag and the slowest backend handlers, if {@code w3cp.event-loop.enabled} is set for the run.
+   */
+  private void reportEventLoop(TestReporter reporter, String phase) {
+    if (registry.find("w3cp.eventloop.lag").timers().isEmpty()) {
+      return;
+    }
+    double lagMax = registry.find("w3cp.eventloop.lag").timers().stream()
+        .mapToDouble(timer -> timer.max(TimeUnit.MILLISECONDS)).max().orElse(0);
+    reporter.publishEntry("event loop lag max during " + phase, "%.1fms".formatted(lagMax));
+    registry.find("w3cp.eventloop.task").tag("thread", "event-loop").timers().stream()
+        .sorted((a, b) -> Double.compare(b.max(TimeUnit.MILLISECONDS), a.max(TimeUnit.MILLISECONDS)))
+        .limit(5)
+        .forEach(timer -> reporter.publishEntry("handler " + timer.getId().getTag("site")
+            + " [" + timer.getId().getTag("type") + "]", "n=%d mean=%.2fms max=%.1fms".formatted(timer.count(),
+            timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS))));
+  }
+}
@@ -0,0 +1,121 @@
+package w3cp.backend;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and waiters shared by all {@link W3CPBackendStandIn} sessions.
+ */
+@ApplicationScoped
+public class StandInStats {
+
+  private final AtomicInteger challengesIssued = new AtomicInteger();
+  private final AtomicInteger proofsVerified = new AtomicInteger();
+  private final AtomicInteger proofsRejected = new AtomicInteger();
+  private final AtomicInteger sessionsResumed = new AtomicInteger();
+  private final AtomicInteger resumptionsRejected = new AtomicInteger();
+  private final AtomicLong statusesReceived = new AtomicLong();
+  private volatile CompletableFuture<Long> firstStatus = new CompletableFuture<>();
+  private volatile String expectedMessage;
+  private volatile CompletableFuture<String> messageSeen = new CompletableFuture<>();
+
+  void challengeIssued() {
+    challengesIssued.incrementAndGet();
+  }
+
+  void proofVerified() {
+    proofsVerified.incrementAndGet();
+  }
+
+  void proofRejected() {
+    proofsRejected.incrementAndGet();
+  }
+
+  void sessionResumed() {
+    sessionsResumed.incrementAndGet();
+  }
+
+  void resumptionRejected() {
+    resumptionsRejected.incrementAndGet();
+  }
+
+  void statusReceived(boolean firstOfSession) {
+    long now = System.nanoTime();
+    if (firstOfSession) {
+      firstStatus.complete(now);
+    }
+    synchronized (statusesReceived) {
+      statusesReceived.incrementAndGet();
+      statusesReceived.notifyAll();
+    }
+  }
+
+  void messageReceived(String raw) {
+    String expected = expectedMessage;
+    if (expected != null && expected.equals(raw)) {
+      messageSeen.complete(raw);
+    }
+  }
+
+  /**
+   * Completes once a session receives exactly {@code message} as one text message.
+   */
+  public CompletableFuture<String> expectMessage(String message) {
+    CompletableFuture<String> next = new CompletableFuture<>();
+    messageSeen = next;
+    expectedMessage = message;
+    return next;
+  }
+
+  /**
+   * Completes with {@link System#nanoTime()} of the first status of the next verified session.
+   */
+  public CompletableFuture<Long> expectFirstStatus() {
+    CompletableFuture<Long> next = new CompletableFuture<>();
+    firstStatus = next;
+    return next;
+  }
+
+  public boolean awaitStatuses(long total, Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    synchronized (statusesReceived) {
+      while (statusesReceived.get() < total) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(statusesReceived, remaining);
+      }
+    }
+    return true;
+  }
+
+  public int challengesIssued() {
+    return challengesIssued.get();
+  }
+
+  public int proofsVerified() {
+    return proofsVerified.get();
+  }
+
+  public int proofsRejected() {
+    return proofsRejected.get();
+  }
+
+  public int sessionsResumed() {
+    return sessionsResumed.get();
+  }
+
+  public int resumptionsRejected() {
+    return resumptionsRejected.get();
+  }
+
+  public long statusesReceived() {
+    return statusesReceived.get();
+  }
+}
@@ -0,0 +1,82 @@
+package w3cp.backend;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import w3cp.cp.logic.ResumptionTickets;
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumption tickets handed out by {@link W3CPBackendStandIn}: single use, bound to the identity that earned
+ * them with a full proof, and redeemed only with a fresh signature by that identity.
+ */
+@Slf4j
+@ApplicationScoped
+public class StandInTickets {
+
+  private static final Duration MAX_SKEW = Duration.ofSeconds(30);
+
+  private record Issued(W3CPPublicKey key, long expiresAtNanos) {
+  }
+
+  @ConfigProperty(name = "w3cp.stand-in.ticket-ttl", defaultValue = "60s")
+  Duration ttl;
+
+  private final SecureRandom random = new SecureRandom();
+  private final Map<String, Issued> issued = new ConcurrentHashMap<>();
+
+  String issue(W3CPPublicKey key) {
+    byte[] bytes = new byte[32];
+    random.nextBytes(bytes);
+    String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    issued.put(ticket, new Issued(key, System.nanoTime() + ttl.toNanos()));
+    return ticket;
+  }
+
+  long ttlSeconds() {
+    return ttl.toSeconds();
+  }
+
+  /**
+   * @return the identity the ticket was issued to, or {@code null} if it is unknown, used, expired or the proof
+   * does not hold
+   */
+  W3CPPublicKey redeem(String ticket, String timestamp, String proof) {
+    if (ticket == null || timestamp == null || proof == null) {
+      return null;
+    }
+    Issued entry = issued.remove(ticket);
+    if (entry == null || entry.expiresAtNanos() - System.nanoTime() <= 0) {
+      return null;
+    }
+    try {
+      Duration skew = Duration.between(Instant.parse(timestamp), Instant.now()).abs();
+      if (skew.compareTo(MAX_SKEW) > 0) {
+        return null;
+      }
+      return DigitalSignatureUtil.verifyHash(ResumptionTickets.proofHash(ticket, timestamp), proof, entry.key())
+          ? entry.key() : null;
+    } catch (DateTimeParseException e) {
+      return null;
+    } catch (Exception e) {
+      log.debug("Stand-in failed to check resumption proof", e);
+      return null;
+    }
+  }
+
+  /**
+   * Forgets every outstanding ticket, as a backend restart would.
+   */
+  public void invalidateAll() {
+    issued.clear();
+  }
+}
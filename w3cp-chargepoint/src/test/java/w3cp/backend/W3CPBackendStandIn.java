@@ -0,0 +1,168 @@
+package w3cp.backend;
+
+import io.quarkus.websockets.next.HandshakeRequest;
+import io.quarkus.websockets.next.OnOpen;
+import io.quarkus.websockets.next.OnTextMessage;
+import io.quarkus.websockets.next.WebSocket;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.SessionScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import w3cp.cp.identity.bare.PlaintextIdentity;
+import w3cp.cp.identity.kilt.KiltIdentity;
+import w3cp.cp.identity.polkadot.PolkadotIdentity;
+import w3cp.cp.logic.ResumptionTickets;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.model.identity.IdentityProof;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Minimal W3CP backend for tests, served by the test application at {@code /w3cp}.
+ * <p>
+ * One instance per connection: it issues an {@code identityChallenge}, checks the {@code identityProof}
+ * (nonce, hash, difficulty and signature against the chargepoint's own identity beans), answers a valid proof
+ * with a verified {@code connectionStatus}, closes on an invalid one, and counts the {@code chargepointStatus}
+ * messages that follow. Every verified status carries a resumption ticket from {@link StandInTickets}; a
+ * connection presenting a valid one in its handshake is verified straight away, any other gets the challenge.
+ * <p>
+ * Challenges are always issued at difficulty 0: the protocol counts trailing zero bits on the ASCII bytes of the
+ * base64url hash, which no hash satisfies above 0, and the chargepoint refuses such a challenge.
+ */
+@Slf4j
+@SessionScoped
+@WebSocket(path = "/w3cp")
+public class W3CPBackendStandIn {
+
+  @Inject
+  WebSocketConnection connection;
+  @Inject
+  StandInStats stats;
+  @Inject
+  StandInTickets tickets;
+  @Inject
+  PlaintextIdentity bareKeyIdentity;
+  @Inject
+  KiltIdentity kiltIdentity;
+  @Inject
+  PolkadotIdentity polkadotIdentity;
+
+  private String nonce;
+  private boolean verified;
+  private boolean statusSeen;
+
+  @OnOpen
+  public String onOpen() {
+    HandshakeRequest handshake = connection.handshakeRequest();
+    if (handshake.header(ResumptionTickets.TICKET_HEADER) != null) {
+      W3CPPublicKey key = tickets.redeem(handshake.header(ResumptionTickets.TICKET_HEADER),
+          handshake.header(ResumptionTickets.TIMESTAMP_HEADER), handshake.header(ResumptionTickets.PROOF_HEADER));
+      if (key != null) {
+        verified = true;
+        stats.sessionResumed();
+        return verifiedStatus(key);
+      }
+      stats.resumptionRejected();
+    }
+
+    nonce = UUID.randomUUID().toString();
+    stats.challengeIssued();
+    return message("identityChallenge", new JsonObject()
+        .put("nonce", nonce)
+        .put("difficulty", 0));
+  }
+
+  @OnTextMessage
+  public void onMessage(String raw) {
+    stats.messageReceived(raw);
+    JsonObject message = new JsonObject(raw);
+    switch (message.getString("type", "")) {
+      case "identityProof" -> onProof(message);
+      case "chargepointStatus" -> onStatus();
+      case "identityReport" -> log.debug("Stand-in received identityReport");
+      default -> log.warn("Stand-in ignoring message type {}", message.getString("type"));
+    }
+  }
+
+  private void onProof(JsonObject message) {
+    String failure = check(message);
+    if (failure != null) {
+      stats.proofRejected();
+      log.warn("Stand-in rejected identityProof: {}", failure);
+      connection.closeAndAwait();
+      return;
+    }
+
+    verified = true;
+    stats.proofVerified();
+    connection.sendTextAndAwait(verifiedStatus(publicKeyOf(message.getJsonObject("payload"))));
+  }
+
+  private String verifiedStatus(W3CPPublicKey key) {
+    return message("connectionStatus", new JsonObject()
+        .put("status", "verified")
+        .put("resumptionTicket", tickets.issue(key))
+        .put("resumptionTtl", tickets.ttlSeconds()));
+  }
+
+  private void onStatus() {
+    if (!verified) {
+      log.warn("Stand-in received chargepointStatus before verification");
+      return;
+    }
+    boolean first = !statusSeen;
+    statusSeen = true;
+    stats.statusReceived(first);
+  }
+
+  private String check(JsonObject message) {
+    JsonObject payload = message.getJsonObject("payload");
+    String hash = message.getString("payloadSha256Hash");
+    String signature = message.getString("payloadSignature");
+    if (payload == null || hash == null || signature == null) {
+      return "unsigned";
+    }
+    if (!nonce.equals(payload.getString("nonce"))) {
+      return "nonce mismatch";
+    }
+
+    try {
+      IdentityProof proof = W3CPJson.MAPPER.convertValue(payload.getMap(), IdentityProof.class);
+      if (!hash.equals(DigitalSignatureUtil.computeSHA256HashOnPayload(proof))) {
+        return "hash mismatch";
+      }
+      byte[] signed = hash.getBytes(StandardCharsets.UTF_8);
+      W3CPPublicKey key = publicKeyOf(payload);
+      if (key == null) {
+        return "unknown identity";
+      }
+      return DigitalSignatureUtil.verifyHash(signed, signature, key) ? null : "bad signature";
+    } catch (Exception e) {
+      log.debug("Stand-in failed to check identityProof", e);
+      return "error: " + e.getMessage();
+    }
+  }
+
+  private W3CPPublicKey publicKeyOf(JsonObject proof) {
+    if ("publicKey".equals(proof.getString("identityType"))) {
+      return bareKeyIdentity.getPublicKey();
+    }
+    JsonObject web3 = proof.getJsonObject("web3Identity");
+    if (web3 == null) {
+      return null;
+    }
+    return switch (web3.getString("method", "")) {
+      case "kilt" -> kiltIdentity.getPublicKey();
+      case "polkadot" -> polkadotIdentity.getPublicKey();
+      default -> null;
+    };
+  }
+
+  private static String message(String type, JsonObject payload) {
+    return new JsonObject().put("type", type).put("payload", payload).encode();
+  }
+}
@@ -0,0 +1,31 @@
+package w3cp.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Summaries of latency samples for tests tagged {@code benchmark}, reported through JUnit's TestReporter.
+ */
+public final class Latencies {
+
+  private Latencies() {
+  }
+
+  /**
+   * Nearest-rank percentile of samples sorted ascending.
+   */
+  public static long percentile(long[] sorted, int p) {
+    int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  /**
+   * Count, p50, p90, p99 and max of {@code nanos} in ms; the array is left as it is.
+   */
+  public static String summary(long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    return "n=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms".formatted(sorted.length,
+        percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6, percentile(sorted, 99) / 1e6,
+        sorted[sorted.length - 1] / 1e6);
+  }
+}
@@ -0,0 +1,100 @@
+package w3cp.gateway;
+
+import io.netty.buffer.Unpooled;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.CPConnection;
+import w3cp.cp.gateway.GatewayChannel;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GatewayChannelTest {
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void testOutgoingFramesCarryCpId() {
+    GatewayChannel channel = new GatewayChannel("cp-\"garage\"-2", new RecordingConnection());
+
+    channel.send("{\"type\":\"chargepointStatus\",\"payload\":{\"evses\":[]}}").await().atMost(Duration.ofSeconds(1));
+
+    assertEquals(1, sent.size());
+    JsonObject json = new JsonObject(sent.getFirst());
+    assertEquals("cp-\"garage\"-2", json.getString("cpId"));
+    assertEquals("chargepointStatus", json.getString("type"));
+    assertTrue(json.getJsonObject("payload").getJsonArray("evses").isEmpty());
+  }
+
+  @Test
+  public void testEmptyObjectStaysValidJson() {
+    GatewayChannel channel = new GatewayChannel("cp-2", new RecordingConnection());
+
+    channel.send("{}").await().atMost(Duration.ofSeconds(1));
+    channel.send("{ \n}").await().atMost(Duration.ofSeconds(1));
+    channel.send(Unpooled.copiedBuffer("{}", StandardCharsets.UTF_8)).await().atMost(Duration.ofSeconds(1));
+
+    assertEquals(3, sent.size());
+    for (String frame : sent) {
+      assertEquals(new JsonObject().put("cpId", "cp-2"), new JsonObject(frame));
+    }
+  }
+
+  @Test
+  public void testByteBufFramesCarryCpId() {
+    GatewayChannel channel = new GatewayChannel("cp-2", new RecordingConnection());
+
+    channel.send(Unpooled.copiedBuffer("{\"type\":\"chargepointStatus\",\"payload\":{}}", StandardCharsets.UTF_8))
+        .await().atMost(Duration.ofSeconds(1));
+
+    assertEquals(1, sent.size());
+    JsonObject json = new JsonObject(sent.getFirst());
+    assertEquals("cp-2", json.getString("cpId"));
+    assertEquals("chargepointStatus", json.getString("type"));
+  }
+
+  @Test
+  public void testNonObjectFrameIsRejected() {
+    GatewayChannel channel = new GatewayChannel("cp-2", new RecordingConnection());
+
+    assertThrows(RuntimeException.class, () -> channel.send("[]").await().atMost(Duration.ofSeconds(1)));
+    assertTrue(sent.isEmpty());
+  }
+
+  @Test
+  public void testDisconnectLeavesSharedLinkOpen() {
+    RecordingConnection uplink = new RecordingConnection();
+    GatewayChannel channel = new GatewayChannel("cp-2", uplink);
+
+    channel.disconnect().await().atMost(Duration.ofSeconds(1));
+
+    assertTrue(uplink.isConnected());
+  }
+
+  private class RecordingConnection implements CPConnection {
+
+    private boolean connected = true;
+
+    @Override
+    public Uni<Void> disconnect() {
+      connected = false;
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      sent.add(message);
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return connected;
+    }
+  }
+}
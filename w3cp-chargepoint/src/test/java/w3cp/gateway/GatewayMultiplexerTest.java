@@ -0,0 +1,294 @@
+package w3cp.gateway;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.inject.Vetoed;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.gateway.GatewayConfig;
+import w3cp.cp.gateway.GatewayMultiplexer;
+import w3cp.cp.gateway.GatewaySession;
+import w3cp.cp.identity.bare.IdentityConfig;
+import w3cp.cp.identity.bare.PlaintextIdentity;
+import w3cp.cp.logic.ChargepointSession;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.logic.W3CPMessageHandler;
+import w3cp.cp.logic.handler.IdentityChallengeHandler;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.model.identity.IdentityProof;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class GatewayMultiplexerTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @Inject
+  CpConfig cpConfig;
+  @Inject
+  IdentityConfig identityConfig;
+  @Inject
+  IdentityChallengeHandler identityChallengeHandler;
+  @Inject
+  W3CPMessageHandler messageHandler;
+
+  private final RecordingConnection uplink = new RecordingConnection();
+  private final RecordingConnection standby = new RecordingConnection();
+  private GatewayMultiplexer gateway;
+
+  @AfterEach
+  public void shutdown() {
+    if (gateway != null) {
+      gateway.getSessions().values().forEach(GatewaySession::shutdown);
+    }
+  }
+
+  @Test
+  public void testMemberFramesAreRoutedByCpId() {
+    RecordingHandler handler = new RecordingHandler();
+    gateway = gateway(handler, "cp-2", "cp-3");
+
+    gateway.route(frame("cp-3", "identityDiscovery"));
+    gateway.route(frame("cp-2", "connectionStatus"));
+
+    assertEquals(2, handler.dispatched.size());
+    assertSame(gateway.getSessions().get("cp-3"), handler.dispatched.get(0).session());
+    assertEquals("identityDiscovery", handler.dispatched.get(0).json().getString("type"));
+    assertSame(gateway.getSessions().get("cp-2"), handler.dispatched.get(1).session());
+    assertSame(gateway.getSessions().get("cp-2").getChannel(), handler.dispatched.get(1).session().connection());
+  }
+
+  @Test
+  public void testPrimaryFramesGoToThePrimarySession() {
+    RecordingHandler handler = new RecordingHandler();
+    gateway = gateway(handler, "cp-2");
+
+    gateway.route(frame(null, "identityChallenge"));
+    gateway.route(frame(cpConfig.cpId(), "identityChallenge"));
+
+    assertEquals(2, handler.dispatched.size());
+    handler.dispatched.forEach(dispatch -> assertSame(handler.getPrimarySession(), dispatch.session()));
+  }
+
+  @Test
+  public void testStandbyFramesGoToThePrimaryOnlyAndUnknownMembersAreDropped() {
+    RecordingHandler handler = new RecordingHandler();
+    gateway = gateway(handler, "cp-2");
+
+    gateway.route(frame(null, "identityChallenge"), standby);
+    gateway.route(frame("cp-2", "identityChallenge"), standby);
+    gateway.route(frame("cp-9", "identityChallenge"));
+    gateway.route("not json");
+
+    assertTrue(handler.dispatched.isEmpty());
+    assertEquals(List.of(standby), handler.standbyReplies);
+  }
+
+  @Test
+  public void testMembersHandshakeConcurrently() throws Exception {
+    List<String> members = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      members.add("cp-member-" + i);
+    }
+    gateway = gateway(messageHandler, members.toArray(String[]::new));
+
+    Map<String, String> nonces = new HashMap<>();
+    members.forEach(cpId -> nonces.put(cpId, UUID.randomUUID().toString()));
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (String cpId : members) {
+      JsonObject challenge = new JsonObject().put("nonce", nonces.get(cpId)).put("difficulty", 0);
+      threads.add(Thread.ofPlatform().start(() -> {
+        awaitQuietly(start);
+        gateway.route(frame(cpId, "identityChallenge", challenge));
+      }));
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join(TIMEOUT.toMillis());
+    }
+
+    awaitUntil(() -> uplink.ofType("identityProof").size() == members.size());
+    PlaintextIdentity identity = new PlaintextIdentity(identityConfig);
+    Map<String, JsonObject> proofs = new HashMap<>();
+    for (JsonObject proof : uplink.ofType("identityProof")) {
+      assertNull(proofs.put(proof.getString("cpId"), proof), "two proofs for " + proof.getString("cpId"));
+    }
+    for (String cpId : members) {
+      JsonObject proof = proofs.get(cpId);
+      assertNotNull(proof, "no proof for " + cpId);
+      JsonObject payload = proof.getJsonObject("payload");
+      assertEquals(nonces.get(cpId), payload.getString("nonce"));
+      String hash = proof.getString("payloadSha256Hash");
+      IdentityProof parsed = W3CPJson.MAPPER.convertValue(payload.getMap(), IdentityProof.class);
+      assertEquals(hash, DigitalSignatureUtil.computeSHA256HashOnPayload(parsed));
+      assertTrue(DigitalSignatureUtil.verifyHash(hash.getBytes(StandardCharsets.UTF_8),
+          proof.getString("payloadSignature"), identity.getPublicKey()));
+    }
+
+    members.forEach(cpId ->
+        gateway.route(frame(cpId, "connectionStatus", new JsonObject().put("status", "verified"))));
+
+    awaitUntil(() -> uplink.ofType("chargepointStatus").size() >= members.size());
+    assertEquals(members.stream().sorted().toList(),
+        uplink.ofType("chargepointStatus").stream().map(status -> status.getString("cpId")).distinct().sorted().toList());
+  }
+
+  private GatewayMultiplexer gateway(W3CPMessageHandler handler, String... members) {
+    return new GatewayMultiplexer(gatewayConfig(members), cpConfig, uplink, handler, identityChallengeHandler);
+  }
+
+  private GatewayConfig gatewayConfig(String... members) {
+    GatewayConfig.MemberConfig member = new GatewayConfig.MemberConfig() {
+      @Override
+      public IdentityConfig identity() {
+        return identityConfig;
+      }
+
+      @Override
+      public List<CpConfig.EvseConfig> evses() {
+        return List.of(dummyStaticEvse());
+      }
+    };
+    Map<String, GatewayConfig.MemberConfig> chargepoints = new LinkedHashMap<>();
+    for (String cpId : members) {
+      chargepoints.put(cpId, member);
+    }
+
+    return new GatewayConfig() {
+      @Override
+      public boolean enabled() {
+        return true;
+      }
+
+      @Override
+      public Map<String, MemberConfig> chargepoints() {
+        return chargepoints;
+      }
+    };
+  }
+
+  private static CpConfig.EvseConfig dummyStaticEvse() {
+    return new CpConfig.EvseConfig() {
+      @Override
+      public String evseId() {
+        return "EVSE-1";
+      }
+
+      @Override
+      public CpConfig.FeederConfig feeder() {
+        return new CpConfig.FeederConfig() {
+          @Override
+          public String type() {
+            return DummyStaticFeeder.FEEDER_TYPE;
+          }
+
+          @Override
+          public Optional<String> source() {
+            return Optional.empty();
+          }
+
+          @Override
+          public Optional<String> apiKey() {
+            return Optional.empty();
+          }
+        };
+      }
+    };
+  }
+
+  private static String frame(String cpId, String type) {
+    return frame(cpId, type, new JsonObject());
+  }
+
+  private static String frame(String cpId, String type, JsonObject payload) {
+    JsonObject frame = new JsonObject().put("type", type).put("payload", payload);
+    if (cpId != null) {
+      frame.put("cpId", cpId);
+    }
+    return frame.encode();
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+
+  private record Dispatch(JsonObject json, ChargepointSession session) {
+  }
+
+  /**
+   * Records where the multiplexer hands each frame instead of handling it.
+   */
+  @Vetoed
+  private static class RecordingHandler extends W3CPMessageHandler {
+
+    private final List<Dispatch> dispatched = new CopyOnWriteArrayList<>();
+    private final List<CPConnection> standbyReplies = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void handle(JsonObject json, ChargepointSession session) {
+      dispatched.add(new Dispatch(json, session));
+    }
+
+    @Override
+    public void handle(String rawMessage, CPConnection replyTo) {
+      standbyReplies.add(replyTo);
+    }
+  }
+
+  private static class RecordingConnection implements CPConnection {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      sent.add(message);
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+
+    List<JsonObject> ofType(String type) {
+      return sent.stream().map(JsonObject::new).filter(json -> type.equals(json.getString("type"))).toList();
+    }
+  }
+}
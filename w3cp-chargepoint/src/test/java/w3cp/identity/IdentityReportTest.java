@@ -1,14 +1,20 @@
 package w3cp.identity;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.config.error.W3CPChargepointException;
 import w3cp.cp.logic.handler.IdentityChallengeHandler;
+import w3cp.model.identity.IdentityChallenge;
 import w3cp.model.identity.discovery.IdentityDiscovery;
 import w3cp.model.identity.discovery.IdentityReport;
 import w3cp.model.W3CPMessage;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -61,4 +67,25 @@ public class IdentityReportTest {
     // Should have no X509 certificates
     assertTrue(report.x509Certificates().isEmpty());
   }
+
+  @Test
+  public void testTemplatedIdentityReportMatchesSerializedReport() throws Exception {
+    IdentityDiscovery discovery = new IdentityDiscovery(UUID.randomUUID(), Instant.now());
+
+    String json = handler.handleSerialized(discovery).await().indefinitely();
+    W3CPMessage<IdentityReport> parsed = W3CPJson.MAPPER.readValue(json, new TypeReference<W3CPMessage<IdentityReport>>() {});
+
+    assertEquals(discovery.correlationId(), parsed.payload().correlationId());
+    assertEquals(2, parsed.payload().web3Identities().size());
+    assertEquals(W3CPJson.MAPPER.writeValueAsString(parsed), json);
+  }
+
+  @Test
+  public void testUnmeetableDifficultyIsRefusedRightAway() {
+    IdentityChallenge challenge = W3CPJson.MAPPER.convertValue(
+        Map.of("nonce", UUID.randomUUID().toString(), "difficulty", 1), IdentityChallenge.class);
+
+    assertThrows(W3CPChargepointException.class,
+        () -> handler.handle(challenge).await().atMost(Duration.ofSeconds(5)));
+  }
 }
@@ -0,0 +1,276 @@
+package w3cp.identity;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import w3cp.benchmark.Latencies;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.identity.ChargepointIdentity;
+import w3cp.cp.identity.bare.IdentityConfig;
+import w3cp.cp.identity.bare.PlaintextIdentity;
+import w3cp.cp.identity.pkcs11.Pkcs11Identity;
+import w3cp.cp.identity.pkcs11.Pkcs11IdentityConfig;
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.Security;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The SoftHSM tests need an initialised token in slot 0, e.g.
+ * {@code softhsm2-util --init-token --free --label w3cp --pin 1234 --so-pin 0000}, and
+ * {@code SOFTHSM2_LIB=/usr/lib/softhsm/libsofthsm2.so} (plus {@code SOFTHSM2_PIN} if the PIN is not 1234).
+ */
+public class Pkcs11IdentityTest {
+
+  private static final int SESSIONS = 4;
+  private static final int THREADS = 8;
+  private static final int SIGNATURES = 2_000;
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+  private static final String PIN = System.getenv().getOrDefault("SOFTHSM2_PIN", "1234");
+
+  @Test
+  public void testPooledSigningIsConcurrentAndVerifiable() throws Exception {
+    Provider provider = Security.getProvider("SunEC");
+    Pkcs11Identity identity = pooled(provider, generate(provider));
+
+    List<Boolean> results = signConcurrently(identity, SIGNATURES);
+
+    assertEquals(SIGNATURES, results.size());
+    assertFalse(results.contains(false), "every signature should verify against the reported key");
+    assertEquals(SESSIONS, identity.idleSessions(), "every session should be back in the pool");
+  }
+
+  @Test
+  public void testKeysOnOtherCurvesAreRejected() throws Exception {
+    Provider provider = Security.getProvider("SunEC");
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", provider);
+    generator.initialize(new ECGenParameterSpec("secp384r1"));
+
+    assertThrows(W3CPChargepointException.class, () -> pooled(provider, generator.generateKeyPair()));
+  }
+
+  /**
+   * The path the application takes: {@code open(config)} logs in, finds the key by alias and reads the public key
+   * from its certificate. The stand-in TLS key and certificate are imported under a fresh alias for the run.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "SOFTHSM2_LIB", matches = ".+")
+  public void testConfiguredSoftHsmIdentity() throws Exception {
+    KeyStore token = KeyStore.getInstance("PKCS11", softHsm());
+    token.load(null, PIN.toCharArray());
+    String alias = "w3cp-test-" + UUID.randomUUID();
+    token.setKeyEntry(alias, privateKey("tls/standin-key.pem"), null,
+        new Certificate[]{certificate("tls/standin-cert.pem")});
+    try {
+      Pkcs11Identity identity = new Pkcs11Identity(new TestPkcs11Config(alias));
+
+      assertEquals(W3CPPublicKey.KeyType.ecP256, identity.getPublicKey().type());
+      byte[] hash = randomHash();
+      assertTrue(DigitalSignatureUtil.verifyHash(hash, identity.signSha256(hash), identity.getPublicKey()));
+    } finally {
+      token.deleteEntry(alias);
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  @EnabledIfEnvironmentVariable(named = "SOFTHSM2_LIB", matches = ".+")
+  public void testSoftHsmSigningAgainstInMemoryIdentity(TestReporter reporter) throws Exception {
+    Provider provider = softHsm();
+
+    // Session key: lives on the token until the provider is gone, nothing is left behind
+    KeyPair hsmKeys = generate(provider);
+    Pkcs11Identity hsm = pooled(provider, hsmKeys);
+    ChargepointIdentity inMemory = plaintext(generate(Security.getProvider("SunEC")));
+
+    long[] pooled = time(hsm::signSha256);
+    long[] perCall = time(hash -> {
+      try {
+        Signature signature = Signature.getInstance("SHA256withECDSA", provider);
+        signature.initSign(hsmKeys.getPrivate());
+        signature.update(hash);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    long[] memory = time(inMemory::signSha256);
+
+    long start = System.nanoTime();
+    List<Boolean> results = signConcurrently(hsm, SIGNATURES);
+    double concurrentPerSecond = SIGNATURES / ((System.nanoTime() - start) / 1e9);
+
+    assertFalse(results.contains(false));
+    reporter.publishEntry("softhsm pooled", Latencies.summary(pooled));
+    reporter.publishEntry("softhsm per call", Latencies.summary(perCall));
+    reporter.publishEntry("in-memory", Latencies.summary(memory));
+    reporter.publishEntry("softhsm pooled, " + THREADS + " threads on " + SESSIONS + " sessions",
+        "%.0f signatures/s".formatted(concurrentPerSecond));
+  }
+
+  /**
+   * A provider of its own on slot 0, logged in through its key store by the caller.
+   */
+  private static Provider softHsm() throws Exception {
+    Provider provider = Security.getProvider("SunPKCS11")
+        .configure("--name=w3cp-test\nlibrary=\"" + System.getenv("SOFTHSM2_LIB") + "\"\nslotListIndex=0\n");
+    KeyStore token = KeyStore.getInstance("PKCS11", provider);
+    token.load(null, PIN.toCharArray());
+    return provider;
+  }
+
+  private static PrivateKey privateKey(String resource) throws Exception {
+    return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(pem(resource)));
+  }
+
+  private static Certificate certificate(String resource) throws Exception {
+    try (InputStream in = Pkcs11IdentityTest.class.getResourceAsStream("/" + resource)) {
+      return CertificateFactory.getInstance("X.509").generateCertificate(in);
+    }
+  }
+
+  private static byte[] pem(String resource) throws Exception {
+    try (InputStream in = Pkcs11IdentityTest.class.getResourceAsStream("/" + resource)) {
+      String text = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+      return Base64.getMimeDecoder().decode(text.replaceAll("-----[A-Z ]+-----", ""));
+    }
+  }
+
+  private static Pkcs11Identity pooled(Provider provider, KeyPair keys) {
+    return new Pkcs11Identity(provider, keys.getPrivate(), keys.getPublic(), SESSIONS, TIMEOUT);
+  }
+
+  private static KeyPair generate(Provider provider) throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", provider);
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    return generator.generateKeyPair();
+  }
+
+  private static PlaintextIdentity plaintext(KeyPair keys) {
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    String privateKey = encoder.encodeToString(keys.getPrivate().getEncoded());
+    String publicKey = encoder.encodeToString(keys.getPublic().getEncoded());
+    return new PlaintextIdentity(new IdentityConfig() {
+      @Override
+      public String privateKey() {
+        return privateKey;
+      }
+
+      @Override
+      public String publicKey() {
+        return publicKey;
+      }
+
+      @Override
+      public W3CPPublicKey.KeyType type() {
+        return W3CPPublicKey.KeyType.ecP256;
+      }
+    });
+  }
+
+  private static List<Boolean> signConcurrently(ChargepointIdentity identity, int signatures) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < signatures; i++) {
+        futures.add(executor.submit(() -> {
+          byte[] hash = randomHash();
+          return DigitalSignatureUtil.verifyHash(hash, identity.signSha256(hash), identity.getPublicKey());
+        }));
+      }
+      List<Boolean> results = new ArrayList<>();
+      for (Future<Boolean> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private record TestPkcs11Config(String keyAlias) implements Pkcs11IdentityConfig {
+
+    @Override
+    public String library() {
+      return System.getenv("SOFTHSM2_LIB");
+    }
+
+    @Override
+    public int slotListIndex() {
+      return 0;
+    }
+
+    @Override
+    public Optional<String> pin() {
+      return Optional.of(PIN);
+    }
+
+    @Override
+    public Optional<String> publicKey() {
+      return Optional.empty();
+    }
+
+    @Override
+    public int sessions() {
+      return SESSIONS;
+    }
+
+    @Override
+    public Duration acquireTimeout() {
+      return TIMEOUT;
+    }
+  }
+
+  private interface Signer {
+    String sign(byte[] hash);
+  }
+
+  /**
+   * @return single-thread latencies of {@link #SIGNATURES} signatures, after as many for warm-up
+   */
+  private static long[] time(Signer signer) {
+    byte[] hash = randomHash();
+    for (int i = 0; i < SIGNATURES; i++) {
+      signer.sign(hash);
+    }
+    long[] nanos = new long[SIGNATURES];
+    for (int i = 0; i < SIGNATURES; i++) {
+      long start = System.nanoTime();
+      signer.sign(hash);
+      nanos[i] = System.nanoTime() - start;
+    }
+    return nanos;
+  }
+
+  private static byte[] randomHash() {
+    byte[] hash = new byte[32];
+    ThreadLocalRandom.current().nextBytes(hash);
+    return hash;
+  }
+}
@@ -0,0 +1,230 @@
+package w3cp.ledger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+import w3cp.cp.identity.ChargepointIdentity;
+import w3cp.cp.ledger.LedgerLog;
+import w3cp.cp.ledger.LedgerRecord;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerLogTest {
+
+  private static final int SEGMENT_BYTES = 64 * 1024;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testSessionReadsAndChainSurviveReopen() throws Exception {
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      ledger.append(LedgerRecord.Type.start, "EVSE-1", "tx-1", 10.0);
+      ledger.append(LedgerRecord.Type.start, "EVSE-2", "tx-2", 20.0);
+      for (int i = 1; i <= 2_000; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-1", 10.0 + i * 0.01);
+        ledger.append(LedgerRecord.Type.meter, "EVSE-2", "tx-2", 20.0 + i * 0.01);
+      }
+      ledger.append(LedgerRecord.Type.stop, "EVSE-1", "tx-1", 30.0);
+      assertTrue(ledger.checkpoint(new TestIdentity()) > 0);
+    }
+    assertTrue(segmentFiles().size() > 1, "ledger should have rolled over to new segments");
+
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      assertEquals(4_004, ledger.nextSeq());
+
+      List<LedgerRecord> session = ledger.session("tx-1");
+      assertEquals(2_002, session.size());
+      assertEquals(LedgerRecord.Type.start, session.getFirst().type());
+      assertEquals(LedgerRecord.Type.stop, session.getLast().type());
+      for (int i = 1; i < session.size(); i++) {
+        assertTrue(session.get(i).seq() > session.get(i - 1).seq());
+        assertEquals("tx-1", session.get(i).sessionId());
+      }
+
+      LedgerLog.Verification verification = ledger.verify();
+      assertTrue(verification.valid(), "chain broken at " + verification.brokenSeq());
+      assertEquals(4_004, verification.records());
+      assertEquals(1, verification.checkpoints());
+    }
+  }
+
+  @Test
+  public void testCompactionDropsTicksOfClosedSessionsOnly() throws Exception {
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      ledger.append(LedgerRecord.Type.start, "EVSE-1", "tx-closed", 0.0);
+      ledger.append(LedgerRecord.Type.start, "EVSE-2", "tx-open", 0.0);
+      for (int i = 1; i <= 1_000; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-closed", i);
+        ledger.append(LedgerRecord.Type.meter, "EVSE-2", "tx-open", i);
+      }
+      ledger.append(LedgerRecord.Type.stop, "EVSE-1", "tx-closed", 1_000);
+      ledger.checkpoint(new TestIdentity());
+      // Push everything above into sealed segments
+      for (int i = 0; i < 1_000; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-2", "tx-open", 1_000 + i);
+      }
+
+      assertTrue(ledger.compact() > 0);
+
+      List<LedgerRecord> closed = ledger.session("tx-closed");
+      assertEquals(List.of(LedgerRecord.Type.start, LedgerRecord.Type.stop),
+          closed.stream().map(LedgerRecord::type).toList());
+      closed.forEach(record -> assertTrue(record.intact()));
+      assertEquals(2_001, ledger.session("tx-open").size());
+      assertTrue(ledger.verify().valid());
+    }
+  }
+
+  @Test
+  public void testTornTailIsTruncatedOnOpen() throws Exception {
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      for (int i = 0; i < 10; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-1", i);
+      }
+    }
+    Path last = segmentFiles().getLast();
+    Files.write(last, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      assertEquals(10, ledger.nextSeq());
+      ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-1", 10);
+      assertEquals(11, ledger.session("tx-1").size());
+      assertTrue(ledger.verify().valid());
+    }
+  }
+
+  @Test
+  public void testTamperedSealedSegmentIsDetected() throws Exception {
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      for (int i = 0; i < 2_000; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-1", i);
+      }
+    }
+    Path first = segmentFiles().getFirst();
+    byte[] bytes = Files.readAllBytes(first);
+    bytes[100] ^= 1;
+    Files.write(first, bytes);
+
+    assertThrows(IOException.class, () -> LedgerLog.open(dir, SEGMENT_BYTES, false));
+  }
+
+  @Test
+  public void testCompactionRecordsBridgeTheGaps() throws Exception {
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      ledger.append(LedgerRecord.Type.start, "EVSE-1", "tx-closed", 0.0);
+      for (int i = 1; i <= 1_000; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-closed", i);
+      }
+      // Signs the last tick, which therefore has to stay
+      ledger.checkpoint(new TestIdentity());
+      ledger.append(LedgerRecord.Type.stop, "EVSE-1", "tx-closed", 1_000);
+      for (int i = 0; i < 1_000; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-2", "tx-open", i);
+      }
+
+      assertEquals(999, ledger.compact());
+
+      assertEquals(List.of(LedgerRecord.Type.start, LedgerRecord.Type.meter, LedgerRecord.Type.stop),
+          ledger.session("tx-closed").stream().map(LedgerRecord::type).toList());
+      List<LedgerRecord.DroppedRange> ranges = new ArrayList<>();
+      ledger.scan(record -> {
+        if (record.type() == LedgerRecord.Type.compaction) {
+          ranges.addAll(record.droppedRanges());
+        }
+      });
+      assertEquals(999, ranges.stream().mapToLong(range -> range.lastSeq() - range.firstSeq() + 1).sum());
+      LedgerLog.Verification verification = ledger.verify();
+      assertTrue(verification.valid(), "chain broken at " + verification.brokenSeq());
+    }
+
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      assertTrue(ledger.verify().valid());
+      assertEquals(0, ledger.compact());
+    }
+  }
+
+  @Test
+  public void testGapWithoutCompactionRecordIsDetected() throws Exception {
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      for (int i = 0; i < 2_000; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-1", i);
+      }
+    }
+    // Cut record 10 out of the first segment and flag it as compacted, records and CRCs otherwise intact
+    Path first = segmentFiles().getFirst();
+    ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(first));
+    int offset = 16;
+    for (int i = 0; i < 10; i++) {
+      offset += 8 + segment.getInt(offset);
+    }
+    int end = offset + 8 + segment.getInt(offset);
+    byte[] bytes = segment.array();
+    byte[] cut = new byte[bytes.length - (end - offset)];
+    System.arraycopy(bytes, 0, cut, 0, offset);
+    System.arraycopy(bytes, end, cut, offset, bytes.length - end);
+    cut[7] = 1;
+    Files.write(first, cut);
+
+    try (LedgerLog ledger = LedgerLog.open(dir, SEGMENT_BYTES, false)) {
+      LedgerLog.Verification verification = ledger.verify();
+      assertFalse(verification.valid());
+      assertEquals(11, verification.brokenSeq());
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testAppendCost(TestReporter reporter) throws Exception {
+    int appends = 200_000;
+    try (LedgerLog ledger = LedgerLog.open(dir, 16 * 1024 * 1024, false)) {
+      for (int i = 0; i < appends; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-warmup", i);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < appends; i++) {
+        ledger.append(LedgerRecord.Type.meter, "EVSE-1", "tx-1", i);
+      }
+      long elapsed = System.nanoTime() - start;
+      reporter.publishEntry("ledger append", String.format("%.0f ns per record", elapsed / (double) appends));
+    }
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+    }
+  }
+
+  private static class TestIdentity implements ChargepointIdentity {
+
+    @Override
+    public W3CPPublicKey getPublicKey() {
+      return null;
+    }
+
+    @Override
+    public String signSha256(byte[] sha256Hash) {
+      byte[] reversed = sha256Hash.clone();
+      for (int i = 0; i < reversed.length / 2; i++) {
+        byte b = reversed[i];
+        reversed[i] = reversed[reversed.length - 1 - i];
+        reversed[reversed.length - 1 - i] = b;
+      }
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(reversed);
+    }
+  }
+}
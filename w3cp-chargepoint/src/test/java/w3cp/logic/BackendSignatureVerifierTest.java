@@ -0,0 +1,177 @@
+package w3cp.logic;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.config.BackendVerificationConfig;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.logic.verification.BackendSignatureVerifier;
+import w3cp.cp.util.CanonicalJson;
+import w3cp.model.ConnectionStatus;
+import w3cp.model.W3CPMessageType;
+import w3cp.model.identity.W3CPPublicKey;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackendSignatureVerifierTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+  private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+  private static KeyPair pinned;
+  private static KeyPair stranger;
+
+  @BeforeAll
+  static void generateKeys() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("Ed25519");
+    pinned = generator.generateKeyPair();
+    stranger = generator.generateKeyPair();
+  }
+
+  @Test
+  public void testOffPassesEverything() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    BackendSignatureVerifier verifier = verifier(BackendVerificationConfig.Mode.off, registry);
+
+    assertFalse(verifier.isEnabled());
+    assertTrue(accepts(verifier, valid()));
+    assertTrue(accepts(verifier, tampered()));
+    assertTrue(accepts(verifier, unknownKey()));
+    assertTrue(accepts(verifier, unsigned()));
+    assertTrue(registry.find("w3cp.verification.failures").counters().isEmpty());
+  }
+
+  @Test
+  public void testMonitorPassesButCountsFailures() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    BackendSignatureVerifier verifier = verifier(BackendVerificationConfig.Mode.monitor, registry);
+
+    assertTrue(accepts(verifier, valid()));
+    assertTrue(accepts(verifier, tampered()));
+    assertTrue(accepts(verifier, unknownKey()));
+    assertTrue(accepts(verifier, unsigned()));
+
+    assertEquals(1.0, failures(registry, "bad-signature"));
+    assertEquals(1.0, failures(registry, "unknown-key"));
+    assertEquals(1.0, failures(registry, "unsigned"));
+    assertEquals(1, registry.get("w3cp.verification.duration").tag("result", "valid").timer().count());
+  }
+
+  @Test
+  public void testEnforceDropsAllButValid() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    BackendSignatureVerifier verifier = verifier(BackendVerificationConfig.Mode.enforce, registry);
+
+    assertTrue(accepts(verifier, valid()));
+    assertFalse(accepts(verifier, tampered()));
+    assertFalse(accepts(verifier, unknownKey()));
+    assertFalse(accepts(verifier, unsigned()));
+    assertFalse(accepts(verifier, signedBy(stranger, null)), "an unpinned key must not verify without a kid");
+  }
+
+  @Test
+  public void testEnforceLetsUnsignedTypesThrough() throws Exception {
+    BackendSignatureVerifier verifier = verifier(BackendVerificationConfig.Mode.enforce, new SimpleMeterRegistry());
+
+    JsonObject message = new JsonObject().put("type", "identityDiscovery").put("payload", new JsonObject());
+    assertTrue(verifier.verify(W3CPMessageType.identityDiscovery, message).await().atMost(TIMEOUT));
+  }
+
+  private static boolean accepts(BackendSignatureVerifier verifier, JsonObject message) {
+    return verifier.verify(W3CPMessageType.connectionStatus, message).await().atMost(TIMEOUT);
+  }
+
+  private static double failures(SimpleMeterRegistry registry, String reason) {
+    return registry.get("w3cp.verification.failures").tag("reason", reason).counter().count();
+  }
+
+  private static JsonObject valid() throws Exception {
+    return signedBy(pinned, "backend-1");
+  }
+
+  private static JsonObject tampered() throws Exception {
+    JsonObject message = valid();
+    byte[] signature = Base64.getUrlDecoder().decode(message.getString("payloadSignature"));
+    signature[signature.length / 2] ^= 1;
+    return message.put("payloadSignature", B64.encodeToString(signature));
+  }
+
+  private static JsonObject unknownKey() throws Exception {
+    return signedBy(stranger, "backend-2");
+  }
+
+  private static JsonObject unsigned() {
+    return new JsonObject().put("type", "connectionStatus").put("payload", payload());
+  }
+
+  private static JsonObject payload() {
+    return new JsonObject().put("status", "verified");
+  }
+
+  private static JsonObject signedBy(KeyPair keys, String kid) throws Exception {
+    JsonObject payload = payload();
+    Object dto = W3CPJson.MAPPER.convertValue(payload.getMap(), ConnectionStatus.class);
+    String hash = B64.encodeToString(CanonicalJson.sha256(dto));
+
+    Signature signature = Signature.getInstance("Ed25519");
+    signature.initSign(keys.getPrivate());
+    signature.update(hash.getBytes(StandardCharsets.US_ASCII));
+
+    JsonObject message = new JsonObject()
+        .put("type", "connectionStatus")
+        .put("payload", payload)
+        .put("payloadSha256Hash", hash)
+        .put("payloadSignature", B64.encodeToString(signature.sign()));
+    return kid != null ? message.put("kid", kid) : message;
+  }
+
+  private static BackendSignatureVerifier verifier(BackendVerificationConfig.Mode mode, SimpleMeterRegistry registry) {
+    String value = B64.encodeToString(pinned.getPublic().getEncoded());
+    BackendVerificationConfig.PinnedKey key = new BackendVerificationConfig.PinnedKey() {
+      @Override
+      public W3CPPublicKey.KeyType type() {
+        return W3CPPublicKey.KeyType.ed25519;
+      }
+
+      @Override
+      public String value() {
+        return value;
+      }
+    };
+    return new BackendSignatureVerifier(new BackendVerificationConfig() {
+      @Override
+      public Mode mode() {
+        return mode;
+      }
+
+      @Override
+      public Map<String, PinnedKey> keys() {
+        return Map.of("backend-1", key);
+      }
+
+      @Override
+      public int keyCacheSize() {
+        return 4;
+      }
+
+      @Override
+      public int enginesPerKey() {
+        return 2;
+      }
+
+      @Override
+      public int batchSize() {
+        return 8;
+      }
+    }, registry);
+  }
+}
@@ -0,0 +1,139 @@
+package w3cp.logic;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.logic.CorrelatedRequests;
+import w3cp.model.W3CPMessageType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CorrelatedRequestsTest {
+
+  public record Echo(UUID correlationId, String value) {
+  }
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+  private CorrelatedRequests requests;
+
+  @BeforeEach
+  void setUp() {
+    BackendConfig config = new BackendConfig();
+    config.setRequestTimeout(Duration.ofSeconds(5));
+    requests = new CorrelatedRequests(new RecordingConnection(), config, new SimpleMeterRegistry());
+  }
+
+  @Test
+  public void testRepliesCompleteOutstandingRequestsInAnyOrder() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+
+    CompletableFuture<Echo> firstReply = requests
+        .request(first, "frame-1", W3CPMessageType.identityReport, Echo.class)
+        .subscribeAsCompletionStage();
+    CompletableFuture<Echo> secondReply = requests
+        .request(second, "frame-2", W3CPMessageType.identityReport, Echo.class)
+        .subscribeAsCompletionStage();
+
+    // Both are on the wire before either reply arrives
+    assertEquals(List.of("frame-1", "frame-2"), sent);
+
+    assertTrue(requests.complete(W3CPMessageType.identityReport, reply(second, "b")));
+    assertTrue(requests.complete(W3CPMessageType.identityReport, reply(first, "a")));
+
+    assertEquals("a", firstReply.join().value());
+    assertEquals("b", secondReply.join().value());
+  }
+
+  @Test
+  public void testUncorrelatedMessagesPassThrough() {
+    requests.request(UUID.randomUUID(), "frame", W3CPMessageType.identityReport, Echo.class)
+        .subscribeAsCompletionStage();
+
+    assertFalse(requests.complete(W3CPMessageType.identityDiscovery, new JsonObject()));
+    assertFalse(requests.complete(W3CPMessageType.identityReport, reply(UUID.randomUUID(), "x")));
+  }
+
+  @Test
+  public void testOtherTypeWithSameCorrelationIdIsDispatched() {
+    UUID id = UUID.randomUUID();
+    CompletableFuture<Echo> reply = requests
+        .request(id, "frame", W3CPMessageType.identityReport, Echo.class)
+        .subscribeAsCompletionStage();
+
+    assertFalse(requests.complete(W3CPMessageType.connectionStatus, reply(id, "unrelated")));
+    assertFalse(reply.isDone(), "the request should keep waiting for its own reply type");
+
+    assertTrue(requests.complete(W3CPMessageType.identityReport, reply(id, "a")));
+    assertEquals("a", reply.join().value());
+  }
+
+  @Test
+  public void testTimeoutReleasesPendingEntry() {
+    UUID id = UUID.randomUUID();
+    Uni<Echo> reply = requests.request(id, "frame", W3CPMessageType.identityReport, Echo.class,
+        Duration.ofMillis(50));
+
+    CompletionException e = assertThrows(CompletionException.class, () -> reply.await().indefinitely());
+    assertInstanceOf(TimeoutException.class, e.getCause());
+    assertFalse(requests.complete(W3CPMessageType.identityReport, reply(id, "late")));
+  }
+
+  @Test
+  public void testCancellationReleasesPendingEntry() {
+    UUID id = UUID.randomUUID();
+    Cancellable subscription = requests.request(id, "frame", W3CPMessageType.identityReport, Echo.class)
+        .subscribe().with(item -> fail("Cancelled request must not complete"));
+
+    subscription.cancel();
+
+    assertFalse(requests.complete(W3CPMessageType.identityReport, reply(id, "late")));
+  }
+
+  @Test
+  public void testFailAllFailsOutstandingRequests() {
+    CompletableFuture<Echo> reply = requests
+        .request(UUID.randomUUID(), "frame", W3CPMessageType.identityReport, Echo.class)
+        .subscribeAsCompletionStage();
+
+    requests.failAll("connection lost");
+
+    assertThrows(CompletionException.class, reply::join);
+  }
+
+  private static JsonObject reply(UUID correlationId, String value) {
+    return new JsonObject().put("correlationId", correlationId.toString()).put("value", value);
+  }
+
+  private class RecordingConnection implements CPConnection {
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      sent.add(message);
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package w3cp.logic;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.ConnectionController;
+import w3cp.cp.logic.JitWarmup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link JitWarmup} in the running application, set up so the JIT never counts as settled and only
+ * {@code max-duration} ends it.
+ */
+@QuarkusTest
+@TestProfile(JitWarmupTest.TimeBounded.class)
+public class JitWarmupTest {
+
+  private static final Duration MAX_DURATION = Duration.ofSeconds(3);
+  private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+  public static class TimeBounded implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of(
+          "w3cp.warmup.enabled", "true",
+          "w3cp.warmup.max-duration", MAX_DURATION.toMillis() + "ms",
+          "w3cp.warmup.stable-rounds", "1000000",
+          "w3cp.warmup.pow-attempts", "1000");
+    }
+  }
+
+  @Inject
+  JitWarmup warmup;
+  @Inject
+  ConnectionController controller;
+
+  @Test
+  public void testFirstConnectWaitsForTheTimeBoundedWarmup() throws Exception {
+    assertFalse(warmup.isComplete(), "the warm-up should still be running");
+    assertFalse(controller.isConnected(), "nothing should connect before the warm-up is done");
+
+    warmup.completion().await().atMost(TIMEOUT);
+
+    JitWarmup.Completed completed = warmup.completed();
+    assertTrue(completed.timeBoundHit());
+    assertTrue(completed.rounds() > 1);
+    // The bound is checked between rounds, so it may be overrun by at most one round
+    long overrun = completed.elapsedNanos() - MAX_DURATION.toNanos();
+    assertTrue(overrun < completed.coldRoundNanos() + Duration.ofSeconds(1).toNanos(),
+        "warm-up overran its bound by " + Duration.ofNanos(overrun));
+
+    awaitUntil(controller::isConnected);
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+}
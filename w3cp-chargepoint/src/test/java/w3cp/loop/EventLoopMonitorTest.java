@@ -0,0 +1,119 @@
+package w3cp.loop;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.loop.EventLoopMonitor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLoopMonitorTest {
+
+  private static final Duration THRESHOLD = Duration.ofMillis(40);
+
+  private Vertx vertx;
+  private SimpleMeterRegistry registry;
+  private EventLoopMonitor monitor;
+
+  @BeforeEach
+  void start() {
+    vertx = Vertx.vertx();
+    registry = new SimpleMeterRegistry();
+    monitor = new EventLoopMonitor(TestEventLoopConfig.of(true, Duration.ofMillis(5), THRESHOLD), vertx, registry);
+    monitor.start();
+  }
+
+  @AfterEach
+  void stop() {
+    monitor.shutdown();
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  public void testBlockingHandlerIsAttributedWithStack() throws Exception {
+    onEventLoop(() -> monitor.run("test.sign", "identityChallenge", () -> blockFor(Duration.ofMillis(200))));
+
+    awaitUntil(() -> maxLagMillis() >= 100);
+    List<EventLoopMonitor.SlowTask> slow = monitor.recentSlowTasks();
+    assertEquals(1, slow.size());
+    EventLoopMonitor.SlowTask task = slow.getFirst();
+    assertEquals("test.sign", task.site());
+    assertEquals("identityChallenge", task.type());
+    assertTrue(task.millis() >= 200, "took " + task.millis() + " ms");
+    assertTrue(task.stack().stream().anyMatch(frame -> frame.contains("blockFor")),
+        "stack should show where the loop was held: " + task.stack());
+
+    assertEquals(1.0, registry.get("w3cp.eventloop.slow.tasks").tag("site", "test.sign").counter().count());
+    Timer timer = registry.get("w3cp.eventloop.task").tag("site", "test.sign").tag("thread", "event-loop").timer();
+    assertEquals(1, timer.count());
+  }
+
+  @Test
+  public void testNestedSlowHandlerReportedOnce() throws Exception {
+    onEventLoop(() -> monitor.run("ws.message", null,
+        () -> monitor.run("handler.dispatch", "identityChallenge", () -> blockFor(Duration.ofMillis(100)))));
+
+    List<EventLoopMonitor.SlowTask> slow = monitor.recentSlowTasks();
+    assertEquals(1, slow.size());
+    assertEquals("handler.dispatch", slow.getFirst().site());
+    assertEquals(1, registry.get("w3cp.eventloop.task").tag("site", "ws.message").tag("type", EventLoopMonitor.NO_TYPE)
+        .timer().count());
+  }
+
+  @Test
+  public void testFastHandlersAreOnlyTimed() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      onEventLoop(() -> monitor.run("ws.pong", null, () -> {
+      }));
+    }
+    // Off the event loop nothing holds a loop, however long it takes
+    monitor.run("handler.dispatch", "connectionStatus", () -> blockFor(THRESHOLD.multipliedBy(2)));
+
+    assertTrue(monitor.recentSlowTasks().isEmpty());
+    assertEquals(100, registry.get("w3cp.eventloop.task").tag("site", "ws.pong").timer().count());
+    assertEquals(1, registry.get("w3cp.eventloop.task").tag("thread", "worker").timer().count());
+  }
+
+  private void onEventLoop(Runnable task) throws Exception {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    vertx.getDelegate().runOnContext(v -> {
+      try {
+        task.run();
+        done.complete(null);
+      } catch (Throwable e) {
+        done.completeExceptionally(e);
+      }
+    });
+    done.get(10, TimeUnit.SECONDS);
+  }
+
+  private double maxLagMillis() {
+    return registry.get("w3cp.eventloop.lag").timers().stream()
+        .mapToDouble(timer -> timer.max(TimeUnit.MILLISECONDS))
+        .max().orElse(0);
+  }
+
+  private static void blockFor(Duration duration) {
+    long deadline = System.nanoTime() + duration.toNanos();
+    while (System.nanoTime() - deadline < 0) {
+      Thread.onSpinWait();
+    }
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package w3cp.loop;
+
+import w3cp.cp.loop.EventLoopConfig;
+
+import java.time.Duration;
+
+/**
+ * {@link EventLoopConfig} for tests that run without Quarkus.
+ */
+public final class TestEventLoopConfig {
+
+  private TestEventLoopConfig() {
+  }
+
+  public static EventLoopConfig off() {
+    return of(false, Duration.ofMillis(100), Duration.ofMillis(50));
+  }
+
+  public static EventLoopConfig of(boolean enabled, Duration probeInterval, Duration slowTaskThreshold) {
+    return new EventLoopConfig() {
+      @Override
+      public boolean enabled() {
+        return enabled;
+      }
+
+      @Override
+      public Duration probeInterval() {
+        return probeInterval;
+      }
+
+      @Override
+      public Duration slowTaskThreshold() {
+        return slowTaskThreshold;
+      }
+
+      @Override
+      public int slowTasksKept() {
+        return 8;
+      }
+
+      @Override
+      public boolean histograms() {
+        return false;
+      }
+    };
+  }
+}
@@ -0,0 +1,138 @@
+package w3cp.metering;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import w3cp.cp.logic.state.input.metering.PhaseKernel;
+import w3cp.cp.logic.state.input.metering.PhaseMeter;
+import w3cp.cp.logic.state.input.metering.PhaseSamples;
+import w3cp.cp.logic.state.input.metering.ScalarPhaseKernel;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhaseKernelTest {
+
+  private static final int EVSES = 4_099;   // not a multiple of any vector width, so the tail is exercised
+
+  @Test
+  public void testVectorKernelIsUsedWhenModuleIsPresent() {
+    boolean vectorModule = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    assertEquals(vectorModule, !(PhaseKernel.best() instanceof ScalarPhaseKernel));
+  }
+
+  @Test
+  public void testBestKernelMatchesScalar() {
+    PhaseSamples samples = randomSamples(EVSES, 42);
+    double[] expectedPower = new double[EVSES];
+    double[] expectedImbalance = new double[EVSES];
+    double[] power = new double[EVSES];
+    double[] imbalance = new double[EVSES];
+
+    new ScalarPhaseKernel().powerAndImbalance(samples, expectedPower, expectedImbalance);
+    PhaseKernel.best().powerAndImbalance(samples, power, imbalance);
+
+    for (int i = 0; i < EVSES; i++) {
+      assertEquals(expectedPower[i], power[i], 1e-9 * Math.abs(expectedPower[i]) + 1e-9, "power of slot " + i);
+      assertEquals(expectedImbalance[i], imbalance[i], 1e-12, "imbalance of slot " + i);
+    }
+  }
+
+  @Test
+  public void testBestKernelIntegratesLikeScalar() {
+    PhaseSamples samples = randomSamples(EVSES, 43);
+    double[] power = new double[EVSES];
+    new ScalarPhaseKernel().powerAndImbalance(samples, power, new double[EVSES]);
+    double[] expectedPrevious = randomSamples(EVSES, 44).voltageL1.clone();
+    double[] previous = expectedPrevious.clone();
+    double[] expectedEnergy = new double[EVSES];
+    double[] energy = new double[EVSES];
+
+    for (int step = 0; step < 100; step++) {
+      new ScalarPhaseKernel().integrate(expectedPrevious, power, 1 / 3600.0, expectedEnergy, EVSES);
+      PhaseKernel.best().integrate(previous, power, 1 / 3600.0, energy, EVSES);
+    }
+
+    // The vector kernel fuses the multiply-add and rounds once per step, so energy may differ in the last bits
+    for (int i = 0; i < EVSES; i++) {
+      assertEquals(expectedEnergy[i], energy[i], 1e-12 * Math.abs(expectedEnergy[i]) + 1e-12, "energy of slot " + i);
+      assertEquals(expectedPrevious[i], previous[i], "previous power of slot " + i);
+    }
+  }
+
+  @Test
+  public void testKnownValues() {
+    PhaseMeter meter = new PhaseMeter(2);
+    meter.samples().set(0, 230, 230, 230, 16, 16, 16);
+    meter.samples().set(1, 230, 230, 230, 0, 0, 0);
+
+    meter.process(0);
+    assertEquals(3 * 230 * 16, meter.powerW(0), 1e-9);
+    assertEquals(0, meter.imbalance(0), 1e-12);
+    assertEquals(0, meter.powerW(1), 1e-12);
+    assertEquals(0, meter.imbalance(1), 1e-12, "no current must not divide by zero");
+
+    meter.samples().set(0, 230, 230, 230, 18, 15, 15);
+    meter.process(0);
+    assertEquals(1.0 / 16, meter.imbalance(0), 1e-12);
+  }
+
+  @Test
+  public void testTrapezoidalIntegration() {
+    PhaseMeter meter = new PhaseMeter(1);
+    long hour = 3_600_000_000_000L;
+
+    meter.samples().set(0, 230, 230, 230, 0, 0, 0);
+    meter.process(0);
+    meter.samples().set(0, 230, 230, 230, 10, 10, 10);
+    meter.process(hour);
+    // Ramp from 0 to 6900 W over one hour
+    assertEquals(3_450, meter.energyWh(0), 1e-6);
+
+    meter.process(2 * hour);
+    assertEquals(3_450 + 6_900, meter.energyWh(0), 1e-6);
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testThroughput(TestReporter reporter) {
+    PhaseMeter meter = new PhaseMeter(EVSES);
+    PhaseSamples random = randomSamples(EVSES, 7);
+    copy(random, meter.samples());
+
+    int rounds = 5_000;
+    for (int r = 0; r < rounds; r++) {
+      meter.process(r * 1_000_000L);   // warm-up
+    }
+    long start = System.nanoTime();
+    for (int r = 0; r < rounds; r++) {
+      meter.process((rounds + r) * 1_000_000L);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    reporter.publishEntry(meter.kernel().getClass().getSimpleName() + " EVSE samples per ms",
+        "%.0f".formatted((double) EVSES * rounds / (elapsed / 1e6)));
+  }
+
+  private static PhaseSamples randomSamples(int size, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    PhaseSamples samples = new PhaseSamples(size);
+    for (int i = 0; i < size; i++) {
+      boolean idle = i % 17 == 0;
+      samples.set(i,
+          220 + random.nextDouble(20), 220 + random.nextDouble(20), 220 + random.nextDouble(20),
+          idle ? 0 : random.nextDouble(32), idle ? 0 : random.nextDouble(32), idle ? 0 : random.nextDouble(32));
+    }
+    return samples;
+  }
+
+  private static void copy(PhaseSamples from, PhaseSamples to) {
+    System.arraycopy(from.voltageL1, 0, to.voltageL1, 0, from.size());
+    System.arraycopy(from.voltageL2, 0, to.voltageL2, 0, from.size());
+    System.arraycopy(from.voltageL3, 0, to.voltageL3, 0, from.size());
+    System.arraycopy(from.currentL1, 0, to.currentL1, 0, from.size());
+    System.arraycopy(from.currentL2, 0, to.currentL2, 0, from.size());
+    System.arraycopy(from.currentL3, 0, to.currentL3, 0, from.size());
+  }
+}
@@ -0,0 +1,446 @@
+package w3cp.mqtt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetServer;
+import io.vertx.mqtt.MqttEndpoint;
+import io.vertx.mqtt.MqttServer;
+import io.vertx.mqtt.MqttServerOptions;
+import io.vertx.mqtt.MqttTopicSubscription;
+import io.vertx.mqtt.messages.MqttPublishMessage;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import w3cp.cp.BackendTransport;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.logic.ResumptionTickets;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.loop.EventLoopMonitor;
+import w3cp.cp.mqtt.MqttCPConnection;
+import w3cp.cp.mqtt.MqttConfig;
+import w3cp.cp.trace.FrameTrace;
+import w3cp.cp.ws.BackendEndpointSelector;
+import w3cp.cp.ws.WebSocketCPConnection;
+import w3cp.loop.TestEventLoopConfig;
+import w3cp.model.ChargePointStatus;
+import w3cp.model.W3CPMessage;
+import w3cp.model.W3CPMessageType;
+import w3cp.trace.TestTraceConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link MqttCPConnection} against an embedded Vert.x MQTT broker, and the same status traffic over MQTT and
+ * {@link WebSocketCPConnection}, each through a byte-counting TCP proxy.
+ */
+public class MqttTransportTest {
+
+  private static final String CP_ID = "cp-mqtt-test";
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final int MESSAGES = 5_000;
+  // As CPState sends it: W3CPJson.MAPPER sorts properties, so "type" comes after the whole payload
+  private static final String STATUS = status();
+
+  private Vertx vertx;
+  private Broker broker;
+
+  @BeforeEach
+  void start() throws Exception {
+    vertx = Vertx.vertx();
+    broker = new Broker(vertx.getDelegate());
+  }
+
+  @AfterEach
+  void stop() {
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  public void testPersistentSessionPresenceAndBatching() throws Exception {
+    MqttCPConnection connection = mqtt(broker.port, Duration.ofMillis(50));
+    CompletableFuture<String> inbound = new CompletableFuture<>();
+    connection.setMessageHandler(inbound::complete);
+
+    connection.connect().await().atMost(TIMEOUT);
+    assertTrue(connection.isConnected());
+    assertEquals(CP_ID, broker.clientId);
+    assertFalse(broker.cleanSession, "session should persist at the broker");
+    assertEquals(List.of("w3cp/" + CP_ID + "/down/#"), broker.subscriptions);
+
+    // The broker answers the presence announcement with a challenge, as a backend bridge would
+    assertTrue(inbound.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).contains("identityChallenge"));
+
+    for (int i = 0; i < 3; i++) {
+      connection.send(STATUS);
+    }
+    awaitUntil(() -> broker.frames.get() == 3);
+    assertEquals(1, broker.publishes("w3cp/" + CP_ID + "/up/batch"));
+    assertEquals(0, broker.publishes("w3cp/" + CP_ID + "/up/chargepointStatus"));
+
+    assertTrue(STATUS.indexOf("\"type\"") > STATUS.indexOf("\"evses\""), "fixture should put type last");
+    connection.send(STATUS);
+    awaitUntil(() -> broker.frames.get() == 4);
+    assertEquals(1, broker.publishes("w3cp/" + CP_ID + "/up/chargepointStatus"), "a lone frame keeps its topic");
+
+    connection.disconnect().await().atMost(TIMEOUT);
+    awaitUntil(() -> broker.presence.contains("offline"));
+    assertEquals(List.of("online", "offline"), broker.presence);
+  }
+
+  @Test
+  public void testSessionAcceptedAfterTimeoutIsClosed() throws Exception {
+    broker.acceptDelay = Duration.ofMillis(500);
+    MqttCPConnection connection = new MqttCPConnection(
+        new TestMqttConfig(broker.port, Duration.ZERO, Duration.ofMillis(100)), cpConfig(), vertx,
+        new FrameTrace(TestTraceConfig.off()));
+
+    assertThrows(RuntimeException.class, () -> connection.connect().await().atMost(TIMEOUT));
+    assertFalse(connection.isConnected());
+
+    awaitUntil(() -> broker.accepted.get() == 1);
+    awaitUntil(() -> broker.closed.get() == 1);
+    assertFalse(connection.isConnected());
+  }
+
+  @Test
+  public void testBatchingSavesFramingOverhead() throws Exception {
+    CountingProxy mqttProxy = new CountingProxy(vertx.getDelegate(), broker.port);
+
+    Result mqtt = measure("mqtt qos1", mqtt(mqttProxy.port, Duration.ZERO), mqttProxy, broker.frames::get);
+    Result batched = measure("mqtt qos1 batched", mqtt(mqttProxy.port, Duration.ofMillis(20)), mqttProxy,
+        broker.frames::get);
+
+    assertTrue(batched.upPerMessage() < mqtt.upPerMessage(), "batching should save framing overhead");
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testThroughputAndBytesPerMessageAgainstWebSocket(TestReporter reporter) throws Exception {
+    AtomicInteger webSocketFrames = new AtomicInteger();
+    HttpServer sink = vertx.getDelegate().createHttpServer()
+        .webSocketHandler(ws -> ws.textMessageHandler(text -> webSocketFrames.incrementAndGet()));
+    int sinkPort = sink.listen(0, "localhost").toCompletionStage().toCompletableFuture()
+        .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).actualPort();
+
+    CountingProxy webSocketProxy = new CountingProxy(vertx.getDelegate(), sinkPort);
+    CountingProxy mqttProxy = new CountingProxy(vertx.getDelegate(), broker.port);
+
+    Result webSocket = measure("websocket", webSocket(webSocketProxy.port), webSocketProxy, webSocketFrames::get);
+    Result mqtt = measure("mqtt qos1", mqtt(mqttProxy.port, Duration.ZERO), mqttProxy, broker.frames::get);
+    Result batched = measure("mqtt qos1 batched", mqtt(mqttProxy.port, Duration.ofMillis(20)), mqttProxy,
+        broker.frames::get);
+
+    reporter.publishEntry("frames", STATUS.length() + " bytes, " + MESSAGES + " per transport");
+    for (Result result : List.of(webSocket, mqtt, batched)) {
+      reporter.publishEntry(result.name(), String.format("%.0f msg/s, %.1f B/msg up, %.1f B/msg down",
+          result.perSecond(), result.upPerMessage(), result.downPerMessage()));
+    }
+  }
+
+  private record Result(String name, double perSecond, double upPerMessage, double downPerMessage) {
+  }
+
+  private Result measure(String name, BackendTransport transport, CountingProxy proxy, IntSupplier delivered)
+      throws Exception {
+    int presenceBefore = broker.presence.size();
+    transport.connect().await().atMost(TIMEOUT);
+    if (transport instanceof MqttCPConnection) {
+      awaitUntil(() -> broker.presence.size() > presenceBefore);
+    }
+    int base = delivered.getAsInt();
+    proxy.reset();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < MESSAGES; i++) {
+      transport.send(STATUS);
+    }
+    awaitUntil(() -> delivered.getAsInt() - base >= MESSAGES);
+    long elapsed = System.nanoTime() - start;
+    // Let the last acknowledgements arrive
+    Thread.sleep(200);
+    long up = proxy.up.get();
+    long down = proxy.down.get();
+    transport.disconnect().await().atMost(TIMEOUT);
+
+    return new Result(name, MESSAGES / (elapsed / 1e9), up / (double) MESSAGES, down / (double) MESSAGES);
+  }
+
+  private MqttCPConnection mqtt(int port, Duration batchWindow) {
+    return new MqttCPConnection(new TestMqttConfig(port, batchWindow), cpConfig(), vertx,
+        new FrameTrace(TestTraceConfig.off()));
+  }
+
+  private WebSocketCPConnection webSocket(int port) {
+    BackendConfig config = new BackendConfig();
+    config.setTransport("websocket");
+    config.setWebsocketUrl("ws://localhost:" + port + "/w3cp");
+    config.setFailoverUrls(Optional.empty());
+    config.setTrustCerts(Optional.empty());
+    config.setConnectTimeout(TIMEOUT);
+    config.setDnsTtl(Duration.ofSeconds(60));
+    config.setPingInterval(Duration.ofHours(1));
+    config.setRequestTimeout(TIMEOUT);
+    return new WebSocketCPConnection(config, vertx, new BackendEndpointSelector(config, new SimpleMeterRegistry()),
+        new FrameTrace(TestTraceConfig.off()), new ResumptionTickets(config, null),
+        new EventLoopMonitor(TestEventLoopConfig.off(), vertx, new SimpleMeterRegistry()));
+  }
+
+  private static String status() {
+    ChargePointStatus.Evse charging = new ChargePointStatus.Evse();
+    charging.setEvseId("EVSE-1");
+    charging.setStatus(ChargePointStatus.ConnectorStatus.charging);
+    charging.setMeter(1234.567);
+    charging.setPower(11000.0);
+    ChargePointStatus.LatestTransaction tx = new ChargePointStatus.LatestTransaction();
+    tx.setSessionId("tx-1");
+    tx.setTransactionState(ChargePointStatus.LatestTransaction.TransactionState.ongoing);
+    tx.setMeterStart(1200.0);
+    charging.setLatestTransaction(tx);
+
+    ChargePointStatus.Evse available = new ChargePointStatus.Evse();
+    available.setEvseId("EVSE-2");
+    available.setStatus(ChargePointStatus.ConnectorStatus.available);
+    available.setMeter(42.0);
+    available.setPower(0.0);
+
+    ChargePointStatus status = new ChargePointStatus();
+    status.setTimestamp(Instant.parse("2026-01-01T00:00:00Z"));
+    status.setConnectionType(ChargePointStatus.ConnectionType.lte);
+    status.setEvses(List.of(charging, available));
+    try {
+      return W3CPJson.MAPPER.writeValueAsString(
+          new W3CPMessage<>(W3CPMessageType.chargepointStatus, status, null, null));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+
+  /**
+   * Minimal broker: acknowledges QoS 1, counts frames per topic and answers {@code online} with a challenge.
+   */
+  private static final class Broker {
+
+    private final int port;
+    private final AtomicInteger frames = new AtomicInteger();
+    private final Map<String, AtomicInteger> publishes = new ConcurrentHashMap<>();
+    private final List<String> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<String> presence = new CopyOnWriteArrayList<>();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final io.vertx.core.Vertx vertx;
+    private volatile String clientId;
+    private volatile boolean cleanSession = true;
+    // How long CONNACK is held back
+    private volatile Duration acceptDelay = Duration.ZERO;
+
+    Broker(io.vertx.core.Vertx vertx) throws Exception {
+      this.vertx = vertx;
+      MqttServer server = MqttServer.create(vertx, new MqttServerOptions().setHost("localhost").setPort(0));
+      server.endpointHandler(this::onConnect);
+      port = server.listen().toCompletionStage().toCompletableFuture()
+          .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).actualPort();
+    }
+
+    int publishes(String topic) {
+      AtomicInteger count = publishes.get(topic);
+      return count == null ? 0 : count.get();
+    }
+
+    private void onConnect(MqttEndpoint endpoint) {
+      clientId = endpoint.clientIdentifier();
+      cleanSession = endpoint.isCleanSession();
+      endpoint.subscribeHandler(subscribe -> {
+        subscribe.topicSubscriptions().forEach(subscription -> subscriptions.add(subscription.topicName()));
+        endpoint.subscribeAcknowledge(subscribe.messageId(),
+            subscribe.topicSubscriptions().stream().map(MqttTopicSubscription::qualityOfService).toList());
+      });
+      endpoint.publishHandler(message -> onPublish(endpoint, message));
+      endpoint.closeHandler(v -> closed.incrementAndGet());
+      if (acceptDelay.isZero()) {
+        accept(endpoint);
+      } else {
+        vertx.setTimer(acceptDelay.toMillis(), id -> accept(endpoint));
+      }
+    }
+
+    private void accept(MqttEndpoint endpoint) {
+      endpoint.accept(false);
+      accepted.incrementAndGet();
+    }
+
+    private void onPublish(MqttEndpoint endpoint, MqttPublishMessage message) {
+      if (message.qosLevel() == MqttQoS.AT_LEAST_ONCE) {
+        endpoint.publishAcknowledge(message.messageId());
+      }
+      String topic = message.topicName();
+      String payload = message.payload().toString(StandardCharsets.UTF_8);
+      if (topic.endsWith("/presence")) {
+        presence.add(payload);
+        if (payload.equals("online")) {
+          endpoint.publish("w3cp/" + CP_ID + "/down/identityChallenge",
+              Buffer.buffer("{\"type\":\"identityChallenge\",\"payload\":{\"nonce\":\"n\",\"difficulty\":0}}"),
+              MqttQoS.AT_LEAST_ONCE, false, false);
+        }
+        return;
+      }
+      publishes.computeIfAbsent(topic, key -> new AtomicInteger()).incrementAndGet();
+      frames.addAndGet(topic.endsWith("/batch") ? payload.split("\n").length : 1);
+    }
+  }
+
+  /**
+   * Forwards TCP to {@code localhost:targetPort}, counting bytes in each direction.
+   */
+  private static final class CountingProxy {
+
+    private final AtomicLong up = new AtomicLong();
+    private final AtomicLong down = new AtomicLong();
+    private final int port;
+
+    CountingProxy(io.vertx.core.Vertx vertx, int targetPort) throws Exception {
+      NetClient client = vertx.createNetClient();
+      NetServer server = vertx.createNetServer().connectHandler(socket -> {
+        socket.pause();
+        client.connect(targetPort, "localhost")
+            .onSuccess(target -> {
+              socket.handler(buffer -> {
+                up.addAndGet(buffer.length());
+                target.write(buffer);
+              });
+              target.handler(buffer -> {
+                down.addAndGet(buffer.length());
+                socket.write(buffer);
+              });
+              socket.closeHandler(v -> target.close());
+              target.closeHandler(v -> socket.close());
+              socket.resume();
+            })
+            .onFailure(e -> socket.close());
+      });
+      port = server.listen(0, "localhost").toCompletionStage().toCompletableFuture()
+          .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).actualPort();
+    }
+
+    void reset() {
+      up.set(0);
+      down.set(0);
+    }
+  }
+
+  private record TestMqttConfig(int port, Duration batchWindow, Duration connectTimeout) implements MqttConfig {
+
+    TestMqttConfig(int port, Duration batchWindow) {
+      this(port, batchWindow, TIMEOUT);
+    }
+
+    @Override
+    public String host() {
+      return "localhost";
+    }
+
+    @Override
+    public boolean ssl() {
+      return false;
+    }
+
+    @Override
+    public Optional<String> clientId() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> username() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> password() {
+      return Optional.empty();
+    }
+
+    @Override
+    public String topicPrefix() {
+      return "w3cp";
+    }
+
+    @Override
+    public int qos() {
+      return 1;
+    }
+
+    @Override
+    public boolean cleanSession() {
+      return false;
+    }
+
+    @Override
+    public Duration keepAlive() {
+      return Duration.ofSeconds(30);
+    }
+
+    @Override
+    public int maxInflight() {
+      return 64;
+    }
+
+    @Override
+    public int batchMaxBytes() {
+      return 16_384;
+    }
+  }
+
+  private static CpConfig cpConfig() {
+    return new CpConfig() {
+      @Override
+      public String cpId() {
+        return CP_ID;
+      }
+
+      @Override
+      public String identityType() {
+        return "publicKey";
+      }
+
+      @Override
+      public List<EvseConfig> evses() {
+        return List.of();
+      }
+
+      @Override
+      public StatusConfig status() {
+        return null;
+      }
+    };
+  }
+}
@@ -0,0 +1,223 @@
+package w3cp.site;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.CPConnection;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.StripedExecutor;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.site.SiteConfig;
+import w3cp.cp.site.SitePowerManager;
+import w3cp.model.ChargePointStatus;
+import w3cp.state.TestCpConfig;
+
+import java.lang.annotation.Annotation;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link SitePowerManager} fed by {@link CPState} EVSE changes, with the fired events recorded.
+ */
+public class SitePowerManagerTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private final List<SitePowerManager.LimitsChanged> fired = new CopyOnWriteArrayList<>();
+  // Latest published limit per EVSE
+  private final Map<String, Double> published = new ConcurrentHashMap<>();
+  private Vertx vertx;
+  private StripedExecutor executor;
+  private CPState state;
+  private SitePowerManager manager;
+
+  @BeforeEach
+  void start() {
+    vertx = Vertx.vertx();
+    executor = new StripedExecutor(4);
+    state = new CPState(new NoopConnection(), TestCpConfig.of(3, 65_536), executor);
+    manager = new SitePowerManager(new TestSiteConfig(), state, vertx, new RecordingEvent());
+    manager.init();
+  }
+
+  @AfterEach
+  void stop() {
+    manager.shutdown();
+    executor.close();
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  public void testChargingEvsesShareTheSiteLimit() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      charging(i, true);
+    }
+
+    awaitLimits(10_000, 10_000, 10_000);
+    assertFalse(fired.getLast().overloaded());
+    assertEquals(30_000, fired.getLast().siteLimitW());
+  }
+
+  @Test
+  public void testStoppedEvseHandsItsShareToTheOthers() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      charging(i, true);
+    }
+    awaitLimits(10_000, 10_000, 10_000);
+
+    charging(2, false);
+
+    awaitLimits(15_000, 15_000, 0);
+    assertEquals(0.0, manager.limitOf(TestCpConfig.evseId(2)));
+  }
+
+  @Test
+  public void testLowerSiteLimitIsPublished() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      charging(i, true);
+    }
+    awaitLimits(10_000, 10_000, 10_000);
+
+    manager.setSiteLimit(9_000);
+
+    // Below the summed minimums every EVSE keeps its minimum and the site is reported overloaded
+    awaitLimits(4_000, 4_000, 4_000);
+    assertTrue(fired.getLast().overloaded());
+    assertEquals(9_000, fired.getLast().siteLimitW());
+  }
+
+  private void charging(int evse, boolean charging) {
+    String id = TestCpConfig.evseId(evse);
+    ChargePointStatus.Evse status = DummyStaticFeeder.generate(id);
+    if (!charging) {
+      status.setStatus(ChargePointStatus.ConnectorStatus.available);
+    }
+    state.evseFullUpdate(id, status, false).await().atMost(TIMEOUT);
+  }
+
+  private void awaitLimits(double... limits) throws InterruptedException {
+    awaitUntil(() -> {
+      for (int i = 0; i < limits.length; i++) {
+        Double limit = published.get(TestCpConfig.evseId(i));
+        if (limit == null || Math.abs(limit - limits[i]) > 1e-6) {
+          return false;
+        }
+      }
+      return true;
+    });
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+
+  private final class RecordingEvent implements Event<SitePowerManager.LimitsChanged> {
+
+    @Override
+    public void fire(SitePowerManager.LimitsChanged event) {
+      fired.add(event);
+      published.putAll(event.limitsW());
+    }
+
+    @Override
+    public <U extends SitePowerManager.LimitsChanged> CompletionStage<U> fireAsync(U event) {
+      fire(event);
+      return CompletableFuture.completedFuture(event);
+    }
+
+    @Override
+    public <U extends SitePowerManager.LimitsChanged> CompletionStage<U> fireAsync(U event,
+                                                                                   NotificationOptions options) {
+      return fireAsync(event);
+    }
+
+    @Override
+    public Event<SitePowerManager.LimitsChanged> select(Annotation... qualifiers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <U extends SitePowerManager.LimitsChanged> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <U extends SitePowerManager.LimitsChanged> Event<U> select(TypeLiteral<U> subtype,
+                                                                      Annotation... qualifiers) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static final class TestSiteConfig implements SiteConfig {
+
+    @Override
+    public boolean enabled() {
+      return true;
+    }
+
+    @Override
+    public double powerLimitW() {
+      return 30_000;
+    }
+
+    @Override
+    public double evseMinPowerW() {
+      return 4_000;
+    }
+
+    @Override
+    public double evseMaxPowerW() {
+      return 22_000;
+    }
+
+    @Override
+    public double demandHeadroom() {
+      return 0;
+    }
+
+    @Override
+    public Duration publishInterval() {
+      return Duration.ofMillis(20);
+    }
+
+    @Override
+    public double hysteresis() {
+      return 50;
+    }
+  }
+
+  private static class NoopConnection implements CPConnection {
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package w3cp.site;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import w3cp.benchmark.Latencies;
+import w3cp.cp.site.WaterFillingAllocator;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaterFillingAllocatorTest {
+
+  @Test
+  public void testFairShareWithBounds() {
+    WaterFillingAllocator allocator = new WaterFillingAllocator(30_000);
+    allocator.update("small", true, 1_000, 3_000);
+    allocator.update("a", true, 4_000, 22_000);
+    allocator.update("b", true, 4_000, 22_000);
+    allocator.update("idle", false, 4_000, 22_000);
+
+    assertEquals(3_000, allocator.allocation("small"), 1e-9);
+    assertEquals(13_500, allocator.allocation("a"), 1e-9);
+    assertEquals(13_500, allocator.allocation("b"), 1e-9);
+    assertEquals(0, allocator.allocation("idle"));
+    assertEquals(30_000, allocator.allocated(), 1e-6);
+
+    allocator.remove("b");
+    assertEquals(22_000, allocator.allocation("a"), 1e-9);
+    assertEquals(25_000, allocator.allocated(), 1e-6);
+  }
+
+  @Test
+  public void testOverloadGivesEveryoneTheirMinimum() {
+    WaterFillingAllocator allocator = new WaterFillingAllocator(5_000);
+    allocator.update("a", true, 4_000, 22_000);
+    allocator.update("b", true, 4_000, 22_000);
+
+    assertTrue(allocator.isOverloaded());
+    assertEquals(4_000, allocator.allocation("a"), 1e-9);
+
+    allocator.setSiteLimit(10_000);
+    assertFalse(allocator.isOverloaded());
+    assertEquals(5_000, allocator.allocation("b"), 1e-9);
+  }
+
+  @Test
+  public void testIncrementalMatchesFullRecomputation() {
+    int evses = 64;
+    SplittableRandom random = new SplittableRandom(11);
+    double[] min = new double[evses];
+    double[] max = new double[evses];
+    boolean[] active = new boolean[evses];
+    double limit = 150_000;
+    WaterFillingAllocator allocator = new WaterFillingAllocator(limit);
+
+    for (int step = 0; step < 50_000; step++) {
+      if (step % 2_000 == 0) {
+        limit = 20_000 + random.nextDouble(400_000);
+        allocator.setSiteLimit(limit);
+      }
+      int i = random.nextInt(evses);
+      active[i] = random.nextInt(10) > 0;
+      min[i] = random.nextInt(3) == 0 ? 0 : 1_000 + random.nextDouble(5_000);
+      max[i] = random.nextInt(20) == 0 ? min[i] : min[i] + random.nextDouble(20_000);
+      allocator.update("e" + i, active[i], min[i], max[i]);
+
+      if (step % 101 == 0) {
+        double[] expected = reference(limit, min, max, active);
+        for (int e = 0; e < evses; e++) {
+          assertEquals(expected[e], allocator.allocation("e" + e), 1e-4, "EVSE " + e + " at step " + step);
+        }
+      }
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testUpdateLatencyAtDepotScale(TestReporter reporter) {
+    int evses = 2_000;
+    int updates = 200_000;
+    SplittableRandom random = new SplittableRandom(5);
+    WaterFillingAllocator allocator = new WaterFillingAllocator(evses * 8_000.0);
+    for (int i = 0; i < evses; i++) {
+      allocator.update("EVSE-" + i, true, 4_140, 22_080);
+    }
+
+    long[] latencies = new long[updates];
+    long start = System.nanoTime();
+    for (int u = 0; u < updates; u++) {
+      String evseId = "EVSE-" + random.nextInt(evses);
+      boolean charging = random.nextInt(50) > 0;
+      double demand = 4_140 + random.nextDouble(17_940);
+      long t = System.nanoTime();
+      allocator.update(evseId, charging, 4_140, demand);
+      latencies[u] = System.nanoTime() - t;
+    }
+    long elapsed = System.nanoTime() - start;
+
+    reporter.publishEntry("updates/s over " + evses + " EVSEs", "%.0f".formatted(updates / (elapsed / 1e9)));
+    reporter.publishEntry("update latency", Latencies.summary(latencies));
+  }
+
+  /**
+   * Water level by bisection over all EVSEs.
+   */
+  private static double[] reference(double limit, double[] min, double[] max, boolean[] active) {
+    double sumMin = 0;
+    double sumMax = 0;
+    for (int i = 0; i < min.length; i++) {
+      if (active[i]) {
+        sumMin += min[i];
+        sumMax += max[i];
+      }
+    }
+    double level;
+    if (sumMin >= limit) {
+      level = Double.NEGATIVE_INFINITY;
+    } else if (sumMax <= limit) {
+      level = Double.POSITIVE_INFINITY;
+    } else {
+      double lo = 0;
+      double hi = limit;
+      for (int iteration = 0; iteration < 200; iteration++) {
+        double mid = (lo + hi) / 2;
+        double sum = 0;
+        for (int i = 0; i < min.length; i++) {
+          if (active[i]) {
+            sum += Math.min(max[i], Math.max(min[i], mid));
+          }
+        }
+        if (sum < limit) {
+          lo = mid;
+        } else {
+          hi = mid;
+        }
+      }
+      level = (lo + hi) / 2;
+    }
+    double[] allocation = new double[min.length];
+    for (int i = 0; i < min.length; i++) {
+      allocation[i] = active[i] ? Math.min(max[i], Math.max(min[i], level)) : 0;
+    }
+    return allocation;
+  }
+}
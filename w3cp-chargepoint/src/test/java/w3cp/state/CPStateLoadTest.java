@@ -0,0 +1,170 @@
+package w3cp.state;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.CpConfig;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.StripedExecutor;
+import w3cp.model.ChargePointStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many EVSEs updating at a high rate: per-EVSE order must hold and every update must land, while EVSEs on
+ * different lanes are not held up by each other and a failing update fails only its own {@link Uni}.
+ */
+public class CPStateLoadTest {
+
+  private static final int EVSES = 256;
+  private static final int UPDATES_PER_EVSE = 400;
+  private static final int WORK_PER_UPDATE = 20_000;
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @Test
+  public void testPerEvseOrderHoldsUnderLoad() throws Exception {
+    Result result = run(Runtime.getRuntime().availableProcessors() * 2);
+
+    assertEquals(0, result.orderViolations, "updates for one EVSE ran out of order");
+    assertEquals(0, result.missing, "updates were lost");
+  }
+
+  @Test
+  public void testBlockedEvseDoesNotHoldUpOtherLanes() throws Exception {
+    try (StripedExecutor executor = new StripedExecutor(EVSES)) {
+      CPState state = new CPState(new NoopConnection(), TestCpConfig.of(EVSES, 65536), executor);
+      CountDownLatch othersRan = new CountDownLatch(1);
+
+      // EVSE-0 only finishes once an update of some other EVSE has run; a single lane would never get there
+      List<Uni<Void>> updates = new ArrayList<>();
+      updates.add(state.updateEvse(TestCpConfig.evseId(0), e -> await(othersRan), false));
+      for (int evse = 1; evse < EVSES; evse++) {
+        updates.add(state.updateEvse(TestCpConfig.evseId(evse), e -> othersRan.countDown(), false));
+      }
+
+      Uni.join().all(updates).andFailFast().await().atMost(TIMEOUT);
+    }
+  }
+
+  @Test
+  public void testFailingUpdateFailsItsUniAndLeavesLaneUsable() throws Exception {
+    try (StripedExecutor executor = new StripedExecutor(1)) {
+      CPState state = new CPState(new NoopConnection(), TestCpConfig.of(1, 65536), executor);
+      String id = TestCpConfig.evseId(0);
+      // An EVSE list that cannot be written to makes the replacement itself throw
+      ChargePointStatus.Evse evse = new ChargePointStatus.Evse();
+      evse.setEvseId(id);
+      ChargePointStatus status = new ChargePointStatus();
+      status.setEvses(List.of(evse));
+      state.updateStatus(status, false);
+
+      assertThrows(UnsupportedOperationException.class,
+          () -> state.evseFullUpdate(id, new ChargePointStatus.Evse(), false).await().atMost(TIMEOUT));
+      assertThrows(IllegalStateException.class, () -> state.updateEvse(id, e -> {
+        throw new IllegalStateException("patch failed");
+      }, false).await().atMost(TIMEOUT));
+
+      state.updateEvse(id, e -> e.setMeter(2.0), false).await().atMost(TIMEOUT);
+      assertEquals(2.0, state.readConsistent(current -> current.getEvses().getFirst().getMeter()));
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testThroughputScalesWithCores(TestReporter reporter) throws Exception {
+    int cores = Runtime.getRuntime().availableProcessors();
+
+    run(1);  // warm-up
+    Result single = run(1);
+    Result striped = run(cores * 2);
+
+    reporter.publishEntry("single lane updates/s", "%.0f".formatted(single.updatesPerSecond));
+    reporter.publishEntry(cores * 2 + " lanes updates/s", "%.0f".formatted(striped.updatesPerSecond));
+    assertEquals(0, single.orderViolations + single.missing);
+    assertEquals(0, striped.orderViolations + striped.missing);
+  }
+
+  private Result run(int stripes) throws Exception {
+    CpConfig config = TestCpConfig.of(EVSES, 65536);
+    StripedExecutor executor = new StripedExecutor(stripes);
+    CPState state = new CPState(new NoopConnection(), config, executor);
+
+    int[] nextExpected = new int[EVSES];
+    AtomicInteger violations = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(EVSES * UPDATES_PER_EVSE);
+
+    long start = System.nanoTime();
+    for (int seq = 0; seq < UPDATES_PER_EVSE; seq++) {
+      for (int evse = 0; evse < EVSES; evse++) {
+        int evseNo = evse;
+        int expected = seq;
+        state.updateEvse(TestCpConfig.evseId(evse), e -> {
+          if (nextExpected[evseNo] != expected) {
+            violations.incrementAndGet();
+          }
+          nextExpected[evseNo] = expected + 1;
+          simulateWork();
+        }, false).subscribe().with(unused -> done.countDown(), failure -> fail(failure));
+      }
+    }
+
+    assertTrue(done.await(120, TimeUnit.SECONDS), "updates did not finish");
+    long elapsed = System.nanoTime() - start;
+    executor.close();
+
+    int missing = 0;
+    for (int evse = 0; evse < EVSES; evse++) {
+      missing += UPDATES_PER_EVSE - nextExpected[evse];
+    }
+    return new Result(violations.get(), missing, EVSES * UPDATES_PER_EVSE / (elapsed / 1e9));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS), "other lanes did not run");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AssertionError(e);
+    }
+  }
+
+  private static long sink;
+
+  private static void simulateWork() {
+    long x = sink;
+    for (int i = 0; i < WORK_PER_UPDATE; i++) {
+      x = x * 6364136223846793005L + 1442695040888963407L;
+    }
+    sink = x;
+  }
+
+  private record Result(int orderViolations, int missing, double updatesPerSecond) {
+  }
+
+  private static class NoopConnection implements CPConnection {
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package w3cp.state;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.CPConnection;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.StripedExecutor;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.model.ChargePointStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CPStatePaginationTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+  private final List<Boolean> sentOnLane = new CopyOnWriteArrayList<>();
+  private volatile Executor completions;
+  private volatile Runnable beforeSend;
+
+  @Test
+  public void testLargeStatusIsSplitIntoBoundedPages() {
+    int evses = 500;
+    int maxPageBytes = 8_192;
+
+    try (StripedExecutor executor = new StripedExecutor(4)) {
+      CPState state = populatedState(evses, maxPageBytes, executor);
+      state.sendCurrentStatus().await().atMost(TIMEOUT);
+    }
+
+    assertTrue(sent.size() > 1, "status should have been paginated");
+
+    List<String> evseIds = new ArrayList<>();
+    long sequence = -1;
+    for (int i = 0; i < sent.size(); i++) {
+      String frame = sent.get(i);
+      assertTrue(frame.getBytes(StandardCharsets.UTF_8).length <= maxPageBytes, "page " + i + " exceeds the limit");
+
+      JsonObject json = new JsonObject(frame);
+      assertEquals("chargepointStatus", json.getString("type"));
+      assertEquals(i, json.getInteger("page"));
+      assertEquals(sent.size(), json.getInteger("pageCount"));
+      if (sequence == -1) {
+        sequence = json.getLong("statusSequence");
+      }
+      assertEquals(sequence, json.getLong("statusSequence"));
+
+      JsonArray pageEvses = json.getJsonObject("payload").getJsonArray("evses");
+      for (int e = 0; e < pageEvses.size(); e++) {
+        evseIds.add(pageEvses.getJsonObject(e).getString("evseId"));
+      }
+    }
+
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < evses; i++) {
+      expected.add(TestCpConfig.evseId(i));
+    }
+    assertEquals(expected, evseIds, "pages must reassemble to the full EVSE list in order");
+  }
+
+  @Test
+  public void testSmallStatusIsSentUnpaged() {
+    try (StripedExecutor executor = new StripedExecutor(4)) {
+      CPState state = populatedState(2, 65_536, executor);
+      state.sendCurrentStatus().await().atMost(TIMEOUT);
+    }
+
+    assertEquals(1, sent.size());
+    JsonObject json = new JsonObject(sent.getFirst());
+    assertFalse(json.containsKey("pageCount"));
+    assertFalse(json.containsKey("statusSequence"));
+    assertEquals(2, json.getJsonObject("payload").getJsonArray("evses").size());
+  }
+
+  @Test
+  public void testOmittedEvseFieldsAreLeftOutOfEveryPage() {
+    try (StripedExecutor executor = new StripedExecutor(4)) {
+      CPState state = populatedState(200, 8_192, executor);
+      state.setOmittedEvseFields(Set.of("thermalInfo", "vehicleState"));
+      state.sendCurrentStatus().await().atMost(TIMEOUT);
+    }
+
+    int evses = 0;
+    for (String frame : sent) {
+      assertTrue(frame.getBytes(StandardCharsets.UTF_8).length <= 8_192);
+      JsonArray pageEvses = new JsonObject(frame).getJsonObject("payload").getJsonArray("evses");
+      for (int e = 0; e < pageEvses.size(); e++) {
+        JsonObject evse = pageEvses.getJsonObject(e);
+        assertFalse(evse.containsKey("thermalInfo"));
+        assertFalse(evse.containsKey("vehicleState"));
+        assertTrue(evse.containsKey("latestTransaction"));
+        evses++;
+      }
+    }
+    assertEquals(200, evses);
+  }
+
+  @Test
+  public void testLaterPagesAreRenderedOnTheStatusLane() throws Exception {
+    ExecutorService io = Executors.newSingleThreadExecutor();
+    completions = io;
+    try (StripedExecutor executor = new StripedExecutor(4)) {
+      CPState state = populatedState(200, 8_192, executor);
+      state.sendCurrentStatus().await().atMost(TIMEOUT);
+    } finally {
+      io.shutdown();
+    }
+
+    assertTrue(sent.size() > 1);
+    // Sends complete on the io thread; every page must still be rendered and sent from the status lane
+    assertEquals(List.of(true), sentOnLane.stream().distinct().toList());
+  }
+
+  @Test
+  public void testPageThatOutgrewItsPlanIsPlannedAgain() {
+    int maxPageBytes = 8_192;
+    try (StripedExecutor executor = new StripedExecutor(4)) {
+      CPState state = populatedState(100, maxPageBytes, executor);
+      List<ChargePointStatus.Evse> evses = state.readConsistent(status -> List.copyOf(status.getEvses()));
+      // Once the first page is out, the EVSEs of all later pages grow well beyond what was planned for them. This
+      // runs on the status lane right before the next page is rendered there, like an update that got in between.
+      beforeSend = () -> {
+        if (sent.isEmpty()) {
+          evses.subList(50, 100).forEach(evse -> evse.getVehicleState().setVehicleBrand("x".repeat(2_000)));
+        }
+      };
+      state.sendCurrentStatus().await().atMost(TIMEOUT);
+    }
+
+    Map<Long, List<JsonObject>> bySequence = new LinkedHashMap<>();
+    for (String frame : sent) {
+      assertTrue(frame.getBytes(StandardCharsets.UTF_8).length <= maxPageBytes, "a page exceeds the limit");
+      JsonObject json = new JsonObject(frame);
+      bySequence.computeIfAbsent(json.getLong("statusSequence"), k -> new ArrayList<>()).add(json);
+    }
+    assertEquals(2, bySequence.size(), "the status should have been planned once more");
+
+    List<JsonObject> complete = bySequence.values().stream().toList().getLast();
+    List<String> evseIds = new ArrayList<>();
+    for (JsonObject page : complete) {
+      assertEquals(complete.size(), page.getInteger("pageCount"));
+      JsonArray pageEvses = page.getJsonObject("payload").getJsonArray("evses");
+      for (int e = 0; e < pageEvses.size(); e++) {
+        evseIds.add(pageEvses.getJsonObject(e).getString("evseId"));
+      }
+    }
+    assertEquals(100, evseIds.size());
+    assertEquals(TestCpConfig.evseId(99), evseIds.getLast());
+  }
+
+  private CPState populatedState(int evses, int maxPageBytes, StripedExecutor executor) {
+    CPState state = new CPState(new RecordingConnection(), TestCpConfig.of(evses, maxPageBytes), executor);
+    for (int i = 0; i < evses; i++) {
+      String id = TestCpConfig.evseId(i);
+      state.evseFullUpdate(id, DummyStaticFeeder.generate(id), false).await().atMost(TIMEOUT);
+    }
+    return state;
+  }
+
+  private class RecordingConnection implements CPConnection {
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      if (beforeSend != null) {
+        beforeSend.run();
+      }
+      sentOnLane.add(Thread.currentThread().isVirtual());
+      sent.add(message);
+      Executor executor = completions;
+      return executor == null ? Uni.createFrom().voidItem() : Uni.createFrom().voidItem().emitOn(executor);
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
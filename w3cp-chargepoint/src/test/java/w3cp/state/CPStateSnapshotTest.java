@@ -0,0 +1,111 @@
+package w3cp.state;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import w3cp.cp.CPConnection;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.StripedExecutor;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.snapshot.StateSnapshotFile;
+import w3cp.model.ChargePointStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CPStateSnapshotTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testSnapshotRestoresTransactionsAndMeters() throws Exception {
+    Path file = dir.resolve("cp-state.snapshot");
+    Instant takenAt = Instant.ofEpochMilli(System.currentTimeMillis());
+
+    try (StripedExecutor executor = new StripedExecutor(2)) {
+      CPState state = new CPState(new NoopConnection(), TestCpConfig.of(3, 65_536), executor);
+      for (int i = 0; i < 2; i++) {
+        String id = TestCpConfig.evseId(i);
+        ChargePointStatus.Evse evse = DummyStaticFeeder.generate(id);
+        evse.setMeter(100.0 + i);
+        state.evseFullUpdate(id, evse, false).await().atMost(TIMEOUT);
+      }
+      byte[] payload = state.readConsistent(status -> {
+        try {
+          return StateSnapshotFile.encode(status);
+        } catch (IOException e) {
+          throw new AssertionError(e);
+        }
+      });
+      StateSnapshotFile.write(file, takenAt, payload);
+    }
+
+    Optional<StateSnapshotFile.Snapshot> snapshot = StateSnapshotFile.read(file);
+    assertTrue(snapshot.isPresent());
+    assertEquals(takenAt, snapshot.get().takenAt());
+
+    try (StripedExecutor executor = new StripedExecutor(2)) {
+      // One EVSE fewer than before: the dropped one must not come back
+      CPState restarted = new CPState(new NoopConnection(), TestCpConfig.of(2, 65_536), executor);
+      assertEquals(2, restarted.restore(snapshot.get().status()));
+
+      ChargePointStatus status = restarted.getCurrentStatus();
+      assertEquals(2, status.getEvses().size());
+      for (int i = 0; i < 2; i++) {
+        ChargePointStatus.Evse evse = status.getEvses().get(i);
+        assertEquals(TestCpConfig.evseId(i), evse.getEvseId());
+        assertEquals(100.0 + i, evse.getMeter());
+        assertEquals("tx-123456", evse.getLatestTransaction().getSessionId());
+        assertEquals(ChargePointStatus.LatestTransaction.TransactionState.ongoing,
+            evse.getLatestTransaction().getTransactionState());
+      }
+    }
+  }
+
+  @Test
+  public void testCorruptSnapshotIsRejected() throws Exception {
+    Path file = dir.resolve("cp-state.snapshot");
+    ChargePointStatus status = new ChargePointStatus();
+    status.setEvses(List.of(DummyStaticFeeder.generate("EVSE-0")));
+    StateSnapshotFile.write(file, Instant.now(), StateSnapshotFile.encode(status));
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer last = ByteBuffer.allocate(1);
+      channel.read(last, channel.size() - 1);
+      last.put(0, (byte) ~last.get(0));
+      channel.write(last.rewind(), channel.size() - 1);
+    }
+    assertThrows(IOException.class, () -> StateSnapshotFile.read(file));
+    assertTrue(StateSnapshotFile.read(dir.resolve("missing")).isEmpty());
+  }
+
+  private static class NoopConnection implements CPConnection {
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package w3cp.state;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.util.FrameEncoder;
+import w3cp.cp.util.PlannedJsonWriter;
+import w3cp.model.ChargePointStatus;
+import w3cp.model.W3CPMessage;
+import w3cp.model.W3CPMessageType;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class PlannedStatusWriterTest {
+
+  private static final int ROUNDS = 2_000;
+
+  @Test
+  public void testShortestFormMatchesJackson() throws Exception {
+    W3CPMessage<ChargePointStatus> message = message(20);
+    PlannedJsonWriter planned = new PlannedJsonWriter(W3CPJson.MAPPER.writer(), -1, Map.of());
+
+    for (Class<?> type : List.of(W3CPMessage.class, ChargePointStatus.class, ChargePointStatus.Evse.class,
+        ChargePointStatus.LatestTransaction.class)) {
+      assertNull(planned.unplannedReason(type), type.getSimpleName());
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    planned.write(out, message);
+    assertEquals(W3CPJson.MAPPER.writeValueAsString(message), out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testFixedPrecisionRoundsDecimals() throws Exception {
+    W3CPMessage<ChargePointStatus> message = message(20);
+    ChargePointStatus.Evse first = message.getPayload().getEvses().getFirst();
+    first.setMeter(1234.56789);
+    PlannedJsonWriter planned = new PlannedJsonWriter(W3CPJson.MAPPER.writer(), 3, Map.of());
+    assertTrue(planned.matchesJackson(message));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    planned.write(out, message);
+    String json = out.toString(StandardCharsets.UTF_8);
+    assertTrue(json.length() <= W3CPJson.MAPPER.writeValueAsString(message).length());
+
+    JsonNode evses = W3CPJson.MAPPER.readTree(json).path("payload").path("evses");
+    assertEquals(20, evses.size());
+    assertEquals("1234.568", evses.get(0).path("meter").asText());
+    for (int i = 0; i < evses.size(); i++) {
+      double expected = message.getPayload().getEvses().get(i).getMeter();
+      assertEquals(expected, evses.get(i).path("meter").asDouble(), 0.0005);
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testPlannedWriterFasterAndLeanerThanJackson(TestReporter reporter) throws Exception {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    W3CPMessage<ChargePointStatus> message = message(50);
+    FrameEncoder encoder = new FrameEncoder(W3CPJson.MAPPER.writer());
+    PlannedJsonWriter planned = new PlannedJsonWriter(W3CPJson.MAPPER.writer(), 3, Map.of());
+    long threadId = Thread.currentThread().threadId();
+
+    long sink = 0;
+    for (int warm = 0; warm < 3; warm++) {
+      long before = threads.getThreadAllocatedBytes(threadId);
+      long start = System.nanoTime();
+      for (int i = 0; i < ROUNDS; i++) {
+        ByteBuf frame = encoder.encode(message);
+        sink += frame.readableBytes();
+        frame.release();
+      }
+      long jacksonNanos = System.nanoTime() - start;
+      long jacksonBytes = (threads.getThreadAllocatedBytes(threadId) - before) / ROUNDS;
+
+      before = threads.getThreadAllocatedBytes(threadId);
+      start = System.nanoTime();
+      for (int i = 0; i < ROUNDS; i++) {
+        ByteBuf frame = encoder.encodeWith(out -> planned.write(out, message));
+        sink += frame.readableBytes();
+        frame.release();
+      }
+      long plannedNanos = System.nanoTime() - start;
+      long plannedBytes = (threads.getThreadAllocatedBytes(threadId) - before) / ROUNDS;
+
+      if (warm == 2) {
+        reporter.publishEntry("status frames/s", "%.0f via Jackson, %.0f planned"
+            .formatted(ROUNDS * 1e9 / jacksonNanos, ROUNDS * 1e9 / plannedNanos));
+        reporter.publishEntry("heap bytes per status frame", "%d via Jackson, %d planned (sink %d)"
+            .formatted(jacksonBytes, plannedBytes, sink));
+        assertTrue(plannedBytes < jacksonBytes,
+            "planned writer should allocate less, was " + plannedBytes + " vs " + jacksonBytes);
+      }
+    }
+  }
+
+  private static W3CPMessage<ChargePointStatus> message(int evses) {
+    List<ChargePointStatus.Evse> list = new ArrayList<>();
+    for (int i = 0; i < evses; i++) {
+      list.add(DummyStaticFeeder.generate(TestCpConfig.evseId(i)));
+    }
+    ChargePointStatus status = new ChargePointStatus();
+    status.setEvses(list);
+    status.setTimestamp(Instant.now());
+    return new W3CPMessage<>(W3CPMessageType.chargepointStatus, status, null, null);
+  }
+}
@@ -0,0 +1,88 @@
+package w3cp.state;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.util.FrameEncoder;
+import w3cp.model.ChargePointStatus;
+import w3cp.model.W3CPMessage;
+import w3cp.model.W3CPMessageType;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class StatusFrameAllocationTest {
+
+  private static final int ROUNDS = 2_000;
+
+  @Test
+  public void testPooledFrameMatchesStringFrame() throws Exception {
+    W3CPMessage<ChargePointStatus> message = message(20);
+    FrameEncoder encoder = new FrameEncoder(W3CPJson.MAPPER.writer());
+
+    ByteBuf frame = encoder.encode(message);
+    try {
+      assertTrue(frame.isDirect());
+      assertEquals(W3CPJson.MAPPER.writeValueAsString(message), frame.toString(StandardCharsets.UTF_8));
+    } finally {
+      frame.release();
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void testPooledFrameAllocatesLessPerStatus(TestReporter reporter) throws Exception {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    W3CPMessage<ChargePointStatus> message = message(50);
+    FrameEncoder encoder = new FrameEncoder(W3CPJson.MAPPER.writer());
+    long threadId = Thread.currentThread().threadId();
+
+    // Previous path: String, then its UTF-8 bytes for the frame
+    long sink = 0;
+    for (int warm = 0; warm < 2; warm++) {
+      long before = threads.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < ROUNDS; i++) {
+        sink += W3CPJson.MAPPER.writeValueAsString(message).getBytes(StandardCharsets.UTF_8).length;
+      }
+      long stringBytes = (threads.getThreadAllocatedBytes(threadId) - before) / ROUNDS;
+
+      before = threads.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < ROUNDS; i++) {
+        ByteBuf frame = encoder.encode(message);
+        sink += frame.readableBytes();
+        frame.release();
+      }
+      long pooledBytes = (threads.getThreadAllocatedBytes(threadId) - before) / ROUNDS;
+
+      if (warm == 1) {
+        reporter.publishEntry("heap bytes per status frame", String.format("%d via String, %d via pooled buffer"
+            + " (frame %d bytes)", stringBytes, pooledBytes, sink / (4L * ROUNDS)));
+        assertTrue(pooledBytes * 2 < stringBytes,
+            "pooled path should allocate well under half, was " + pooledBytes + " vs " + stringBytes);
+      }
+    }
+  }
+
+  private static W3CPMessage<ChargePointStatus> message(int evses) {
+    List<ChargePointStatus.Evse> list = new ArrayList<>();
+    for (int i = 0; i < evses; i++) {
+      list.add(DummyStaticFeeder.generate(TestCpConfig.evseId(i)));
+    }
+    ChargePointStatus status = new ChargePointStatus();
+    status.setEvses(list);
+    status.setTimestamp(Instant.now());
+    return new W3CPMessage<>(W3CPMessageType.chargepointStatus, status, null, null);
+  }
+}
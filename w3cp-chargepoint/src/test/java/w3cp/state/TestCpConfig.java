@@ -0,0 +1,74 @@
+package w3cp.state;
+
+import w3cp.cp.config.CpConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link CpConfig} for tests that run without Quarkus.
+ */
+public final class TestCpConfig {
+
+  private TestCpConfig() {
+  }
+
+  public static String evseId(int i) {
+    return "EVSE-" + i;
+  }
+
+  public static CpConfig of(int evses, int maxPageBytes) {
+    List<CpConfig.EvseConfig> evseConfigs = new ArrayList<>();
+    for (int i = 0; i < evses; i++) {
+      String id = evseId(i);
+      evseConfigs.add(new CpConfig.EvseConfig() {
+        @Override
+        public String evseId() {
+          return id;
+        }
+
+        @Override
+        public CpConfig.FeederConfig feeder() {
+          return null;
+        }
+      });
+    }
+
+    return new CpConfig() {
+      @Override
+      public String cpId() {
+        return "cp-state-test";
+      }
+
+      @Override
+      public String identityType() {
+        return "bare-key";
+      }
+
+      @Override
+      public List<EvseConfig> evses() {
+        return evseConfigs;
+      }
+
+      @Override
+      public StatusConfig status() {
+        return new StatusConfig() {
+          @Override
+          public int maxPageBytes() {
+            return maxPageBytes;
+          }
+
+          @Override
+          public boolean plannedWriter() {
+            return true;
+          }
+
+          @Override
+          public int fractionDigits() {
+            return -1;
+          }
+        };
+      }
+    };
+  }
+}
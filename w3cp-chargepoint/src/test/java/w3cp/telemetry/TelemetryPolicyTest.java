@@ -0,0 +1,209 @@
+package w3cp.telemetry;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.BackendTransport;
+import w3cp.cp.config.error.W3CPChargepointException;
+import w3cp.cp.logic.state.CPState;
+import w3cp.cp.logic.state.StripedExecutor;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.telemetry.TelemetryConfig;
+import w3cp.cp.telemetry.TelemetryPolicy;
+import w3cp.model.ChargePointStatus;
+import w3cp.state.TestCpConfig;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TelemetryPolicy} deciding when {@link CPState} changes go out, against a recording transport.
+ */
+public class TelemetryPolicyTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final String EVSE = TestCpConfig.evseId(0);
+
+  private final RecordingTransport transport = new RecordingTransport();
+  private Vertx vertx;
+  private StripedExecutor executor;
+  private CPState state;
+  private TelemetryPolicy policy;
+
+  @BeforeEach
+  void start() {
+    vertx = Vertx.vertx();
+    executor = new StripedExecutor(4);
+    state = new CPState(transport, TestCpConfig.of(3, 65_536), executor);
+  }
+
+  @AfterEach
+  void stop() {
+    if (policy != null) {
+      policy.shutdown();
+    }
+    executor.close();
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  public void testUnchangedEvseIsNotReportedAgain() throws Exception {
+    Duration interval = Duration.ofMillis(50);
+    startPolicy(interval);
+
+    update(ChargePointStatus.ConnectorStatus.charging);
+    awaitUntil(() -> transport.sent.get() == 1);
+    update(ChargePointStatus.ConnectorStatus.charging);
+
+    Thread.sleep(interval.multipliedBy(5).toMillis());
+    assertEquals(1, transport.attempts.get());
+  }
+
+  @Test
+  public void testFailedStatusIsNotTakenAsReported() throws Exception {
+    // Long enough that nothing below waits for a periodic status
+    startPolicy(Duration.ofSeconds(2));
+    update(ChargePointStatus.ConnectorStatus.charging);
+    awaitUntil(() -> transport.sent.get() == 1);
+
+    transport.failing = true;
+    update(ChargePointStatus.ConnectorStatus.available);
+    awaitUntil(() -> transport.attempts.get() == 2);
+    assertEquals(1, transport.sent.get());
+
+    // Still differs from what the backend last got, so it goes out right away again
+    transport.failing = false;
+    update(ChargePointStatus.ConnectorStatus.available);
+    awaitUntil(() -> transport.sent.get() == 2);
+    assertEquals(3, transport.attempts.get());
+  }
+
+  private void startPolicy(Duration interval) {
+    TelemetryConfig.ProfileConfig profile = profile(interval);
+    Map<String, TelemetryConfig.ProfileConfig> profiles = Arrays.stream(ChargePointStatus.ConnectionType.values())
+        .collect(Collectors.toMap(Enum::name, type -> profile));
+    policy = new TelemetryPolicy(new TelemetryConfig() {
+      @Override
+      public boolean enabled() {
+        return true;
+      }
+
+      @Override
+      public Map<String, ProfileConfig> profiles() {
+        return profiles;
+      }
+    }, state, transport, vertx);
+    policy.init();
+  }
+
+  private void update(ChargePointStatus.ConnectorStatus status) {
+    ChargePointStatus.Evse evse = DummyStaticFeeder.generate(EVSE);
+    evse.setStatus(status);
+    state.evseFullUpdate(EVSE, evse, false).await().atMost(TIMEOUT);
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+
+  private static TelemetryConfig.ProfileConfig profile(Duration interval) {
+    return new TelemetryConfig.ProfileConfig() {
+      @Override
+      public Optional<Duration> interval() {
+        return Optional.of(interval);
+      }
+
+      @Override
+      public Optional<Double> meterDeadbandKwh() {
+        return Optional.empty();
+      }
+
+      @Override
+      public Optional<Double> powerDeadbandW() {
+        return Optional.empty();
+      }
+
+      @Override
+      public Optional<Boolean> thermalInfo() {
+        return Optional.empty();
+      }
+
+      @Override
+      public Optional<Boolean> vehicleState() {
+        return Optional.empty();
+      }
+
+      @Override
+      public Optional<Boolean> compression() {
+        return Optional.empty();
+      }
+
+      @Override
+      public Optional<Integer> byteBudget() {
+        return Optional.of(0);
+      }
+    };
+  }
+
+  /**
+   * Counts status sends; while {@code failing} every send fails.
+   */
+  private static class RecordingTransport implements BackendTransport {
+
+    final AtomicInteger attempts = new AtomicInteger();
+    final AtomicInteger sent = new AtomicInteger();
+    volatile boolean failing;
+
+    @Override
+    public Uni<Void> connect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public void setMessageHandler(Consumer<String> handler) {
+    }
+
+    @Override
+    public void setConnectionLostHandler(Runnable handler) {
+    }
+
+    @Override
+    public long bytesSent() {
+      return 0;
+    }
+
+    @Override
+    public Uni<Void> disconnect() {
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> send(String message) {
+      attempts.incrementAndGet();
+      if (failing) {
+        return Uni.createFrom().failure(new W3CPChargepointException("link down"));
+      }
+      sent.incrementAndGet();
+      return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public boolean isConnected() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package w3cp.telemetry;
+
+import org.junit.jupiter.api.Test;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.telemetry.TelemetryProfile;
+import w3cp.model.ChargePointStatus;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TelemetryProfileTest {
+
+  private final TelemetryProfile lte = TelemetryProfile.defaults(ChargePointStatus.ConnectionType.lte);
+  private final TelemetryProfile ethernet = TelemetryProfile.defaults(ChargePointStatus.ConnectionType.ethernet);
+
+  @Test
+  public void testLteIsLeanerThanEthernet() {
+    assertTrue(lte.interval().compareTo(ethernet.interval()) > 0);
+    assertTrue(lte.meterDeadbandKwh() > ethernet.meterDeadbandKwh());
+    assertTrue(lte.powerDeadbandW() > ethernet.powerDeadbandW());
+    assertTrue(lte.compression());
+    assertEquals(Set.of("thermalInfo", "vehicleState"), lte.omittedEvseFields());
+    assertEquals(Set.of(), ethernet.omittedEvseFields());
+    assertEquals(ethernet, TelemetryProfile.defaults(null));
+    assertEquals(ethernet, TelemetryProfile.defaults(ChargePointStatus.ConnectionType.unknown));
+  }
+
+  @Test
+  public void testControlChangesAreImmediateOnEveryUplink() {
+    ChargePointStatus.Evse evse = DummyStaticFeeder.generate("EVSE-1");
+    TelemetryProfile.Reading reported = TelemetryProfile.Reading.of(evse);
+
+    evse.setStatus(ChargePointStatus.ConnectorStatus.available);
+    TelemetryProfile.Reading now = TelemetryProfile.Reading.of(evse);
+
+    assertEquals(TelemetryProfile.Urgency.immediate, lte.classify(reported, now));
+    assertEquals(TelemetryProfile.Urgency.immediate, ethernet.classify(reported, now));
+  }
+
+  @Test
+  public void testMeterAndPowerChangesRespectTheDeadband() {
+    ChargePointStatus.Evse evse = DummyStaticFeeder.generate("EVSE-1");
+    TelemetryProfile.Reading reported = TelemetryProfile.Reading.of(evse);
+
+    evse.setPower(evse.getPower() + 100);
+    evse.setMeter(evse.getMeter() + 0.05);
+    TelemetryProfile.Reading small = TelemetryProfile.Reading.of(evse);
+    assertEquals(TelemetryProfile.Urgency.none, lte.classify(reported, small));
+    assertEquals(TelemetryProfile.Urgency.periodic, ethernet.classify(reported, small));
+
+    evse.setMeter(evse.getMeter() + 0.2);
+    TelemetryProfile.Reading large = TelemetryProfile.Reading.of(evse);
+    assertEquals(TelemetryProfile.Urgency.periodic, lte.classify(reported, large));
+  }
+
+  @Test
+  public void testUnreportedEvseWaitsForThePeriodicStatus() {
+    TelemetryProfile.Reading now = TelemetryProfile.Reading.of(DummyStaticFeeder.generate("EVSE-1"));
+    assertEquals(TelemetryProfile.Urgency.periodic, lte.classify(null, now));
+  }
+}
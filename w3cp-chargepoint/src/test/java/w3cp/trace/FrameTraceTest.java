@@ -0,0 +1,153 @@
+package w3cp.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import w3cp.cp.trace.FrameTrace;
+import w3cp.cp.trace.TraceConfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameTraceTest {
+
+  private static final Duration DUMP_INTERVAL = Duration.ofHours(1);
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testKeepsNewestFramesTruncatedToSlotSize() {
+    FrameTrace trace = new FrameTrace(config(8, 16));
+    for (int i = 0; i < 20; i++) {
+      trace.record(i % 2 == 0 ? FrameTrace.Direction.in : FrameTrace.Direction.out, false,
+          "{\"type\":\"frame\",\"n\":" + i + "}");
+    }
+
+    List<FrameTrace.Frame> frames = trace.snapshot();
+    assertEquals(8, frames.size());
+    assertEquals(12, frames.getFirst().sequence());
+    assertEquals(19, frames.getLast().sequence());
+    assertEquals("{\"type\":\"frame\",", frames.getLast().head());
+    assertEquals("{\"type\":\"frame\",\"n\":19}".length(), frames.getLast().length());
+    assertEquals(FrameTrace.Direction.out, frames.getLast().direction());
+  }
+
+  @Test
+  public void testConcurrentWritersNeverProduceTornFrames() throws Exception {
+    FrameTrace trace = new FrameTrace(config(256, 64));
+    int writers = 4;
+    int framesPerWriter = 200_000;
+
+    List<Thread> threads = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      // Every frame of a writer consists of one repeated character
+      String frame = String.valueOf((char) ('a' + w)).repeat(40);
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < framesPerWriter; i++) {
+          trace.record(FrameTrace.Direction.out, false, frame);
+        }
+      }));
+    }
+
+    int checked = 0;
+    while (threads.stream().anyMatch(Thread::isAlive)) {
+      for (FrameTrace.Frame frame : trace.snapshot()) {
+        String head = frame.head();
+        assertEquals(40, head.length());
+        assertEquals(String.valueOf(head.charAt(0)).repeat(40), head, "torn frame #" + frame.sequence());
+        checked++;
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int kept = trace.snapshot().size();
+    assertTrue(kept > 0 && kept <= 256, "kept " + kept);
+    assertTrue(checked > 0);
+  }
+
+  @Test
+  public void testDumpWritesOneLinePerFrame() throws Exception {
+    FrameTrace trace = new FrameTrace(config(16, 128));
+    trace.record(FrameTrace.Direction.in, false, "{\"type\":\"identityChallenge\"}");
+    trace.record(FrameTrace.Direction.out, true, "{\"type\":\"identityProof\"}");
+
+    Path file = trace.dump("test");
+
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(3, lines.size());
+    assertTrue(lines.get(1).contains("\tin\tactive\t") && lines.get(1).endsWith("{\"type\":\"identityChallenge\"}"));
+    assertTrue(lines.get(2).contains("\tout\tstandby\t"));
+  }
+
+  @Test
+  public void testRequestedDumpsAreRateLimited() throws Exception {
+    FrameTrace trace = new FrameTrace(config(16, 128));
+    trace.record(FrameTrace.Direction.in, false, "{\"type\":\"identityChallenge\"}");
+
+    Optional<Path> first = trace.requestDump("first");
+    Optional<Path> second = trace.requestDump("second");
+
+    assertTrue(first.isPresent());
+    assertTrue(Files.exists(first.get()));
+    assertTrue(second.isEmpty());
+    try (var files = Files.list(dir)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  private TraceConfig config(int slots, int slotBytes) {
+    return new TraceConfig() {
+      @Override
+      public boolean enabled() {
+        return true;
+      }
+
+      @Override
+      public int slots() {
+        return slots;
+      }
+
+      @Override
+      public int slotBytes() {
+        return slotBytes;
+      }
+
+      @Override
+      public String dumpDir() {
+        return dir.toString();
+      }
+
+      @Override
+      public boolean dumpOnError() {
+        return false;
+      }
+
+      @Override
+      public Duration dumpInterval() {
+        return DUMP_INTERVAL;
+      }
+
+      @Override
+      public boolean logFrames() {
+        return false;
+      }
+
+      @Override
+      public Optional<String> recordDir() {
+        return Optional.empty();
+      }
+
+      @Override
+      public int recordQueue() {
+        return 0;
+      }
+    };
+  }
+}
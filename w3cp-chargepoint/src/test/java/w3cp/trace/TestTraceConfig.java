@@ -0,0 +1,64 @@
+package w3cp.trace;
+
+import w3cp.cp.trace.TraceConfig;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * {@link TraceConfig} for tests that run without Quarkus.
+ */
+public final class TestTraceConfig {
+
+  private TestTraceConfig() {
+  }
+
+  public static TraceConfig off() {
+    return new TraceConfig() {
+      @Override
+      public boolean enabled() {
+        return false;
+      }
+
+      @Override
+      public int slots() {
+        return 0;
+      }
+
+      @Override
+      public int slotBytes() {
+        return 0;
+      }
+
+      @Override
+      public String dumpDir() {
+        return "traces";
+      }
+
+      @Override
+      public boolean dumpOnError() {
+        return false;
+      }
+
+      @Override
+      public Duration dumpInterval() {
+        return Duration.ofMinutes(1);
+      }
+
+      @Override
+      public boolean logFrames() {
+        return false;
+      }
+
+      @Override
+      public Optional<String> recordDir() {
+        return Optional.empty();
+      }
+
+      @Override
+      public int recordQueue() {
+        return 0;
+      }
+    };
+  }
+}
@@ -0,0 +1,109 @@
+package w3cp.trace;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import w3cp.cp.trace.FrameTrace;
+import w3cp.cp.trace.TrafficCapture;
+import w3cp.cp.trace.TrafficReplay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class TrafficReplayTest {
+
+  private static final int ROUNDS = 50;
+
+  @Inject
+  TrafficReplay replay;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void testCaptureRoundTripAndTornTail() throws Exception {
+    Path file = dir.resolve("roundtrip.w3tr");
+    Instant startedAt = Instant.parse("2026-01-01T00:00:00.123456789Z");
+    try (TrafficCapture.Writer out = new TrafficCapture.Writer(Files.newOutputStream(file), startedAt, 1_000)) {
+      out.write(1_000, FrameTrace.Direction.in, false, bytes("{\"type\":\"identityChallenge\"}"));
+      out.write(1_500_000, FrameTrace.Direction.out, true, bytes("{\"type\":\"identityProof\",\"x\":\"ü\"}"));
+      // Out of order timestamps are clamped to the previous frame
+      out.write(900_000, FrameTrace.Direction.in, false, new byte[300]);
+    }
+
+    TrafficCapture capture = TrafficCapture.read(file);
+    assertEquals(startedAt, capture.startedAt());
+    assertEquals(3, capture.frames().size());
+    assertEquals(0, capture.frames().get(0).offsetNanos());
+    assertEquals(1_499_000, capture.frames().get(1).offsetNanos());
+    assertEquals(1_499_000, capture.frames().get(2).offsetNanos());
+    assertEquals(FrameTrace.Direction.out, capture.frames().get(1).direction());
+    assertTrue(capture.frames().get(1).standby());
+    assertEquals("{\"type\":\"identityProof\",\"x\":\"ü\"}", capture.frames().get(1).text());
+    assertEquals(300, capture.frames().get(2).data().length);
+
+    byte[] all = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(all, all.length - 10));
+    assertEquals(2, TrafficCapture.read(file).frames().size());
+  }
+
+  @Test
+  public void testReplayReportsEveryInboundType() throws Exception {
+    Path file = dir.resolve("handshakes.w3tr");
+    writeHandshakes(file);
+
+    for (TrafficReplay.Pace pace : TrafficReplay.Pace.values()) {
+      TrafficReplay.Report report = replay.replay(file, pace);
+
+      assertEquals(3 * ROUNDS, report.frames());
+      assertEquals(3, report.byType().size());
+      for (String type : new String[]{"identityChallenge", "identityDiscovery", "connectionStatus"}) {
+        TrafficReplay.TypeStats stats = report.byType().get(type);
+        assertEquals(ROUNDS, stats.count(), type);
+        assertEquals(0, stats.failures(), type);
+        assertTrue(stats.p50Nanos() <= stats.p99Nanos() && stats.p99Nanos() <= stats.maxNanos(), type);
+      }
+    }
+  }
+
+  /**
+   * Challenge, discovery and verified status per round, 1ms apart, with the replies in between.
+   */
+  private void writeHandshakes(Path file) throws IOException {
+    long now = 0;
+    try (OutputStream stream = Files.newOutputStream(file);
+         TrafficCapture.Writer out = new TrafficCapture.Writer(stream, Instant.now(), now)) {
+      for (int i = 0; i < ROUNDS; i++) {
+        out.write(now += 1_000_000, FrameTrace.Direction.in, false, message("identityChallenge", new JsonObject()
+            .put("nonce", UUID.randomUUID().toString())
+            .put("difficulty", 0)));
+        out.write(now += 100_000, FrameTrace.Direction.out, false, bytes("{\"type\":\"identityProof\"}"));
+        out.write(now += 1_000_000, FrameTrace.Direction.in, false, message("identityDiscovery", new JsonObject()
+            .put("correlationId", UUID.randomUUID().toString())
+            .put("timestamp", Instant.now().toString())));
+        out.write(now += 100_000, FrameTrace.Direction.out, false, bytes("{\"type\":\"identityReport\"}"));
+        out.write(now += 1_000_000, FrameTrace.Direction.in, false, message("connectionStatus", new JsonObject()
+            .put("status", "verified")));
+      }
+    }
+  }
+
+  private static byte[] message(String type, JsonObject payload) {
+    return bytes(new JsonObject().put("type", type).put("payload", payload).encode());
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,149 @@
+package w3cp.util;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.logic.W3CPJson;
+import w3cp.cp.logic.state.input.dummy.DummyStaticFeeder;
+import w3cp.cp.util.CanonicalJson;
+import w3cp.cp.util.DigitalSignatureUtil;
+import w3cp.model.ChargePointStatus;
+import w3cp.model.ConnectionStatus;
+import w3cp.model.W3CPMessage;
+import w3cp.model.W3CPMessageType;
+import w3cp.model.identity.IdentityChallenge;
+import w3cp.model.identity.IdentityProof;
+import w3cp.model.identity.IdentityType;
+import w3cp.model.identity.W3CPPublicKey;
+import w3cp.model.identity.discovery.IdentityDiscovery;
+import w3cp.model.identity.discovery.IdentityReport;
+import w3cp.model.identity.key.PublicKeyIdentity;
+import w3cp.model.identity.web3.Web3Identity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Proves that {@link CanonicalJson} produces exactly the bytes of the original
+ * {@code writeValueAsString(...).getBytes(UTF_8)} canonicalization for every w3cp-dto payload type.
+ */
+public class CanonicalJsonCompatibilityTest {
+
+  private static final ObjectMapper legacyMapper = new ObjectMapper();
+
+  static {
+    legacyMapper.registerModule(new JavaTimeModule());
+    legacyMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    legacyMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    legacyMapper.setConfig(
+        legacyMapper.getSerializationConfig()
+            .with(PropertyNamingStrategies.LOWER_CAMEL_CASE)
+            .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+    );
+  }
+
+  private static final String TRICKY = "cp-ü-€-😀 \"quoted\" \\ back\nslash\t\u0001";
+  private static final Instant NANOS = Instant.parse("2025-03-01T12:34:56.123456789Z");
+
+  @Test
+  public void identityProofIsByteIdentical() throws Exception {
+    IdentityChallenge challenge = challenge();
+    IdentityProof web3Proof = new IdentityProof(TRICKY, NANOS, challenge.nonce(), IdentityType.web3,
+        new Web3Identity(Web3Identity.Web3IdentityMethod.polkadot, "did:w3cp:5Grw", "#key-1"), 1);
+    web3Proof.setPowNonce(Long.MAX_VALUE);
+    IdentityProof keyProof = new IdentityProof("cp-1", Instant.EPOCH, challenge.nonce(), IdentityType.publicKey, null, 1);
+
+    assertCompatible(web3Proof);
+    assertCompatible(keyProof);
+    assertCompatible(new W3CPMessage<>(W3CPMessageType.identityProof, web3Proof, "sig", "hash"));
+  }
+
+  @Test
+  public void identityChallengeAndConnectionStatusAreByteIdentical() throws Exception {
+    assertCompatible(challenge());
+    assertCompatible(W3CPJson.MAPPER.convertValue(Map.of("status", "verified"), ConnectionStatus.class));
+  }
+
+  @Test
+  public void identityDiscoveryAndReportAreByteIdentical() throws Exception {
+    IdentityDiscovery discovery = new IdentityDiscovery(UUID.randomUUID(), NANOS);
+    W3CPPublicKey key = new W3CPPublicKey(W3CPPublicKey.KeyType.ecP256, W3CPPublicKey.KeyEncoding.base64url, "MFkwEw-_");
+    IdentityReport report = new IdentityReport(
+        discovery.correlationId(),
+        NANOS,
+        List.of(new PublicKeyIdentity(key)),
+        new ArrayList<>(),
+        List.of(
+            new Web3Identity(Web3Identity.Web3IdentityMethod.kilt, "did:kilt:light:00abc", "#key-1"),
+            new Web3Identity(Web3Identity.Web3IdentityMethod.polkadot, TRICKY, null)
+        )
+    );
+
+    assertCompatible(discovery);
+    assertCompatible(report);
+    assertCompatible(new W3CPMessage<>(W3CPMessageType.identityReport, report, null, null));
+  }
+
+  @Test
+  public void chargePointStatusIsByteIdentical() throws Exception {
+    ChargePointStatus status = new ChargePointStatus();
+    status.setTimestamp(NANOS);
+    status.setOnlineSince(Instant.EPOCH);
+    status.setConnectionType(ChargePointStatus.ConnectionType.lte);
+
+    ChargePointStatus.Evse extremes = DummyStaticFeeder.generate(TRICKY);
+    extremes.setMeter(1e21);
+    extremes.setPower(-0.0);
+    extremes.setVoltage(0.1 + 0.2);
+    extremes.setCurrent(List.of(Double.MIN_VALUE, Double.MAX_VALUE, 1e-7));
+
+    ChargePointStatus.Evse empty = new ChargePointStatus.Evse();
+    empty.setEvseId("EVSE-EMPTY");
+
+    status.setEvses(List.of(DummyStaticFeeder.generate("EVSE-1"), extremes, empty));
+
+    assertCompatible(status);
+    assertCompatible(new ChargePointStatus());
+    assertCompatible(new W3CPMessage<>(W3CPMessageType.chargepointStatus, status, null, null));
+  }
+
+  @Test
+  public void reusableBufferDoesNotLeakPreviousContent() throws Exception {
+    ChargePointStatus big = new ChargePointStatus();
+    big.setEvses(List.of(DummyStaticFeeder.generate("EVSE-1"), DummyStaticFeeder.generate("EVSE-2")));
+    CanonicalJson.encode(big);
+
+    IdentityDiscovery small = new IdentityDiscovery(UUID.randomUUID(), NANOS);
+    CanonicalJson.ByteSink sink = CanonicalJson.encode(small);
+    assertArrayEquals(legacyBytes(small), sink.toByteArray());
+  }
+
+  private static IdentityChallenge challenge() {
+    return W3CPJson.MAPPER.convertValue(
+        Map.of("nonce", UUID.randomUUID().toString(), "difficulty", 3), IdentityChallenge.class);
+  }
+
+  private static void assertCompatible(Object payload) throws Exception {
+    byte[] expected = legacyBytes(payload);
+
+    assertArrayEquals(expected, CanonicalJson.toBytes(payload), "canonical bytes differ");
+    assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expected), CanonicalJson.sha256(payload),
+        "streamed digest differs");
+    assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expected),
+        DigitalSignatureUtil.computeSHA256BytesOnPayload(payload), "DigitalSignatureUtil digest differs");
+  }
+
+  private static byte[] legacyBytes(Object payload) throws Exception {
+    return legacyMapper.writeValueAsString(payload).getBytes(StandardCharsets.UTF_8);
+  }
+}
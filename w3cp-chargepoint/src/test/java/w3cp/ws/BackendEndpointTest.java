@@ -0,0 +1,88 @@
+package w3cp.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.ws.BackendEndpoint;
+import w3cp.cp.ws.BackendEndpointSelector;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackendEndpointTest {
+
+  @Test
+  void unmeasuredEndpointsKeepConfiguredOrder() {
+    BackendEndpointSelector selector = selector("ws://primary/w3cp", "ws://secondary/w3cp", "ws://tertiary/w3cp");
+
+    assertEquals(List.of("primary", "secondary", "tertiary"), hosts(selector.ranked()));
+    assertEquals(Double.POSITIVE_INFINITY, selector.ranked().get(0).score());
+  }
+
+  @Test
+  void measuredPrimaryBeatsUntriedFailover() {
+    BackendEndpointSelector selector = selector("ws://primary/w3cp", "ws://secondary/w3cp");
+    BackendEndpoint primary = selector.ranked().get(0);
+
+    primary.recordConnect(800_000_000);
+    primary.recordHandshake(2_000_000_000);
+    primary.recordRtt(300_000_000);
+
+    assertEquals(List.of("primary", "secondary"), hosts(selector.ranked()));
+    assertSame(selector.ranked().get(1), selector.bestExcept(primary));
+  }
+
+  @Test
+  void unmeasuredPhasesAreNotFree() {
+    BackendEndpoint connectedOnly = new BackendEndpoint(URI.create("ws://a/w3cp"), 0);
+    BackendEndpoint measured = new BackendEndpoint(URI.create("ws://b/w3cp"), 1);
+
+    connectedOnly.recordConnect(100_000_000);
+    measured.recordConnect(100_000_000);
+    measured.recordHandshake(20_000_000);
+    measured.recordRtt(10_000_000);
+
+    assertTrue(measured.score() < connectedOnly.score());
+  }
+
+  @Test
+  void failuresOutweighLatency() {
+    BackendEndpoint fastButFailing = new BackendEndpoint(URI.create("ws://a/w3cp"), 0);
+    BackendEndpoint slow = new BackendEndpoint(URI.create("ws://b/w3cp"), 1);
+
+    fastButFailing.recordConnect(5_000_000);
+    fastButFailing.recordFailure();
+    slow.recordConnect(400_000_000);
+    slow.recordRtt(100_000_000);
+
+    assertTrue(slow.score() < fastButFailing.score());
+  }
+
+  @Test
+  void latencyIsSmoothed() {
+    BackendEndpoint endpoint = new BackendEndpoint(URI.create("ws://a/w3cp"), 0);
+
+    endpoint.recordRtt(10_000_000);
+    endpoint.recordRtt(1_000_000_000);
+
+    // A single outlier moves the average but does not replace it
+    assertTrue(endpoint.rttMs() > 10 && endpoint.rttMs() < 500);
+  }
+
+  private static BackendEndpointSelector selector(String url, String... failoverUrls) {
+    BackendConfig config = new BackendConfig();
+    config.setWebsocketUrl(url);
+    config.setFailoverUrls(Optional.of(Arrays.asList(failoverUrls)));
+    return new BackendEndpointSelector(config, new SimpleMeterRegistry());
+  }
+
+  private static List<String> hosts(List<BackendEndpoint> endpoints) {
+    return endpoints.stream().map(endpoint -> endpoint.uri().getHost()).toList();
+  }
+}
@@ -0,0 +1,277 @@
+package w3cp.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.mutiny.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import w3cp.cp.CPConnection;
+import w3cp.cp.config.BackendConfig;
+import w3cp.cp.logic.ResumptionTickets;
+import w3cp.cp.loop.EventLoopMonitor;
+import w3cp.cp.trace.FrameTrace;
+import w3cp.cp.ws.BackendEndpoint;
+import w3cp.cp.ws.BackendEndpointSelector;
+import w3cp.cp.ws.WebSocketCPConnection;
+import w3cp.loop.TestEventLoopConfig;
+import w3cp.trace.TestTraceConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link WebSocketCPConnection} against local WebSocket servers standing in for the backend endpoints.
+ */
+public class WebSocketFailoverTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private Vertx vertx;
+  private WebSocketCPConnection connection;
+
+  @BeforeEach
+  void start() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  void stop() {
+    if (connection != null) {
+      connection.disconnect().await().atMost(TIMEOUT);
+    }
+    vertx.closeAndAwait();
+  }
+
+  @Test
+  public void testFailsOverToNextEndpoint() throws Exception {
+    int unreachable = freePort();
+    Backend failover = new Backend(Duration.ZERO);
+    connection = connection(config(Duration.ofSeconds(2), Duration.ofHours(1), false, unreachable, failover.port));
+    List<String> received = new CopyOnWriteArrayList<>();
+    connection.setMessageHandler(received::add);
+
+    connection.connect().await().atMost(TIMEOUT);
+
+    assertTrue(connection.isConnected());
+    assertEquals(1, failover.sockets.size());
+    awaitUntil(() -> received.contains("hello"));
+  }
+
+  @Test
+  public void testStandbyPromotedWhenActiveDrops() throws Exception {
+    Backend primary = new Backend(Duration.ZERO);
+    Backend secondary = new Backend(Duration.ZERO);
+    connection = connection(config(TIMEOUT, Duration.ofMillis(50), true, primary.port, secondary.port));
+    AtomicInteger failovers = new AtomicInteger();
+    AtomicInteger lost = new AtomicInteger();
+    connection.setFailoverHandler(failovers::incrementAndGet);
+    connection.setConnectionLostHandler(lost::incrementAndGet);
+    // The standby proves itself on its own channel, as the identity exchange would
+    AtomicReference<CPConnection> standbyChannel = new AtomicReference<>();
+    connection.setStandbyMessageHandler((message, channel) -> {
+      standbyChannel.set(channel);
+      channel.onSessionVerified();
+    });
+
+    connection.connect().await().atMost(TIMEOUT);
+    connection.onSessionVerified();
+    awaitUntil(connection::isStandbyReady);
+    assertEquals(1, primary.sockets.size());
+    assertEquals(1, secondary.sockets.size());
+
+    standbyChannel.get().send("standby reply").await().atMost(TIMEOUT);
+    awaitUntil(() -> secondary.received.contains("standby reply"));
+
+    primary.sockets.getFirst().close();
+    awaitUntil(() -> failovers.get() == 1);
+
+    // The standby carries on without a new connect
+    assertTrue(connection.isConnected());
+    assertEquals(0, lost.get());
+    assertEquals(1, secondary.sockets.size());
+    connection.send("after failover").await().atMost(TIMEOUT);
+    awaitUntil(() -> secondary.received.contains("after failover"));
+    assertFalse(primary.received.contains("after failover"));
+  }
+
+  @Test
+  public void testWebSocketOpeningAfterTimeoutIsClosed() throws Exception {
+    Backend slow = new Backend(Duration.ofMillis(500));
+    connection = connection(config(Duration.ofMillis(100), Duration.ofHours(1), false, slow.port));
+
+    assertThrows(RuntimeException.class, () -> connection.connect().await().atMost(TIMEOUT));
+    assertFalse(connection.isConnected());
+
+    awaitUntil(() -> slow.sockets.size() == 1);
+    awaitUntil(() -> slow.closed.get() == 1);
+  }
+
+  @Test
+  public void testByteBufFrameArrivesAsOneTextMessageAndIsReleased() throws Exception {
+    Backend backend = new Backend(Duration.ZERO);
+    connection = connection(config(TIMEOUT, Duration.ofHours(1), false, backend.port));
+    connection.setMessageHandler(message -> {
+    });
+    connection.connect().await().atMost(TIMEOUT);
+    ByteBuf frame = PooledByteBufAllocator.DEFAULT.directBuffer();
+    frame.writeCharSequence("{\"type\":\"chargepointStatus\"}", StandardCharsets.UTF_8);
+
+    connection.send(frame).await().atMost(TIMEOUT);
+
+    awaitUntil(() -> backend.received.contains("{\"type\":\"chargepointStatus\"}"));
+    awaitUntil(() -> frame.refCnt() == 0);
+  }
+
+  @Test
+  public void testBytesSentCountsUtf8Bytes() throws Exception {
+    Backend backend = new Backend(Duration.ZERO);
+    connection = connection(config(TIMEOUT, Duration.ofHours(1), false, backend.port));
+    connection.setMessageHandler(message -> {
+    });
+    connection.connect().await().atMost(TIMEOUT);
+    String message = "{\"note\":\"Ladesäule ⚡\"}";
+
+    connection.send(message).await().atMost(TIMEOUT);
+
+    awaitUntil(() -> backend.received.contains(message));
+    assertEquals(message.getBytes(StandardCharsets.UTF_8).length, connection.bytesSent());
+  }
+
+  @Test
+  public void testWssReconnectResumesTlsSession() throws Exception {
+    Backend backend = new Backend(Duration.ZERO, true);
+    BackendConfig config = config(TIMEOUT, Duration.ofHours(1), false, backend.port);
+    config.setWebsocketUrl("wss://localhost:" + backend.port + "/w3cp");
+    config.setTrustCerts(Optional.of(List.of(resource("tls/standin-cert.pem"))));
+    BackendEndpointSelector endpoints = new BackendEndpointSelector(config, new SimpleMeterRegistry());
+    connection = connection(config, endpoints);
+    connection.setMessageHandler(message -> {
+    });
+
+    connection.connect().await().atMost(TIMEOUT);
+    connection.disconnect().await().atMost(TIMEOUT);
+    connection.connect().await().atMost(TIMEOUT);
+
+    assertEquals(2, backend.sockets.size());
+    assertArrayEquals(backend.sockets.get(0).sslSession().getId(), backend.sockets.get(1).sslSession().getId(),
+        "the second connect should resume the TLS session of the first");
+    BackendEndpoint.ConnectPhases phases = endpoints.ranked().getFirst().lastPhases();
+    assertTrue(phases.tls());
+    assertTrue(phases.dnsCached(), "the second connect should reuse the resolved address");
+    assertTrue(phases.connectNanos() > 0);
+  }
+
+  private WebSocketCPConnection connection(BackendConfig config) {
+    return connection(config, new BackendEndpointSelector(config, new SimpleMeterRegistry()));
+  }
+
+  private WebSocketCPConnection connection(BackendConfig config, BackendEndpointSelector endpoints) {
+    return new WebSocketCPConnection(config, vertx, endpoints,
+        new FrameTrace(TestTraceConfig.off()), new ResumptionTickets(config, null),
+        new EventLoopMonitor(TestEventLoopConfig.off(), vertx, new SimpleMeterRegistry()));
+  }
+
+  private static BackendConfig config(Duration connectTimeout, Duration pingInterval, boolean warmStandby,
+                                      int port, int... failoverPorts) {
+    BackendConfig config = new BackendConfig();
+    config.setTransport("websocket");
+    config.setWebsocketUrl(url(port));
+    config.setFailoverUrls(Optional.of(Arrays.stream(failoverPorts)
+        .mapToObj(WebSocketFailoverTest::url)
+        .toList()));
+    config.setTrustCerts(Optional.empty());
+    config.setConnectTimeout(connectTimeout);
+    config.setPingInterval(pingInterval);
+    config.setWarmStandby(warmStandby);
+    config.setDnsTtl(Duration.ofSeconds(60));
+    config.setRequestTimeout(TIMEOUT);
+    return config;
+  }
+
+  private static String url(int port) {
+    return "ws://localhost:" + port + "/w3cp";
+  }
+
+  private static String resource(String name) throws Exception {
+    return Path.of(WebSocketFailoverTest.class.getResource("/" + name).toURI()).toString();
+  }
+
+  private int freePort() throws Exception {
+    HttpServer server = vertx.getDelegate().createHttpServer().requestHandler(request -> request.response().end());
+    int port = await(server.listen(0)).actualPort();
+    await(server.close());
+    return port;
+  }
+
+  private static <T> T await(io.vertx.core.Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(5);
+    }
+  }
+
+  /**
+   * Accepts WebSockets after {@code handshakeDelay}, greets each with {@code hello} and records what it receives.
+   * With {@code tls} it serves the self-signed certificate in {@code tls/} over TLS 1.2, whose session ids show
+   * whether a connect resumed an earlier session.
+   */
+  private final class Backend {
+
+    private final List<ServerWebSocket> sockets = new CopyOnWriteArrayList<>();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final int port;
+
+    Backend(Duration handshakeDelay) throws Exception {
+      this(handshakeDelay, false);
+    }
+
+    Backend(Duration handshakeDelay, boolean tls) throws Exception {
+      HttpServerOptions options = new HttpServerOptions();
+      if (tls) {
+        options.setSsl(true)
+            .setKeyCertOptions(new PemKeyCertOptions()
+                .setKeyPath(resource("tls/standin-key.pem"))
+                .setCertPath(resource("tls/standin-cert.pem")))
+            .setEnabledSecureTransportProtocols(Set.of("TLSv1.2"));
+      }
+      HttpServer server = vertx.getDelegate().createHttpServer(options).webSocketHandler(ws -> {
+        sockets.add(ws);
+        ws.textMessageHandler(received::add);
+        ws.closeHandler(v -> closed.incrementAndGet());
+        if (handshakeDelay.isZero()) {
+          ws.writeTextMessage("hello");
+          return;
+        }
+        Promise<Integer> handshake = Promise.promise();
+        ws.setHandshake(handshake.future());
+        vertx.getDelegate().setTimer(handshakeDelay.toMillis(), id -> handshake.complete(101));
+      });
+      port = await(server.listen(0)).actualPort();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package w3cp.cp.logic.state.input.metering;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation; processes as many EVSEs per instruction as the CPU's preferred vector width holds
+ * and leaves the remainder to {@link ScalarPhaseKernel}.
+ * <p>
+ * Power and imbalance are computed in the same order as the scalar kernel and come out the same. The energy step
+ * is a fused multiply-add, rounded once where the scalar kernel rounds twice, so energy can differ from it in
+ * the last bit per step. Compiled in its own source set, the only one that needs {@code jdk.incubator.vector},
+ * and loaded by {@link PhaseKernel#best()} only when that module is in the boot layer.
+ */
+final class VectorPhaseKernel implements PhaseKernel {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  @Override
+  public void powerAndImbalance(PhaseSamples s, double[] power, double[] imbalance) {
+    int size = s.size();
+    int bound = SPECIES.loopBound(size);
+    DoubleVector zero = DoubleVector.zero(SPECIES);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      DoubleVector i1 = DoubleVector.fromArray(SPECIES, s.currentL1, i);
+      DoubleVector i2 = DoubleVector.fromArray(SPECIES, s.currentL2, i);
+      DoubleVector i3 = DoubleVector.fromArray(SPECIES, s.currentL3, i);
+
+      DoubleVector.fromArray(SPECIES, s.voltageL1, i).mul(i1)
+          .add(DoubleVector.fromArray(SPECIES, s.voltageL2, i).mul(i2))
+          .add(DoubleVector.fromArray(SPECIES, s.voltageL3, i).mul(i3))
+          .intoArray(power, i);
+
+      DoubleVector mean = i1.add(i2).add(i3).mul(1.0 / 3);
+      DoubleVector deviation = i1.sub(mean).abs()
+          .max(i2.sub(mean).abs())
+          .max(i3.sub(mean).abs());
+      VectorMask<Double> idle = mean.compare(VectorOperators.LE, 0.0);
+      deviation.div(mean).blend(zero, idle).intoArray(imbalance, i);
+    }
+    ScalarPhaseKernel.powerAndImbalance(s, power, imbalance, i, size);
+  }
+
+  @Override
+  public void integrate(double[] previousPower, double[] power, double hours, double[] energyWh, int size) {
+    int bound = SPECIES.loopBound(size);
+    DoubleVector halfStep = DoubleVector.broadcast(SPECIES, hours * 0.5);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      DoubleVector current = DoubleVector.fromArray(SPECIES, power, i);
+      DoubleVector.fromArray(SPECIES, previousPower, i).add(current)
+          .fma(halfStep, DoubleVector.fromArray(SPECIES, energyWh, i))
+          .intoArray(energyWh, i);
+      current.intoArray(previousPower, i);
+    }
+    ScalarPhaseKernel.integrate(previousPower, power, hours, energyWh, i, size);
+  }
+}